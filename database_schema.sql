@@ -120,6 +120,7 @@ CREATE TABLE sesiones (
     latitud_profesor DECIMAL(10, 8) NOT NULL CHECK (latitud_profesor >= -90 AND latitud_profesor <= 90),
     longitud_profesor DECIMAL(11, 8) NOT NULL CHECK (longitud_profesor >= -180 AND longitud_profesor <= 180),
     radio_proximidad DECIMAL(8, 2) DEFAULT 6.0 CHECK (radio_proximidad > 0),
+    usar_geocerca BOOLEAN DEFAULT FALSE, -- validar firmas con la geocerca del aula en lugar del radio
     fecha_inicio TIMESTAMP NOT NULL,
     fecha_fin TIMESTAMP,
     fecha_cierre TIMESTAMP,
@@ -150,6 +151,103 @@ CREATE TABLE sesiones_detalle (
     UNIQUE(id_sesion, id_estudiante)
 );
 
+-- ============================================
+-- TABLA DE ESTADÍSTICAS CONGELADAS (sesiones cerradas)
+-- ============================================
+-- Se escribe al cerrar la sesión; las consultas de una sesión FINALIZADA se sirven desde aquí
+CREATE TABLE sesiones_estadisticas (
+    id_sesion INTEGER PRIMARY KEY REFERENCES sesiones(id) ON DELETE CASCADE,
+    fecha_cierre TIMESTAMP,
+    total_inscritos BIGINT NOT NULL,
+    total_firmaron BIGINT NOT NULL,
+    presentes BIGINT NOT NULL,
+    ausentes BIGINT NOT NULL,
+    tardios BIGINT NOT NULL,
+    fuera_rango BIGINT NOT NULL,
+    primera_firma TIMESTAMP,
+    ultima_firma TIMESTAMP,
+    promedio_distancia DOUBLE PRECISION,
+    distancia_minima DOUBLE PRECISION,
+    distancia_maxima DOUBLE PRECISION,
+    estudiantes_en_rango BIGINT NOT NULL,
+    estudiantes_fuera_rango BIGINT NOT NULL,
+    fecha_calculo TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- ============================================
+-- TABLA DE RESUMEN DIARIO POR CURSO (dashboard)
+-- ============================================
+-- Sesiones y firmas por estado de cada curso y día; se actualiza al confirmar firmas y sesiones
+CREATE TABLE asistencias_diarias_curso (
+    id SERIAL PRIMARY KEY,
+    id_curso INTEGER NOT NULL REFERENCES cursos(id) ON DELETE CASCADE,
+    fecha DATE NOT NULL,
+    sesiones BIGINT NOT NULL DEFAULT 0,
+    presentes BIGINT NOT NULL DEFAULT 0,
+    ausentes BIGINT NOT NULL DEFAULT 0,
+    tardios BIGINT NOT NULL DEFAULT 0,
+    fuera_rango BIGINT NOT NULL DEFAULT 0,
+    UNIQUE(id_curso, fecha)
+);
+
+-- ============================================
+-- TABLA DE HECHOS DE ASISTENCIA (reportes)
+-- ============================================
+-- Registros por curso, estudiante, día y estado: firmas confirmadas y ausencias de las sesiones cerradas
+CREATE TABLE hechos_asistencia (
+    id SERIAL PRIMARY KEY,
+    id_curso INTEGER NOT NULL REFERENCES cursos(id) ON DELETE CASCADE,
+    id_estudiante INTEGER NOT NULL REFERENCES usuarios(id_usuario) ON DELETE CASCADE,
+    fecha DATE NOT NULL,
+    estado SMALLINT NOT NULL, -- ordinal de EstadoAsistencia
+    cantidad BIGINT NOT NULL,
+    UNIQUE(id_curso, id_estudiante, fecha, estado)
+);
+
+-- ============================================
+-- TABLA DE GEOCERCAS DE AULAS
+-- ============================================
+-- Vértices como "lat,lon;lat,lon;..."; el aula se guarda en mayúsculas y sin espacios extremos
+CREATE TABLE geocercas_aula (
+    id SERIAL PRIMARY KEY,
+    aula VARCHAR(100) NOT NULL UNIQUE,
+    vertices TEXT NOT NULL,
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    fecha_modificacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    creado_por VARCHAR(100),
+    modificado_por VARCHAR(100)
+);
+
+-- ============================================
+-- TABLA DE COINCIDENCIAS DE UBICACIÓN (análisis por periodo)
+-- ============================================
+-- Pares de estudiantes que firmaron juntos en varias sesiones; cada análisis reemplaza el ranking del periodo
+CREATE TABLE coincidencias_ubicacion (
+    id SERIAL PRIMARY KEY,
+    periodo VARCHAR(20) NOT NULL,
+    posicion INTEGER NOT NULL,
+    id_estudiante_a INTEGER NOT NULL REFERENCES usuarios(id_usuario) ON DELETE CASCADE,
+    id_estudiante_b INTEGER NOT NULL REFERENCES usuarios(id_usuario) ON DELETE CASCADE,
+    coincidencias INTEGER NOT NULL,
+    firmas_estudiante_a INTEGER NOT NULL,
+    firmas_estudiante_b INTEGER NOT NULL,
+    indice DOUBLE PRECISION NOT NULL,
+    fecha_calculo TIMESTAMP NOT NULL,
+    UNIQUE(periodo, id_estudiante_a, id_estudiante_b),
+    CHECK (id_estudiante_a < id_estudiante_b)
+);
+
+-- ============================================
+-- SECUENCIAS (asignación por bloques de 50)
+-- ============================================
+
+-- Hibernate reserva 50 ids por llamada (optimizador pooled) para poder insertar por lotes
+ALTER SEQUENCE usuarios_cursos_id_seq INCREMENT BY 50;
+ALTER SEQUENCE sesiones_id_seq INCREMENT BY 50;
+ALTER SEQUENCE hechos_asistencia_id_seq INCREMENT BY 50;
+ALTER SEQUENCE coincidencias_ubicacion_id_seq INCREMENT BY 50;
+ALTER SEQUENCE sesiones_detalle_id_seq INCREMENT BY 50;
+
 -- ============================================
 -- ÍNDICES PARA OPTIMIZACIÓN
 -- ============================================
@@ -179,6 +277,16 @@ CREATE INDEX idx_sesiones_detalle_estudiante ON sesiones_detalle(id_estudiante);
 CREATE INDEX idx_sesiones_detalle_estado ON sesiones_detalle(estado);
 CREATE INDEX idx_sesiones_detalle_fecha_firma ON sesiones_detalle(fecha_firma);
 
+-- Índices para el resumen diario
+CREATE INDEX idx_asistencias_diarias_curso_fecha ON asistencias_diarias_curso(fecha);
+
+-- Índices para la tabla de hechos (la única cubre curso, estudiante y fecha)
+CREATE INDEX idx_hechos_asistencia_estudiante ON hechos_asistencia(id_estudiante);
+
+-- Ranking de coincidencias por periodo
+CREATE INDEX idx_coincidencias_ubicacion_posicion ON coincidencias_ubicacion(periodo, posicion);
+CREATE INDEX idx_sesiones_fecha_inicio ON sesiones(fecha_inicio);
+
 -- ============================================
 -- DATOS DE PRUEBA
 -- ============================================
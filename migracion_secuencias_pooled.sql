@@ -0,0 +1,35 @@
+-- ============================================
+-- MIGRACIÓN: SECUENCIAS CON ASIGNACIÓN POR BLOQUES
+-- usuarios_cursos, sesiones y sesiones_detalle pasan de IDENTITY a SEQUENCE
+-- (allocationSize = 50, optimizador pooled) para habilitar los INSERT por lotes.
+-- Ejecutar ANTES de desplegar la versión que usa secuencias: Hibernate valida
+-- al iniciar que el incremento de la secuencia coincida con allocationSize.
+-- ============================================
+
+-- Funciona tanto con columnas SERIAL (database_schema.sql) como con columnas
+-- IDENTITY creadas por Hibernate; en ambos casos la secuencia es <tabla>_id_seq.
+DO $$
+DECLARE
+    tabla TEXT;
+    secuencia TEXT;
+    es_identity BOOLEAN;
+BEGIN
+    FOREACH tabla IN ARRAY ARRAY['usuarios_cursos', 'sesiones', 'sesiones_detalle'] LOOP
+        secuencia := pg_get_serial_sequence(tabla, 'id');
+
+        SELECT is_identity = 'YES' INTO es_identity
+        FROM information_schema.columns
+        WHERE table_name = tabla AND column_name = 'id';
+
+        IF es_identity THEN
+            -- La columna deja de generar el id; Hibernate lo toma de la secuencia
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', tabla);
+            EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I_id_seq OWNED BY %I.id', tabla, tabla);
+            secuencia := tabla || '_id_seq';
+        END IF;
+
+        EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', secuencia);
+        -- El siguiente bloque empieza después del mayor id existente
+        EXECUTE format('SELECT setval(%L, (SELECT COALESCE(MAX(id), 0) + 50 FROM %I))', secuencia, tabla);
+    END LOOP;
+END $$;
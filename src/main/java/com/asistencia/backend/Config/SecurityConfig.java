@@ -28,6 +28,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/asistencia/**").permitAll()
                         .requestMatchers("/api/cursos/**").permitAll()
                         .requestMatchers("/api/asignaturas/**").permitAll()
+                        .requestMatchers("/api/reportes/cubo/**").hasRole("PROFESOR")
                         .requestMatchers("/api/reportes/**").permitAll()
                         .requestMatchers("/api/usuarios/**").permitAll()
                         .requestMatchers("/api/estudiantes/**").hasRole("ESTUDIANTE")
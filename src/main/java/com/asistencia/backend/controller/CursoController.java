@@ -141,6 +141,27 @@ public class CursoController {
         }
     }
     
+    /**
+     * POST /api/cursos/{id}/inscribir/lote
+     * Inscribir varios estudiantes en un curso (omite los ya inscritos)
+     */
+    @PostMapping("/{id}/inscribir/lote")
+    public ResponseEntity<?> inscribirEstudiantes(
+            @PathVariable Long id,
+            @RequestBody @Valid InscribirEstudiantesRequest request) {
+        try {
+            List<UsuarioCurso> inscripciones = cursoService.inscribirEstudiantes(id, request);
+            List<Long> idsInscritos = inscripciones.stream()
+                .map(inscripcion -> inscripcion.getUsuario().getId())
+                .toList();
+            return ResponseEntity.ok(new ApiResponse(true, 
+                idsInscritos.size() + " estudiantes inscritos", idsInscritos));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
     /**
      * GET /api/cursos/periodos
      * Obtener períodos disponibles
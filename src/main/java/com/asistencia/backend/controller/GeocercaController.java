@@ -0,0 +1,80 @@
+package com.asistencia.backend.controller;
+
+import com.asistencia.backend.dto.GeocercaDTO;
+import com.asistencia.backend.dto.GeocercaRequest;
+import com.asistencia.backend.response.ApiResponse;
+import com.asistencia.backend.service.GeocercaService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/geocercas")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class GeocercaController {
+    
+    private final GeocercaService geocercaService;
+    
+    /**
+     * GET /api/geocercas
+     * Listar las geocercas de las aulas
+     */
+    @GetMapping
+    public ResponseEntity<?> listar() {
+        try {
+            List<GeocercaDTO> geocercas = geocercaService.listar();
+            return ResponseEntity.ok(geocercas);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * GET /api/geocercas/{aula}
+     * Obtener la geocerca de un aula
+     */
+    @GetMapping("/{aula}")
+    public ResponseEntity<?> obtener(@PathVariable String aula) {
+        try {
+            GeocercaDTO geocerca = geocercaService.obtener(aula);
+            return ResponseEntity.ok(geocerca);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    /**
+     * PUT /api/geocercas/{aula}
+     * Crear o reemplazar la geocerca de un aula
+     */
+    @PutMapping("/{aula}")
+    public ResponseEntity<?> guardar(@PathVariable String aula, @Valid @RequestBody GeocercaRequest request) {
+        try {
+            GeocercaDTO geocerca = geocercaService.guardar(aula, request);
+            return ResponseEntity.ok(new ApiResponse(true, "Geocerca guardada exitosamente", geocerca));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * DELETE /api/geocercas/{aula}
+     * Eliminar la geocerca de un aula; sus sesiones vuelven a validar por radio
+     */
+    @DeleteMapping("/{aula}")
+    public ResponseEntity<?> eliminar(@PathVariable String aula) {
+        try {
+            geocercaService.eliminar(aula);
+            return ResponseEntity.ok(new ApiResponse(true, "Geocerca eliminada exitosamente", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+}
@@ -2,12 +2,26 @@ package com.asistencia.backend.controller;
 
 import com.asistencia.backend.dto.*;
 import com.asistencia.backend.response.ApiResponse;
+import com.asistencia.backend.service.AnalisisCoincidencias;
 import com.asistencia.backend.service.ReporteService;
+import com.asistencia.backend.service.TrabajosReporte;
+import com.asistencia.backend.util.EscritorExportacion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 
@@ -18,6 +32,11 @@ import java.time.LocalDate;
 public class ReporteController {
     
     private final ReporteService reporteService;
+    private final TrabajosReporte trabajosReporte;
+    private final AnalisisCoincidencias analisisCoincidencias;
+    
+    @Value("${asistencia.exportacion.timeout-ms:300000}")
+    private long timeoutExportacionMs;
     
     /**
      * GET /api/reportes/curso/{idCurso}/asistencia
@@ -79,22 +98,208 @@ public class ReporteController {
      * Exportar reporte de curso a Excel
      */
     @GetMapping("/exportar/curso/{idCurso}/excel")
-    public ResponseEntity<byte[]> exportarReporteExcel(@PathVariable Long idCurso) {
+    public ResponseEntity<StreamingResponseBody> exportarReporteExcel(@PathVariable Long idCurso,
+                                                                      HttpServletRequest request) {
+        try {
+            String nombreArchivo = reporteService.nombreArchivoExcel(idCurso);
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+            headers.setContentDispositionFormData("attachment", nombreArchivo);
+            
+            // El archivo se escribe directo a la respuesta a medida que se leen las filas
+            StreamingResponseBody cuerpo = salida -> reporteService.exportarReporteExcel(idCurso, salida);
+            ampliarTiempoLimite(request);
+            return ResponseEntity.ok()
+                .headers(headers)
+                .body(cuerpo);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * GET /api/reportes/exportar/periodo/{periodo}?formato=csv|ndjson&gzip=true
+     * Exportar todas las firmas de un periodo (con estudiante, curso y sesión) en CSV o NDJSON
+     */
+    @GetMapping("/exportar/periodo/{periodo}")
+    public ResponseEntity<StreamingResponseBody> exportarPeriodo(
+            @PathVariable String periodo,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request) {
+        try {
+            EscritorExportacion.Formato tipo = EscritorExportacion.Formato.desde(formato);
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(tipo.getTipoContenido() + ";charset=UTF-8"));
+            headers.setContentDispositionFormData("attachment", reporteService.nombreArchivoPeriodo(periodo, tipo, gzip));
+            
+            StreamingResponseBody cuerpo = salida -> reporteService.exportarPeriodo(periodo, tipo, gzip, salida);
+            ampliarTiempoLimite(request);
+            return ResponseEntity.ok()
+                .headers(headers)
+                .body(cuerpo);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * POST /api/reportes/jobs
+     * Encolar un reporte largo (PERIODO o CURSO_EXCEL); una solicitud igual a una en curso devuelve ese trabajo
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> encolarReporte(@RequestBody @Valid SolicitudReporteRequest request) {
+        try {
+            TrabajoReporteDTO trabajo = trabajosReporte.encolar(request);
+            return ResponseEntity.ok(new ApiResponse(true, "Reporte en cola", trabajo));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * GET /api/reportes/jobs/{id}
+     * Estado y avance de un reporte encolado
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getTrabajoReporte(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(trabajosReporte.getTrabajo(id));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * GET /api/reportes/jobs/{id}/descarga
+     * Descargar el archivo de un reporte terminado (admite encabezados Range)
+     */
+    @GetMapping("/jobs/{id}/descarga")
+    public ResponseEntity<Resource> descargarTrabajoReporte(@PathVariable String id) {
         try {
-            byte[] excel = reporteService.exportarReporteExcel(idCurso);
+            TrabajosReporte.Descarga descarga = trabajosReporte.getDescarga(id);
             
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "reporte_asistencia.xlsx");
+            headers.setContentType(MediaType.parseMediaType(descarga.tipoContenido()));
+            headers.setContentDispositionFormData("attachment", descarga.nombreArchivo());
             
+            // Con un Resource como cuerpo Spring responde 206 con el rango pedido
             return ResponseEntity.ok()
                 .headers(headers)
-                .body(excel);
+                .body(new FileSystemResource(descarga.archivo()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    /**
+     * GET /api/reportes/cache
+     * Aciertos, fallos y desalojos de la cache de reportes
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<?> getEstadisticasCache() {
+        return ResponseEntity.ok(reporteService.getEstadisticasCache());
+    }
+    
+    /**
+     * GET /api/reportes/resumen-diario/estado
+     * Última actualización correcta del resumen diario del dashboard y último error
+     */
+    @GetMapping("/resumen-diario/estado")
+    public ResponseEntity<?> getEstadoResumenDiario() {
+        return ResponseEntity.ok(reporteService.getEstadoResumenDiario());
+    }
+    
+    /**
+     * POST /api/reportes/cubo/reconstruir/{periodo}
+     * Iniciar en segundo plano la reconstrucción de la tabla de hechos de un periodo (se puede repetir)
+     */
+    @PostMapping("/cubo/reconstruir/{periodo}")
+    public ResponseEntity<?> reconstruirCubo(@PathVariable String periodo) {
+        try {
+            ReconstruccionCuboDTO reconstruccion = reporteService.reconstruirCubo(periodo);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse(true, "Reconstrucción de hechos de asistencia en curso", reconstruccion));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * GET /api/reportes/cubo/reconstruir/{periodo}
+     * Estado de la última reconstrucción de la tabla de hechos del periodo
+     */
+    @GetMapping("/cubo/reconstruir/{periodo}")
+    public ResponseEntity<?> getReconstruccionCubo(@PathVariable String periodo) {
+        try {
+            return ResponseEntity.ok(reporteService.getReconstruccionCubo(periodo));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * GET /api/reportes/cubo/estado
+     * Última actualización correcta de la tabla de hechos y último error
+     */
+    @GetMapping("/cubo/estado")
+    public ResponseEntity<?> getEstadoCubo() {
+        return ResponseEntity.ok(reporteService.getEstadoCubo());
+    }
+    
+    /**
+     * POST /api/reportes/coincidencias/{periodo}
+     * Iniciar el análisis de pares de estudiantes que firman juntos en muchas sesiones del periodo
+     */
+    @PostMapping("/coincidencias/{periodo}")
+    public ResponseEntity<?> analizarCoincidencias(@PathVariable String periodo) {
+        try {
+            AnalisisCoincidenciasDTO analisis = analisisCoincidencias.iniciar(periodo);
+            return ResponseEntity.ok(new ApiResponse(true, "Análisis de coincidencias en curso", analisis));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * GET /api/reportes/coincidencias/{periodo}/estado
+     * Estado del último análisis de coincidencias del periodo
+     */
+    @GetMapping("/coincidencias/{periodo}/estado")
+    public ResponseEntity<?> getEstadoCoincidencias(@PathVariable String periodo) {
+        try {
+            return ResponseEntity.ok(analisisCoincidencias.getEstado(periodo));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * GET /api/reportes/coincidencias/{periodo}
+     * Ranking de pares de estudiantes con más sesiones firmadas juntos (del último análisis)
+     */
+    @GetMapping("/coincidencias/{periodo}")
+    public ResponseEntity<?> getCoincidencias(@PathVariable String periodo,
+            @PageableDefault(size = 50) Pageable pageable) {
+        try {
+            Page<CoincidenciaUbicacionDTO> coincidencias = analisisCoincidencias.getResultados(periodo, pageable);
+            return ResponseEntity.ok(coincidencias);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
     /**
      * GET /api/reportes/dashboard
      * Dashboard general con estadísticas
@@ -109,4 +314,9 @@ public class ReporteController {
                 .body(new ApiResponse(false, e.getMessage(), null));
         }
     }
+    
+    // Las exportaciones pueden tardar minutos: solo estas respuestas amplían el tiempo límite asíncrono
+    private void ampliarTiempoLimite(HttpServletRequest request) {
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(timeoutExportacionMs);
+    }
 }
@@ -4,13 +4,20 @@ import com.asistencia.backend.dto.*;
 import com.asistencia.backend.model.Sesion;
 import com.asistencia.backend.response.ApiResponse;
 import com.asistencia.backend.service.SesionService;
+import com.asistencia.backend.service.TransmisionAsistencia;
+import com.asistencia.backend.service.VersionesSesion;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -23,6 +30,8 @@ import java.util.Map;
 public class SesionController {
     
     private final SesionService sesionService;
+    private final TransmisionAsistencia transmisionAsistencia;
+    private final VersionesSesion versionesSesion;
     
     /**
      * POST /api/sesiones/crear
@@ -108,11 +117,16 @@ public class SesionController {
      * Obtener detalle de una sesión específica
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getSesion(@PathVariable Long id) {
+    public ResponseEntity<?> getSesion(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionesSesion.etag(id);
+        if (noModificada(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
             Sesion sesion = sesionService.getSesionById(id);
             SesionDetalleResponse sesionResponse = sesionService.convertirASesionDetalleResponse(sesion);
-            return ResponseEntity.ok(sesionResponse);
+            return ResponseEntity.ok().eTag(etag).body(sesionResponse);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
@@ -123,27 +137,71 @@ public class SesionController {
      * Obtener reporte de asistencia de una sesión
      */
     @GetMapping("/{id}/asistencia")
-    public ResponseEntity<?> getAsistenciaSesion(@PathVariable Long id) {
+    public ResponseEntity<?> getAsistenciaSesion(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionesSesion.etag(id);
+        if (noModificada(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
             Sesion sesion = sesionService.getSesionById(id);
             ReporteAsistenciaResponse reporte = sesionService.convertirAReporteAsistenciaResponse(sesion);
-            return ResponseEntity.ok(reporte);
+            return ResponseEntity.ok().eTag(etag).body(reporte);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(new ApiResponse(false, e.getMessage(), null));
         }
     }
     
+    /**
+     * GET /api/sesiones/{id}/stream
+     * Transmisión en vivo (Server-Sent Events) de las firmas y contadores de una sesión activa.
+     * Si la sesión no existe o no está activa responde 400 con el motivo.
+     */
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter seguirSesion(@PathVariable Long id) {
+        try {
+            return transmisionAsistencia.suscribir(id);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+    
     /**
      * GET /api/sesiones/{id}/estadisticas
      * Obtener estadísticas de una sesión
      */
     @GetMapping("/{id}/estadisticas")
-    public ResponseEntity<?> getEstadisticasSesion(@PathVariable Long id) {
+    public ResponseEntity<?> getEstadisticasSesion(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionesSesion.etag(id);
+        if (noModificada(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
             Sesion sesion = sesionService.getSesionById(id);
             EstadisticasSesionResponse estadisticas = sesionService.convertirAEstadisticasSesionResponse(sesion);
-            return ResponseEntity.ok(estadisticas);
+            return ResponseEntity.ok().eTag(etag).body(estadisticas);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * GET /api/sesiones/{id}/anomalias
+     * Grupos de firmas registradas en el mismo punto (teléfono compartido o GPS simulado)
+     */
+    @GetMapping("/{id}/anomalias")
+    public ResponseEntity<?> getAnomaliasSesion(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionesSesion.etag(id);
+        if (noModificada(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            List<AnomaliaUbicacionDTO> anomalias = sesionService.getAnomaliasUbicacion(id);
+            return ResponseEntity.ok().eTag(etag).body(anomalias);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(new ApiResponse(false, e.getMessage(), null));
@@ -184,4 +242,20 @@ public class SesionController {
                 .body(new ApiResponse(false, e.getMessage(), null));
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * True si alguna de las ETag de If-None-Match coincide con la versión actual de la sesión.
+     */
+    private static boolean noModificada(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidata : ifNoneMatch.split(",")) {
+            String valor = candidata.trim();
+            if (valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Evento de la transmisión en vivo de una sesión (GET /api/sesiones/{id}/stream):
+ * las firmas confirmadas desde el evento anterior y los contadores actualizados.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActualizacionAsistenciaDTO {
+    private Long idSesion;
+    private List<FirmaNueva> firmas;
+    private Long totalInscritos;
+    private Long totalFirmaron;
+    private Long presentes;
+    private Long ausentes;
+    private Long tardios;
+    private Long fueraRango;
+    private Double porcentajeAsistencia;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class FirmaNueva {
+        private Long id;
+        private Long idEstudiante;
+        private String estado;
+        private LocalDateTime fechaFirma;
+        private Double distanciaMetros;
+        private Boolean enRango;
+    }
+}
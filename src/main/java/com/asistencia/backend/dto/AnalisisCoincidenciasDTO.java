@@ -0,0 +1,27 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnalisisCoincidenciasDTO {
+    private String periodo;
+    private String estado; // EN_CURSO, COMPLETADO, FALLIDO
+    private Long firmas;
+    private Long sesiones;
+    // Pares distintos que coincidieron al menos una vez
+    private Long pares;
+    // Pares guardados en el ranking
+    private Integer resultados;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+    private Long duracionMs;
+    private String error;
+}
@@ -0,0 +1,24 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Grupo de firmas de una sesión registradas en el mismo punto (posible teléfono compartido o GPS simulado).
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnomaliaUbicacionDTO {
+    // Centro del grupo (promedio de las ubicaciones de sus firmas)
+    private Double latitud;
+    private Double longitud;
+    private Integer totalFirmas;
+    private List<Long> idsEstudiantes;
+    private List<Long> idsDetalle;
+}
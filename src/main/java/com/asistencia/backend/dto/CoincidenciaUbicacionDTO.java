@@ -0,0 +1,27 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CoincidenciaUbicacionDTO {
+    private Integer posicion;
+    private Long idEstudianteA;
+    private String identificacionEstudianteA;
+    private String nombreEstudianteA;
+    private Long idEstudianteB;
+    private String identificacionEstudianteB;
+    private String nombreEstudianteB;
+    private Integer coincidencias;
+    private Integer firmasEstudianteA;
+    private Integer firmasEstudianteB;
+    private Double indice;
+    private LocalDateTime fechaCalculo;
+}
@@ -27,6 +27,9 @@ public class CrearSesionRequest {
     @Size(max = 100, message = "El aula no puede exceder 100 caracteres")
     private String aula;
     
+    // Validar las firmas con la geocerca registrada del aula en lugar del radio
+    private Boolean usarGeocerca;
+    
     @NotNull(message = "La latitud es obligatoria")
     @DecimalMin(value = "-90.0", message = "La latitud debe estar entre -90 y 90")
     @DecimalMax(value = "90.0", message = "La latitud debe estar entre -90 y 90")
@@ -0,0 +1,19 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EstadisticasCacheDTO {
+    private Integer entradas;
+    private Integer capacidad;
+    private Long aciertos;
+    private Long fallos;
+    private Long desalojos;
+    private Double tasaAciertos;
+}
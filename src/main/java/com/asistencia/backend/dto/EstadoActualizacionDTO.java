@@ -0,0 +1,19 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EstadoActualizacionDTO {
+    private LocalDateTime ultimaEjecucion; // último ciclo completo sin errores
+    private String ultimoError;
+    private LocalDateTime fechaUltimoError;
+    private Integer erroresSeguidos; // ciclos fallidos desde la última ejecución correcta
+}
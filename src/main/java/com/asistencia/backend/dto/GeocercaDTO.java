@@ -0,0 +1,18 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GeocercaDTO {
+    private Long id;
+    private String aula;
+    private List<PuntoDTO> vertices;
+}
@@ -0,0 +1,23 @@
+package com.asistencia.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GeocercaRequest {
+    
+    // Vértices del polígono en orden (horario o antihorario), sin repetir el primero al final
+    @NotNull(message = "Los vértices son obligatorios")
+    @Size(min = 3, max = 200, message = "La geocerca debe tener entre 3 y 200 vértices")
+    private List<@Valid PuntoDTO> vertices;
+}
@@ -0,0 +1,21 @@
+package com.asistencia.backend.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InscribirEstudiantesRequest {
+    
+    @NotEmpty(message = "La lista de estudiantes es obligatoria")
+    private List<@NotNull Long> idsEstudiantes;
+    
+    private String observaciones;
+}
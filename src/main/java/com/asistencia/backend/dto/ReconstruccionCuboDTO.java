@@ -0,0 +1,22 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReconstruccionCuboDTO {
+    private String periodo;
+    private String estado; // EN_CURSO, COMPLETADA, FALLIDA
+    private Integer cursos;
+    private Long hechos;
+    private Long duracionMs;
+    private String error;
+    private LocalDateTime fechaInicio;
+}
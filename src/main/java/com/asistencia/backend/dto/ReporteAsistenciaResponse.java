@@ -24,6 +24,7 @@ public class ReporteAsistenciaResponse {
     private EstadisticasGenerales estadisticas;
     private List<DetalleAsistencia> asistencias;
     private ResumenGeografico resumenGeografico;
+    private List<AnomaliaUbicacionDTO> anomaliasUbicacion;
 
     @Data
     @Builder
@@ -84,6 +85,7 @@ public class ReporteAsistenciaResponse {
         private Double distanciaMetros;
         private String observacion;
         private Boolean enRango;
+        private Boolean ubicacionSospechosa;
         private String tiempoTranscurrido;
     }
 
@@ -18,6 +18,7 @@ public class SesionCreadaResponse {
     private String aula;
     private String estado;
     private Double radioProximidad;
+    private Boolean usarGeocerca;
     private LocalDateTime fechaInicio;
     private LocalDateTime fechaFin;
     private CursoInfo curso;
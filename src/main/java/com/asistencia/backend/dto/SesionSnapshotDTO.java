@@ -0,0 +1,68 @@
+package com.asistencia.backend.dto;
+
+import com.asistencia.backend.model.Curso;
+import com.asistencia.backend.model.Sesion;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Copia inmutable y compacta de los datos de una sesión que se consultan al firmar y validar.
+ * Mientras la sesión está ACTIVA estos valores solo cambian por actualizarSesion/cerrarSesion,
+ * que reemplazan o retiran la copia del registro.
+ */
+@Value
+@Builder
+public class SesionSnapshotDTO {
+    Long id;
+    String nombre;
+    String aula;
+    String estado;
+    Double latitudProfesor;
+    Double longitudProfesor;
+    Double radioProximidad;
+    Boolean usarGeocerca;
+    LocalDateTime fechaInicio;
+    LocalDateTime fechaFin;
+
+    // Datos del curso usados en las respuestas de validación
+    Long idCurso;
+    String cursoCodigo;
+    String cursoNombre;
+    String cursoTurno;
+    String cursoSeccion;
+    String cursoPeriodo;
+    String cursoHorario;
+
+    /**
+     * Construye la copia a partir de la entidad. Debe llamarse dentro de una transacción
+     * porque inicializa el curso (relación LAZY).
+     */
+    public static SesionSnapshotDTO de(Sesion sesion) {
+        Curso curso = sesion.getCurso();
+        return SesionSnapshotDTO.builder()
+            .id(sesion.getId())
+            .nombre(sesion.getNombre())
+            .aula(sesion.getAula())
+            .estado(sesion.getEstado())
+            .latitudProfesor(sesion.getLatitudProfesor())
+            .longitudProfesor(sesion.getLongitudProfesor())
+            .radioProximidad(sesion.getRadioProximidad())
+            .usarGeocerca(sesion.getUsarGeocerca())
+            .fechaInicio(sesion.getFechaInicio())
+            .fechaFin(sesion.getFechaFin())
+            .idCurso(curso.getId())
+            .cursoCodigo(curso.getCodigo())
+            .cursoNombre(curso.getNombre())
+            .cursoTurno(curso.getTurno())
+            .cursoSeccion(curso.getSeccion())
+            .cursoPeriodo(curso.getPeriodo())
+            .cursoHorario(curso.getHorario())
+            .build();
+    }
+
+    public boolean isActiva() {
+        return "ACTIVA".equals(estado);
+    }
+}
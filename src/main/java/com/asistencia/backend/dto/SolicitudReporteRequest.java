@@ -0,0 +1,27 @@
+package com.asistencia.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SolicitudReporteRequest {
+
+    // PERIODO (todas las firmas del periodo, CSV o NDJSON) o CURSO_EXCEL (matriz de asistencia del curso)
+    @NotBlank(message = "El tipo de reporte es obligatorio")
+    private String tipo;
+
+    private String periodo;
+
+    private Long idCurso;
+
+    // csv o ndjson, solo para PERIODO
+    private String formato;
+
+    private Boolean gzip;
+}
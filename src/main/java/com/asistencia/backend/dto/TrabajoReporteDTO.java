@@ -0,0 +1,27 @@
+package com.asistencia.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrabajoReporteDTO {
+    private String id;
+    private String tipo;
+    private String estado;
+    private Long filas;
+    private Long filasEstimadas;
+    private Double progreso;
+    private Long bytes;
+    private String nombreArchivo;
+    private String error;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+}
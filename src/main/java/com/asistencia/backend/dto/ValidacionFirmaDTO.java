@@ -1,6 +1,5 @@
 package com.asistencia.backend.dto;
 
-import com.asistencia.backend.model.Sesion;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,5 +12,5 @@ import lombok.NoArgsConstructor;
 public class ValidacionFirmaDTO {
     private boolean puedeFirmar;
     private String mensaje;
-    private Sesion sesion;
+    private SesionSnapshotDTO sesion;
 }
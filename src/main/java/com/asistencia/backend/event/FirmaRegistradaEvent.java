@@ -0,0 +1,41 @@
+package com.asistencia.backend.event;
+
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.model.SesionDetalle;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Se publica al registrar una firma. Los listeners que mantienen estructuras derivadas
+ * (contadores, resúmenes) lo procesan al confirmar la transacción, así solo ven firmas confirmadas.
+ */
+@Value
+@Builder
+public class FirmaRegistradaEvent {
+    Long idDetalle;
+    Long idSesion;
+    Long idCurso;
+    Long idEstudiante;
+    EstadoAsistencia estado;
+    
+    LocalDateTime fechaFirma;
+    Double distanciaMetros;
+    Double latitudEstudiante;
+    Double longitudEstudiante;
+
+    public static FirmaRegistradaEvent nueva(SesionDetalle detalle, Long idSesion, Long idCurso, Long idEstudiante) {
+        return FirmaRegistradaEvent.builder()
+            .idDetalle(detalle.getId())
+            .idSesion(idSesion)
+            .idCurso(idCurso)
+            .idEstudiante(idEstudiante)
+            .estado(detalle.getEstado())
+            .fechaFirma(detalle.getFechaFirma())
+            .distanciaMetros(detalle.getDistanciaMetros())
+            .latitudEstudiante(detalle.getLatitudEstudiante())
+            .longitudEstudiante(detalle.getLongitudEstudiante())
+            .build();
+    }
+}
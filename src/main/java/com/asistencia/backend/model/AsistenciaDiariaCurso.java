@@ -0,0 +1,44 @@
+package com.asistencia.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+/**
+ * Resumen diario de un curso: sesiones iniciadas y firmas por estado en un día.
+ * Se mantiene de forma incremental al confirmar firmas y sesiones, y se reconcilia
+ * periódicamente con los detalles; el dashboard se arma solo con estas filas.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "asistencias_diarias_curso",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"id_curso", "fecha"}))
+public class AsistenciaDiariaCurso {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_curso", nullable = false)
+    private Long idCurso;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Builder.Default
+    private Long sesiones = 0L;
+    @Builder.Default
+    private Long presentes = 0L;
+    @Builder.Default
+    private Long ausentes = 0L;
+    @Builder.Default
+    private Long tardios = 0L;
+    @Builder.Default
+    private Long fueraRango = 0L;
+}
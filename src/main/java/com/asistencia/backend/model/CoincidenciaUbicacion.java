@@ -0,0 +1,60 @@
+package com.asistencia.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Par de estudiantes que firmó desde el mismo punto y a la misma hora en varias sesiones de un periodo
+ * (posible firma por otro). Lo escribe AnalisisCoincidencias: cada análisis reemplaza el ranking del periodo.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "coincidencias_ubicacion",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"periodo", "id_estudiante_a", "id_estudiante_b"}))
+public class CoincidenciaUbicacion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coincidencias_ubicacion_seq")
+    @SequenceGenerator(name = "coincidencias_ubicacion_seq", sequenceName = "coincidencias_ubicacion_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String periodo;
+
+    // Puesto en el ranking del periodo (1 = más sesiones en común)
+    @Column(nullable = false)
+    private Integer posicion;
+
+    // El par se guarda con id_estudiante_a < id_estudiante_b
+    @Column(name = "id_estudiante_a", nullable = false)
+    private Long idEstudianteA;
+
+    @Column(name = "id_estudiante_b", nullable = false)
+    private Long idEstudianteB;
+
+    // Sesiones en las que firmaron juntos
+    @Column(nullable = false)
+    private Integer coincidencias;
+
+    // Firmas de cada estudiante en el periodo
+    @Column(nullable = false)
+    private Integer firmasEstudianteA;
+
+    @Column(nullable = false)
+    private Integer firmasEstudianteB;
+
+    // coincidencias / firmas del estudiante con menos firmas (1.0 = siempre firmaron juntos)
+    @Column(nullable = false)
+    private Double indice;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaCalculo;
+}
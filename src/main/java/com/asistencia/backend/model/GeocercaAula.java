@@ -0,0 +1,34 @@
+package com.asistencia.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Polígono de un aula. Las sesiones con usarGeocerca aceptan las firmas dentro de él en lugar
+ * de las que están a radioProximidad metros del profesor.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@Entity
+@Table(name = "geocercas_aula")
+public class GeocercaAula extends AuditoriaEntidad {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Nombre del aula tal como se usa en cursos y sesiones
+    @Column(nullable = false, unique = true, length = 100)
+    private String aula;
+
+    // Vértices en orden como "lat,lon;lat,lon;..." (ver Poligono.desdeTexto)
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String vertices;
+}
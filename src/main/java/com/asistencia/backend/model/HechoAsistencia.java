@@ -0,0 +1,43 @@
+package com.asistencia.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+/**
+ * Tabla de hechos de asistencia: cantidad de registros por curso, estudiante, día y estado.
+ * Las firmas suman en el estado de la firma y el cierre de una sesión suma AUSENTE a los inscritos
+ * activos que no firmaron. Los reportes se calculan sobre esta tabla en lugar de sesiones_detalle.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "hechos_asistencia",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"id_curso", "id_estudiante", "fecha", "estado"}))
+public class HechoAsistencia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hechos_asistencia_seq")
+    @SequenceGenerator(name = "hechos_asistencia_seq", sequenceName = "hechos_asistencia_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "id_curso", nullable = false)
+    private Long idCurso;
+
+    @Column(name = "id_estudiante", nullable = false)
+    private Long idEstudiante;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false)
+    private EstadoAsistencia estado;
+
+    @Column(nullable = false)
+    private Long cantidad;
+}
@@ -19,7 +19,8 @@ import java.util.List;
 public class Sesion extends AuditoriaEntidad {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sesiones_seq")
+    @SequenceGenerator(name = "sesiones_seq", sequenceName = "sesiones_id_seq", allocationSize = 50)
     private Long id;
 
     // Relación con el docente (usuario)
@@ -45,6 +46,10 @@ public class Sesion extends AuditoriaEntidad {
     @Builder.Default
     private Double radioProximidad = 6.0;
 
+    // Si es true las firmas se validan contra la geocerca del aula y no contra el radio
+    @Builder.Default
+    private Boolean usarGeocerca = false;
+
     // Fechas de la sesión
     private LocalDateTime fechaInicio;
     private LocalDateTime fechaFin;
@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 public class SesionDetalle extends AuditoriaEntidad {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sesiones_detalle_seq")
+    @SequenceGenerator(name = "sesiones_detalle_seq", sequenceName = "sesiones_detalle_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,50 @@
+package com.asistencia.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Cifras de una sesión FINALIZADA, calculadas una sola vez al cerrarla.
+ * Una sesión cerrada ya no recibe firmas, así que sus estadísticas, el resumen de asistencia
+ * y los análisis temporal y geográfico se arman desde esta fila sin recorrer los detalles.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "sesiones_estadisticas")
+public class SesionEstadisticas {
+
+    @Id
+    @Column(name = "id_sesion")
+    private Long idSesion;
+
+    // Fecha de cierre de la sesión al momento del cálculo
+    private LocalDateTime fechaCierre;
+
+    // Conteos
+    private Long totalInscritos;
+    private Long totalFirmaron;
+    private Long presentes;
+    private Long ausentes;
+    private Long tardios;
+    private Long fueraRango;
+
+    // Datos temporales
+    private LocalDateTime primeraFirma;
+    private LocalDateTime ultimaFirma;
+
+    // Datos geográficos
+    private Double promedioDistancia;
+    private Double distanciaMinima;
+    private Double distanciaMaxima;
+    private Long estudiantesEnRango;
+    private Long estudiantesFueraRango;
+
+    private LocalDateTime fechaCalculo;
+}
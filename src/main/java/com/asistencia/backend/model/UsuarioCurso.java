@@ -18,7 +18,8 @@ import lombok.NoArgsConstructor;
 public class UsuarioCurso extends AuditoriaEntidad {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuarios_cursos_seq")
+    @SequenceGenerator(name = "usuarios_cursos_seq", sequenceName = "usuarios_cursos_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
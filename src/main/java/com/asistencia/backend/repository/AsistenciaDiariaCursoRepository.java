@@ -0,0 +1,36 @@
+package com.asistencia.backend.repository;
+
+import com.asistencia.backend.model.AsistenciaDiariaCurso;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AsistenciaDiariaCursoRepository extends JpaRepository<AsistenciaDiariaCurso, Long> {
+    
+    // Suma los incrementos a la fila del día en una sola sentencia; devuelve 0 si la fila no existe
+    @Modifying
+    @Query("UPDATE AsistenciaDiariaCurso r SET r.sesiones = r.sesiones + :sesiones, r.presentes = r.presentes + :presentes, " +
+           "r.ausentes = r.ausentes + :ausentes, r.tardios = r.tardios + :tardios, r.fueraRango = r.fueraRango + :fueraRango " +
+           "WHERE r.idCurso = :idCurso AND r.fecha = :fecha")
+    int sumar(@Param("idCurso") Long idCurso, @Param("fecha") LocalDate fecha,
+              @Param("sesiones") long sesiones, @Param("presentes") long presentes, @Param("ausentes") long ausentes,
+              @Param("tardios") long tardios, @Param("fueraRango") long fueraRango);
+    
+    @Modifying
+    @Query("DELETE FROM AsistenciaDiariaCurso r WHERE r.fecha >= :desde AND r.fecha <= :hasta")
+    int deleteByFechaEntre(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+    
+    // Totales por curso: [idCurso, nombre, sesiones, presentes, firmas]; una fila por curso
+    @Query("SELECT c.id, c.nombre, SUM(r.sesiones), SUM(r.presentes), " +
+           "SUM(r.presentes + r.ausentes + r.tardios + r.fueraRango) " +
+           "FROM AsistenciaDiariaCurso r JOIN Curso c ON c.id = r.idCurso " +
+           "WHERE (:periodo IS NULL OR c.periodo = :periodo) " +
+           "GROUP BY c.id, c.nombre")
+    List<Object[]> resumenPorCurso(@Param("periodo") String periodo);
+}
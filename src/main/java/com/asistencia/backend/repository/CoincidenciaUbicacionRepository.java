@@ -0,0 +1,20 @@
+package com.asistencia.backend.repository;
+
+import com.asistencia.backend.model.CoincidenciaUbicacion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CoincidenciaUbicacionRepository extends JpaRepository<CoincidenciaUbicacion, Long> {
+    
+    Page<CoincidenciaUbicacion> findByPeriodoOrderByPosicion(String periodo, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM CoincidenciaUbicacion c WHERE c.periodo = :periodo")
+    int deleteByPeriodo(@Param("periodo") String periodo);
+}
@@ -41,6 +41,9 @@ public interface CursoRepository extends JpaRepository<Curso, Long> {
     @Query("SELECT c FROM Curso c WHERE (:periodo IS NULL OR c.periodo = :periodo) AND (:turno IS NULL OR c.turno = :turno)")
     Page<Curso> findAllWithFilters(@Param("periodo") String periodo, @Param("turno") String turno, Pageable pageable);
     
+    @Query("SELECT c.id FROM Curso c WHERE c.periodo = :periodo")
+    List<Long> findIdsByPeriodo(@Param("periodo") String periodo);
+    
     @Query("SELECT DISTINCT c.periodo FROM Curso c ORDER BY c.periodo DESC")
     List<String> findDistinctPeriodos();
     
@@ -0,0 +1,13 @@
+package com.asistencia.backend.repository;
+
+import com.asistencia.backend.model.GeocercaAula;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface GeocercaAulaRepository extends JpaRepository<GeocercaAula, Long> {
+
+    Optional<GeocercaAula> findByAula(String aula);
+}
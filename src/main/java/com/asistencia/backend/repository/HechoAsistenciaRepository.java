@@ -0,0 +1,73 @@
+package com.asistencia.backend.repository;
+
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.model.HechoAsistencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface HechoAsistenciaRepository extends JpaRepository<HechoAsistencia, Long> {
+    
+    // Suma a la cantidad del hecho en una sola sentencia; devuelve 0 si el hecho no existe
+    @Modifying
+    @Query("UPDATE HechoAsistencia h SET h.cantidad = h.cantidad + :cantidad " +
+           "WHERE h.idCurso = :idCurso AND h.idEstudiante = :idEstudiante AND h.fecha = :fecha AND h.estado = :estado")
+    int sumar(@Param("idCurso") Long idCurso, @Param("idEstudiante") Long idEstudiante,
+              @Param("fecha") LocalDate fecha, @Param("estado") EstadoAsistencia estado, @Param("cantidad") long cantidad);
+    
+    @Modifying
+    @Query("DELETE FROM HechoAsistencia h WHERE h.idCurso = :idCurso")
+    int deleteByIdCurso(@Param("idCurso") Long idCurso);
+    
+    @Modifying
+    @Query("DELETE FROM HechoAsistencia h WHERE h.fecha >= :desde AND h.fecha <= :hasta")
+    int deleteByFechaEntre(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+    
+    // Reporte del curso: estudiantes activos con sus registros en el estado dado entre dos fechas (inclusive):
+    // [nombre, apellido, correo, cantidad]
+    @Query("SELECT u.nombre, u.apellido, u.correo, SUM(CASE WHEN h.estado = :estado THEN h.cantidad ELSE 0 END) " +
+           "FROM UsuarioCurso uc JOIN uc.usuario u " +
+           "LEFT JOIN HechoAsistencia h ON h.idCurso = uc.curso.id AND h.idEstudiante = u.id " +
+           "AND (:desde IS NULL OR h.fecha >= :desde) AND (:hasta IS NULL OR h.fecha <= :hasta) " +
+           "WHERE uc.curso.id = :idCurso AND uc.estado = 'ACTIVO' " +
+           "GROUP BY u.id, u.nombre, u.apellido, u.correo " +
+           "ORDER BY u.apellido, u.nombre")
+    List<Object[]> reporteCurso(@Param("idCurso") Long idCurso, @Param("estado") EstadoAsistencia estado,
+                                @Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+    
+    // Consolidado de un estudiante en una consulta, un curso por fila:
+    // [idCurso, nombreCurso, nombre, apellido, sesiones del curso, registros en el estado dado]
+    @Query("SELECT c.id, c.nombre, u.nombre, u.apellido, (SELECT COUNT(s) FROM Sesion s WHERE s.curso.id = c.id), " +
+           "SUM(CASE WHEN h.estado = :estado THEN h.cantidad ELSE 0 END) " +
+           "FROM UsuarioCurso uc JOIN uc.curso c JOIN uc.usuario u " +
+           "LEFT JOIN HechoAsistencia h ON h.idCurso = c.id AND h.idEstudiante = u.id " +
+           "WHERE u.id = :idEstudiante AND (:periodo IS NULL OR c.periodo = :periodo) " +
+           "GROUP BY c.id, c.nombre, u.nombre, u.apellido " +
+           "ORDER BY c.nombre")
+    List<Object[]> consolidadoEstudiante(@Param("idEstudiante") Long idEstudiante, @Param("estado") EstadoAsistencia estado,
+                                         @Param("periodo") String periodo);
+    
+    // Consolidado de un profesor en una consulta, un curso por fila:
+    // [idCurso, nombreCurso, nombre, apellido, sesiones del curso, registros en el estado dado, registros]
+    @Query("SELECT c.id, c.nombre, p.nombre, p.apellido, (SELECT COUNT(s) FROM Sesion s WHERE s.curso.id = c.id), " +
+           "SUM(CASE WHEN h.estado = :estado THEN h.cantidad ELSE 0 END), SUM(h.cantidad) " +
+           "FROM Curso c JOIN c.profesor p " +
+           "LEFT JOIN HechoAsistencia h ON h.idCurso = c.id " +
+           "WHERE p.id = :idProfesor AND (:periodo IS NULL OR c.periodo = :periodo) " +
+           "GROUP BY c.id, c.nombre, p.nombre, p.apellido " +
+           "ORDER BY c.nombre")
+    List<Object[]> consolidadoProfesor(@Param("idProfesor") Long idProfesor, @Param("estado") EstadoAsistencia estado,
+                                       @Param("periodo") String periodo);
+    
+    // Registros de un estudiante por estado, de un curso o de todos: [estado, cantidad]
+    @Query("SELECT h.estado, SUM(h.cantidad) FROM HechoAsistencia h " +
+           "WHERE h.idEstudiante = :idEstudiante AND (:idCurso IS NULL OR h.idCurso = :idCurso) " +
+           "GROUP BY h.estado")
+    List<Object[]> conteosPorEstado(@Param("idEstudiante") Long idEstudiante, @Param("idCurso") Long idCurso);
+}
@@ -2,14 +2,20 @@ package com.asistencia.backend.repository;
 
 import com.asistencia.backend.model.SesionDetalle;
 import com.asistencia.backend.model.EstadoAsistencia;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface SesionDetalleRepository extends JpaRepository<SesionDetalle, Long> {
@@ -42,4 +48,86 @@ public interface SesionDetalleRepository extends JpaRepository<SesionDetalle, Lo
     
     @Query("SELECT COUNT(sd) FROM SesionDetalle sd WHERE sd.sesion.id = :idSesion AND sd.estado = :estado")
     Long countBySesionIdAndEstado(@Param("idSesion") Long idSesion, @Param("estado") EstadoAsistencia estado);
+    
+    @Query("SELECT COUNT(sd) FROM SesionDetalle sd WHERE sd.sesion.id = :idSesion AND sd.fechaFirma <= :fechaFirma")
+    Long countBySesionIdAndFechaFirmaHasta(@Param("idSesion") Long idSesion, @Param("fechaFirma") LocalDateTime fechaFirma);
+    
+    @Query("SELECT sd.estudiante.id FROM SesionDetalle sd WHERE sd.sesion.id = :idSesion")
+    List<Long> findEstudianteIdsBySesionId(@Param("idSesion") Long idSesion);
+    
+    // Conteos por estado en una sola consulta: [estado, cantidad]
+    @Query("SELECT sd.estado, COUNT(sd) FROM SesionDetalle sd WHERE sd.sesion.id = :idSesion GROUP BY sd.estado")
+    List<Object[]> countBySesionIdAgrupadoPorEstado(@Param("idSesion") Long idSesion);
+    
+    // Conteos por estado de las sesiones activas: [idSesion, estado, cantidad]
+    @Query("SELECT sd.sesion.id, sd.estado, COUNT(sd) FROM SesionDetalle sd " +
+           "WHERE sd.sesion.estado = 'ACTIVA' GROUP BY sd.sesion.id, sd.estado")
+    List<Object[]> countSesionesActivasAgrupadoPorEstado();
+    
+    // Ubicaciones de las firmas de una sesión: [idDetalle, idEstudiante, latitud, longitud]
+    @Query("SELECT sd.id, sd.estudiante.id, sd.latitudEstudiante, sd.longitudEstudiante FROM SesionDetalle sd " +
+           "WHERE sd.sesion.id = :idSesion AND sd.latitudEstudiante IS NOT NULL AND sd.longitudEstudiante IS NOT NULL")
+    List<Object[]> findUbicacionesBySesionId(@Param("idSesion") Long idSesion);
+    
+    // Ubicaciones de las firmas de las sesiones activas: [idSesion, idDetalle, idEstudiante, latitud, longitud]
+    @Query("SELECT sd.sesion.id, sd.id, sd.estudiante.id, sd.latitudEstudiante, sd.longitudEstudiante FROM SesionDetalle sd " +
+           "WHERE sd.sesion.estado = 'ACTIVA' AND sd.latitudEstudiante IS NOT NULL AND sd.longitudEstudiante IS NOT NULL")
+    List<Object[]> findUbicacionesSesionesActivas();
+    
+    // Conteos por estado de varias sesiones: [idSesion, estado, cantidad]
+    @Query("SELECT sd.sesion.id, sd.estado, COUNT(sd) FROM SesionDetalle sd " +
+           "WHERE sd.sesion.id IN :idsSesion GROUP BY sd.sesion.id, sd.estado")
+    List<Object[]> countBySesionIdsAgrupadoPorEstado(@Param("idsSesion") Collection<Long> idsSesion);
+    
+    // Firmas por curso, día y estado en un rango de fechas: [idCurso, fecha, estado, cantidad]
+    @Query("SELECT s.curso.id, CAST(sd.fechaFirma AS LocalDate), sd.estado, COUNT(sd) FROM SesionDetalle sd JOIN sd.sesion s " +
+           "WHERE sd.fechaFirma >= :inicio AND sd.fechaFirma < :fin " +
+           "GROUP BY s.curso.id, CAST(sd.fechaFirma AS LocalDate), sd.estado")
+    List<Object[]> countPorCursoDiaYEstado(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+    
+    // Firmas de un curso por estudiante, día y estado: [idEstudiante, fecha, estado, cantidad]
+    @Query("SELECT sd.estudiante.id, CAST(sd.fechaFirma AS LocalDate), sd.estado, COUNT(sd) FROM SesionDetalle sd " +
+           "WHERE sd.sesion.curso.id = :idCurso " +
+           "GROUP BY sd.estudiante.id, CAST(sd.fechaFirma AS LocalDate), sd.estado")
+    List<Object[]> countPorEstudianteDiaYEstadoByCursoId(@Param("idCurso") Long idCurso);
+    
+    // Firmas por curso, estudiante, día y estado en un rango de fechas: [idCurso, idEstudiante, fecha, estado, cantidad]
+    @Query("SELECT s.curso.id, sd.estudiante.id, CAST(sd.fechaFirma AS LocalDate), sd.estado, COUNT(sd) " +
+           "FROM SesionDetalle sd JOIN sd.sesion s " +
+           "WHERE sd.fechaFirma >= :inicio AND sd.fechaFirma < :fin " +
+           "GROUP BY s.curso.id, sd.estudiante.id, CAST(sd.fechaFirma AS LocalDate), sd.estado")
+    List<Object[]> countPorCursoEstudianteDiaYEstado(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+    
+    // Proyección para estadísticas en una pasada: [fechaFirma, distanciaMetros, estado, latitud, longitud]; sin entidades
+    @Query("SELECT sd.fechaFirma, sd.distanciaMetros, sd.estado, sd.latitudEstudiante, sd.longitudEstudiante " +
+           "FROM SesionDetalle sd WHERE sd.sesion.id = :idSesion")
+    Stream<Object[]> streamDatosFirmaBySesionId(@Param("idSesion") Long idSesion);
+    
+    // Extracto plano de un periodo con estudiante, curso y sesión, leído con cursor (sin entidades):
+    // [id, fechaFirma, estado, distanciaMetros, latitudEstudiante, longitudEstudiante, observacion,
+    //  idEstudiante, identificacion, nombre, apellido, correo, idCurso, codigoCurso, nombreCurso,
+    //  idSesion, nombreSesion, fechaInicioSesion]
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT sd.id, sd.fechaFirma, sd.estado, sd.distanciaMetros, sd.latitudEstudiante, sd.longitudEstudiante, sd.observacion, " +
+           "u.id, u.identificacion, u.nombre, u.apellido, u.correo, c.id, c.codigo, c.nombre, s.id, s.nombre, s.fechaInicio " +
+           "FROM SesionDetalle sd JOIN sd.estudiante u JOIN sd.sesion s JOIN s.curso c " +
+           "WHERE c.periodo = :periodo ORDER BY sd.id")
+    Stream<Object[]> streamExportacionByPeriodo(@Param("periodo") String periodo);
+    
+    // Ubicaciones de las firmas de un periodo agrupadas por sesión, leídas con cursor:
+    // [idSesion, idEstudiante, fechaFirma, latitudEstudiante, longitudEstudiante]
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT sd.sesion.id, sd.estudiante.id, sd.fechaFirma, sd.latitudEstudiante, sd.longitudEstudiante " +
+           "FROM SesionDetalle sd WHERE sd.sesion.curso.periodo = :periodo " +
+           "AND sd.latitudEstudiante IS NOT NULL AND sd.longitudEstudiante IS NOT NULL ORDER BY sd.sesion.id")
+    Stream<Object[]> streamUbicacionesByPeriodo(@Param("periodo") String periodo);
+    
+    @Query("SELECT COUNT(sd) FROM SesionDetalle sd WHERE sd.sesion.curso.periodo = :periodo")
+    long countByPeriodo(@Param("periodo") String periodo);
 }
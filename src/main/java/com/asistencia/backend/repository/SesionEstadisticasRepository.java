@@ -0,0 +1,9 @@
+package com.asistencia.backend.repository;
+
+import com.asistencia.backend.model.SesionEstadisticas;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SesionEstadisticasRepository extends JpaRepository<SesionEstadisticas, Long> {
+}
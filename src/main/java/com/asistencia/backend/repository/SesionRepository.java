@@ -8,16 +8,21 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SesionRepository extends JpaRepository<Sesion, Long> {
     
-    @Query("SELECT s FROM Sesion s WHERE s.profesor.id = :idProfesor")
+    // El curso se trae en la misma consulta (el listado lo muestra por cada sesión)
+    @Query(value = "SELECT s FROM Sesion s JOIN FETCH s.curso WHERE s.profesor.id = :idProfesor",
+           countQuery = "SELECT COUNT(s) FROM Sesion s WHERE s.profesor.id = :idProfesor")
     Page<Sesion> findByProfesorId(@Param("idProfesor") Long idProfesor, Pageable pageable);
     
-    @Query("SELECT s FROM Sesion s WHERE s.profesor.id = :idProfesor AND s.curso.periodo = :periodo")
+    @Query(value = "SELECT s FROM Sesion s JOIN FETCH s.curso c WHERE s.profesor.id = :idProfesor AND c.periodo = :periodo",
+           countQuery = "SELECT COUNT(s) FROM Sesion s WHERE s.profesor.id = :idProfesor AND s.curso.periodo = :periodo")
     Page<Sesion> findByProfesorIdAndPeriodo(@Param("idProfesor") Long idProfesor, @Param("periodo") String periodo, Pageable pageable);
     
     @Query("SELECT s FROM Sesion s WHERE s.curso.id = :idCurso AND s.estado = 'ACTIVA'")
@@ -32,6 +37,34 @@ public interface SesionRepository extends JpaRepository<Sesion, Long> {
     @Query("SELECT COUNT(s) FROM Sesion s WHERE s.curso.id = :idCurso")
     Long countByCursoId(@Param("idCurso") Long idCurso);
     
+    // Sesiones por curso y día de inicio en un rango de fechas: [idCurso, fecha, cantidad]
+    @Query("SELECT s.curso.id, CAST(s.fechaInicio AS LocalDate), COUNT(s) FROM Sesion s " +
+           "WHERE s.fechaInicio >= :inicio AND s.fechaInicio < :fin " +
+           "GROUP BY s.curso.id, CAST(s.fechaInicio AS LocalDate)")
+    List<Object[]> countPorCursoYDia(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+    
+    @Query("SELECT COUNT(s) FROM Sesion s WHERE s.estado = 'ACTIVA' AND s.fechaCreacion >= :fechaInicio")
+    Long countActivasDesdeFecha(@Param("fechaInicio") LocalDateTime fechaInicio);
+    
+    // Columnas de la exportación del curso: [id, nombre, fechaInicio] en orden cronológico
+    @Query("SELECT s.id, s.nombre, s.fechaInicio FROM Sesion s WHERE s.curso.id = :idCurso ORDER BY s.fechaInicio, s.id")
+    List<Object[]> findColumnasReporteByCursoId(@Param("idCurso") Long idCurso);
+    
+    // Sesiones del curso que empiezan desde inicio (incluido) hasta antes de fin; sin fechas, todas
+    @Query("SELECT COUNT(s) FROM Sesion s WHERE s.curso.id = :idCurso " +
+           "AND (:inicio IS NULL OR s.fechaInicio >= :inicio) AND (:fin IS NULL OR s.fechaInicio < :fin)")
+    Long countByCursoIdAndFechaInicioEntre(@Param("idCurso") Long idCurso,
+                                           @Param("inicio") LocalDateTime inicio,
+                                           @Param("fin") LocalDateTime fin);
+    
+    // Sesiones del curso que empiezan entre dos días, ambos incluidos: el mismo criterio de días que
+    // HechoAsistenciaRepository.reporteCurso; sin fechas, todas
+    default long countByCursoIdAndDiaInicioEntre(Long idCurso, LocalDate desde, LocalDate hasta) {
+        return countByCursoIdAndFechaInicioEntre(idCurso,
+            desde != null ? desde.atStartOfDay() : null,
+            hasta != null ? hasta.plusDays(1).atStartOfDay() : null);
+    }
+    
     @Query("SELECT COUNT(s) FROM Sesion s WHERE s.profesor.id = :idProfesor AND s.estado = 'ACTIVA'")
     Long countActivasByProfesorId(@Param("idProfesor") Long idProfesor);
     
@@ -42,4 +75,10 @@ public interface SesionRepository extends JpaRepository<Sesion, Long> {
     // Buscar sesiones activas por curso y fecha
     @Query("SELECT s FROM Sesion s WHERE s.curso.id = :idCurso AND s.estado = 'ACTIVA' AND DATE(s.fechaInicio) = DATE(:fechaInicio)")
     List<Sesion> findActivasByCursoIdAndFecha(@Param("idCurso") Long idCurso, @Param("fechaInicio") LocalDateTime fechaInicio);
+    
+    @Query("SELECT s FROM Sesion s JOIN FETCH s.curso WHERE s.estado = 'ACTIVA'")
+    List<Sesion> findActivasConCurso();
+    
+    @Query("SELECT s FROM Sesion s JOIN FETCH s.curso WHERE s.id = :id")
+    Optional<Sesion> findByIdConCurso(@Param("id") Long id);
 }
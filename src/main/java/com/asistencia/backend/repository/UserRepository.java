@@ -41,4 +41,8 @@ public interface UserRepository extends JpaRepository<Usuario, Long> {
     // Buscar usuarios por rol (si tienes relación con roles)
     @Query("SELECT u FROM Usuario u JOIN u.roles r WHERE r.nombre = :nombreRol AND u.deleteLogic = false")
     java.util.List<Usuario> findByRoleName(@Param("nombreRol") com.asistencia.backend.model.RolNombre nombreRol);
-}
\ No newline at end of file
+
+    // Ids existentes de una lista (valida sin cargar los usuarios ni sus roles)
+    @Query("SELECT u.id FROM Usuario u WHERE u.id IN :ids")
+    java.util.List<Long> findIdsExistentes(@Param("ids") java.util.Collection<Long> ids);
+}
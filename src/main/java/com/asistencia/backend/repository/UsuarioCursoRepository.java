@@ -1,12 +1,18 @@
 package com.asistencia.backend.repository;
 
 import com.asistencia.backend.model.UsuarioCurso;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UsuarioCursoRepository extends JpaRepository<UsuarioCurso, Long> {
@@ -30,4 +36,53 @@ public interface UsuarioCursoRepository extends JpaRepository<UsuarioCurso, Long
     Long countByCursoIdAndEstadoActivo(@Param("idCurso") Long idCurso);
     
     boolean existsByUsuarioIdAndCursoId(Long usuarioId, Long cursoId);
+    
+    @Query("SELECT COUNT(uc) > 0 FROM UsuarioCurso uc WHERE uc.usuario.id = :idUsuario AND uc.curso.id = :idCurso AND uc.estado = 'ACTIVO'")
+    boolean existsInscripcionActiva(@Param("idUsuario") Long idUsuario, @Param("idCurso") Long idCurso);
+    
+    @Query("SELECT uc.usuario.id FROM UsuarioCurso uc WHERE uc.curso.id = :idCurso")
+    List<Long> findUsuarioIdsByCursoId(@Param("idCurso") Long idCurso);
+    
+    // Inscritos activos que no firmaron en la sesión
+    @Query("SELECT uc.usuario.id FROM UsuarioCurso uc " +
+           "WHERE uc.curso.id = :idCurso AND uc.estado = 'ACTIVO' " +
+           "AND NOT EXISTS (SELECT 1 FROM SesionDetalle sd WHERE sd.sesion.id = :idSesion AND sd.estudiante.id = uc.usuario.id)")
+    List<Long> findEstudianteIdsSinFirma(@Param("idCurso") Long idCurso, @Param("idSesion") Long idSesion);
+    
+    // Ausencias en las sesiones cerradas de un curso (inscritos activos sin firma),
+    // por estudiante y día de la sesión: [idEstudiante, fecha, cantidad]
+    @Query("SELECT uc.usuario.id, CAST(s.fechaInicio AS LocalDate), COUNT(s) FROM UsuarioCurso uc, Sesion s " +
+           "WHERE uc.curso.id = :idCurso AND s.curso.id = :idCurso AND uc.estado = 'ACTIVO' AND s.estado = 'FINALIZADA' " +
+           "AND NOT EXISTS (SELECT 1 FROM SesionDetalle sd WHERE sd.sesion.id = s.id AND sd.estudiante.id = uc.usuario.id) " +
+           "GROUP BY uc.usuario.id, CAST(s.fechaInicio AS LocalDate)")
+    List<Object[]> countAusenciasPorEstudianteYDia(@Param("idCurso") Long idCurso);
+    
+    // Ausencias en las sesiones cerradas que empezaron en un rango de fechas, de todos los cursos:
+    // [idCurso, idEstudiante, fecha, cantidad]
+    @Query("SELECT uc.curso.id, uc.usuario.id, CAST(s.fechaInicio AS LocalDate), COUNT(s) FROM UsuarioCurso uc, Sesion s " +
+           "WHERE s.curso.id = uc.curso.id AND uc.estado = 'ACTIVO' AND s.estado = 'FINALIZADA' " +
+           "AND s.fechaInicio >= :inicio AND s.fechaInicio < :fin " +
+           "AND NOT EXISTS (SELECT 1 FROM SesionDetalle sd WHERE sd.sesion.id = s.id AND sd.estudiante.id = uc.usuario.id) " +
+           "GROUP BY uc.curso.id, uc.usuario.id, CAST(s.fechaInicio AS LocalDate)")
+    List<Object[]> countAusenciasPorCursoEstudianteYDia(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+    
+    // Matriz estudiantes × sesiones para la exportación, una fila por celda:
+    // [idEstudiante, nombre, apellido, correo, idSesion, estado (null si no firmó)], agrupada por estudiante.
+    // Se lee con cursor (fetch size) para no cargar el resultado completo en memoria
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u.id, u.nombre, u.apellido, u.correo, s.id, sd.estado " +
+           "FROM UsuarioCurso uc JOIN uc.usuario u " +
+           "LEFT JOIN Sesion s ON s.curso.id = uc.curso.id " +
+           "LEFT JOIN SesionDetalle sd ON sd.sesion.id = s.id AND sd.estudiante.id = u.id " +
+           "WHERE uc.curso.id = :idCurso AND uc.estado = 'ACTIVO' " +
+           "ORDER BY u.apellido, u.nombre, u.id")
+    Stream<Object[]> streamMatrizAsistencia(@Param("idCurso") Long idCurso);
+    
+    // Pares (idCurso, idEstudiante) de inscripciones activas, ordenados para construir el índice en memoria
+    @Query("SELECT uc.curso.id, uc.usuario.id FROM UsuarioCurso uc WHERE uc.estado = 'ACTIVO' " +
+           "ORDER BY uc.curso.id, uc.usuario.id")
+    List<Object[]> findInscripcionesActivas();
 }
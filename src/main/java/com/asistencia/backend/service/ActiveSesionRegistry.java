@@ -0,0 +1,284 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.SesionSnapshotDTO;
+import com.asistencia.backend.model.Sesion;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.repository.SesionRepository;
+import com.asistencia.backend.util.TransaccionUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro en memoria de las sesiones ACTIVA.
+ * Evita leer la fila de la sesión en cada firma o validación: los datos que se consultan
+ * (coordenadas, radio, fechas y estado) no cambian mientras la sesión está abierta.
+ * Los cambios se aplican al confirmar la transacción que los produce.
+ * Por cada sesión activa guarda además los ids de los estudiantes que ya firmaron en un long[]
+ * ordenado, para rechazar firmas repetidas sin consultar la base de datos.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActiveSesionRegistry {
+
+    private final SesionRepository sesionRepository;
+    private final SesionDetalleRepository sesionDetalleRepository;
+
+    private final Map<Long, SesionSnapshotDTO> sesionesActivas = new ConcurrentHashMap<>();
+    
+    // Estudiantes que ya firmaron, por sesión activa
+    private final Map<Long, Firmantes> firmantesPorSesion = new ConcurrentHashMap<>();
+    
+    // Sesiones con un retiro sin confirmar: mientras tanto ninguna lectura debe volver a registrarlas
+    private final Set<Long> sesionesRetiradas = ConcurrentHashMap.newKeySet();
+    
+    // Retiros confirmados. Una lectura iniciada antes de un commit de retiro puede traer la fila todavía
+    // ACTIVA; solo conserva lo que registró si no se confirmó ningún retiro mientras consultaba
+    private final AtomicLong retirosConfirmados = new AtomicLong();
+
+    /**
+     * Reconstruye el registro desde la base de datos al iniciar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reconstruir() {
+        sesionesActivas.clear();
+        firmantesPorSesion.clear();
+        for (Sesion sesion : sesionRepository.findActivasConCurso()) {
+            sesionesActivas.put(sesion.getId(), SesionSnapshotDTO.de(sesion));
+        }
+    }
+
+    /**
+     * Busca solo en memoria. Vacío si la sesión no está activa (o no existe).
+     */
+    public Optional<SesionSnapshotDTO> buscar(Long idSesion) {
+        return Optional.ofNullable(sesionesActivas.get(idSesion));
+    }
+
+    /**
+     * Devuelve la copia de la sesión en cualquier estado. Las activas se sirven desde memoria;
+     * si no está registrada se consulta la base de datos y, si resulta estar activa, se registra.
+     * Vacío solo si la sesión no existe.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SesionSnapshotDTO> obtener(Long idSesion) {
+        SesionSnapshotDTO snapshot = sesionesActivas.get(idSesion);
+        if (snapshot != null) {
+            return Optional.of(snapshot);
+        }
+        long antes = retirosConfirmados.get();
+        return sesionRepository.findByIdConCurso(idSesion)
+            .map(SesionSnapshotDTO::de)
+            .map(copia -> {
+                if (copia.isActiva() && !sesionesRetiradas.contains(copia.getId())
+                        && sesionesActivas.putIfAbsent(copia.getId(), copia) == null
+                        && retirosConfirmados.get() != antes) {
+                    // Pudo leerse antes del retiro: se descarta y la siguiente consulta la vuelve a leer
+                    sesionesActivas.remove(copia.getId(), copia);
+                }
+                return copia;
+            });
+    }
+
+    /**
+     * Registra o reemplaza la copia de una sesión creada o actualizada.
+     * Se llama dentro de la transacción de escritura; la copia se publica al confirmar.
+     */
+    public void publicar(Sesion sesion) {
+        SesionSnapshotDTO snapshot = SesionSnapshotDTO.de(sesion);
+        TransaccionUtils.alConfirmar(() -> {
+            if (snapshot.isActiva()) {
+                sesionesActivas.put(snapshot.getId(), snapshot);
+            } else {
+                sesionesActivas.remove(snapshot.getId());
+                firmantesPorSesion.remove(snapshot.getId());
+            }
+        });
+    }
+
+    /**
+     * Registra una sesión recién creada: todavía no tiene firmas, así que su conjunto
+     * de firmantes empieza vacío sin consultar la base de datos.
+     */
+    public void publicarNueva(Sesion sesion) {
+        publicar(sesion);
+        if ("ACTIVA".equals(sesion.getEstado())) {
+            Long idSesion = sesion.getId();
+            TransaccionUtils.alConfirmar(() -> firmantesPorSesion.putIfAbsent(idSesion, new Firmantes()));
+        }
+    }
+
+    /**
+     * Retira una sesión cerrada o eliminada. Se retira de inmediato (para que ninguna firma
+     * concurrente la vea como abierta) y otra vez al confirmar, por si una consulta
+     * concurrente la volvió a registrar antes del commit. Si la transacción se revierte,
+     * la sesión se vuelve a registrar en la siguiente consulta. En ambos casos deja de figurar
+     * en sesionesRetiradas al terminar la transacción.
+     */
+    public void retirar(Long idSesion) {
+        sesionesRetiradas.add(idSesion);
+        sesionesActivas.remove(idSesion);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        confirmarRetiro(idSesion);
+                    }
+                    sesionesRetiradas.remove(idSesion);
+                }
+            });
+        } else {
+            confirmarRetiro(idSesion);
+            sesionesRetiradas.remove(idSesion);
+        }
+    }
+
+    // El contador se incrementa antes de retirar: una lectura que registró la sesión después
+    // lo ve cambiado y la descarta, y una que la registró antes queda cubierta por el remove
+    private void confirmarRetiro(Long idSesion) {
+        retirosConfirmados.incrementAndGet();
+        sesionesActivas.remove(idSesion);
+        firmantesPorSesion.remove(idSesion);
+    }
+
+    /**
+     * Marca la firma del estudiante en la sesión. Devuelve false si ya estaba marcada (firma repetida).
+     * Si la transacción de la firma se revierte, la marca se retira.
+     */
+    public boolean marcarFirma(Long idSesion, Long idEstudiante) {
+        Firmantes firmas = firmantes(idSesion);
+        synchronized (firmas) {
+            if (!firmas.agregar(idEstudiante)) {
+                return false;
+            }
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        desmarcarFirma(idSesion, idEstudiante);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    public void desmarcarFirma(Long idSesion, Long idEstudiante) {
+        Firmantes firmas = firmantesPorSesion.get(idSesion);
+        if (firmas != null) {
+            synchronized (firmas) {
+                firmas.quitar(idEstudiante);
+            }
+        }
+    }
+
+    /**
+     * Consulta en memoria si el estudiante ya firmó en una sesión activa.
+     */
+    public boolean haFirmado(Long idSesion, Long idEstudiante) {
+        Firmantes firmas = firmantes(idSesion);
+        synchronized (firmas) {
+            return firmas.contiene(idEstudiante);
+        }
+    }
+
+    /**
+     * Firmantes de la sesión. La primera consulta de cada sesión los carga de la base de datos;
+     * las sesiones creadas en esta instancia empiezan vacías sin consultar. Solo se conservan
+     * los de sesiones registradas como activas.
+     */
+    private Firmantes firmantes(Long idSesion) {
+        Firmantes firmas = firmantesPorSesion.get(idSesion);
+        if (firmas != null) {
+            return firmas;
+        }
+        Firmantes cargadas = Firmantes.de(sesionDetalleRepository.findEstudianteIdsBySesionId(idSesion));
+        if (!sesionesActivas.containsKey(idSesion)) {
+            return cargadas;
+        }
+        firmas = firmantesPorSesion.putIfAbsent(idSesion, cargadas);
+        if (firmas == null && !sesionesActivas.containsKey(idSesion)) {
+            // Se retiró mientras se cargaba: no se conservan los firmantes de una sesión cerrada
+            firmantesPorSesion.remove(idSesion, cargadas);
+        }
+        return firmas != null ? firmas : cargadas;
+    }
+
+    public int totalActivas() {
+        return sesionesActivas.size();
+    }
+
+    int totalRetiradas() {
+        return sesionesRetiradas.size();
+    }
+
+    /**
+     * Ids de los firmantes de una sesión en un long[] ordenado: 8 bytes por firma sin importar el valor
+     * de los ids (un BitSet indexado por id crecería con el id más alto). Se usa bajo su propio monitor.
+     */
+    static final class Firmantes {
+
+        private long[] ids;
+        private int total;
+
+        Firmantes() {
+            this.ids = new long[16];
+        }
+
+        private Firmantes(long[] ordenados) {
+            this.ids = ordenados;
+            this.total = ordenados.length;
+        }
+
+        static Firmantes de(List<Long> idsEstudiante) {
+            long[] ordenados = idsEstudiante.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+            return ordenados.length > 0 ? new Firmantes(ordenados) : new Firmantes();
+        }
+
+        boolean contiene(long id) {
+            return Arrays.binarySearch(ids, 0, total, id) >= 0;
+        }
+
+        /**
+         * Agrega el id en su posición; false si ya estaba.
+         */
+        boolean agregar(long id) {
+            int posicion = Arrays.binarySearch(ids, 0, total, id);
+            if (posicion >= 0) {
+                return false;
+            }
+            posicion = -posicion - 1;
+            if (total == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(16, total * 2));
+            }
+            System.arraycopy(ids, posicion, ids, posicion + 1, total - posicion);
+            ids[posicion] = id;
+            total++;
+            return true;
+        }
+
+        void quitar(long id) {
+            int posicion = Arrays.binarySearch(ids, 0, total, id);
+            if (posicion >= 0) {
+                System.arraycopy(ids, posicion + 1, ids, posicion, total - posicion - 1);
+                total--;
+            }
+        }
+    }
+}
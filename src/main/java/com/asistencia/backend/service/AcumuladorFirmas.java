@@ -0,0 +1,228 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.model.SesionEstadisticas;
+import com.asistencia.backend.util.GeoUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * Acumula en una sola pasada las cifras temporales y geográficas de las firmas de una sesión
+ * (primera y última firma, distancia mínima, máxima y promedio, firmas en rango y conteo por estado).
+ * Solo guarda primitivos: recorrer las firmas no crea objetos por fila.
+ * Con la posición del profesor, las distancias se recalculan desde las coordenadas de cada firma
+ * en lotes (GeoUtils.distanciasLocales) en lugar de usar las guardadas al firmar.
+ */
+public class AcumuladorFirmas {
+
+    // Radio usado por el análisis geográfico para contar "en rango"
+    public static final double RADIO_EN_RANGO = 6.0;
+    // Firmas con coordenadas que se evalúan juntas contra la posición del profesor. Basta para llenar
+    // el vector muchas veces y mantiene los buffers (unos 6 KB) por debajo de lo que cuesta una sesión típica
+    private static final int LOTE = 256;
+
+    private final long[] porEstado = new long[EstadoAsistencia.values().length];
+    private long total;
+    private LocalDateTime primeraFirma;
+    private LocalDateTime ultimaFirma;
+
+    private long conDistancia;
+    private long enRango;
+    private double sumaDistancia;
+    private double distanciaMinima = Double.POSITIVE_INFINITY;
+    private double distanciaMaxima = Double.NEGATIVE_INFINITY;
+
+    // Posición del profesor y columnas del lote pendiente; nulas si se usan las distancias guardadas
+    private final double latitudProfesor;
+    private final double longitudProfesor;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] distancias;
+    private final boolean[] dentro;
+    private int pendientes;
+
+    public AcumuladorFirmas() {
+        this.latitudProfesor = 0;
+        this.longitudProfesor = 0;
+        this.latitudes = null;
+        this.longitudes = null;
+        this.distancias = null;
+        this.dentro = null;
+    }
+
+    /**
+     * Acumulador que reevalúa las firmas contra la posición actual del profesor: si la sesión se movió
+     * con actualizarSesion, el análisis geográfico mide desde el punto nuevo.
+     */
+    public AcumuladorFirmas(double latitudProfesor, double longitudProfesor) {
+        this.latitudProfesor = latitudProfesor;
+        this.longitudProfesor = longitudProfesor;
+        this.latitudes = new double[LOTE];
+        this.longitudes = new double[LOTE];
+        this.distancias = new double[LOTE];
+        this.dentro = new boolean[LOTE];
+    }
+
+    public void agregar(LocalDateTime fechaFirma, Double distanciaMetros, EstadoAsistencia estado) {
+        total++;
+        if (estado != null) {
+            porEstado[estado.ordinal()]++;
+        }
+        if (fechaFirma != null) {
+            if (primeraFirma == null || fechaFirma.isBefore(primeraFirma)) {
+                primeraFirma = fechaFirma;
+            }
+            if (ultimaFirma == null || fechaFirma.isAfter(ultimaFirma)) {
+                ultimaFirma = fechaFirma;
+            }
+        }
+        if (distanciaMetros != null) {
+            sumarDistancia(distanciaMetros, distanciaMetros <= RADIO_EN_RANGO);
+        }
+    }
+
+    /**
+     * Agrega una firma con sus coordenadas. Si el acumulador tiene la posición del profesor, la distancia
+     * se calcula con el lote; si no, o si la firma no tiene coordenadas, se usa la guardada.
+     */
+    public void agregar(LocalDateTime fechaFirma, Double distanciaMetros, EstadoAsistencia estado,
+                        Double latitud, Double longitud) {
+        if (latitudes == null || latitud == null || longitud == null) {
+            agregar(fechaFirma, distanciaMetros, estado);
+            return;
+        }
+        agregar(fechaFirma, null, estado);
+        latitudes[pendientes] = latitud;
+        longitudes[pendientes] = longitud;
+        if (++pendientes == LOTE) {
+            evaluarPendientes();
+        }
+    }
+
+    /**
+     * Agrega una fila de la proyección [fechaFirma, distanciaMetros, estado, latitud, longitud].
+     */
+    public void agregar(Object[] fila) {
+        agregar((LocalDateTime) fila[0], (Double) fila[1], (EstadoAsistencia) fila[2], (Double) fila[3], (Double) fila[4]);
+    }
+
+    private void evaluarPendientes() {
+        if (pendientes == 0) {
+            return;
+        }
+        GeoUtils.distanciasLocales(latitudProfesor, longitudProfesor, latitudes, longitudes, pendientes,
+            RADIO_EN_RANGO, distancias, dentro);
+        for (int i = 0; i < pendientes; i++) {
+            double distancia = distancias[i];
+            // Lejos del profesor la aproximación local pierde precisión; esas firmas usan Haversine
+            if (distancia > GeoUtils.DISTANCIA_LOCAL_MAXIMA) {
+                distancia = GeoUtils.calcularDistancia(latitudProfesor, longitudProfesor, latitudes[i], longitudes[i]);
+            }
+            sumarDistancia(distancia, dentro[i]);
+        }
+        pendientes = 0;
+    }
+
+    private void sumarDistancia(double distancia, boolean dentroDelRadio) {
+        conDistancia++;
+        sumaDistancia += distancia;
+        distanciaMinima = Math.min(distanciaMinima, distancia);
+        distanciaMaxima = Math.max(distanciaMaxima, distancia);
+        if (dentroDelRadio) {
+            enRango++;
+        }
+    }
+
+    /**
+     * Reconstruye el acumulador a partir de las cifras congeladas de una sesión cerrada.
+     */
+    public static AcumuladorFirmas desde(SesionEstadisticas estadisticas) {
+        AcumuladorFirmas acumulador = new AcumuladorFirmas();
+        acumulador.total = estadisticas.getTotalFirmaron();
+        acumulador.porEstado[EstadoAsistencia.PRESENTE.ordinal()] = estadisticas.getPresentes();
+        acumulador.porEstado[EstadoAsistencia.AUSENTE.ordinal()] = estadisticas.getAusentes();
+        acumulador.porEstado[EstadoAsistencia.TARDIO.ordinal()] = estadisticas.getTardios();
+        acumulador.porEstado[EstadoAsistencia.FUERA_RANGO.ordinal()] = estadisticas.getFueraRango();
+        acumulador.primeraFirma = estadisticas.getPrimeraFirma();
+        acumulador.ultimaFirma = estadisticas.getUltimaFirma();
+        acumulador.enRango = estadisticas.getEstudiantesEnRango();
+        acumulador.conDistancia = estadisticas.getEstudiantesEnRango() + estadisticas.getEstudiantesFueraRango();
+        if (acumulador.conDistancia > 0) {
+            acumulador.sumaDistancia = estadisticas.getPromedioDistancia() * acumulador.conDistancia;
+            acumulador.distanciaMinima = estadisticas.getDistanciaMinima();
+            acumulador.distanciaMaxima = estadisticas.getDistanciaMaxima();
+        }
+        return acumulador;
+    }
+
+    /**
+     * Cifras para congelar al cerrar la sesión.
+     */
+    public SesionEstadisticas congelar(Long idSesion, long totalInscritos, LocalDateTime fechaCierre) {
+        evaluarPendientes();
+        return SesionEstadisticas.builder()
+            .idSesion(idSesion)
+            .fechaCierre(fechaCierre)
+            .totalInscritos(totalInscritos)
+            .totalFirmaron(total)
+            .presentes(getCantidad(EstadoAsistencia.PRESENTE))
+            .ausentes(getCantidad(EstadoAsistencia.AUSENTE))
+            .tardios(getCantidad(EstadoAsistencia.TARDIO))
+            .fueraRango(getCantidad(EstadoAsistencia.FUERA_RANGO))
+            .primeraFirma(primeraFirma)
+            .ultimaFirma(ultimaFirma)
+            .promedioDistancia(getPromedioDistancia())
+            .distanciaMinima(getDistanciaMinima())
+            .distanciaMaxima(getDistanciaMaxima())
+            .estudiantesEnRango(getEnRango())
+            .estudiantesFueraRango(getFueraRango())
+            .fechaCalculo(LocalDateTime.now())
+            .build();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getCantidad(EstadoAsistencia estado) {
+        return porEstado[estado.ordinal()];
+    }
+
+    public LocalDateTime getPrimeraFirma() {
+        return primeraFirma;
+    }
+
+    public LocalDateTime getUltimaFirma() {
+        return ultimaFirma;
+    }
+
+    public double getPromedioDistancia() {
+        evaluarPendientes();
+        return conDistancia > 0 ? sumaDistancia / conDistancia : 0.0;
+    }
+
+    public double getDistanciaMinima() {
+        evaluarPendientes();
+        return conDistancia > 0 ? distanciaMinima : 0.0;
+    }
+
+    public double getDistanciaMaxima() {
+        evaluarPendientes();
+        return conDistancia > 0 ? distanciaMaxima : 0.0;
+    }
+
+    public long getEnRango() {
+        evaluarPendientes();
+        return enRango;
+    }
+
+    public long getFueraRango() {
+        evaluarPendientes();
+        return conDistancia - enRango;
+    }
+
+    public double getPorcentajeEnRango() {
+        evaluarPendientes();
+        return conDistancia > 0 ? (double) enRango / conDistancia * 100 : 0.0;
+    }
+}
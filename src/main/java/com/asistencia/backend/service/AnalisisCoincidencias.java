@@ -0,0 +1,362 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.AnalisisCoincidenciasDTO;
+import com.asistencia.backend.dto.CoincidenciaUbicacionDTO;
+import com.asistencia.backend.model.CoincidenciaUbicacion;
+import com.asistencia.backend.model.Usuario;
+import com.asistencia.backend.repository.CoincidenciaUbicacionRepository;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.repository.UserRepository;
+import com.asistencia.backend.util.GeoUtils;
+import com.asistencia.backend.util.MapaConteos;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Análisis por lotes de los pares de estudiantes que firman juntos (a menos de distanciaMetros y con
+ * menos de ventanaMin minutos de diferencia) en muchas sesiones de un periodo.
+ *
+ * Las firmas del periodo se leen una vez con cursor, ordenadas por sesión. Dentro de cada sesión se
+ * agrupan en cubetas de espacio (al menos distanciaMetros de lado) y tiempo (ventanaMin) y cada firma
+ * solo se compara con las de las 3x3x3 cubetas vecinas; los pares se cuentan en un MapaConteos con
+ * clave empaquetada en un long. Para eso cada estudiante recibe un índice de 0 en adelante en el orden
+ * en que aparece, así los ids de la base pueden ser cualquier long. El costo crece con las firmas, no
+ * con el cuadrado de los estudiantes.
+ * El ranking (pares con al menos minimo sesiones, los maxResultados primeros) reemplaza al anterior
+ * del periodo en coincidencias_ubicacion. Los análisis corren de a uno en un hilo propio.
+ */
+@Component
+public class AnalisisCoincidencias {
+
+    private static final double METROS_POR_GRADO = 6371000 * Math.PI / 180;
+
+    private static final Comparator<Candidato> ORDEN = Comparator
+        .comparingInt(Candidato::coincidencias)
+        .thenComparingDouble(Candidato::indice)
+        .thenComparing(Comparator.comparingLong(Candidato::par).reversed());
+
+    // estudiante: índice del estudiante en el análisis, no su id
+    private record Firma(int estudiante, long segundo, double latitud, double longitud) {}
+
+    private record Cubeta(int fila, int columna, long ventana) {}
+
+    private record Candidato(long par, int coincidencias, double indice) {}
+
+    private final SesionDetalleRepository sesionDetalleRepository;
+    private final CoincidenciaUbicacionRepository coincidenciaUbicacionRepository;
+    private final UserRepository usuarioRepository;
+    private final TransactionTemplate transaccion;
+    private final TransactionTemplate transaccionLectura;
+    private final double distanciaMetros;
+    private final double celdaGrados;
+    private final long ventanaSegundos;
+    private final int minimo;
+    private final int maxResultados;
+
+    private final Map<String, AnalisisCoincidenciasDTO> analisis = new ConcurrentHashMap<>();
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "analisis-coincidencias");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    public AnalisisCoincidencias(SesionDetalleRepository sesionDetalleRepository,
+                                 CoincidenciaUbicacionRepository coincidenciaUbicacionRepository,
+                                 UserRepository usuarioRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${asistencia.coincidencias.distancia-metros:2.0}") double distanciaMetros,
+                                 @Value("${asistencia.coincidencias.ventana-min:5}") int ventanaMin,
+                                 @Value("${asistencia.coincidencias.minimo:3}") int minimo,
+                                 @Value("${asistencia.coincidencias.max-resultados:1000}") int maxResultados) {
+        this.sesionDetalleRepository = sesionDetalleRepository;
+        this.coincidenciaUbicacionRepository = coincidenciaUbicacionRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+        this.distanciaMetros = distanciaMetros;
+        this.celdaGrados = distanciaMetros / METROS_POR_GRADO;
+        this.ventanaSegundos = ventanaMin * 60L;
+        this.minimo = minimo;
+        this.maxResultados = maxResultados;
+    }
+
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Encola el análisis del periodo; si ya hay uno en curso para ese periodo devuelve su estado.
+     */
+    public AnalisisCoincidenciasDTO iniciar(String periodo) {
+        AnalisisCoincidenciasDTO[] iniciado = new AnalisisCoincidenciasDTO[1];
+        AnalisisCoincidenciasDTO actual = analisis.compute(periodo, (clave, existente) -> {
+            if (existente != null && "EN_CURSO".equals(existente.getEstado())) {
+                return existente;
+            }
+            iniciado[0] = AnalisisCoincidenciasDTO.builder()
+                .periodo(periodo)
+                .estado("EN_CURSO")
+                .fechaInicio(LocalDateTime.now())
+                .build();
+            return iniciado[0];
+        });
+        if (iniciado[0] != null) {
+            try {
+                ejecutor.execute(() -> ejecutar(iniciado[0]));
+            } catch (RejectedExecutionException e) {
+                // Ejecutor detenido: el análisis no queda EN_CURSO para siempre
+                AnalisisCoincidenciasDTO fallido = fallido(iniciado[0], "La aplicación se está deteniendo");
+                analisis.put(periodo, fallido);
+                return fallido;
+            }
+        }
+        return actual;
+    }
+
+    public AnalisisCoincidenciasDTO getEstado(String periodo) {
+        return Optional.ofNullable(analisis.get(periodo))
+            .orElseThrow(() -> new RuntimeException("No hay un análisis de coincidencias del periodo " + periodo));
+    }
+
+    /**
+     * Ranking guardado del periodo, con los datos de los estudiantes de la página (una consulta).
+     */
+    @Transactional(readOnly = true)
+    public Page<CoincidenciaUbicacionDTO> getResultados(String periodo, Pageable pageable) {
+        Page<CoincidenciaUbicacion> pagina = coincidenciaUbicacionRepository.findByPeriodoOrderByPosicion(periodo, pageable);
+        List<Long> ids = pagina.stream()
+            .flatMap(coincidencia -> Stream.of(coincidencia.getIdEstudianteA(), coincidencia.getIdEstudianteB()))
+            .distinct()
+            .toList();
+        Map<Long, Usuario> estudiantes = usuarioRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+        return pagina.map(coincidencia -> convertirADTO(coincidencia, estudiantes));
+    }
+
+    private void ejecutar(AnalisisCoincidenciasDTO inicio) {
+        AnalisisCoincidenciasDTO resultado;
+        try {
+            resultado = analizar(inicio.getPeriodo(), inicio.getFechaInicio());
+        } catch (RuntimeException e) {
+            resultado = fallido(inicio, e.getMessage());
+        }
+        analisis.put(inicio.getPeriodo(), resultado);
+    }
+
+    private static AnalisisCoincidenciasDTO fallido(AnalisisCoincidenciasDTO inicio, String error) {
+        return AnalisisCoincidenciasDTO.builder()
+            .periodo(inicio.getPeriodo())
+            .estado("FALLIDO")
+            .fechaInicio(inicio.getFechaInicio())
+            .fechaFin(LocalDateTime.now())
+            .error(error)
+            .build();
+    }
+
+    /**
+     * Analiza el periodo y reemplaza su ranking; se ejecuta en el hilo que lo llama.
+     */
+    AnalisisCoincidenciasDTO analizar(String periodo, LocalDateTime fechaInicio) {
+        long inicio = System.currentTimeMillis();
+        MapaConteos pares = new MapaConteos(1 << 16);
+        MapaConteos firmasPorEstudiante = new MapaConteos(1 << 12);
+        long[] totales = new long[2]; // firmas, sesiones
+        Map<Long, Integer> indices = new HashMap<>();
+        List<Long> idsEstudiante = new ArrayList<>();
+
+        transaccionLectura.executeWithoutResult(estado -> {
+            try (Stream<Object[]> filas = sesionDetalleRepository.streamUbicacionesByPeriodo(periodo)) {
+                Iterator<Object[]> iterador = filas.iterator();
+                List<Firma> firmasSesion = new ArrayList<>();
+                Long sesionActual = null;
+                while (iterador.hasNext()) {
+                    Object[] fila = iterador.next();
+                    if (!fila[0].equals(sesionActual)) {
+                        contarPares(firmasSesion, pares);
+                        firmasSesion.clear();
+                        sesionActual = (Long) fila[0];
+                        totales[1]++;
+                    }
+                    int estudiante = indices.computeIfAbsent((Long) fila[1], id -> {
+                        idsEstudiante.add(id);
+                        return idsEstudiante.size() - 1;
+                    });
+                    firmasPorEstudiante.sumar(estudiante, 1);
+                    firmasSesion.add(new Firma(estudiante, ((LocalDateTime) fila[2]).toEpochSecond(ZoneOffset.UTC),
+                        (Double) fila[3], (Double) fila[4]));
+                    totales[0]++;
+                }
+                contarPares(firmasSesion, pares);
+            }
+        });
+
+        List<CoincidenciaUbicacion> ranking = clasificar(periodo, pares, firmasPorEstudiante, idsEstudiante, LocalDateTime.now());
+        transaccion.executeWithoutResult(estado -> {
+            coincidenciaUbicacionRepository.deleteByPeriodo(periodo);
+            coincidenciaUbicacionRepository.saveAll(ranking);
+        });
+
+        return AnalisisCoincidenciasDTO.builder()
+            .periodo(periodo)
+            .estado("COMPLETADO")
+            .firmas(totales[0])
+            .sesiones(totales[1])
+            .pares((long) pares.tamano())
+            .resultados(ranking.size())
+            .fechaInicio(fechaInicio)
+            .fechaFin(LocalDateTime.now())
+            .duracionMs(System.currentTimeMillis() - inicio)
+            .build();
+    }
+
+    /**
+     * Cuenta una coincidencia por cada par de firmas de la sesión cercanas en espacio y tiempo.
+     * Un grado de longitud mide cos(latitud) veces lo que uno de latitud, así que las columnas se
+     * ensanchan con el coseno de la mayor latitud (en valor absoluto) de la sesión: en todas sus firmas
+     * miden al menos distanciaMetros y basta con mirar las cubetas vecinas.
+     */
+    private void contarPares(List<Firma> firmas, MapaConteos pares) {
+        if (firmas.size() < 2) {
+            return;
+        }
+        double latitudMaxima = 0;
+        for (Firma firma : firmas) {
+            latitudMaxima = Math.max(latitudMaxima, Math.abs(firma.latitud()));
+        }
+        double columnaGrados = celdaGrados / Math.cos(Math.toRadians(latitudMaxima));
+        Map<Cubeta, List<Firma>> cubetas = new HashMap<>();
+        for (Firma firma : firmas) {
+            int fila = (int) Math.floor(firma.latitud() / celdaGrados);
+            int columna = (int) Math.floor(firma.longitud() / columnaGrados);
+            long ventana = Math.floorDiv(firma.segundo(), ventanaSegundos);
+            for (int df = -1; df <= 1; df++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    for (int dv = -1; dv <= 1; dv++) {
+                        List<Firma> vecinas = cubetas.get(new Cubeta(fila + df, columna + dc, ventana + dv));
+                        if (vecinas == null) {
+                            continue;
+                        }
+                        for (Firma otra : vecinas) {
+                            if (juntas(firma, otra)) {
+                                pares.sumar(par(firma.estudiante(), otra.estudiante()), 1);
+                            }
+                        }
+                    }
+                }
+            }
+            cubetas.computeIfAbsent(new Cubeta(fila, columna, ventana), c -> new ArrayList<>(2)).add(firma);
+        }
+    }
+
+    private boolean juntas(Firma a, Firma b) {
+        return a.estudiante() != b.estudiante()
+            && Math.abs(a.segundo() - b.segundo()) <= ventanaSegundos
+            && GeoUtils.dentroDelRadio(a.latitud(), a.longitud(), b.latitud(), b.longitud(), distanciaMetros);
+    }
+
+    /**
+     * Los maxResultados pares con más coincidencias (y, a igualdad, mayor índice), con un montículo acotado.
+     */
+    private List<CoincidenciaUbicacion> clasificar(String periodo, MapaConteos pares, MapaConteos firmasPorEstudiante,
+                                                  List<Long> idsEstudiante, LocalDateTime fechaCalculo) {
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(ORDEN);
+        pares.recorrer((par, coincidencias) -> {
+            if (coincidencias < minimo) {
+                return;
+            }
+            int firmasMinimas = Math.min(firmasPorEstudiante.obtener(estudianteA(par)), firmasPorEstudiante.obtener(estudianteB(par)));
+            Candidato candidato = new Candidato(par, coincidencias, (double) coincidencias / firmasMinimas);
+            if (mejores.size() < maxResultados) {
+                mejores.add(candidato);
+            } else if (ORDEN.compare(candidato, mejores.peek()) > 0) {
+                mejores.poll();
+                mejores.add(candidato);
+            }
+        });
+
+        List<Candidato> ordenados = new ArrayList<>(mejores);
+        ordenados.sort(ORDEN.reversed());
+        List<CoincidenciaUbicacion> ranking = new ArrayList<>(ordenados.size());
+        for (int i = 0; i < ordenados.size(); i++) {
+            Candidato candidato = ordenados.get(i);
+            // El estudiante A es el de id menor
+            int a = estudianteA(candidato.par());
+            int b = estudianteB(candidato.par());
+            if (idsEstudiante.get(a) > idsEstudiante.get(b)) {
+                int menor = b;
+                b = a;
+                a = menor;
+            }
+            ranking.add(CoincidenciaUbicacion.builder()
+                .periodo(periodo)
+                .posicion(i + 1)
+                .idEstudianteA(idsEstudiante.get(a))
+                .idEstudianteB(idsEstudiante.get(b))
+                .coincidencias(candidato.coincidencias())
+                .firmasEstudianteA(firmasPorEstudiante.obtener(a))
+                .firmasEstudianteB(firmasPorEstudiante.obtener(b))
+                .indice(candidato.indice())
+                .fechaCalculo(fechaCalculo)
+                .build());
+        }
+        return ranking;
+    }
+
+    // Par sin orden: el índice menor va en los 32 bits altos
+    private static long par(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    private static int estudianteA(long par) {
+        return (int) (par >>> 32);
+    }
+
+    private static int estudianteB(long par) {
+        return (int) par;
+    }
+
+    private CoincidenciaUbicacionDTO convertirADTO(CoincidenciaUbicacion coincidencia, Map<Long, Usuario> estudiantes) {
+        Usuario a = estudiantes.get(coincidencia.getIdEstudianteA());
+        Usuario b = estudiantes.get(coincidencia.getIdEstudianteB());
+        return CoincidenciaUbicacionDTO.builder()
+            .posicion(coincidencia.getPosicion())
+            .idEstudianteA(coincidencia.getIdEstudianteA())
+            .identificacionEstudianteA(a != null ? a.getIdentificacion() : null)
+            .nombreEstudianteA(a != null ? a.getNombre() + " " + a.getApellido() : null)
+            .idEstudianteB(coincidencia.getIdEstudianteB())
+            .identificacionEstudianteB(b != null ? b.getIdentificacion() : null)
+            .nombreEstudianteB(b != null ? b.getNombre() + " " + b.getApellido() : null)
+            .coincidencias(coincidencia.getCoincidencias())
+            .firmasEstudianteA(coincidencia.getFirmasEstudianteA())
+            .firmasEstudianteB(coincidencia.getFirmasEstudianteB())
+            .indice(coincidencia.getIndice())
+            .fechaCalculo(coincidencia.getFechaCalculo())
+            .build();
+    }
+}
@@ -0,0 +1,237 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.AnomaliaUbicacionDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.util.TransaccionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detecta firmas de una sesión agrupadas en el mismo punto (teléfono compartido o GPS simulado).
+ * Cada firma confirmada se ubica en una rejilla de celdas de celdaMetros de lado y se suman las
+ * firmas de sus 3x3 celdas vecinas: nueve búsquedas en un mapa, sin releer sesiones_detalle. Si la
+ * suma alcanza el umbral la celda queda marcada; al consultar, las celdas marcadas contiguas forman
+ * un grupo. Las celdas son cuadradas en grados, así que en longitud miden celdaMetros·cos(latitud).
+ * Las rejillas de las sesiones activas viven en memoria; las de las demás se arman con una consulta
+ * cada vez que se piden.
+ */
+@Component
+public class AnomaliasUbicacion {
+
+    private static final double METROS_POR_GRADO = 6371000 * Math.PI / 180;
+    // Con celdas menores la columna de una longitud podría no caber en un int
+    private static final double CELDA_MINIMA_METROS = 0.1;
+
+    private final SesionDetalleRepository sesionDetalleRepository;
+    private final ActiveSesionRegistry activeSesionRegistry;
+    private final double celdaGrados;
+    private final int umbral;
+
+    private final Map<Long, Rejilla> rejillas = new ConcurrentHashMap<>();
+
+    // Firmas aplicadas por sesión; una carga solo se conserva si su sesión no recibió ninguna mientras consultaba
+    private final Map<Long, Long> versiones = new ConcurrentHashMap<>();
+
+    public AnomaliasUbicacion(SesionDetalleRepository sesionDetalleRepository,
+                              ActiveSesionRegistry activeSesionRegistry,
+                              @Value("${asistencia.anomalias.celda-metros:1.0}") double celdaMetros,
+                              @Value("${asistencia.anomalias.umbral:3}") int umbral) {
+        if (celdaMetros < CELDA_MINIMA_METROS) {
+            throw new IllegalArgumentException("La celda de anomalías debe medir al menos " + CELDA_MINIMA_METROS + " metros");
+        }
+        if (umbral < 2) {
+            throw new IllegalArgumentException("El umbral de anomalías debe ser al menos 2");
+        }
+        this.sesionDetalleRepository = sesionDetalleRepository;
+        this.activeSesionRegistry = activeSesionRegistry;
+        this.celdaGrados = celdaMetros / METROS_POR_GRADO;
+        this.umbral = umbral;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void precargarActivas() {
+        Map<Long, Long> antes = Map.copyOf(versiones);
+        Map<Long, Rejilla> cargadas = new HashMap<>();
+        for (Object[] fila : sesionDetalleRepository.findUbicacionesSesionesActivas()) {
+            cargadas.computeIfAbsent((Long) fila[0], id -> new Rejilla())
+                .agregar(firma(fila, 1));
+        }
+        cargadas.forEach((idSesion, rejilla) -> conservar(idSesion, rejilla, antes.getOrDefault(idSesion, 0L)));
+    }
+
+    /**
+     * Grupos de firmas sospechosas de la sesión, del más grande al más pequeño.
+     */
+    @Transactional(readOnly = true)
+    public List<AnomaliaUbicacionDTO> obtener(Long idSesion) {
+        Rejilla rejilla = rejillas.get(idSesion);
+        if (rejilla == null) {
+            rejilla = cargar(idSesion);
+        }
+        return rejilla.agrupar();
+    }
+
+    /**
+     * Registra una sesión nueva con la rejilla vacía (al confirmar su creación).
+     */
+    public void iniciar(Long idSesion) {
+        TransaccionUtils.alConfirmar(() -> rejillas.putIfAbsent(idSesion, new Rejilla()));
+    }
+
+    /**
+     * Libera la rejilla de una sesión cerrada o eliminada (al confirmar); después se arma al consultarla.
+     */
+    public void descartar(Long idSesion) {
+        TransaccionUtils.alConfirmar(() -> {
+            rejillas.remove(idSesion);
+            versiones.remove(idSesion);
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alRegistrarFirma(FirmaRegistradaEvent evento) {
+        if (evento.getLatitudEstudiante() == null || evento.getLongitudEstudiante() == null) {
+            return;
+        }
+        Firma firma = new Firma(evento.getIdDetalle(), evento.getIdEstudiante(),
+            evento.getLatitudEstudiante(), evento.getLongitudEstudiante());
+        rejillas.compute(evento.getIdSesion(), (id, rejilla) -> {
+            versiones.merge(id, 1L, Long::sum);
+            if (rejilla != null) {
+                rejilla.agregar(firma);
+            }
+            return rejilla;
+        });
+    }
+
+    private Rejilla cargar(Long idSesion) {
+        long antes = version(idSesion);
+        Rejilla cargada = new Rejilla();
+        for (Object[] fila : sesionDetalleRepository.findUbicacionesBySesionId(idSesion)) {
+            cargada.agregar(firma(fila, 0));
+        }
+        // Solo las sesiones activas reciben firmas nuevas; las demás no se guardan en memoria
+        if (activeSesionRegistry.buscar(idSesion).isEmpty()) {
+            return cargada;
+        }
+        Rejilla actual = conservar(idSesion, cargada, antes);
+        return actual != null ? actual : cargada;
+    }
+
+    private Rejilla conservar(Long idSesion, Rejilla cargada, long antes) {
+        return rejillas.compute(idSesion, (id, existente) ->
+            existente != null ? existente : (version(id) == antes ? cargada : null));
+    }
+
+    private long version(Long idSesion) {
+        return versiones.getOrDefault(idSesion, 0L);
+    }
+
+    private static Firma firma(Object[] fila, int desde) {
+        return new Firma((Long) fila[desde], (Long) fila[desde + 1], (Double) fila[desde + 2], (Double) fila[desde + 3]);
+    }
+
+    private static long clave(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xFFFFFFFFL);
+    }
+
+    private record Firma(Long idDetalle, Long idEstudiante, double latitud, double longitud) {}
+
+    /**
+     * Firmas de una sesión por celda y celdas cuya vecindad alcanzó el umbral.
+     */
+    private final class Rejilla {
+
+        private final Map<Long, List<Firma>> celdas = new HashMap<>();
+        private final Set<Long> marcadas = new HashSet<>();
+
+        synchronized void agregar(Firma firma) {
+            int fila = (int) Math.floor(firma.latitud() / celdaGrados);
+            int columna = (int) Math.floor(firma.longitud() / celdaGrados);
+            long celda = clave(fila, columna);
+            celdas.computeIfAbsent(celda, c -> new ArrayList<>(2)).add(firma);
+
+            int vecindad = 0;
+            for (int df = -1; df <= 1; df++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    List<Firma> vecinas = celdas.get(clave(fila + df, columna + dc));
+                    vecindad += vecinas != null ? vecinas.size() : 0;
+                }
+            }
+            if (vecindad >= umbral) {
+                marcadas.add(celda);
+            }
+        }
+
+        /**
+         * Une las celdas marcadas contiguas; cada grupo reúne las firmas de sus vecindades.
+         */
+        synchronized List<AnomaliaUbicacionDTO> agrupar() {
+            List<AnomaliaUbicacionDTO> grupos = new ArrayList<>();
+            Set<Long> visitadas = new HashSet<>();
+            for (Long inicial : marcadas) {
+                if (!visitadas.add(inicial)) {
+                    continue;
+                }
+                Set<Firma> firmas = new LinkedHashSet<>();
+                Deque<Long> pendientes = new ArrayDeque<>();
+                pendientes.push(inicial);
+                while (!pendientes.isEmpty()) {
+                    long celda = pendientes.pop();
+                    int fila = (int) (celda >> 32);
+                    int columna = (int) celda;
+                    for (int df = -1; df <= 1; df++) {
+                        for (int dc = -1; dc <= 1; dc++) {
+                            long vecina = clave(fila + df, columna + dc);
+                            List<Firma> enCelda = celdas.get(vecina);
+                            if (enCelda != null) {
+                                firmas.addAll(enCelda);
+                            }
+                            if (marcadas.contains(vecina) && visitadas.add(vecina)) {
+                                pendientes.push(vecina);
+                            }
+                        }
+                    }
+                }
+                grupos.add(resumir(firmas));
+            }
+            grupos.sort(Comparator.comparing(AnomaliaUbicacionDTO::getTotalFirmas).reversed());
+            return grupos;
+        }
+
+        private AnomaliaUbicacionDTO resumir(Set<Firma> firmas) {
+            double latitud = 0;
+            double longitud = 0;
+            for (Firma firma : firmas) {
+                latitud += firma.latitud();
+                longitud += firma.longitud();
+            }
+            return AnomaliaUbicacionDTO.builder()
+                .latitud(latitud / firmas.size())
+                .longitud(longitud / firmas.size())
+                .totalFirmas(firmas.size())
+                .idsEstudiantes(firmas.stream().map(Firma::idEstudiante).distinct().sorted().toList())
+                .idsDetalle(firmas.stream().map(Firma::idDetalle).sorted().toList())
+                .build();
+        }
+    }
+}
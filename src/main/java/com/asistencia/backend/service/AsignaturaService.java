@@ -17,6 +17,7 @@ import java.util.List;
 public class AsignaturaService {
     
     private final AsignaturaRepository asignaturaRepository;
+    private final VersionesSesion versionesSesion;
     
     public Page<Asignatura> getAllAsignaturas(Pageable pageable) {
         return asignaturaRepository.findAll(pageable);
@@ -64,6 +65,8 @@ public class AsignaturaService {
         asignatura.setAbreviatura(request.getAbreviatura());
         asignatura.setCreditos(request.getCreditos());
         
+        // La asignatura aparece en el detalle de las sesiones de sus cursos
+        versionesSesion.incrementarGeneral();
         return asignaturaRepository.save(asignatura);
     }
     
@@ -9,6 +9,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -16,7 +18,9 @@ public class AsistenciaService {
     
     private final SesionDetalleRepository sesionDetalleRepository;
     private final SesionRepository sesionRepository;
-    private final UsuarioCursoRepository usuarioCursoRepository;
+    private final ActiveSesionRegistry activeSesionRegistry;
+    private final InscripcionIndex inscripcionIndex;
+    private final ReporteService reporteService;
     
     public Page<SesionDetalleDTO> getAsistenciaEstudiante(Long idEstudiante, Long idCurso, String periodo, Pageable pageable) {
         Page<SesionDetalle> detalles;
@@ -33,29 +37,17 @@ public class AsistenciaService {
     }
     
     public EstadisticasEstudianteDTO getEstadisticasEstudiante(Long idEstudiante, Long idCurso) {
-        Long totalSesiones;
-        Long asistencias;
-        Long ausencias;
-        Long tardias;
-        Long fueraRango;
+        // Registros por estado desde la tabla de hechos (incluye las ausencias de las sesiones cerradas)
+        Map<EstadoAsistencia, Long> conteos = reporteService.getConteosEstudiante(idEstudiante, idCurso);
+        Long asistencias = conteos.get(EstadoAsistencia.PRESENTE);
+        Long ausencias = conteos.get(EstadoAsistencia.AUSENTE);
+        Long tardias = conteos.get(EstadoAsistencia.TARDIO);
+        Long fueraRango = conteos.get(EstadoAsistencia.FUERA_RANGO);
         String curso = null;
         
-        if (idCurso != null) {
-            totalSesiones = sesionRepository.countByCursoId(idCurso);
-            asistencias = sesionDetalleRepository.countByEstudianteIdAndCursoIdAndEstado(idEstudiante, idCurso, EstadoAsistencia.PRESENTE);
-            ausencias = sesionDetalleRepository.countByEstudianteIdAndCursoIdAndEstado(idEstudiante, idCurso, EstadoAsistencia.AUSENTE);
-            tardias = sesionDetalleRepository.countByEstudianteIdAndCursoIdAndEstado(idEstudiante, idCurso, EstadoAsistencia.TARDIO);
-            fueraRango = sesionDetalleRepository.countByEstudianteIdAndCursoIdAndEstado(idEstudiante, idCurso, EstadoAsistencia.FUERA_RANGO);
-        } else {
-            totalSesiones = sesionDetalleRepository.countByEstudianteIdAndEstado(idEstudiante, EstadoAsistencia.PRESENTE) +
-                           sesionDetalleRepository.countByEstudianteIdAndEstado(idEstudiante, EstadoAsistencia.AUSENTE) +
-                           sesionDetalleRepository.countByEstudianteIdAndEstado(idEstudiante, EstadoAsistencia.TARDIO) +
-                           sesionDetalleRepository.countByEstudianteIdAndEstado(idEstudiante, EstadoAsistencia.FUERA_RANGO);
-            asistencias = sesionDetalleRepository.countByEstudianteIdAndEstado(idEstudiante, EstadoAsistencia.PRESENTE);
-            ausencias = sesionDetalleRepository.countByEstudianteIdAndEstado(idEstudiante, EstadoAsistencia.AUSENTE);
-            tardias = sesionDetalleRepository.countByEstudianteIdAndEstado(idEstudiante, EstadoAsistencia.TARDIO);
-            fueraRango = sesionDetalleRepository.countByEstudianteIdAndEstado(idEstudiante, EstadoAsistencia.FUERA_RANGO);
-        }
+        Long totalSesiones = idCurso != null
+            ? sesionRepository.countByCursoId(idCurso)
+            : asistencias + ausencias + tardias + fueraRango;
         
         Double porcentajeAsistencia = totalSesiones > 0 ? 
             (double) asistencias / totalSesiones * 100 : 0.0;
@@ -72,11 +64,12 @@ public class AsistenciaService {
     }
     
     public ValidacionFirmaDTO validarPuedeFirmar(Long idSesion, Long idEstudiante) {
-        Sesion sesion = sesionRepository.findById(idSesion)
+        // Datos de la sesión desde el registro de sesiones activas
+        SesionSnapshotDTO sesion = activeSesionRegistry.obtener(idSesion)
             .orElseThrow(() -> new RuntimeException("Sesión no encontrada"));
         
         // Verificar si la sesión está abierta
-        if (!"ABIERTA".equals(sesion.getEstado())) {
+        if (!sesion.isActiva()) {
             return ValidacionFirmaDTO.builder()
                 .puedeFirmar(false)
                 .mensaje("La sesión no está abierta para firmar")
@@ -85,8 +78,7 @@ public class AsistenciaService {
         }
         
         // Verificar si el estudiante está inscrito
-        UsuarioCurso inscripcion = usuarioCursoRepository.findByUsuarioIdAndCursoId(idEstudiante, sesion.getCurso().getId());
-        if (inscripcion == null) {
+        if (!inscripcionIndex.estaInscrito(sesion.getIdCurso(), idEstudiante)) {
             return ValidacionFirmaDTO.builder()
                 .puedeFirmar(false)
                 .mensaje("El estudiante no está inscrito en este curso")
@@ -95,8 +87,7 @@ public class AsistenciaService {
         }
         
         // Verificar si ya firmó
-        SesionDetalle detalleExistente = sesionDetalleRepository.findBySesionIdAndEstudianteId(idSesion, idEstudiante);
-        if (detalleExistente != null) {
+        if (activeSesionRegistry.haFirmado(idSesion, idEstudiante)) {
             return ValidacionFirmaDTO.builder()
                 .puedeFirmar(false)
                 .mensaje("El estudiante ya firmó en esta sesión")
@@ -112,10 +103,10 @@ public class AsistenciaService {
     }
     
     public boolean isSesionDisponible(Long idSesion) {
-        Sesion sesion = sesionRepository.findById(idSesion)
-            .orElseThrow(() -> new RuntimeException("Sesión no encontrada"));
-        
-        return "ABIERTA".equals(sesion.getEstado());
+        // Las sesiones activas se responden desde memoria
+        return activeSesionRegistry.obtener(idSesion)
+            .orElseThrow(() -> new RuntimeException("Sesión no encontrada"))
+            .isActiva();
     }
     
     private SesionDetalleDTO convertirADTO(SesionDetalle detalle) {
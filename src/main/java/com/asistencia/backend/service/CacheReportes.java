@@ -0,0 +1,202 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.EstadisticasCacheDTO;
+import com.asistencia.backend.util.TransaccionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache de los reportes, acotada a capacidad entradas con desalojo LRU.
+ * Cada entrada guarda el número de secuencia leído antes de calcularla y los cursos y usuarios
+ * de los que depende. Las escrituras marcan el curso o usuario con un número de secuencia nuevo
+ * al confirmar su transacción, y una entrada con alguna dependencia marcada después de ella ya no
+ * se sirve. Como la secuencia se lee antes de calcular, un cambio confirmado durante el cálculo
+ * también invalida la entrada. Los valores se comparten entre consultas: no se deben modificar.
+ */
+@Component
+public class CacheReportes {
+
+    public record Clave(String tipo, List<Object> parametros) {
+        public static Clave de(String tipo, Object... parametros) {
+            return new Clave(tipo, Arrays.asList(parametros));
+        }
+    }
+
+    /**
+     * Cursos y usuarios de los que depende un reporte; los registra el cálculo.
+     */
+    public static class Dependencias {
+        private final Set<Long> cursos = new HashSet<>();
+        private final Set<Long> usuarios = new HashSet<>();
+        private boolean guardar = true;
+
+        public void curso(Long idCurso) {
+            cursos.add(idCurso);
+        }
+
+        public void usuario(Long idUsuario) {
+            usuarios.add(idUsuario);
+        }
+
+        /**
+         * El reporte se devuelve pero no se guarda (p. ej. se calculó con datos a medio escribir).
+         */
+        public void noGuardar() {
+            guardar = false;
+        }
+    }
+
+    private record Entrada(Object valor, long version, Long[] cursos, Long[] usuarios) {
+    }
+
+    private final int capacidad;
+    private final AtomicLong secuencia = new AtomicLong();
+    private volatile long versionGeneral;
+    private final Map<Long, Long> versionesCurso = new ConcurrentHashMap<>();
+    private final Map<Long, Long> versionesUsuario = new ConcurrentHashMap<>();
+    private final Map<Clave, Entrada> entradas;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    public CacheReportes(@Value("${asistencia.reportes.cache.capacidad:500}") int capacidad) {
+        this.capacidad = capacidad;
+        // Orden de acceso: la primera entrada es la usada hace más tiempo
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Clave, Entrada> mayor) {
+                if (size() > CacheReportes.this.capacidad) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Reporte de la cache si sigue vigente; si no, lo calcula y lo guarda con las dependencias
+     * que registró el cálculo. Si el cálculo falla no se guarda nada.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(Clave clave, Function<Dependencias, T> calculo) {
+        Entrada entrada;
+        synchronized (entradas) {
+            entrada = entradas.get(clave);
+        }
+        if (entrada != null) {
+            if (vigente(entrada)) {
+                aciertos.incrementAndGet();
+                return (T) entrada.valor();
+            }
+            synchronized (entradas) {
+                entradas.remove(clave, entrada);
+            }
+        }
+        fallos.incrementAndGet();
+
+        long version = secuencia.get();
+        Dependencias dependencias = new Dependencias();
+        T valor = calculo.apply(dependencias);
+        Entrada nueva = new Entrada(valor, version,
+            dependencias.cursos.toArray(Long[]::new), dependencias.usuarios.toArray(Long[]::new));
+        if (dependencias.guardar && vigente(nueva)) {
+            synchronized (entradas) {
+                entradas.put(clave, nueva);
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Invalida los reportes del curso al confirmar la transacción en curso.
+     */
+    public void invalidarCurso(Long idCurso) {
+        TransaccionUtils.alConfirmar(() -> marcar(versionesCurso, idCurso));
+    }
+
+    /**
+     * Invalida los reportes del curso de inmediato, para escrituras ya confirmadas (listeners AFTER_COMMIT
+     * y acciones de alConfirmar, donde no se pueden registrar más acciones para la confirmación).
+     */
+    public void invalidarCursoConfirmado(Long idCurso) {
+        marcar(versionesCurso, idCurso);
+    }
+
+    public void invalidarCursos(Collection<Long> idsCurso) {
+        TransaccionUtils.alConfirmar(() -> idsCurso.forEach(idCurso -> marcar(versionesCurso, idCurso)));
+    }
+
+    /**
+     * Invalida los consolidados del usuario (sus inscripciones o sus cursos cambiaron) al confirmar.
+     */
+    public void invalidarUsuario(Long idUsuario) {
+        TransaccionUtils.alConfirmar(() -> marcar(versionesUsuario, idUsuario));
+    }
+
+    public void invalidarUsuarios(Collection<Long> idsUsuario) {
+        TransaccionUtils.alConfirmar(() -> idsUsuario.forEach(idUsuario -> marcar(versionesUsuario, idUsuario)));
+    }
+
+    /**
+     * Invalida todos los reportes al confirmar (p. ej. cambia el nombre de un usuario).
+     */
+    public void invalidarTodo() {
+        TransaccionUtils.alConfirmar(() -> {
+            synchronized (this) {
+                versionGeneral = Math.max(versionGeneral, secuencia.incrementAndGet());
+            }
+        });
+    }
+
+    public EstadisticasCacheDTO getEstadisticas() {
+        long totalAciertos = aciertos.get();
+        long totalFallos = fallos.get();
+        int tamano;
+        synchronized (entradas) {
+            tamano = entradas.size();
+        }
+        return EstadisticasCacheDTO.builder()
+            .entradas(tamano)
+            .capacidad(capacidad)
+            .aciertos(totalAciertos)
+            .fallos(totalFallos)
+            .desalojos(desalojos.get())
+            .tasaAciertos(totalAciertos + totalFallos > 0 ? (double) totalAciertos / (totalAciertos + totalFallos) * 100 : 0.0)
+            .build();
+    }
+
+    private boolean vigente(Entrada entrada) {
+        if (versionGeneral > entrada.version()) {
+            return false;
+        }
+        for (Long idCurso : entrada.cursos()) {
+            if (versionesCurso.getOrDefault(idCurso, 0L) > entrada.version()) {
+                return false;
+            }
+        }
+        for (Long idUsuario : entrada.usuarios()) {
+            if (versionesUsuario.getOrDefault(idUsuario, 0L) > entrada.version()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Dos escrituras del mismo id pueden llegar en desorden: se conserva el número mayor
+    private void marcar(Map<Long, Long> versiones, Long id) {
+        versiones.merge(id, secuencia.incrementAndGet(), Math::max);
+    }
+}
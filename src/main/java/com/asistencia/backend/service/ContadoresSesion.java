@@ -0,0 +1,184 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.util.TransaccionUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contadores de firmas por sesión (total y uno por estado), en memoria.
+ * Se actualizan al confirmar cada firma (FirmaRegistradaEvent) y se cargan con una consulta
+ * agrupada la primera vez que se consulta una sesión; las sesiones activas se precargan al iniciar.
+ * Solo se conservan en memoria los de las sesiones activas: al cerrar o eliminar una sesión se descartan.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContadoresSesion {
+
+    private static final EstadoAsistencia[] ESTADOS = EstadoAsistencia.values();
+    // Una ranura por estado (por ordinal) y la última para el total
+    private static final int TOTAL = ESTADOS.length;
+
+    private final SesionDetalleRepository sesionDetalleRepository;
+    private final ActiveSesionRegistry activeSesionRegistry;
+
+    private final Map<Long, AtomicLongArray> contadoresPorSesion = new ConcurrentHashMap<>();
+    
+    // Firmas aplicadas por sesión; una carga solo se conserva si su sesión no recibió ninguna mientras consultaba
+    private final Map<Long, Long> versiones = new ConcurrentHashMap<>();
+
+    /**
+     * Valores de los contadores de una sesión en un instante.
+     */
+    public record Conteo(long total, long[] porEstado) {
+        public long de(EstadoAsistencia estado) {
+            return porEstado[estado.ordinal()];
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void precargarActivas() {
+        Map<Long, Long> antes = Map.copyOf(versiones);
+        Map<Long, AtomicLongArray> cargados = new HashMap<>();
+        for (Object[] fila : sesionDetalleRepository.countSesionesActivasAgrupadoPorEstado()) {
+            sumar(cargados.computeIfAbsent((Long) fila[0], id -> new AtomicLongArray(TOTAL + 1)),
+                (EstadoAsistencia) fila[1], (Long) fila[2]);
+        }
+        cargados.forEach((idSesion, contadores) -> conservar(idSesion, contadores, antes.getOrDefault(idSesion, 0L)));
+    }
+
+    public Conteo obtener(Long idSesion) {
+        AtomicLongArray contadores = contadoresPorSesion.get(idSesion);
+        if (contadores == null) {
+            contadores = cargar(idSesion);
+        }
+        return leer(contadores);
+    }
+
+    private static Conteo leer(AtomicLongArray contadores) {
+        long[] porEstado = new long[TOTAL];
+        for (int i = 0; i < TOTAL; i++) {
+            porEstado[i] = contadores.get(i);
+        }
+        return new Conteo(contadores.get(TOTAL), porEstado);
+    }
+
+    /**
+     * Contadores de varias sesiones; las que no están en memoria se cargan juntas con una sola consulta.
+     */
+    public Map<Long, Conteo> obtenerTodos(Collection<Long> idsSesion) {
+        List<Long> faltantes = idsSesion.stream()
+            .filter(idSesion -> !contadoresPorSesion.containsKey(idSesion))
+            .distinct()
+            .toList();
+        Map<Long, AtomicLongArray> cargados = faltantes.isEmpty() ? Map.of() : cargarVarias(faltantes);
+        
+        Map<Long, Conteo> conteos = new HashMap<>();
+        for (Long idSesion : idsSesion) {
+            AtomicLongArray contadores = contadoresPorSesion.get(idSesion);
+            if (contadores == null) {
+                contadores = cargados.get(idSesion);
+            }
+            conteos.put(idSesion, leer(contadores != null ? contadores : cargar(idSesion)));
+        }
+        return conteos;
+    }
+
+    /**
+     * Registra una sesión nueva con sus contadores en cero (al confirmar su creación).
+     */
+    public void iniciar(Long idSesion) {
+        TransaccionUtils.alConfirmar(() -> contadoresPorSesion.putIfAbsent(idSesion, new AtomicLongArray(TOTAL + 1)));
+    }
+
+    /**
+     * Descarta los contadores de una sesión cerrada o eliminada (al confirmar); una sesión cerrada
+     * usa sus estadísticas congeladas y ya no recibe firmas.
+     */
+    public void descartar(Long idSesion) {
+        TransaccionUtils.alConfirmar(() -> {
+            contadoresPorSesion.remove(idSesion);
+            versiones.remove(idSesion);
+        });
+    }
+
+    // Antes que los demás listeners de la firma: la transmisión en vivo lee estos contadores
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alRegistrarFirma(FirmaRegistradaEvent evento) {
+        contadoresPorSesion.compute(evento.getIdSesion(), (id, contadores) -> {
+            versiones.merge(id, 1L, Long::sum);
+            if (contadores != null) {
+                sumar(contadores, evento.getEstado(), 1);
+            }
+            return contadores;
+        });
+    }
+
+    private AtomicLongArray cargar(Long idSesion) {
+        long antes = version(idSesion);
+        AtomicLongArray cargados = new AtomicLongArray(TOTAL + 1);
+        List<Object[]> filas = sesionDetalleRepository.countBySesionIdAgrupadoPorEstado(idSesion);
+        for (Object[] fila : filas) {
+            sumar(cargados, (EstadoAsistencia) fila[0], (Long) fila[1]);
+        }
+        if (activeSesionRegistry.buscar(idSesion).isEmpty()) {
+            return cargados;
+        }
+        AtomicLongArray actuales = conservar(idSesion, cargados, antes);
+        return actuales != null ? actuales : cargados;
+    }
+
+    private Map<Long, AtomicLongArray> cargarVarias(List<Long> idsSesion) {
+        Map<Long, Long> antes = new HashMap<>();
+        Map<Long, AtomicLongArray> cargados = new HashMap<>();
+        idsSesion.forEach(idSesion -> {
+            antes.put(idSesion, version(idSesion));
+            cargados.put(idSesion, new AtomicLongArray(TOTAL + 1));
+        });
+        for (Object[] fila : sesionDetalleRepository.countBySesionIdsAgrupadoPorEstado(idsSesion)) {
+            sumar(cargados.get((Long) fila[0]), (EstadoAsistencia) fila[1], (Long) fila[2]);
+        }
+        cargados.forEach((idSesion, contadores) -> {
+            if (activeSesionRegistry.buscar(idSesion).isPresent()) {
+                conservar(idSesion, contadores, antes.get(idSesion));
+            }
+        });
+        return cargados;
+    }
+
+    /**
+     * Guarda los contadores cargados si la sesión no los tiene. Si se confirmó alguna firma de la
+     * sesión durante la consulta, la carga puede estar desfasada y no se conserva.
+     */
+    private AtomicLongArray conservar(Long idSesion, AtomicLongArray cargados, long antes) {
+        return contadoresPorSesion.compute(idSesion, (id, existentes) ->
+            existentes != null ? existentes : (version(id) == antes ? cargados : null));
+    }
+
+    private long version(Long idSesion) {
+        return versiones.getOrDefault(idSesion, 0L);
+    }
+
+    private static void sumar(AtomicLongArray contadores, EstadoAsistencia estado, long cantidad) {
+        contadores.addAndGet(estado.ordinal(), cantidad);
+        contadores.addAndGet(TOTAL, cantidad);
+    }
+}
@@ -0,0 +1,457 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.EstadoActualizacionDTO;
+import com.asistencia.backend.dto.ReconstruccionCuboDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.model.HechoAsistencia;
+import com.asistencia.backend.model.Sesion;
+import com.asistencia.backend.repository.CursoRepository;
+import com.asistencia.backend.repository.HechoAsistenciaRepository;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.repository.UsuarioCursoRepository;
+import com.asistencia.backend.util.TransaccionUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Mantiene la tabla de hechos hechos_asistencia (curso, estudiante, día, estado).
+ * Las firmas confirmadas y las ausencias de cada sesión cerrada se acumulan en memoria y se suman
+ * a la tabla cada intervaloMs, en una transacción. Como los pendientes solo viven en memoria, los días
+ * cerrados se recalculan desde los detalles una vez (y al iniciar, los últimos diasReconciliacion días;
+ * toda la historia si la tabla está vacía), lo que corrige los hechos perdidos por una caída.
+ * Un periodo completo se puede reconstruir en segundo plano con reconstruirPeriodo: un curso por tarea,
+ * en paralelo, y cada curso se reemplaza en una transacción, así que repetir la reconstrucción da el
+ * mismo resultado. Mientras un curso se reconstruye sus hechos pendientes no se aplican.
+ * Los reportes del curso se invalidan al confirmarse cada firma o cierre, no al volcar: un reporte
+ * calculado antes de que la tabla incluya lo confirmado no se guarda en la cache (ver alDia).
+ * Con asistencia.cubo.intervalo-ms=0 el programador no se inicia (pruebas).
+ */
+@Component
+public class CuboAsistencia {
+
+    public static final String EN_CURSO = "EN_CURSO";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String FALLIDA = "FALLIDA";
+
+    private record Clave(Long idCurso, Long idEstudiante, LocalDate fecha, EstadoAsistencia estado) {
+    }
+
+    private final HechoAsistenciaRepository hechoAsistenciaRepository;
+    private final SesionDetalleRepository sesionDetalleRepository;
+    private final UsuarioCursoRepository usuarioCursoRepository;
+    private final CursoRepository cursoRepository;
+    private final CacheReportes cacheReportes;
+    private final TransactionTemplate transaccion;
+    private final long intervaloMs;
+    private final int diasReconciliacion;
+
+    private final Map<Clave, Long> pendientes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "cubo-asistencia");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private final ExecutorService reconstruccion;
+
+    // Cursos en reconstrucción: sus pendientes esperan a que termine. Se modifica con el monitor tomado,
+    // así un volcado en curso termina antes de que un curso empiece a reconstruirse
+    private final Set<Long> cursosEnReconstruccion = ConcurrentHashMap.newKeySet();
+    // Las reconstrucciones de cursos (lectura) pueden ir en paralelo; el recálculo por fechas (escritura) no
+    private final ReadWriteLock recalculo = new ReentrantReadWriteLock();
+    private final Map<String, ReconstruccionCuboDTO> reconstrucciones = new ConcurrentHashMap<>();
+
+    // Escrituras de la tabla en curso y terminadas; ver alDia
+    private final AtomicInteger escriturasEnCurso = new AtomicInteger();
+    private final AtomicLong escriturasTerminadas = new AtomicLong();
+
+    // Último día cerrado ya recalculado; solo lo usa el hilo del programador
+    private LocalDate reconciliadoHasta;
+
+    // Resultado de los ciclos del programador (ver getEstado); solo los escribe ese hilo
+    private volatile LocalDateTime ultimaEjecucion;
+    private volatile String ultimoError;
+    private volatile LocalDateTime fechaUltimoError;
+    private volatile int erroresSeguidos;
+
+    public CuboAsistencia(HechoAsistenciaRepository hechoAsistenciaRepository,
+                          SesionDetalleRepository sesionDetalleRepository,
+                          UsuarioCursoRepository usuarioCursoRepository,
+                          CursoRepository cursoRepository,
+                          CacheReportes cacheReportes,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${asistencia.cubo.intervalo-ms:5000}") long intervaloMs,
+                          @Value("${asistencia.cubo.hilos-reconstruccion:4}") int hilosReconstruccion,
+                          @Value("${asistencia.cubo.dias-reconciliacion:7}") int diasReconciliacion) {
+        this.hechoAsistenciaRepository = hechoAsistenciaRepository;
+        this.sesionDetalleRepository = sesionDetalleRepository;
+        this.usuarioCursoRepository = usuarioCursoRepository;
+        this.cursoRepository = cursoRepository;
+        this.cacheReportes = cacheReportes;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.intervaloMs = intervaloMs;
+        this.diasReconciliacion = diasReconciliacion;
+        this.reconstruccion = Executors.newFixedThreadPool(hilosReconstruccion, tarea -> {
+            Thread hilo = new Thread(tarea, "cubo-reconstruccion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (intervaloMs <= 0) {
+            return;
+        }
+        programador.scheduleWithFixedDelay(this::actualizar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        programador.shutdown();
+        reconstruccion.shutdownNow();
+        programador.awaitTermination(10, TimeUnit.SECONDS);
+        aplicarPendientes();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alRegistrarFirma(FirmaRegistradaEvent evento) {
+        sumar(new Clave(evento.getIdCurso(), evento.getIdEstudiante(), evento.getFechaFirma().toLocalDate(), evento.getEstado()), 1);
+        // Después de sumar: un reporte que lea la versión nueva ve la firma pendiente en alDia
+        cacheReportes.invalidarCursoConfirmado(evento.getIdCurso());
+    }
+
+    /**
+     * Registra como AUSENTE a los inscritos activos que no firmaron en la sesión que se cierra.
+     * Se consulta dentro de la transacción del cierre y se suma al confirmarla.
+     */
+    public void registrarCierre(Sesion sesion) {
+        sumarAusencias(sesion, 1);
+    }
+
+    /**
+     * Descuenta las ausencias que registró el cierre de una sesión que se elimina (solo se eliminan
+     * sesiones sin firmas). Se consulta dentro de la transacción de la eliminación y se resta al confirmarla.
+     */
+    public void registrarEliminacion(Sesion sesion) {
+        if ("FINALIZADA".equals(sesion.getEstado()) && sesion.getFechaInicio() != null) {
+            sumarAusencias(sesion, -1);
+        }
+    }
+
+    private void sumarAusencias(Sesion sesion, long cantidad) {
+        Long idCurso = sesion.getCurso().getId();
+        LocalDate fecha = sesion.getFechaInicio().toLocalDate();
+        List<Long> sinFirma = usuarioCursoRepository.findEstudianteIdsSinFirma(idCurso, sesion.getId());
+        TransaccionUtils.alConfirmar(() -> {
+            sinFirma.forEach(idEstudiante -> sumar(new Clave(idCurso, idEstudiante, fecha, EstadoAsistencia.AUSENTE), cantidad));
+            cacheReportes.invalidarCursoConfirmado(idCurso);
+        });
+    }
+
+    public long generacion() {
+        return escriturasTerminadas.get();
+    }
+
+    /**
+     * Si la tabla ya incluye todo lo confirmado de los cursos: no les quedan hechos pendientes y ninguna
+     * escritura estaba en curso ni terminó desde que se leyó la generación. Un reporte leído de la tabla
+     * entre generacion() y alDia(...) == true se puede guardar en la cache.
+     */
+    public boolean alDia(long generacion, Collection<Long> idsCurso) {
+        // En este orden: una escritura cuenta como en curso antes de tomar los pendientes y como
+        // terminada antes de dejar de estar en curso
+        for (Clave clave : pendientes.keySet()) {
+            if (idsCurso.contains(clave.idCurso())) {
+                return false;
+            }
+        }
+        return escriturasEnCurso.get() == 0 && escriturasTerminadas.get() == generacion;
+    }
+
+    /**
+     * Inicia en segundo plano la reconstrucción de los hechos de todos los cursos del periodo, un curso
+     * por tarea en el pool de reconstrucción. Si ya hay una en curso para el periodo, devuelve esa.
+     */
+    public ReconstruccionCuboDTO reconstruirPeriodo(String periodo) {
+        ReconstruccionCuboDTO[] iniciada = new ReconstruccionCuboDTO[1];
+        ReconstruccionCuboDTO actual = reconstrucciones.compute(periodo, (clave, existente) -> {
+            if (existente != null && EN_CURSO.equals(existente.getEstado())) {
+                return existente;
+            }
+            iniciada[0] = ReconstruccionCuboDTO.builder()
+                .periodo(periodo)
+                .estado(EN_CURSO)
+                .fechaInicio(LocalDateTime.now())
+                .build();
+            return iniciada[0];
+        });
+        if (iniciada[0] != null) {
+            lanzar(iniciada[0]);
+        }
+        return copia(actual);
+    }
+
+    public ReconstruccionCuboDTO getReconstruccion(String periodo) {
+        ReconstruccionCuboDTO reconstruccion = reconstrucciones.get(periodo);
+        if (reconstruccion == null) {
+            throw new RuntimeException("No hay reconstrucciones del periodo " + periodo);
+        }
+        return copia(reconstruccion);
+    }
+
+    /**
+     * Última ejecución correcta del programador (volcado y recálculo de días cerrados) y último error.
+     */
+    public EstadoActualizacionDTO getEstado() {
+        return EstadoActualizacionDTO.builder()
+            .ultimaEjecucion(ultimaEjecucion)
+            .ultimoError(ultimoError)
+            .fechaUltimoError(fechaUltimoError)
+            .erroresSeguidos(erroresSeguidos)
+            .build();
+    }
+
+    private void lanzar(ReconstruccionCuboDTO seguimiento) {
+        long inicio = System.currentTimeMillis();
+        try {
+            List<Long> idsCurso = cursoRepository.findIdsByPeriodo(seguimiento.getPeriodo());
+            List<CompletableFuture<Long>> tareas = new ArrayList<>();
+            for (Long idCurso : idsCurso) {
+                tareas.add(CompletableFuture.supplyAsync(() -> reconstruirCurso(idCurso), reconstruccion));
+            }
+            CompletableFuture.allOf(tareas.toArray(CompletableFuture[]::new)).whenComplete((ignorado, error) -> {
+                synchronized (seguimiento) {
+                    seguimiento.setCursos(idsCurso.size());
+                    seguimiento.setDuracionMs(System.currentTimeMillis() - inicio);
+                    if (error != null) {
+                        Throwable causa = error.getCause() != null ? error.getCause() : error;
+                        seguimiento.setError("No se pudo reconstruir el periodo: " + causa.getMessage());
+                        seguimiento.setEstado(FALLIDA);
+                    } else {
+                        seguimiento.setHechos(tareas.stream().mapToLong(CompletableFuture::join).sum());
+                        seguimiento.setEstado(COMPLETADA);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // Consulta de cursos fallida o pool detenido: la reconstrucción no queda EN_CURSO
+            synchronized (seguimiento) {
+                seguimiento.setError(e instanceof RejectedExecutionException
+                    ? "La aplicación se está deteniendo" : e.getMessage());
+                seguimiento.setEstado(FALLIDA);
+            }
+        }
+    }
+
+    private static ReconstruccionCuboDTO copia(ReconstruccionCuboDTO reconstruccion) {
+        synchronized (reconstruccion) {
+            return reconstruccion.toBuilder().build();
+        }
+    }
+
+    /**
+     * Reemplaza los hechos de un curso por los calculados desde sus detalles (dos consultas agrupadas).
+     * Los pendientes del curso no se aplican mientras tanto y se descartan en cuanto terminan las
+     * consultas: los confirmados antes ya están incluidos en el recálculo.
+     */
+    public long reconstruirCurso(Long idCurso) {
+        synchronized (this) {
+            cursosEnReconstruccion.add(idCurso);
+        }
+        recalculo.readLock().lock();
+        escriturasEnCurso.incrementAndGet();
+        Map<Clave, Long> descartados = new HashMap<>();
+        try {
+            return transaccion.execute(estado -> {
+                hechoAsistenciaRepository.deleteByIdCurso(idCurso);
+
+                List<HechoAsistencia> hechos = new ArrayList<>();
+                for (Object[] fila : sesionDetalleRepository.countPorEstudianteDiaYEstadoByCursoId(idCurso)) {
+                    hechos.add(hecho(new Clave(idCurso, (Long) fila[0], aFecha(fila[1]), (EstadoAsistencia) fila[2]), (Long) fila[3]));
+                }
+                for (Object[] fila : usuarioCursoRepository.countAusenciasPorEstudianteYDia(idCurso)) {
+                    hechos.add(hecho(new Clave(idCurso, (Long) fila[0], aFecha(fila[1]), EstadoAsistencia.AUSENTE), (Long) fila[2]));
+                }
+                descartarPendientes(clave -> clave.idCurso().equals(idCurso), descartados);
+                hechoAsistenciaRepository.saveAll(hechos);
+                cacheReportes.invalidarCurso(idCurso);
+                return (long) hechos.size();
+            });
+        } catch (RuntimeException e) {
+            // Los hechos anteriores siguen en la tabla: los descartados vuelven a quedar pendientes
+            descartados.forEach(this::sumar);
+            throw e;
+        } finally {
+            terminarEscritura();
+            recalculo.readLock().unlock();
+            cursosEnReconstruccion.remove(idCurso);
+        }
+    }
+
+    // Un error deja los hechos pendientes (o el día sin recalcular) para el siguiente ciclo y queda en getEstado
+    void actualizar() {
+        try {
+            LocalDate hoy = LocalDate.now();
+            if (reconciliadoHasta == null) {
+                LocalDate desde = hechoAsistenciaRepository.count() == 0
+                    ? LocalDate.EPOCH : hoy.minusDays(diasReconciliacion);
+                reconciliar(desde, hoy);
+                reconciliadoHasta = hoy.minusDays(1);
+            } else if (hoy.minusDays(1).isAfter(reconciliadoHasta)) {
+                reconciliar(reconciliadoHasta.plusDays(1), hoy.minusDays(1));
+                reconciliadoHasta = hoy.minusDays(1);
+            }
+            aplicarPendientes();
+            ultimaEjecucion = LocalDateTime.now();
+            erroresSeguidos = 0;
+        } catch (RuntimeException e) {
+            ultimoError = e.getClass().getSimpleName() + ": " + e.getMessage();
+            fechaUltimoError = LocalDateTime.now();
+            erroresSeguidos++;
+        }
+    }
+
+    /**
+     * Recalcula desde los detalles y las sesiones cerradas los hechos de todos los cursos entre desde
+     * y hasta (inclusive), con dos consultas agrupadas. Espera a las reconstrucciones de cursos en curso
+     * y no aplica pendientes mientras tanto; los de esos días se descartan al terminar las consultas.
+     */
+    synchronized void reconciliar(LocalDate desde, LocalDate hasta) {
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+        recalculo.writeLock().lock();
+        escriturasEnCurso.incrementAndGet();
+        Map<Clave, Long> descartados = new HashMap<>();
+        try {
+            transaccion.executeWithoutResult(estado -> {
+                hechoAsistenciaRepository.deleteByFechaEntre(desde, hasta);
+
+                List<HechoAsistencia> hechos = new ArrayList<>();
+                for (Object[] fila : sesionDetalleRepository.countPorCursoEstudianteDiaYEstado(inicio, fin)) {
+                    hechos.add(hecho(new Clave((Long) fila[0], (Long) fila[1], aFecha(fila[2]), (EstadoAsistencia) fila[3]), (Long) fila[4]));
+                }
+                for (Object[] fila : usuarioCursoRepository.countAusenciasPorCursoEstudianteYDia(inicio, fin)) {
+                    hechos.add(hecho(new Clave((Long) fila[0], (Long) fila[1], aFecha(fila[2]), EstadoAsistencia.AUSENTE), (Long) fila[3]));
+                }
+                descartarPendientes(clave -> !clave.fecha().isBefore(desde) && !clave.fecha().isAfter(hasta), descartados);
+                hechoAsistenciaRepository.saveAll(hechos);
+                cacheReportes.invalidarTodo();
+            });
+        } catch (RuntimeException e) {
+            descartados.forEach(this::sumar);
+            throw e;
+        } finally {
+            terminarEscritura();
+            recalculo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Suma a la tabla los hechos acumulados, en una sola transacción: un UPDATE por hecho y un
+     * INSERT por lotes de los que no existían. Los hechos de los cursos en reconstrucción se quedan
+     * pendientes. Si falla, los hechos vuelven a quedar pendientes. No invalida la cache: los reportes
+     * se invalidaron al confirmarse las firmas.
+     */
+    synchronized void aplicarPendientes() {
+        escriturasEnCurso.incrementAndGet();
+        try {
+            aplicarLote();
+        } finally {
+            terminarEscritura();
+        }
+    }
+
+    private void aplicarLote() {
+        Map<Clave, Long> lote = new HashMap<>();
+        for (Clave clave : pendientes.keySet()) {
+            if (cursosEnReconstruccion.contains(clave.idCurso())) {
+                continue;
+            }
+            Long cantidad = pendientes.remove(clave);
+            if (cantidad != null && cantidad != 0) {
+                lote.put(clave, cantidad);
+            }
+        }
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            transaccion.executeWithoutResult(estado -> {
+                List<HechoAsistencia> nuevos = new ArrayList<>();
+                lote.forEach((clave, cantidad) -> {
+                    if (hechoAsistenciaRepository.sumar(clave.idCurso(), clave.idEstudiante(), clave.fecha(), clave.estado(), cantidad) == 0) {
+                        nuevos.add(hecho(clave, cantidad));
+                    }
+                });
+                hechoAsistenciaRepository.saveAll(nuevos);
+            });
+        } catch (RuntimeException e) {
+            lote.forEach(this::sumar);
+            throw e;
+        }
+    }
+
+    private void terminarEscritura() {
+        escriturasTerminadas.incrementAndGet();
+        escriturasEnCurso.decrementAndGet();
+    }
+
+    private void descartarPendientes(Predicate<Clave> filtro, Map<Clave, Long> descartados) {
+        for (Clave clave : pendientes.keySet()) {
+            if (filtro.test(clave)) {
+                Long cantidad = pendientes.remove(clave);
+                if (cantidad != null) {
+                    descartados.merge(clave, cantidad, Long::sum);
+                }
+            }
+        }
+    }
+
+    private void sumar(Clave clave, long cantidad) {
+        pendientes.merge(clave, cantidad, Long::sum);
+    }
+
+    private static HechoAsistencia hecho(Clave clave, long cantidad) {
+        return HechoAsistencia.builder()
+            .idCurso(clave.idCurso())
+            .idEstudiante(clave.idEstudiante())
+            .fecha(clave.fecha())
+            .estado(clave.estado())
+            .cantidad(cantidad)
+            .build();
+    }
+
+    // Según el dialecto, CAST(... AS LocalDate) llega como LocalDate o java.sql.Date
+    private static LocalDate aFecha(Object valor) {
+        return valor instanceof java.sql.Date fecha ? fecha.toLocalDate() : (LocalDate) valor;
+    }
+}
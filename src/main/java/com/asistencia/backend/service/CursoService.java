@@ -10,7 +10,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,6 +25,9 @@ public class CursoService {
     private final UserRepository usuarioRepository;
     private final UsuarioCursoRepository usuarioCursoRepository;
     private final CodigoCursoGenerator codigoCursoGenerator;
+    private final InscripcionIndex inscripcionIndex;
+    private final VersionesSesion versionesSesion;
+    private final CacheReportes cacheReportes;
     
     public Page<Curso> getAllCursos(String periodo, String turno, Pageable pageable) {
         return cursoRepository.findAllWithFilters(periodo, turno, pageable);
@@ -121,7 +126,9 @@ public class CursoService {
             .profesor(profesor)
             .build();
         
-        return cursoRepository.save(curso);
+        Curso guardado = cursoRepository.save(curso);
+        cacheReportes.invalidarUsuario(profesor.getId());
+        return guardado;
     }
     
     public CursoCreadoResponse convertirACursoCreadoResponse(Curso curso) {
@@ -164,7 +171,45 @@ public class CursoService {
             .observaciones(request.getObservaciones())
             .build();
         
-        return usuarioCursoRepository.save(inscripcion);
+        UsuarioCurso guardada = usuarioCursoRepository.save(inscripcion);
+        inscripcionIndex.aplicar(guardada);
+        versionesSesion.incrementarGeneral();
+        cacheReportes.invalidarCurso(idCurso);
+        cacheReportes.invalidarUsuario(estudiante.getId());
+        return guardada;
+    }
+    
+    /**
+     * Inscribe varios estudiantes en una sola transacción; los que ya están inscritos se omiten.
+     * Los INSERT salen en lotes JDBC (ids por secuencia + hibernate.jdbc.batch_size).
+     */
+    public List<UsuarioCurso> inscribirEstudiantes(Long idCurso, InscribirEstudiantesRequest request) {
+        Curso curso = getCursoById(idCurso);
+        
+        Set<Long> solicitados = new LinkedHashSet<>(request.getIdsEstudiantes());
+        List<Long> existentes = usuarioRepository.findIdsExistentes(solicitados);
+        if (existentes.size() != solicitados.size()) {
+            solicitados.removeAll(existentes);
+            throw new RuntimeException("Estudiantes no encontrados: " + solicitados);
+        }
+        
+        solicitados.removeAll(usuarioCursoRepository.findUsuarioIdsByCursoId(idCurso));
+        
+        List<UsuarioCurso> inscripciones = solicitados.stream()
+            .map(idEstudiante -> UsuarioCurso.builder()
+                .usuario(usuarioRepository.getReferenceById(idEstudiante))
+                .curso(curso)
+                .estado("ACTIVO")
+                .observaciones(request.getObservaciones())
+                .build())
+            .collect(Collectors.toList());
+        
+        List<UsuarioCurso> guardadas = usuarioCursoRepository.saveAll(inscripciones);
+        guardadas.forEach(inscripcionIndex::aplicar);
+        versionesSesion.incrementarGeneral();
+        cacheReportes.invalidarCurso(idCurso);
+        cacheReportes.invalidarUsuarios(solicitados);
+        return guardadas;
     }
     
     public List<String> getPeriodosDisponibles() {
@@ -0,0 +1,150 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.model.SesionDetalle;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura agrupada (group commit) de firmas.
+ * Las firmas se encolan y un único hilo las inserta en lotes de hasta maxFilas filas o maxEsperaMs
+ * milisegundos, en una sola transacción por lote. Cada llamador recibe su resultado cuando
+ * el lote que contiene su firma se confirma.
+ * Se activa con asistencia.firmas.group-commit.enabled=true; desactivado, cada firma se
+ * confirma en su propia transacción.
+ */
+@Component
+public class EscritorFirmas {
+
+    /**
+     * Destino de los lotes. Debe guardar todas las filas en una sola transacción o fallar por completo.
+     */
+    interface Destino {
+        void guardar(List<SesionDetalle> lote);
+    }
+
+    private record Pendiente(SesionDetalle detalle, CompletableFuture<SesionDetalle> resultado) {
+    }
+
+    private final Destino destino;
+    private final boolean habilitado;
+    private final int maxFilas;
+    private final long maxEsperaNanos;
+
+    private final BlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+    private volatile boolean activo;
+    private Thread hilo;
+
+    @Autowired
+    public EscritorFirmas(PlatformTransactionManager transactionManager,
+                          SesionDetalleRepository sesionDetalleRepository,
+                          @Value("${asistencia.firmas.group-commit.enabled:false}") boolean habilitado,
+                          @Value("${asistencia.firmas.group-commit.max-filas:50}") int maxFilas,
+                          @Value("${asistencia.firmas.group-commit.max-espera-ms:20}") long maxEsperaMs) {
+        this(lote -> new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            sesionDetalleRepository.saveAll(lote);
+            sesionDetalleRepository.flush();
+        }), habilitado, maxFilas, maxEsperaMs);
+    }
+
+    EscritorFirmas(Destino destino, boolean habilitado, int maxFilas, long maxEsperaMs) {
+        this.destino = destino;
+        this.habilitado = habilitado;
+        this.maxFilas = maxFilas;
+        this.maxEsperaNanos = TimeUnit.MILLISECONDS.toNanos(maxEsperaMs);
+        if (habilitado) {
+            activo = true;
+            hilo = new Thread(this::ejecutar, "escritor-firmas");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Encola una firma. El resultado se completa al confirmar su lote, o con la excepción
+     * que impidió guardarla.
+     */
+    public CompletableFuture<SesionDetalle> encolar(SesionDetalle detalle) {
+        if (!activo) {
+            throw new IllegalStateException("El escritor de firmas no está activo");
+        }
+        CompletableFuture<SesionDetalle> resultado = new CompletableFuture<>();
+        cola.add(new Pendiente(detalle, resultado));
+        return resultado;
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        if (hilo != null) {
+            activo = false;
+            hilo.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void ejecutar() {
+        List<Pendiente> lote = new ArrayList<>(maxFilas);
+        // Al detener se terminan de escribir las firmas ya encoladas
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                long limite = System.nanoTime() + maxEsperaNanos;
+                while (lote.size() < maxFilas) {
+                    long restante = limite - System.nanoTime();
+                    Pendiente siguiente = restante > 0 ? cola.poll(restante, TimeUnit.NANOSECONDS) : cola.poll();
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+                escribir(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lote.forEach(p -> p.resultado().completeExceptionally(e));
+                return;
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribir(List<Pendiente> lote) {
+        try {
+            destino.guardar(lote.stream().map(Pendiente::detalle).toList());
+            lote.forEach(p -> p.resultado().complete(p.detalle()));
+        } catch (RuntimeException e) {
+            if (lote.size() == 1) {
+                lote.get(0).resultado().completeExceptionally(e);
+                return;
+            }
+            // Una fila inválida (p. ej. firma repetida) revierte todo el lote: se reintenta fila por fila
+            for (Pendiente pendiente : lote) {
+                pendiente.detalle().setId(null);
+                try {
+                    destino.guardar(List.of(pendiente.detalle()));
+                    pendiente.resultado().complete(pendiente.detalle());
+                } catch (RuntimeException error) {
+                    pendiente.resultado().completeExceptionally(error);
+                }
+            }
+        }
+    }
+}
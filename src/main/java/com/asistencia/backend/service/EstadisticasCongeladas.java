@@ -0,0 +1,59 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.Sesion;
+import com.asistencia.backend.model.SesionEstadisticas;
+import com.asistencia.backend.repository.SesionEstadisticasRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+
+/**
+ * Estadísticas congeladas de las sesiones FINALIZADA (tabla sesiones_estadisticas).
+ * Se calculan al cerrar la sesión y desde entonces las consultas de la sesión se sirven de esa fila.
+ * Se descartan si la sesión se edita o se elimina, o si llega una firma tardía (una firma
+ * validada antes del cierre que se confirmó después); sin fila se vuelve al cálculo sobre los detalles.
+ */
+@Component
+@RequiredArgsConstructor
+public class EstadisticasCongeladas {
+
+    private final SesionEstadisticasRepository sesionEstadisticasRepository;
+    private final ActiveSesionRegistry activeSesionRegistry;
+
+    /**
+     * Guarda las cifras de la sesión recién cerrada. Se llama dentro de la transacción del cierre.
+     */
+    public SesionEstadisticas congelar(Sesion sesion, long totalInscritos, AcumuladorFirmas acumulador) {
+        return sesionEstadisticasRepository.save(
+            acumulador.congelar(sesion.getId(), totalInscritos, sesion.getFechaCierre()));
+    }
+
+    /**
+     * Cifras congeladas de la sesión; vacío si no está FINALIZADA o no tiene cifras guardadas.
+     */
+    public Optional<SesionEstadisticas> buscar(Long idSesion, String estado) {
+        if (!"FINALIZADA".equals(estado)) {
+            return Optional.empty();
+        }
+        return sesionEstadisticasRepository.findById(idSesion);
+    }
+
+    public void descartar(Long idSesion) {
+        sesionEstadisticasRepository.deleteById(idSesion);
+    }
+
+    /**
+     * Una firma de una sesión que ya no está activa es una firma tardía: las cifras congeladas
+     * dejan de ser exactas. Para las sesiones activas la comprobación es solo en memoria.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alRegistrarFirma(FirmaRegistradaEvent evento) {
+        if (activeSesionRegistry.buscar(evento.getIdSesion()).isEmpty()) {
+            descartar(evento.getIdSesion());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.GeocercaDTO;
+import com.asistencia.backend.dto.GeocercaRequest;
+import com.asistencia.backend.dto.PuntoDTO;
+import com.asistencia.backend.model.GeocercaAula;
+import com.asistencia.backend.repository.GeocercaAulaRepository;
+import com.asistencia.backend.util.Poligono;
+import com.asistencia.backend.util.TransaccionUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Geocercas de las aulas. Los polígonos se guardan en geocercas_aula y se mantienen en memoria por
+ * nombre de aula (sin distinguir mayúsculas ni espacios al inicio o al final), así la firma consulta
+ * un mapa y no la base de datos. Los cambios llegan al mapa al confirmar su transacción.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class GeocercaService {
+
+    private final GeocercaAulaRepository geocercaAulaRepository;
+    private final VersionesSesion versionesSesion;
+
+    // Se reemplaza entero al cargar: una firma ve el mapa anterior o el nuevo, nunca uno a medio llenar
+    private volatile Map<String, Poligono> poligonos = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void cargar() {
+        Map<String, Poligono> cargados = new ConcurrentHashMap<>();
+        geocercaAulaRepository.findAll().forEach(geocerca ->
+            cargados.put(geocerca.getAula(), Poligono.desdeTexto(geocerca.getVertices())));
+        poligonos = cargados;
+    }
+
+    /**
+     * Polígono del aula, si tiene geocerca registrada.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<Poligono> buscar(String aula) {
+        return aula != null ? Optional.ofNullable(poligonos.get(normalizar(aula))) : Optional.empty();
+    }
+
+    @Transactional(readOnly = true)
+    public List<GeocercaDTO> listar() {
+        return geocercaAulaRepository.findAll().stream()
+            .map(this::convertirADTO)
+            .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public GeocercaDTO obtener(String aula) {
+        return geocercaAulaRepository.findByAula(normalizar(aula))
+            .map(this::convertirADTO)
+            .orElseThrow(() -> new RuntimeException("Geocerca no encontrada"));
+    }
+
+    /**
+     * Crea o reemplaza la geocerca del aula.
+     */
+    public GeocercaDTO guardar(String aula, GeocercaRequest request) {
+        String clave = normalizar(aula);
+        if (clave.isEmpty()) {
+            throw new RuntimeException("El aula es obligatoria");
+        }
+        Poligono poligono;
+        try {
+            poligono = new Poligono(
+                request.getVertices().stream().mapToDouble(PuntoDTO::getLatitud).toArray(),
+                request.getVertices().stream().mapToDouble(PuntoDTO::getLongitud).toArray());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+
+        GeocercaAula geocerca = geocercaAulaRepository.findByAula(clave)
+            .orElseGet(() -> GeocercaAula.builder().aula(clave).build());
+        geocerca.setVertices(poligono.aTexto());
+        GeocercaAula guardada = geocercaAulaRepository.save(geocerca);
+
+        TransaccionUtils.alConfirmar(() -> poligonos.put(clave, poligono));
+        // La geocerca cambia la validación de las firmas de las sesiones del aula
+        versionesSesion.incrementarGeneral();
+        return convertirADTO(guardada);
+    }
+
+    public void eliminar(String aula) {
+        String clave = normalizar(aula);
+        GeocercaAula geocerca = geocercaAulaRepository.findByAula(clave)
+            .orElseThrow(() -> new RuntimeException("Geocerca no encontrada"));
+        geocercaAulaRepository.delete(geocerca);
+        TransaccionUtils.alConfirmar(() -> poligonos.remove(clave));
+        versionesSesion.incrementarGeneral();
+    }
+
+    private GeocercaDTO convertirADTO(GeocercaAula geocerca) {
+        Poligono poligono = Poligono.desdeTexto(geocerca.getVertices());
+        List<PuntoDTO> vertices = new ArrayList<>(poligono.getVertices());
+        for (int i = 0; i < poligono.getVertices(); i++) {
+            vertices.add(PuntoDTO.builder().latitud(poligono.getLatitud(i)).longitud(poligono.getLongitud(i)).build());
+        }
+        return GeocercaDTO.builder()
+            .id(geocerca.getId())
+            .aula(geocerca.getAula())
+            .vertices(vertices)
+            .build();
+    }
+
+    private static String normalizar(String aula) {
+        return aula.trim().toUpperCase(Locale.ROOT);
+    }
+}
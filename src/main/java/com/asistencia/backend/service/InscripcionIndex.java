@@ -0,0 +1,177 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.model.UsuarioCurso;
+import com.asistencia.backend.repository.UsuarioCursoRepository;
+import com.asistencia.backend.util.TransaccionUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice en memoria de las inscripciones ACTIVO por curso.
+ * Cada curso guarda los ids de sus estudiantes activos en un long[] ordenado (8 bytes por inscripción,
+ * sin objetos Long), de modo que "¿está inscrito?" es una búsqueda binaria sin ir a la base de datos.
+ * Los arreglos son inmutables: cada cambio publica una copia nueva (copy-on-write).
+ * Un fallo del índice no se da por definitivo: se confirma contra la base de datos, igual que
+ * cualquier consulta hecha antes de la primera carga.
+ */
+@Component
+@RequiredArgsConstructor
+public class InscripcionIndex {
+
+    private static final long[] VACIO = new long[0];
+    private static final int INTENTOS_CARGA = 3;
+
+    private final UsuarioCursoRepository usuarioCursoRepository;
+
+    // Se reemplaza completo al recargar: los lectores ven el índice anterior o el nuevo, nunca uno a medias
+    private volatile Map<Long, long[]> estudiantesPorCurso = new ConcurrentHashMap<>();
+    private volatile boolean cargado;
+
+    // Altas y bajas aplicadas; una lectura de la base solo se publica si no hubo ninguna mientras consultaba
+    private long cambios;
+
+    /**
+     * Reconstruye el índice desde la base de datos al iniciar la aplicación. Si una inscripción cambia
+     * mientras se lee, se vuelve a leer; tras varios intentos el índice sigue consultando la base.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reconstruir() {
+        for (int intento = 0; intento < INTENTOS_CARGA; intento++) {
+            long antes = leerCambios();
+            if (publicar(indexar(usuarioCursoRepository.findInscripcionesActivas()), antes)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Carga el índice a partir de pares (idCurso, idEstudiante) ordenados por curso y estudiante.
+     */
+    void cargar(List<Object[]> filas) {
+        publicar(indexar(filas), leerCambios());
+    }
+
+    public boolean estaInscrito(Long idCurso, Long idEstudiante) {
+        long[] ids = estudiantesPorCurso.getOrDefault(idCurso, VACIO);
+        if (Arrays.binarySearch(ids, idEstudiante) >= 0) {
+            return true;
+        }
+        long antes = leerCambios();
+        if (!usuarioCursoRepository.existsInscripcionActiva(idEstudiante, idCurso)) {
+            return false;
+        }
+        synchronized (this) {
+            if (cambios == antes) {
+                estudiantesPorCurso.compute(idCurso, (id, actuales) -> insertar(actuales == null ? VACIO : actuales, idEstudiante));
+            }
+        }
+        return true;
+    }
+
+    public int totalInscritos(Long idCurso) {
+        if (!cargado) {
+            return usuarioCursoRepository.countByCursoIdAndEstadoActivo(idCurso).intValue();
+        }
+        return estudiantesPorCurso.getOrDefault(idCurso, VACIO).length;
+    }
+
+    // Arreglo publicado para el curso, para medir su tamaño en pruebas
+    long[] estudiantesDe(Long idCurso) {
+        return estudiantesPorCurso.getOrDefault(idCurso, VACIO);
+    }
+
+    /**
+     * Refleja una inscripción creada o modificada. Se llama dentro de la transacción de escritura;
+     * el índice se actualiza al confirmar.
+     */
+    public void aplicar(UsuarioCurso inscripcion) {
+        Long idCurso = inscripcion.getCurso().getId();
+        Long idEstudiante = inscripcion.getUsuario().getId();
+        boolean activa = "ACTIVO".equals(inscripcion.getEstado());
+        TransaccionUtils.alConfirmar(() -> {
+            if (activa) {
+                agregar(idCurso, idEstudiante);
+            } else {
+                quitar(idCurso, idEstudiante);
+            }
+        });
+    }
+
+    synchronized void agregar(Long idCurso, long idEstudiante) {
+        cambios++;
+        estudiantesPorCurso.compute(idCurso, (id, ids) -> insertar(ids == null ? VACIO : ids, idEstudiante));
+    }
+
+    synchronized void quitar(Long idCurso, long idEstudiante) {
+        cambios++;
+        estudiantesPorCurso.computeIfPresent(idCurso, (id, ids) -> {
+            long[] restantes = eliminar(ids, idEstudiante);
+            return restantes.length == 0 ? null : restantes;
+        });
+    }
+
+    private synchronized long leerCambios() {
+        return cambios;
+    }
+
+    private synchronized boolean publicar(Map<Long, long[]> nuevo, long antes) {
+        if (cambios != antes) {
+            return false;
+        }
+        estudiantesPorCurso = nuevo;
+        cargado = true;
+        return true;
+    }
+
+    private static Map<Long, long[]> indexar(List<Object[]> filas) {
+        Map<Long, long[]> nuevo = new ConcurrentHashMap<>();
+        int inicio = 0;
+        while (inicio < filas.size()) {
+            Long idCurso = (Long) filas.get(inicio)[0];
+            int fin = inicio;
+            while (fin < filas.size() && idCurso.equals(filas.get(fin)[0])) {
+                fin++;
+            }
+            long[] ids = new long[fin - inicio];
+            for (int i = inicio; i < fin; i++) {
+                ids[i - inicio] = (Long) filas.get(i)[1];
+            }
+            nuevo.put(idCurso, ids);
+            inicio = fin;
+        }
+        return nuevo;
+    }
+
+    private static long[] insertar(long[] ids, long id) {
+        int posicion = Arrays.binarySearch(ids, id);
+        if (posicion >= 0) {
+            return ids;
+        }
+        posicion = -posicion - 1;
+        long[] resultado = new long[ids.length + 1];
+        System.arraycopy(ids, 0, resultado, 0, posicion);
+        resultado[posicion] = id;
+        System.arraycopy(ids, posicion, resultado, posicion + 1, ids.length - posicion);
+        return resultado;
+    }
+
+    private static long[] eliminar(long[] ids, long id) {
+        int posicion = Arrays.binarySearch(ids, id);
+        if (posicion < 0) {
+            return ids;
+        }
+        long[] resultado = new long[ids.length - 1];
+        System.arraycopy(ids, 0, resultado, 0, posicion);
+        System.arraycopy(ids, posicion + 1, resultado, posicion, ids.length - posicion - 1);
+        return resultado;
+    }
+}
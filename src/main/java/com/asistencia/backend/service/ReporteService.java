@@ -3,56 +3,106 @@ package com.asistencia.backend.service;
 import com.asistencia.backend.dto.*;
 import com.asistencia.backend.model.*;
 import com.asistencia.backend.repository.*;
+import com.asistencia.backend.util.EscritorExportacion;
+import com.asistencia.backend.util.EscritorXlsx;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class ReporteService {
     
+    private static final int FILAS_POR_AVANCE = 10_000;
+    private static final DateTimeFormatter FORMATO_FECHA_COLUMNA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // Mismo orden que SesionDetalleRepository.streamExportacionByPeriodo
+    private static final String[] COLUMNAS_EXPORTACION = {
+        "id", "fechaFirma", "estado", "distanciaMetros", "latitudEstudiante", "longitudEstudiante", "observacion",
+        "idEstudiante", "identificacion", "nombre", "apellido", "correo", "idCurso", "codigoCurso", "nombreCurso",
+        "idSesion", "nombreSesion", "fechaInicioSesion"
+    };
+    
     private final SesionRepository sesionRepository;
     private final SesionDetalleRepository sesionDetalleRepository;
     private final UsuarioCursoRepository usuarioCursoRepository;
     private final CursoRepository cursoRepository;
+    private final UserRepository usuarioRepository;
+    private final AsistenciaDiariaCursoRepository asistenciaDiariaCursoRepository;
+    private final HechoAsistenciaRepository hechoAsistenciaRepository;
+    private final CuboAsistencia cuboAsistencia;
+    private final ResumenDiarioAsistencia resumenDiarioAsistencia;
+    private final CacheReportes cacheReportes;
     
     public ReporteAsistenciaCursoDTO getReporteAsistenciaCurso(Long idCurso, LocalDate fechaInicio, LocalDate fechaFin) {
+        return cacheReportes.obtener(CacheReportes.Clave.de("curso", idCurso, fechaInicio, fechaFin), dependencias -> {
+            long generacion = cuboAsistencia.generacion();
+            dependencias.curso(idCurso);
+            ReporteAsistenciaCursoDTO reporte = calcularReporteAsistenciaCurso(idCurso, fechaInicio, fechaFin);
+            comprobarCubo(generacion, List.of(idCurso), dependencias);
+            return reporte;
+        });
+    }
+    
+    public ReporteConsolidadoEstudianteDTO getReporteConsolidadoEstudiante(Long idEstudiante, String periodo) {
+        return cacheReportes.obtener(CacheReportes.Clave.de("estudiante", idEstudiante, periodo),
+            dependencias -> calcularReporteConsolidadoEstudiante(idEstudiante, periodo, dependencias));
+    }
+    
+    public ReporteConsolidadoProfesorDTO getReporteConsolidadoProfesor(Long idProfesor, String periodo) {
+        return cacheReportes.obtener(CacheReportes.Clave.de("profesor", idProfesor, periodo),
+            dependencias -> calcularReporteConsolidadoProfesor(idProfesor, periodo, dependencias));
+    }
+    
+    public EstadisticasCacheDTO getEstadisticasCache() {
+        return cacheReportes.getEstadisticas();
+    }
+    
+    public EstadoActualizacionDTO getEstadoResumenDiario() {
+        return resumenDiarioAsistencia.getEstado();
+    }
+    
+    private ReporteAsistenciaCursoDTO calcularReporteAsistenciaCurso(Long idCurso, LocalDate fechaInicio, LocalDate fechaFin) {
         Curso curso = cursoRepository.findById(idCurso)
             .orElseThrow(() -> new RuntimeException("Curso no encontrado"));
         
-        List<Sesion> sesiones = sesionRepository.findByCursoId(idCurso);
+        // Rango de días (ambos incluidos) solo si se proporcionan ambas fechas
+        LocalDate desde = fechaInicio != null && fechaFin != null ? fechaInicio : null;
+        LocalDate hasta = fechaInicio != null && fechaFin != null ? fechaFin : null;
         
-        // Filtrar por fechas si se proporcionan
-        if (fechaInicio != null && fechaFin != null) {
-            LocalDateTime inicio = fechaInicio.atStartOfDay();
-            LocalDateTime fin = fechaFin.atTime(23, 59, 59);
-            sesiones = sesiones.stream()
-                .filter(s -> s.getFechaCreacion().isAfter(inicio) && s.getFechaCreacion().isBefore(fin))
-                .collect(Collectors.toList());
-        }
-        
-        final List<Sesion> sesionesFinal = sesiones; // Hacer la variable final para usar en lambda
+        // Sesiones que empiezan en los días del rango y, desde la tabla de hechos, presentes por estudiante activo
+        long totalSesiones = sesionRepository.countByCursoIdAndDiaInicioEntre(idCurso, desde, hasta);
+        List<Object[]> filas = hechoAsistenciaRepository.reporteCurso(idCurso, EstadoAsistencia.PRESENTE, desde, hasta);
         
-        List<UsuarioCurso> estudiantes = usuarioCursoRepository.findByCursoIdAndEstadoActivo(idCurso);
-        
-        List<EstudianteAsistenciaDTO> estudiantesAsistencia = estudiantes.stream()
-            .map(uc -> {
-                Long asistencias = sesionDetalleRepository.countByEstudianteIdAndCursoIdAndEstado(
-                    uc.getUsuario().getId(), idCurso, EstadoAsistencia.PRESENTE);
-                Long ausencias = sesionesFinal.size() - asistencias;
-                Double porcentaje = sesionesFinal.size() > 0 ? (double) asistencias / sesionesFinal.size() * 100 : 0.0;
+        List<EstudianteAsistenciaDTO> estudiantesAsistencia = filas.stream()
+            .map(fila -> {
+                long asistencias = fila[3] != null ? ((Number) fila[3]).longValue() : 0L;
+                long ausencias = totalSesiones - asistencias;
+                Double porcentaje = totalSesiones > 0 ? (double) asistencias / totalSesiones * 100 : 0.0;
                 
                 return EstudianteAsistenciaDTO.builder()
-                    .nombre(uc.getUsuario().getNombre() + " " + uc.getUsuario().getApellido())
-                    .identificacion(uc.getUsuario().getCorreo())
-                    .asistencias(asistencias.intValue())
-                    .ausencias(ausencias.intValue())
+                    .nombre(fila[0] + " " + fila[1])
+                    .identificacion((String) fila[2])
+                    .asistencias((int) asistencias)
+                    .ausencias((int) ausencias)
                     .porcentaje(porcentaje)
                     .build();
             })
@@ -64,7 +114,7 @@ public class ReporteService {
             .orElse(0.0);
         
         EstadisticasGeneralesDTO estadisticas = EstadisticasGeneralesDTO.builder()
-            .totalSesiones(sesionesFinal.size())
+            .totalSesiones((int) totalSesiones)
             .promedioAsistencia(promedioAsistencia)
             .build();
         
@@ -76,101 +126,281 @@ public class ReporteService {
             .build();
     }
     
-    public ReporteConsolidadoEstudianteDTO getReporteConsolidadoEstudiante(Long idEstudiante, String periodo) {
-        List<Curso> cursos = cursoRepository.findByEstudianteId(idEstudiante);
-        
-        if (periodo != null && !periodo.isEmpty()) {
-            cursos = cursos.stream()
-                .filter(c -> periodo.equals(c.getPeriodo()))
-                .collect(Collectors.toList());
-        }
+    private ReporteConsolidadoEstudianteDTO calcularReporteConsolidadoEstudiante(Long idEstudiante, String periodo,
+                                                                                 CacheReportes.Dependencias dependencias) {
+        // Una fila por curso: [idCurso, nombreCurso, nombre, apellido, sesiones, presentes]
+        long generacion = cuboAsistencia.generacion();
+        List<Object[]> cursos = hechoAsistenciaRepository.consolidadoEstudiante(
+            idEstudiante, EstadoAsistencia.PRESENTE, periodo != null && !periodo.isEmpty() ? periodo : null);
+        dependencias.usuario(idEstudiante);
+        cursos.forEach(curso -> dependencias.curso((Long) curso[0]));
+        comprobarCubo(generacion, cursos.stream().map(curso -> (Long) curso[0]).toList(), dependencias);
         
         List<AsistenciaPorCursoDTO> asistenciaPorCurso = cursos.stream()
             .map(curso -> {
-                Long asistencias = sesionDetalleRepository.countByEstudianteIdAndCursoIdAndEstado(
-                    idEstudiante, curso.getId(), EstadoAsistencia.PRESENTE);
-                Long totalSesiones = sesionRepository.countByCursoId(curso.getId());
-                Long ausencias = totalSesiones - asistencias;
+                long totalSesiones = ((Number) curso[4]).longValue();
+                long asistencias = curso[5] != null ? ((Number) curso[5]).longValue() : 0L;
+                long ausencias = totalSesiones - asistencias;
                 Double porcentaje = totalSesiones > 0 ? (double) asistencias / totalSesiones * 100 : 0.0;
                 
                 return AsistenciaPorCursoDTO.builder()
-                    .curso(curso.getNombre())
-                    .asistencias(asistencias.intValue())
-                    .ausencias(ausencias.intValue())
+                    .curso((String) curso[1])
+                    .asistencias((int) asistencias)
+                    .ausencias((int) ausencias)
                     .porcentaje(porcentaje)
                     .build();
             })
             .collect(Collectors.toList());
         
         return ReporteConsolidadoEstudianteDTO.builder()
-            .estudiante("Estudiante") // Se puede obtener el nombre del usuario
+            .estudiante(cursos.isEmpty() ? nombreUsuario(idEstudiante) : nombreCompleto(cursos.get(0)))
             .cursos(asistenciaPorCurso)
             .build();
     }
     
-    public ReporteConsolidadoProfesorDTO getReporteConsolidadoProfesor(Long idProfesor, String periodo) {
-        List<Curso> cursos = cursoRepository.findByProfesorId(idProfesor);
-        
-        if (periodo != null && !periodo.isEmpty()) {
-            cursos = cursos.stream()
-                .filter(c -> periodo.equals(c.getPeriodo()))
-                .collect(Collectors.toList());
-        }
+    private ReporteConsolidadoProfesorDTO calcularReporteConsolidadoProfesor(Long idProfesor, String periodo,
+                                                                             CacheReportes.Dependencias dependencias) {
+        // Una fila por curso: [idCurso, nombreCurso, nombre, apellido, sesiones, presentes, registros]
+        long generacion = cuboAsistencia.generacion();
+        List<Object[]> cursos = hechoAsistenciaRepository.consolidadoProfesor(
+            idProfesor, EstadoAsistencia.PRESENTE, periodo != null && !periodo.isEmpty() ? periodo : null);
+        dependencias.usuario(idProfesor);
+        cursos.forEach(curso -> dependencias.curso((Long) curso[0]));
+        comprobarCubo(generacion, cursos.stream().map(curso -> (Long) curso[0]).toList(), dependencias);
         
         List<CursoEstadisticasDTO> cursoEstadisticas = cursos.stream()
             .map(curso -> {
-                Integer sesionesRealizadas = sesionRepository.countByCursoId(curso.getId()).intValue();
-                
-                List<SesionDetalle> detalles = sesionDetalleRepository.findBySesionId(curso.getId());
-                Double promedioAsistencia = detalles.stream()
-                    .filter(d -> d.getEstado() == EstadoAsistencia.PRESENTE)
-                    .count() / (double) detalles.size() * 100;
+                long presentes = curso[5] != null ? ((Number) curso[5]).longValue() : 0L;
+                long registros = curso[6] != null ? ((Number) curso[6]).longValue() : 0L;
                 
                 return CursoEstadisticasDTO.builder()
-                    .curso(curso.getNombre())
-                    .sesionesRealizadas(sesionesRealizadas)
-                    .promedioAsistencia(promedioAsistencia)
+                    .curso((String) curso[1])
+                    .sesionesRealizadas(((Number) curso[4]).intValue())
+                    .promedioAsistencia(registros > 0 ? (double) presentes / registros * 100 : 0.0)
                     .build();
             })
             .collect(Collectors.toList());
         
         return ReporteConsolidadoProfesorDTO.builder()
-            .profesor("Profesor") // Se puede obtener el nombre del usuario
+            .profesor(cursos.isEmpty() ? nombreUsuario(idProfesor) : nombreCompleto(cursos.get(0)))
             .cursos(cursoEstadisticas)
             .build();
     }
     
-    public byte[] exportarReporteExcel(Long idCurso) {
-        // Implementación básica - en un proyecto real usarías Apache POI
-        // Por ahora retornamos un array vacío
-        return new byte[0];
+    // Las firmas confirmadas invalidan la cache antes de llegar a la tabla de hechos: un reporte leído
+    // mientras les faltaba volcarse se devuelve pero no se guarda
+    private void comprobarCubo(long generacion, List<Long> idsCurso, CacheReportes.Dependencias dependencias) {
+        if (!cuboAsistencia.alDia(generacion, idsCurso)) {
+            dependencias.noGuardar();
+        }
+    }
+    
+    // Nombre y apellido de las columnas 2 y 3 de una fila de los consolidados
+    private static String nombreCompleto(Object[] fila) {
+        return fila[3] != null ? fila[2] + " " + fila[3] : (String) fila[2];
+    }
+    
+    // Solo cuando el consolidado no tiene cursos (la fila no trae el nombre)
+    private String nombreUsuario(Long idUsuario) {
+        Usuario usuario = usuarioRepository.findById(idUsuario)
+            .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        return usuario.getApellido() != null ? usuario.getNombre() + " " + usuario.getApellido() : usuario.getNombre();
+    }
+    
+    /**
+     * Registros de un estudiante por estado desde la tabla de hechos, de un curso o de todos (idCurso null).
+     */
+    public Map<EstadoAsistencia, Long> getConteosEstudiante(Long idEstudiante, Long idCurso) {
+        Map<EstadoAsistencia, Long> conteos = new EnumMap<>(EstadoAsistencia.class);
+        for (EstadoAsistencia estado : EstadoAsistencia.values()) {
+            conteos.put(estado, 0L);
+        }
+        for (Object[] fila : hechoAsistenciaRepository.conteosPorEstado(idEstudiante, idCurso)) {
+            conteos.put((EstadoAsistencia) fila[0], ((Number) fila[1]).longValue());
+        }
+        return conteos;
+    }
+    
+    /**
+     * Inicia en segundo plano la reconstrucción de la tabla de hechos de un periodo (en paralelo,
+     * un curso por tarea). Sin transacción propia: cada curso se reemplaza en la suya.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReconstruccionCuboDTO reconstruirCubo(String periodo) {
+        return cuboAsistencia.reconstruirPeriodo(periodo);
     }
     
+    public ReconstruccionCuboDTO getReconstruccionCubo(String periodo) {
+        return cuboAsistencia.getReconstruccion(periodo);
+    }
+    
+    public EstadoActualizacionDTO getEstadoCubo() {
+        return cuboAsistencia.getEstado();
+    }
+    
+    public String nombreArchivoExcel(Long idCurso) {
+        Curso curso = cursoRepository.findById(idCurso)
+            .orElseThrow(() -> new RuntimeException("Curso no encontrado"));
+        return "asistencia_" + curso.getCodigo() + ".xlsx";
+    }
+    
+    /**
+     * Escribe el reporte del curso en XLSX: una fila por estudiante activo, una columna por sesión
+     * con el estado de su firma, totales por estudiante y una fila final con los presentes por sesión.
+     * Las celdas se leen con un cursor y cada fila se escribe al completarse; solo se guarda en memoria
+     * la fila del estudiante en curso, así la memoria no depende del número de estudiantes.
+     */
+    public void exportarReporteExcel(Long idCurso, OutputStream salida) throws IOException {
+        List<Object[]> sesiones = sesionRepository.findColumnasReporteByCursoId(idCurso);
+        Map<Long, Integer> columnaPorSesion = new HashMap<>();
+        List<Object> encabezado = new ArrayList<>(List.of("Estudiante", "Correo"));
+        for (Object[] sesion : sesiones) {
+            columnaPorSesion.put((Long) sesion[0], columnaPorSesion.size());
+            LocalDateTime fechaInicio = (LocalDateTime) sesion[2];
+            encabezado.add(sesion[1] + (fechaInicio != null ? " (" + fechaInicio.format(FORMATO_FECHA_COLUMNA) + ")" : ""));
+        }
+        encabezado.addAll(List.of("Presentes", "Tardíos", "Fuera de rango", "Ausentes", "Sin firma", "% Asistencia"));
+        
+        long[] presentesPorSesion = new long[sesiones.size()];
+        try (EscritorXlsx xlsx = new EscritorXlsx(salida, "Asistencia");
+             Stream<Object[]> celdas = usuarioCursoRepository.streamMatrizAsistencia(idCurso)) {
+            xlsx.fila(encabezado);
+            
+            EstadoAsistencia[] estados = new EstadoAsistencia[sesiones.size()];
+            Object[] estudiante = null;
+            Iterator<Object[]> iterador = celdas.iterator();
+            while (iterador.hasNext()) {
+                Object[] celda = iterador.next();
+                if (estudiante == null || !estudiante[0].equals(celda[0])) {
+                    if (estudiante != null) {
+                        escribirFilaEstudiante(xlsx, estudiante, estados, presentesPorSesion);
+                    }
+                    estudiante = celda;
+                    Arrays.fill(estados, null);
+                }
+                Integer columna = celda[4] != null ? columnaPorSesion.get((Long) celda[4]) : null;
+                if (columna != null) {
+                    estados[columna] = (EstadoAsistencia) celda[5];
+                }
+            }
+            if (estudiante != null) {
+                escribirFilaEstudiante(xlsx, estudiante, estados, presentesPorSesion);
+            }
+            
+            List<Object> totales = new ArrayList<>(presentesPorSesion.length + 2);
+            totales.add("Presentes por sesión");
+            totales.add(null);
+            for (long presentes : presentesPorSesion) {
+                totales.add(presentes);
+            }
+            xlsx.fila(totales);
+        }
+    }
+    
+    private void escribirFilaEstudiante(EscritorXlsx xlsx, Object[] estudiante, EstadoAsistencia[] estados,
+                                        long[] presentesPorSesion) throws IOException {
+        long[] porEstado = new long[EstadoAsistencia.values().length];
+        long sinFirma = 0;
+        List<Object> fila = new ArrayList<>(estados.length + 8);
+        fila.add(estudiante[1] + " " + (estudiante[2] != null ? estudiante[2] : ""));
+        fila.add(estudiante[3]);
+        for (int i = 0; i < estados.length; i++) {
+            EstadoAsistencia estado = estados[i];
+            if (estado == null) {
+                sinFirma++;
+                fila.add("SIN FIRMA");
+            } else {
+                porEstado[estado.ordinal()]++;
+                fila.add(estado.toString());
+                if (estado == EstadoAsistencia.PRESENTE) {
+                    presentesPorSesion[i]++;
+                }
+            }
+        }
+        long presentes = porEstado[EstadoAsistencia.PRESENTE.ordinal()];
+        fila.add(presentes);
+        fila.add(porEstado[EstadoAsistencia.TARDIO.ordinal()]);
+        fila.add(porEstado[EstadoAsistencia.FUERA_RANGO.ordinal()]);
+        fila.add(porEstado[EstadoAsistencia.AUSENTE.ordinal()]);
+        fila.add(sinFirma);
+        fila.add(estados.length > 0 ? Math.round((double) presentes / estados.length * 1000) / 10.0 : 0.0);
+        xlsx.fila(fila);
+    }
+    
+    public long contarFirmasPeriodo(String periodo) {
+        return sesionDetalleRepository.countByPeriodo(periodo);
+    }
+    
+    public String nombreArchivoPeriodo(String periodo, EscritorExportacion.Formato formato, boolean gzip) {
+        return "asistencia_" + periodo.replaceAll("[^A-Za-z0-9_-]", "_") + "." + formato.getExtension() + (gzip ? ".gz" : "");
+    }
+    
+    /**
+     * Escribe todas las firmas de un periodo (con estudiante, curso y sesión) en CSV o NDJSON.
+     * Las filas se leen con un cursor de tamaño de lote acotado y se escriben una por una,
+     * así la memoria no depende del tamaño del periodo.
+     */
+    public long exportarPeriodo(String periodo, EscritorExportacion.Formato formato, boolean gzip,
+                                OutputStream salida) throws IOException {
+        return exportarPeriodo(periodo, formato, gzip, salida, filas -> { });
+    }
+    
+    /**
+     * Igual que exportarPeriodo, informando las filas escritas cada FILAS_POR_AVANCE filas y al terminar.
+     */
+    public long exportarPeriodo(String periodo, EscritorExportacion.Formato formato, boolean gzip,
+                                OutputStream salida, LongConsumer avance) throws IOException {
+        GZIPOutputStream comprimido = gzip ? new GZIPOutputStream(salida, 64 * 1024) : null;
+        long filas;
+        try (EscritorExportacion escritor = new EscritorExportacion(comprimido != null ? comprimido : salida,
+                 formato, COLUMNAS_EXPORTACION);
+             Stream<Object[]> registros = sesionDetalleRepository.streamExportacionByPeriodo(periodo)) {
+            Iterator<Object[]> iterador = registros.iterator();
+            while (iterador.hasNext()) {
+                escritor.fila(iterador.next());
+                if (escritor.getFilas() % FILAS_POR_AVANCE == 0) {
+                    avance.accept(escritor.getFilas());
+                }
+            }
+            filas = escritor.getFilas();
+        }
+        avance.accept(filas);
+        if (comprimido != null) {
+            comprimido.finish();
+        }
+        return filas;
+    }
+    
+    /**
+     * Dashboard armado desde el resumen diario por curso (asistencias_diarias_curso): una fila
+     * por curso, sin recorrer los detalles. Las firmas de los últimos segundos pueden no estar
+     * incluidas todavía (ver ResumenDiarioAsistencia).
+     */
     public DashboardDTO getDashboard(String periodo) {
         LocalDateTime hoy = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
         
-        Integer totalSesionesHoy = sesionRepository.findActivasDesdeFecha(hoy).size();
+        Integer totalSesionesHoy = sesionRepository.countActivasDesdeFecha(hoy).intValue();
         Integer totalEstudiantesActivos = usuarioCursoRepository.findByUsuarioIdAndEstadoActivo(1L).size(); // Simplificado
         
-        // Calcular promedio general de asistencia
-        List<SesionDetalle> todasLasAsistencias = sesionDetalleRepository.findAll();
-        Double promedioAsistenciaGeneral = todasLasAsistencias.stream()
-            .filter(d -> d.getEstado() == EstadoAsistencia.PRESENTE)
-            .count() / (double) todasLasAsistencias.size() * 100;
+        // [idCurso, nombre, sesiones, presentes, firmas]
+        List<Object[]> resumen = asistenciaDiariaCursoRepository.resumenPorCurso(periodo);
+        long presentes = 0;
+        long firmas = 0;
+        for (Object[] curso : resumen) {
+            presentes += (Long) curso[3];
+            firmas += (Long) curso[4];
+        }
+        Double promedioAsistenciaGeneral = firmas > 0 ? presentes * 100.0 / firmas : 0.0;
         
-        // Cursos más activos (simplificado)
-        List<CursoMasActivoDTO> cursosMasActivos = cursoRepository.findAll().stream()
+        // Cursos más activos: los de más sesiones
+        List<CursoMasActivoDTO> cursosMasActivos = resumen.stream()
+            .sorted((a, b) -> Long.compare((Long) b[2], (Long) a[2]))
             .limit(5)
-            .map(curso -> {
-                Integer sesiones = sesionRepository.countByCursoId(curso.getId()).intValue();
-                Double asistencia = 85.0; // Valor simplificado
-                
-                return CursoMasActivoDTO.builder()
-                    .curso(curso.getNombre())
-                    .sesiones(sesiones)
-                    .asistencia(asistencia)
-                    .build();
-            })
+            .map(curso -> CursoMasActivoDTO.builder()
+                .curso((String) curso[1])
+                .sesiones(((Long) curso[2]).intValue())
+                .asistencia((Long) curso[4] > 0 ? Math.round((Long) curso[3] * 1000.0 / (Long) curso[4]) / 10.0 : 0.0)
+                .build())
             .collect(Collectors.toList());
         
         return DashboardDTO.builder()
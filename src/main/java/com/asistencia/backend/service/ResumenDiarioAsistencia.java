@@ -0,0 +1,255 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.EstadoActualizacionDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.AsistenciaDiariaCurso;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.repository.AsistenciaDiariaCursoRepository;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.repository.SesionRepository;
+import com.asistencia.backend.util.TransaccionUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mantiene la tabla asistencias_diarias_curso (sesiones y firmas por estado, por curso y día).
+ * Las firmas y sesiones confirmadas se acumulan en memoria y se suman a la tabla cada intervaloMs
+ * con un UPDATE por curso y día. Los días cerrados se recalculan desde los detalles una vez
+ * (y al iniciar, los últimos diasReconciliacion días; toda la historia si la tabla está vacía),
+ * lo que corrige incrementos perdidos por una caída antes de aplicarlos.
+ * Con asistencia.dashboard.intervalo-ms=0 el programador no se inicia (pruebas).
+ */
+@Component
+public class ResumenDiarioAsistencia {
+
+    private static final EstadoAsistencia[] ESTADOS = EstadoAsistencia.values();
+    // Una ranura por estado (por ordinal) y la última para las sesiones
+    private static final int SESIONES = ESTADOS.length;
+
+    private record Clave(Long idCurso, LocalDate fecha) {
+    }
+
+    private final AsistenciaDiariaCursoRepository asistenciaDiariaCursoRepository;
+    private final SesionDetalleRepository sesionDetalleRepository;
+    private final SesionRepository sesionRepository;
+    private final TransactionTemplate transaccion;
+    private final long intervaloMs;
+    private final int diasReconciliacion;
+
+    private final Map<Clave, long[]> pendientes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "resumen-diario");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Último día cerrado ya recalculado; solo lo usa el hilo del programador
+    private LocalDate reconciliadoHasta;
+
+    // Resultado de los ciclos del programador (ver getEstado); solo los escribe ese hilo
+    private volatile LocalDateTime ultimaEjecucion;
+    private volatile String ultimoError;
+    private volatile LocalDateTime fechaUltimoError;
+    private volatile int erroresSeguidos;
+
+    public ResumenDiarioAsistencia(AsistenciaDiariaCursoRepository asistenciaDiariaCursoRepository,
+                                   SesionDetalleRepository sesionDetalleRepository,
+                                   SesionRepository sesionRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${asistencia.dashboard.intervalo-ms:5000}") long intervaloMs,
+                                   @Value("${asistencia.dashboard.dias-reconciliacion:7}") int diasReconciliacion) {
+        this.asistenciaDiariaCursoRepository = asistenciaDiariaCursoRepository;
+        this.sesionDetalleRepository = sesionDetalleRepository;
+        this.sesionRepository = sesionRepository;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.intervaloMs = intervaloMs;
+        this.diasReconciliacion = diasReconciliacion;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (intervaloMs <= 0) {
+            return;
+        }
+        programador.scheduleWithFixedDelay(this::actualizar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        programador.shutdown();
+        programador.awaitTermination(10, TimeUnit.SECONDS);
+        aplicarPendientes();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alRegistrarFirma(FirmaRegistradaEvent evento) {
+        pendientes.compute(new Clave(evento.getIdCurso(), evento.getFechaFirma().toLocalDate()), (clave, delta) -> {
+            delta = delta != null ? delta : new long[SESIONES + 1];
+            delta[evento.getEstado().ordinal()]++;
+            return delta;
+        });
+    }
+
+    /**
+     * Cuenta una sesión nueva en el día de su inicio (al confirmar su creación).
+     */
+    public void sesionIniciada(Long idCurso, LocalDateTime fechaInicio) {
+        TransaccionUtils.alConfirmar(() -> sumar(new Clave(idCurso, fechaInicio.toLocalDate()), SESIONES, 1));
+    }
+
+    /**
+     * Descuenta una sesión eliminada (al confirmar la eliminación).
+     */
+    public void sesionEliminada(Long idCurso, LocalDateTime fechaInicio) {
+        if (fechaInicio != null) {
+            TransaccionUtils.alConfirmar(() -> sumar(new Clave(idCurso, fechaInicio.toLocalDate()), SESIONES, -1));
+        }
+    }
+
+    /**
+     * Última ejecución correcta del programador y último error, para saber si el dashboard está al día.
+     */
+    public EstadoActualizacionDTO getEstado() {
+        return EstadoActualizacionDTO.builder()
+            .ultimaEjecucion(ultimaEjecucion)
+            .ultimoError(ultimoError)
+            .fechaUltimoError(fechaUltimoError)
+            .erroresSeguidos(erroresSeguidos)
+            .build();
+    }
+
+    // Un error deja los datos pendientes (o el día sin recalcular) para el siguiente ciclo y queda en getEstado
+    void actualizar() {
+        try {
+            LocalDate hoy = LocalDate.now();
+            if (reconciliadoHasta == null) {
+                LocalDate desde = asistenciaDiariaCursoRepository.count() == 0
+                    ? LocalDate.EPOCH : hoy.minusDays(diasReconciliacion);
+                reconciliar(desde, hoy);
+                reconciliadoHasta = hoy.minusDays(1);
+            } else if (hoy.minusDays(1).isAfter(reconciliadoHasta)) {
+                reconciliar(reconciliadoHasta.plusDays(1), hoy.minusDays(1));
+                reconciliadoHasta = hoy.minusDays(1);
+            }
+            aplicarPendientes();
+            ultimaEjecucion = LocalDateTime.now();
+            erroresSeguidos = 0;
+        } catch (RuntimeException e) {
+            ultimoError = e.getClass().getSimpleName() + ": " + e.getMessage();
+            fechaUltimoError = LocalDateTime.now();
+            erroresSeguidos++;
+        }
+    }
+
+    /**
+     * Suma a la tabla los incrementos acumulados, en una transacción por curso y día.
+     * Si la fila del día no existe se inserta; si falla (p. ej. otra instancia la insertó a la vez)
+     * los incrementos vuelven a quedar pendientes y, tras intentar el resto, se lanza el último error.
+     */
+    synchronized void aplicarPendientes() {
+        RuntimeException error = null;
+        for (Clave clave : pendientes.keySet()) {
+            long[] delta = pendientes.remove(clave);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                transaccion.executeWithoutResult(estado -> {
+                    int actualizadas = asistenciaDiariaCursoRepository.sumar(clave.idCurso(), clave.fecha(), delta[SESIONES],
+                        delta[EstadoAsistencia.PRESENTE.ordinal()], delta[EstadoAsistencia.AUSENTE.ordinal()],
+                        delta[EstadoAsistencia.TARDIO.ordinal()], delta[EstadoAsistencia.FUERA_RANGO.ordinal()]);
+                    if (actualizadas == 0) {
+                        AsistenciaDiariaCurso fila = nuevaFila(clave);
+                        for (int i = 0; i <= SESIONES; i++) {
+                            sumarAFila(fila, i, delta[i]);
+                        }
+                        asistenciaDiariaCursoRepository.save(fila);
+                    }
+                });
+            } catch (RuntimeException e) {
+                for (int i = 0; i <= SESIONES; i++) {
+                    sumar(clave, i, delta[i]);
+                }
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Recalcula desde los detalles y las sesiones las filas de los días entre desde y hasta (inclusive),
+     * con dos consultas agrupadas. Los incrementos pendientes de esos días se descartan en cuanto
+     * terminan las consultas: los confirmados antes ya están incluidos en el recálculo. Descartarlos
+     * antes de consultar contaría dos veces las firmas confirmadas entre ambos pasos; una firma
+     * confirmada mientras corren las consultas puede quedar fuera, y se corrige al recalcular
+     * el día una vez cerrado. No se aplican incrementos mientras tanto.
+     */
+    synchronized void reconciliar(LocalDate desde, LocalDate hasta) {
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+        transaccion.executeWithoutResult(estado -> {
+            asistenciaDiariaCursoRepository.deleteByFechaEntre(desde, hasta);
+
+            Map<Clave, AsistenciaDiariaCurso> filas = new HashMap<>();
+            for (Object[] fila : sesionDetalleRepository.countPorCursoDiaYEstado(inicio, fin)) {
+                Clave clave = new Clave((Long) fila[0], aFecha(fila[1]));
+                sumarAFila(filas.computeIfAbsent(clave, ResumenDiarioAsistencia::nuevaFila),
+                    ((EstadoAsistencia) fila[2]).ordinal(), (Long) fila[3]);
+            }
+            for (Object[] fila : sesionRepository.countPorCursoYDia(inicio, fin)) {
+                Clave clave = new Clave((Long) fila[0], aFecha(fila[1]));
+                sumarAFila(filas.computeIfAbsent(clave, ResumenDiarioAsistencia::nuevaFila), SESIONES, (Long) fila[2]);
+            }
+            pendientes.keySet().removeIf(clave -> !clave.fecha().isBefore(desde) && !clave.fecha().isAfter(hasta));
+            asistenciaDiariaCursoRepository.saveAll(filas.values());
+        });
+    }
+
+    private void sumar(Clave clave, int ranura, long cantidad) {
+        pendientes.compute(clave, (k, delta) -> {
+            delta = delta != null ? delta : new long[SESIONES + 1];
+            delta[ranura] += cantidad;
+            return delta;
+        });
+    }
+
+    private static AsistenciaDiariaCurso nuevaFila(Clave clave) {
+        return AsistenciaDiariaCurso.builder().idCurso(clave.idCurso()).fecha(clave.fecha()).build();
+    }
+
+    private static void sumarAFila(AsistenciaDiariaCurso fila, int ranura, long cantidad) {
+        if (ranura == SESIONES) {
+            fila.setSesiones(fila.getSesiones() + cantidad);
+            return;
+        }
+        switch (ESTADOS[ranura]) {
+            case PRESENTE -> fila.setPresentes(fila.getPresentes() + cantidad);
+            case AUSENTE -> fila.setAusentes(fila.getAusentes() + cantidad);
+            case TARDIO -> fila.setTardios(fila.getTardios() + cantidad);
+            case FUERA_RANGO -> fila.setFueraRango(fila.getFueraRango() + cantidad);
+        }
+    }
+
+    // Según el dialecto, CAST(... AS LocalDate) llega como LocalDate o java.sql.Date
+    private static LocalDate aFecha(Object valor) {
+        return valor instanceof java.sql.Date fecha ? fecha.toLocalDate() : (LocalDate) valor;
+    }
+}
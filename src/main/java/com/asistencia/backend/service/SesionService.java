@@ -1,29 +1,55 @@
 package com.asistencia.backend.service;
 
 import com.asistencia.backend.dto.*;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
 import com.asistencia.backend.model.*;
 import com.asistencia.backend.repository.*;
 import com.asistencia.backend.util.GeoUtils;
+import com.asistencia.backend.util.Poligono;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class SesionService {
+    
+    private static final String MENSAJE_FIRMA_REPETIDA = "El estudiante ya firmó en esta sesión";
 
     private final SesionRepository sesionRepository;
     private final SesionDetalleRepository sesionDetalleRepository;
     private final UserRepository usuarioRepository;
     private final CursoRepository cursoRepository;
     private final UsuarioCursoRepository usuarioCursoRepository;
+    private final ActiveSesionRegistry activeSesionRegistry;
+    private final InscripcionIndex inscripcionIndex;
+    private final EscritorFirmas escritorFirmas;
+    private final ContadoresSesion contadoresSesion;
+    private final EstadisticasCongeladas estadisticasCongeladas;
+    private final TransmisionAsistencia transmisionAsistencia;
+    private final VersionesSesion versionesSesion;
+    private final ResumenDiarioAsistencia resumenDiarioAsistencia;
+    private final CuboAsistencia cuboAsistencia;
+    private final CacheReportes cacheReportes;
+    private final GeocercaService geocercaService;
+    private final AnomaliasUbicacion anomaliasUbicacion;
+    private final ApplicationEventPublisher eventPublisher;
     
     public Sesion crearSesion(CrearSesionRequest request) {
         Curso curso = cursoRepository.findById(request.getIdCurso())
@@ -40,6 +66,12 @@ public class SesionService {
         // Validar horario según el turno del curso
         validarHorarioSegunTurno(curso.getTurno(), fechaInicio);
         
+        // La geocerca debe existir al crear la sesión; si luego se elimina se vuelve al radio
+        boolean usarGeocerca = Boolean.TRUE.equals(request.getUsarGeocerca());
+        if (usarGeocerca && geocercaService.buscar(request.getAula()).isEmpty()) {
+            throw new RuntimeException("No hay geocerca registrada para el aula " + request.getAula());
+        }
+        
         Sesion sesion = Sesion.builder()
             .curso(curso)
             .profesor(curso.getProfesor()) // El profesor se obtiene del curso
@@ -49,12 +81,19 @@ public class SesionService {
             .latitudProfesor(request.getLatitudProfesor())
             .longitudProfesor(request.getLongitudProfesor())
             .radioProximidad(6.0) // Siempre 6 metros
+            .usarGeocerca(usarGeocerca)
             .fechaInicio(fechaInicio) // Fecha de inicio automática
             .fechaFin(request.getFechaFin()) // Fecha de fin opcional
             .estado("ACTIVA") // Siempre ACTIVA al crear
             .build();
         
-        return sesionRepository.save(sesion);
+        Sesion sesionGuardada = sesionRepository.save(sesion);
+        activeSesionRegistry.publicarNueva(sesionGuardada);
+        contadoresSesion.iniciar(sesionGuardada.getId());
+        anomaliasUbicacion.iniciar(sesionGuardada.getId());
+        resumenDiarioAsistencia.sesionIniciada(curso.getId(), sesionGuardada.getFechaInicio());
+        cacheReportes.invalidarCurso(curso.getId());
+        return sesionGuardada;
     }
     
     private void validarHorarioSegunTurno(String turno, LocalDateTime fechaInicio) {
@@ -81,6 +120,7 @@ public class SesionService {
             .aula(sesion.getAula())
             .estado(sesion.getEstado())
             .radioProximidad(sesion.getRadioProximidad())
+            .usarGeocerca(sesion.getUsarGeocerca())
             .fechaInicio(sesion.getFechaInicio())
             .fechaFin(sesion.getFechaFin())
             .curso(SesionCreadaResponse.CursoInfo.builder()
@@ -111,7 +151,22 @@ public class SesionService {
         sesion.setEstado("FINALIZADA");
         sesion.setFechaCierre(LocalDateTime.now());
         
-        return sesionRepository.save(sesion);
+        // No se admiten más firmas: se retira del registro de sesiones activas
+        activeSesionRegistry.retirar(sesion.getId());
+        transmisionAsistencia.finalizar(sesion.getId());
+        contadoresSesion.descartar(sesion.getId());
+        anomaliasUbicacion.descartar(sesion.getId());
+        versionesSesion.incrementar(sesion.getId());
+        
+        Sesion sesionCerrada = sesionRepository.save(sesion);
+        
+        // Las cifras ya no cambian: se calculan una vez y se guardan con el cierre
+        estadisticasCongeladas.congelar(sesionCerrada,
+            inscripcionIndex.totalInscritos(sesionCerrada.getCurso().getId()),
+            acumularFirmas(sesionCerrada));
+        cuboAsistencia.registrarCierre(sesionCerrada);
+        
+        return sesionCerrada;
     }
     
     private void validarCierreSesion(Sesion sesion) {
@@ -144,7 +199,7 @@ public class SesionService {
         SesionCerradaResponse.EstadisticasFinales estadisticas = obtenerEstadisticasFinales(sesion);
         
         // Obtener resumen de asistencia
-        SesionCerradaResponse.ResumenAsistencia resumenAsistencia = obtenerResumenAsistencia(sesion.getId());
+        SesionCerradaResponse.ResumenAsistencia resumenAsistencia = obtenerResumenAsistencia(sesion);
         
         return SesionCerradaResponse.builder()
             .id(sesion.getId())
@@ -231,22 +286,13 @@ public class SesionService {
         }
     }
     
-    private SesionCerradaResponse.ResumenAsistencia obtenerResumenAsistencia(Long idSesion) {
+    private SesionCerradaResponse.ResumenAsistencia obtenerResumenAsistencia(Sesion sesion) {
         try {
-            List<SesionDetalleDTO> detalles = obtenerAsistenciaSesion(idSesion);
-            
-            Long estudiantesEnRango = detalles.stream()
-                .filter(d -> d.getDistanciaMetros() <= 6.0)
-                .count();
+            AcumuladorFirmas acumulador = obtenerAcumulador(sesion);
             
-            Long estudiantesFueraRango = detalles.stream()
-                .filter(d -> d.getDistanciaMetros() > 6.0)
-                .count();
-            
-            Double promedioDistancia = detalles.stream()
-                .mapToDouble(SesionDetalleDTO::getDistanciaMetros)
-                .average()
-                .orElse(0.0);
+            Long estudiantesEnRango = acumulador.getEnRango();
+            Long estudiantesFueraRango = acumulador.getFueraRango();
+            Double promedioDistancia = acumulador.getPromedioDistancia();
             
             // Generar mensaje resumen
             String mensajeResumen = generarMensajeResumen(estudiantesEnRango, estudiantesFueraRango, promedioDistancia);
@@ -292,16 +338,28 @@ public class SesionService {
         return sesionRepository.findByProfesorId(idProfesor, pageable);
     }
     
+    /**
+     * Convierte una página de sesiones sin consultas por sesión: el curso viene con la página
+     * y los contadores de todas las sesiones se obtienen juntos (una consulta agrupada como máximo).
+     */
     public List<SesionProfesorResponse> convertirASesionesProfesorResponse(List<Sesion> sesiones) {
+        Map<Long, ContadoresSesion.Conteo> conteos = contadoresSesion.obtenerTodos(
+            sesiones.stream().map(Sesion::getId).toList());
+        
         return sesiones.stream()
-            .map(this::convertirASesionProfesorResponse)
+            .map(sesion -> convertirASesionProfesorResponse(sesion, construirEstadisticasBasicas(
+                construirEstadisticas((long) inscripcionIndex.totalInscritos(sesion.getCurso().getId()),
+                    conteos.get(sesion.getId())))))
             .collect(Collectors.toList());
     }
     
     public SesionProfesorResponse convertirASesionProfesorResponse(Sesion sesion) {
         // Obtener estadísticas básicas para la sesión
-        SesionProfesorResponse.EstadisticasBasicas estadisticas = obtenerEstadisticasBasicas(sesion.getId());
-        
+        return convertirASesionProfesorResponse(sesion, obtenerEstadisticasBasicas(sesion.getId()));
+    }
+    
+    private SesionProfesorResponse convertirASesionProfesorResponse(Sesion sesion, 
+            SesionProfesorResponse.EstadisticasBasicas estadisticas) {
         return SesionProfesorResponse.builder()
             .id(sesion.getId())
             .nombre(sesion.getNombre())
@@ -328,16 +386,7 @@ public class SesionService {
     
     private SesionProfesorResponse.EstadisticasBasicas obtenerEstadisticasBasicas(Long idSesion) {
         try {
-            EstadisticasSesionDTO stats = getEstadisticasSesion(idSesion);
-            return SesionProfesorResponse.EstadisticasBasicas.builder()
-                .totalInscritos(stats.getTotalInscritos())
-                .totalFirmaron(stats.getTotalFirmaron())
-                .presentes(stats.getPresentes())
-                .ausentes(stats.getAusentes())
-                .tardios(stats.getTardios())
-                .fueraRango(stats.getFueraRango())
-                .porcentajeAsistencia(stats.getPorcentajeAsistencia())
-                .build();
+            return construirEstadisticasBasicas(getEstadisticasSesion(idSesion));
         } catch (Exception e) {
             // Si hay error, devolver estadísticas vacías
             return SesionProfesorResponse.EstadisticasBasicas.builder()
@@ -352,6 +401,18 @@ public class SesionService {
         }
     }
     
+    private SesionProfesorResponse.EstadisticasBasicas construirEstadisticasBasicas(EstadisticasSesionDTO stats) {
+        return SesionProfesorResponse.EstadisticasBasicas.builder()
+            .totalInscritos(stats.getTotalInscritos())
+            .totalFirmaron(stats.getTotalFirmaron())
+            .presentes(stats.getPresentes())
+            .ausentes(stats.getAusentes())
+            .tardios(stats.getTardios())
+            .fueraRango(stats.getFueraRango())
+            .porcentajeAsistencia(stats.getPorcentajeAsistencia())
+            .build();
+    }
+    
     public List<Sesion> getSesionesActivasPorCurso(Long idCurso) {
         return sesionRepository.findActivasByCursoId(idCurso);
     }
@@ -522,28 +583,45 @@ public class SesionService {
     }
     
     public EstadisticasSesionDTO getEstadisticasSesion(Long idSesion) {
-        Sesion sesion = getSesionById(idSesion);
+        SesionSnapshotDTO sesion = activeSesionRegistry.obtener(idSesion)
+            .orElseThrow(() -> new RuntimeException("Sesión no encontrada"));
+        
+        // Sesión cerrada: cifras congeladas al cerrarla
+        Optional<SesionEstadisticas> congeladas = estadisticasCongeladas.buscar(idSesion, sesion.getEstado());
+        if (congeladas.isPresent()) {
+            return construirEstadisticas(congeladas.get());
+        }
         
-        // Contar estudiantes inscritos
-        Long totalInscritos = usuarioCursoRepository.countByCursoIdAndEstadoActivo(sesion.getCurso().getId());
+        // Inscritos desde el índice de inscripciones y firmas desde los contadores en memoria
+        Long totalInscritos = (long) inscripcionIndex.totalInscritos(sesion.getIdCurso());
+        ContadoresSesion.Conteo conteo = contadoresSesion.obtener(idSesion);
         
-        // Contar detalles de asistencia
-        Long totalFirmaron = sesionDetalleRepository.countBySesionId(idSesion);
-        Long presentes = sesionDetalleRepository.countBySesionIdAndEstado(idSesion, EstadoAsistencia.PRESENTE);
-        Long ausentes = sesionDetalleRepository.countBySesionIdAndEstado(idSesion, EstadoAsistencia.AUSENTE);
-        Long tardios = sesionDetalleRepository.countBySesionIdAndEstado(idSesion, EstadoAsistencia.TARDIO);
-        Long fueraRango = sesionDetalleRepository.countBySesionIdAndEstado(idSesion, EstadoAsistencia.FUERA_RANGO);
+        return construirEstadisticas(totalInscritos, conteo);
+    }
+    
+    private EstadisticasSesionDTO construirEstadisticas(SesionEstadisticas congeladas) {
+        long[] porEstado = new long[EstadoAsistencia.values().length];
+        porEstado[EstadoAsistencia.PRESENTE.ordinal()] = congeladas.getPresentes();
+        porEstado[EstadoAsistencia.AUSENTE.ordinal()] = congeladas.getAusentes();
+        porEstado[EstadoAsistencia.TARDIO.ordinal()] = congeladas.getTardios();
+        porEstado[EstadoAsistencia.FUERA_RANGO.ordinal()] = congeladas.getFueraRango();
+        return construirEstadisticas(congeladas.getTotalInscritos(),
+            new ContadoresSesion.Conteo(congeladas.getTotalFirmaron(), porEstado));
+    }
+    
+    private EstadisticasSesionDTO construirEstadisticas(Long totalInscritos, ContadoresSesion.Conteo conteo) {
+        Long presentes = conteo.de(EstadoAsistencia.PRESENTE);
         
         Double porcentajeAsistencia = totalInscritos > 0 ? 
             (double) presentes / totalInscritos * 100 : 0.0;
         
         return EstadisticasSesionDTO.builder()
             .totalInscritos(totalInscritos)
-            .totalFirmaron(totalFirmaron)
+            .totalFirmaron(conteo.total())
             .presentes(presentes)
-            .ausentes(ausentes)
-            .tardios(tardios)
-            .fueraRango(fueraRango)
+            .ausentes(conteo.de(EstadoAsistencia.AUSENTE))
+            .tardios(conteo.de(EstadoAsistencia.TARDIO))
+            .fueraRango(conteo.de(EstadoAsistencia.FUERA_RANGO))
             .porcentajeAsistencia(porcentajeAsistencia)
             .build();
     }
@@ -566,7 +644,11 @@ public class SesionService {
             sesion.setRadioProximidad(request.getRadioProximidad());
         }
         
-        return sesionRepository.save(sesion);
+        Sesion sesionActualizada = sesionRepository.save(sesion);
+        activeSesionRegistry.publicar(sesionActualizada);
+        estadisticasCongeladas.descartar(id);
+        versionesSesion.incrementar(id);
+        return sesionActualizada;
     }
     
     public SesionActualizadaResponse convertirASesionActualizadaResponse(Sesion sesion) {
@@ -613,6 +695,15 @@ public class SesionService {
             throw new RuntimeException("No se puede eliminar una sesión que tiene asistencias registradas");
         }
         
+        activeSesionRegistry.retirar(id);
+        contadoresSesion.descartar(id);
+        anomaliasUbicacion.descartar(id);
+        estadisticasCongeladas.descartar(id);
+        transmisionAsistencia.finalizar(id);
+        versionesSesion.incrementar(id);
+        resumenDiarioAsistencia.sesionEliminada(sesion.getCurso().getId(), sesion.getFechaInicio());
+        cuboAsistencia.registrarEliminacion(sesion);
+        cacheReportes.invalidarCurso(sesion.getCurso().getId());
         sesionRepository.delete(sesion);
     }
     
@@ -654,16 +745,28 @@ public class SesionService {
         // Obtener estadísticas generales
         EstadisticasSesionDTO stats = getEstadisticasSesion(sesion.getId());
         
-        // Obtener detalles de asistencia
-        List<SesionDetalleDTO> detalles = obtenerAsistenciaSesion(sesion.getId());
+        // Obtener detalles de asistencia; las mismas entidades alimentan el resumen geográfico
+        List<SesionDetalle> firmas = sesionDetalleRepository.findBySesionId(sesion.getId());
+        List<SesionDetalleDTO> detalles = firmas.stream()
+            .map(this::convertirADTO)
+            .collect(Collectors.toList());
+        
+        // Grupos de firmas en el mismo punto; sus detalles se marcan como ubicación sospechosa
+        List<AnomaliaUbicacionDTO> anomalias = anomaliasUbicacion.obtener(sesion.getId());
+        Set<Long> detallesSospechosos = anomalias.stream()
+            .flatMap(anomalia -> anomalia.getIdsDetalle().stream())
+            .collect(Collectors.toSet());
         
         // Convertir a DTO optimizado
         List<ReporteAsistenciaResponse.DetalleAsistencia> asistencias = detalles.stream()
-            .map(this::convertirADetalleAsistencia)
+            .map(detalle -> convertirADetalleAsistencia(detalle, detallesSospechosos.contains(detalle.getId())))
             .collect(Collectors.toList());
         
-        // Calcular resumen geográfico
-        ReporteAsistenciaResponse.ResumenGeografico resumenGeo = calcularResumenGeografico(detalles);
+        // Calcular resumen geográfico (congelado si la sesión está cerrada)
+        ReporteAsistenciaResponse.ResumenGeografico resumenGeo = calcularResumenGeografico(
+            estadisticasCongeladas.buscar(sesion.getId(), sesion.getEstado())
+                .map(AcumuladorFirmas::desde)
+                .orElseGet(() -> acumular(sesion, firmas)));
         
         return ReporteAsistenciaResponse.builder()
             .idSesion(sesion.getId())
@@ -703,18 +806,29 @@ public class SesionService {
                 .build())
             .asistencias(asistencias)
             .resumenGeografico(resumenGeo)
+            .anomaliasUbicacion(anomalias)
             .build();
     }
     
+    /**
+     * Grupos de firmas de la sesión registradas en el mismo punto (ver AnomaliasUbicacion).
+     */
+    public List<AnomaliaUbicacionDTO> getAnomaliasUbicacion(Long idSesion) {
+        if (!sesionRepository.existsById(idSesion)) {
+            throw new RuntimeException("Sesión no encontrada");
+        }
+        return anomaliasUbicacion.obtener(idSesion);
+    }
+    
     public EstadisticasSesionResponse convertirAEstadisticasSesionResponse(Sesion sesion) {
         // Obtener estadísticas detalladas
         EstadisticasSesionDTO stats = getEstadisticasSesion(sesion.getId());
         
-        // Calcular análisis temporal
-        EstadisticasSesionResponse.AnalisisTemporal analisisTemporal = calcularAnalisisTemporal(sesion);
-        
-        // Calcular análisis geográfico
-        EstadisticasSesionResponse.AnalisisGeografico analisisGeo = calcularAnalisisGeografico(sesion.getId());
+        // Una sola pasada sobre las firmas para el análisis temporal y el geográfico
+        // (sin recorrerlas si la sesión está cerrada y tiene cifras congeladas)
+        AcumuladorFirmas acumulador = obtenerAcumulador(sesion);
+        EstadisticasSesionResponse.AnalisisTemporal analisisTemporal = calcularAnalisisTemporal(sesion, acumulador);
+        EstadisticasSesionResponse.AnalisisGeografico analisisGeo = calcularAnalisisGeografico(acumulador);
         
         // Generar recomendaciones
         EstadisticasSesionResponse.Recomendaciones recomendaciones = generarRecomendaciones(stats, analisisTemporal, analisisGeo);
@@ -764,26 +878,40 @@ public class SesionService {
             .build();
     }
     
+    /**
+     * Registra la firma de un estudiante. Corre sin transacción propia: las validaciones se resuelven
+     * en memoria y el INSERT se confirma en la transacción del repositorio o, con group commit,
+     * en la del lote; así una firma en espera no retiene una conexión del pool.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SesionDetalle registrarAsistencia(RegistrarAsistenciaRequest request) {
-        // Validaciones robustas
-        validarRegistroAsistencia(request);
+        // Datos de la sesión desde el registro de sesiones activas (sin leer la fila de la sesión)
+        SesionSnapshotDTO sesion = activeSesionRegistry.obtener(request.getIdSesion())
+            .orElseThrow(() -> new RuntimeException("Sesión no encontrada"));
         
-        Sesion sesion = getSesionById(request.getIdSesion());
-        Usuario estudiante = usuarioRepository.findById(request.getIdEstudiante())
-            .orElseThrow(() -> new RuntimeException("Estudiante no encontrado"));
+        validarSesionAbierta(sesion);
         
-        // Calcular distancia
-        double distancia = GeoUtils.calcularDistancia(
-            sesion.getLatitudProfesor(), sesion.getLongitudProfesor(),
-            request.getLatitudEstudiante(), request.getLongitudEstudiante()
-        );
+        // Inscripción desde el índice en memoria
+        validarInscripcionActiva(sesion.getIdCurso(), request.getIdEstudiante());
+        
+        // Validaciones de ubicación (devuelve la distancia calculada); la geocerca se busca una vez
+        Optional<Poligono> geocerca = geocercaDe(sesion);
+        double distancia = validarUbicacion(sesion, geocerca, request);
         
         // Determinar estado según distancia y tiempo
-        EstadoAsistencia estado = determinarEstadoAsistencia(distancia, sesion.getRadioProximidad(), sesion.getFechaInicio());
+        boolean dentroDelArea = geocerca.isPresent() || distancia <= sesion.getRadioProximidad();
+        EstadoAsistencia estado = determinarEstadoAsistencia(dentroDelArea, sesion.getFechaInicio());
         
+        // Firmas repetidas: el registro en memoria las rechaza sin consultar y la restricción
+        // única (id_sesion, id_estudiante) cubre las que lleguen a la base de datos
+        if (!activeSesionRegistry.marcarFirma(sesion.getId(), request.getIdEstudiante())) {
+            throw new RuntimeException(MENSAJE_FIRMA_REPETIDA);
+        }
+        
+        // Las referencias no consultan la base de datos; solo se usan como llaves foráneas del INSERT
         SesionDetalle detalle = SesionDetalle.builder()
-            .sesion(sesion)
-            .estudiante(estudiante)
+            .sesion(sesionRepository.getReferenceById(sesion.getId()))
+            .estudiante(usuarioRepository.getReferenceById(request.getIdEstudiante()))
             .fechaFirma(LocalDateTime.now())
             .estado(estado)
             .latitudEstudiante(request.getLatitudEstudiante())
@@ -792,14 +920,42 @@ public class SesionService {
             .observacion(request.getObservacion())
             .build();
         
-        return sesionDetalleRepository.save(detalle);
+        SesionDetalle guardado = escritorFirmas.isHabilitado()
+            ? esperarLote(escritorFirmas.encolar(detalle))
+            : guardarFirma(detalle);
+        
+        // Contadores y demás estructuras derivadas se actualizan al confirmar
+        eventPublisher.publishEvent(FirmaRegistradaEvent.nueva(
+            guardado, sesion.getId(), sesion.getIdCurso(), request.getIdEstudiante()));
+        return guardado;
     }
     
-    private void validarRegistroAsistencia(RegistrarAsistenciaRequest request) {
-        // Validar que la sesión existe y está activa
-        Sesion sesion = getSesionById(request.getIdSesion());
-        
-        if (!"ACTIVA".equals(sesion.getEstado())) {
+    private SesionDetalle guardarFirma(SesionDetalle detalle) {
+        try {
+            // Flush inmediato para que una violación de la restricción se traduzca aquí y no al confirmar
+            return sesionDetalleRepository.saveAndFlush(detalle);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException(MENSAJE_FIRMA_REPETIDA);
+        }
+    }
+    
+    private SesionDetalle esperarLote(CompletableFuture<SesionDetalle> resultado) {
+        try {
+            return resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DataIntegrityViolationException) {
+                throw new RuntimeException(MENSAJE_FIRMA_REPETIDA);
+            }
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new RuntimeException("No se pudo registrar la asistencia", e.getCause());
+        }
+    }
+    
+    private void validarSesionAbierta(SesionSnapshotDTO sesion) {
+        // Validar que la sesión está activa
+        if (!sesion.isActiva()) {
             throw new RuntimeException("La sesión no está activa para firmar. Estado actual: " + sesion.getEstado());
         }
         
@@ -812,47 +968,69 @@ public class SesionService {
         if (sesion.getFechaInicio() != null && LocalDateTime.now().isBefore(sesion.getFechaInicio())) {
             throw new RuntimeException("La sesión aún no ha comenzado. Intente más tarde");
         }
-        
-        // Validar que el estudiante existe
-        usuarioRepository.findById(request.getIdEstudiante())
-            .orElseThrow(() -> new RuntimeException("Estudiante no encontrado"));
-        
-        // Validar que el estudiante está inscrito en el curso
-        UsuarioCurso inscripcion = usuarioCursoRepository.findByUsuarioIdAndCursoId(
-            request.getIdEstudiante(), sesion.getCurso().getId());
-        
-        if (inscripcion == null) {
-            throw new RuntimeException("El estudiante no está inscrito en este curso");
+    }
+    
+    private void validarInscripcionActiva(Long idCurso, Long idEstudiante) {
+        if (inscripcionIndex.estaInscrito(idCurso, idEstudiante)) {
+            return;
         }
-        
-        // Validar que la inscripción está activa
-        if (!"ACTIVO".equals(inscripcion.getEstado())) {
+        // Camino de rechazo: se consulta la base de datos solo para elegir el mensaje
+        if (usuarioCursoRepository.existsByUsuarioIdAndCursoId(idEstudiante, idCurso)) {
             throw new RuntimeException("La inscripción del estudiante no está activa");
         }
-        
-        // Validar que no haya firmado previamente
-        SesionDetalle detalleExistente = sesionDetalleRepository.findBySesionIdAndEstudianteId(
-            request.getIdSesion(), request.getIdEstudiante());
-        
-        if (detalleExistente != null) {
-            throw new RuntimeException("El estudiante ya firmó en esta sesión el " + 
-                detalleExistente.getFechaFirma().toString());
-        }
-        
+        throw new RuntimeException("El estudiante no está inscrito en este curso");
+    }
+    
+    private double validarUbicacion(SesionSnapshotDTO sesion, Optional<Poligono> geocerca,
+                                    RegistrarAsistenciaRequest request) {
         // Validar coordenadas
         validarCoordenadas(request.getLatitudEstudiante(), request.getLongitudEstudiante());
         
-        // Validar distancia máxima razonable (6 metros - radio de proximidad)
-        double distancia = GeoUtils.calcularDistancia(
-            sesion.getLatitudProfesor(), sesion.getLongitudProfesor(),
-            request.getLatitudEstudiante(), request.getLongitudEstudiante()
-        );
+        // Con geocerca se valida el polígono del aula; la distancia al profesor solo se registra
+        if (geocerca.isPresent()) {
+            if (!geocerca.get().contiene(request.getLatitudEstudiante(), request.getLongitudEstudiante())) {
+                throw new RuntimeException("La ubicación del estudiante está fuera del aula " + sesion.getAula());
+            }
+            double distancia = GeoUtils.distanciaLocal(
+                sesion.getLatitudProfesor(), sesion.getLongitudProfesor(),
+                request.getLatitudEstudiante(), request.getLongitudEstudiante()
+            );
+            return distancia <= GeoUtils.DISTANCIA_LOCAL_MAXIMA ? distancia : GeoUtils.calcularDistancia(
+                sesion.getLatitudProfesor(), sesion.getLongitudProfesor(),
+                request.getLatitudEstudiante(), request.getLongitudEstudiante()
+            );
+        }
         
-        if (distancia > sesion.getRadioProximidad()) {
+        // Validar distancia máxima razonable (6 metros - radio de proximidad), sin raíz cuadrada
+        if (!GeoUtils.dentroDelRadio(
+                sesion.getLatitudProfesor(), sesion.getLongitudProfesor(),
+                request.getLatitudEstudiante(), request.getLongitudEstudiante(),
+                sesion.getRadioProximidad())) {
+            // Solo el rechazo calcula la distancia exacta, para el mensaje
+            double distancia = GeoUtils.calcularDistancia(
+                sesion.getLatitudProfesor(), sesion.getLongitudProfesor(),
+                request.getLatitudEstudiante(), request.getLongitudEstudiante()
+            );
             throw new RuntimeException("La ubicación del estudiante está fuera del radio permitido. " +
                 "Distancia: " + String.format("%.1f", distancia) + " metros. Radio permitido: " + 
                 String.format("%.1f", sesion.getRadioProximidad()) + " metros");
         }
+        
+        // Dentro de un radio local la aproximación coincide con Haversine (ver GeoUtils.distanciaLocal)
+        if (sesion.getRadioProximidad() > GeoUtils.DISTANCIA_LOCAL_MAXIMA) {
+            return GeoUtils.calcularDistancia(
+                sesion.getLatitudProfesor(), sesion.getLongitudProfesor(),
+                request.getLatitudEstudiante(), request.getLongitudEstudiante()
+            );
+        }
+        return GeoUtils.distanciaLocal(
+            sesion.getLatitudProfesor(), sesion.getLongitudProfesor(),
+            request.getLatitudEstudiante(), request.getLongitudEstudiante()
+        );
+    }
+    
+    private Optional<Poligono> geocercaDe(SesionSnapshotDTO sesion) {
+        return Boolean.TRUE.equals(sesion.getUsarGeocerca()) ? geocercaService.buscar(sesion.getAula()) : Optional.empty();
     }
     
     private void validarCoordenadas(Double latitud, Double longitud) {
@@ -869,11 +1047,11 @@ public class SesionService {
         }
     }
     
-    private EstadoAsistencia determinarEstadoAsistencia(double distancia, double radioPermitido, LocalDateTime fechaInicio) {
+    private EstadoAsistencia determinarEstadoAsistencia(boolean dentroDelArea, LocalDateTime fechaInicio) {
         LocalDateTime ahora = LocalDateTime.now();
         long minutosTranscurridos = java.time.Duration.between(fechaInicio, ahora).toMinutes();
         
-        if (distancia <= radioPermitido) {
+        if (dentroDelArea) {
             if (minutosTranscurridos <= 15) {
                 return EstadoAsistencia.PRESENTE;
             } else {
@@ -956,11 +1134,9 @@ public class SesionService {
         // Calcular tiempo transcurrido
         String tiempoTranscurrido = calcularTiempoTranscurrido(detalle.getFechaFirma());
         
-        // Verificar si es la primera firma
-        boolean esPrimeraFirma = esPrimeraFirmaEnSesion(detalle.getSesion().getId());
-        
-        // Calcular posición en la lista
+        // Calcular posición en la lista (la primera firma es la posición 1)
         int posicionEnLista = calcularPosicionEnLista(detalle.getSesion().getId(), detalle.getFechaFirma());
+        boolean esPrimeraFirma = posicionEnLista == 1;
         
         // Generar mensaje de análisis
         String mensajeAnalisis = generarMensajeAnalisis(calidadAsistencia, puntualidad, precisionGeografica);
@@ -1013,20 +1189,9 @@ public class SesionService {
         return "BAJA";
     }
     
-    private boolean esPrimeraFirmaEnSesion(Long idSesion) {
-        return sesionDetalleRepository.countBySesionId(idSesion) == 1;
-    }
-    
     private int calcularPosicionEnLista(Long idSesion, LocalDateTime fechaFirma) {
-        List<SesionDetalle> detalles = sesionDetalleRepository.findBySesionId(idSesion);
-        detalles.sort((a, b) -> a.getFechaFirma().compareTo(b.getFechaFirma()));
-        
-        for (int i = 0; i < detalles.size(); i++) {
-            if (detalles.get(i).getFechaFirma().equals(fechaFirma)) {
-                return i + 1;
-            }
-        }
-        return 0;
+        // Cuenta las firmas hasta esta fecha en lugar de cargar y ordenar toda la lista
+        return sesionDetalleRepository.countBySesionIdAndFechaFirmaHasta(idSesion, fechaFirma).intValue();
     }
     
     private String generarMensajeAnalisis(String calidad, String puntualidad, String precision) {
@@ -1098,7 +1263,7 @@ public class SesionService {
     }
     
     // Métodos auxiliares para las nuevas respuestas
-    private ReporteAsistenciaResponse.DetalleAsistencia convertirADetalleAsistencia(SesionDetalleDTO detalle) {
+    private ReporteAsistenciaResponse.DetalleAsistencia convertirADetalleAsistencia(SesionDetalleDTO detalle, boolean ubicacionSospechosa) {
         return ReporteAsistenciaResponse.DetalleAsistencia.builder()
             .id(detalle.getId())
             .estudianteNombre(detalle.getEstudiante())
@@ -1111,12 +1276,13 @@ public class SesionService {
             .distanciaMetros(detalle.getDistanciaMetros())
             .observacion(detalle.getObservacion())
             .enRango(detalle.getDistanciaMetros() <= 6.0)
+            .ubicacionSospechosa(ubicacionSospechosa)
             .tiempoTranscurrido(calcularTiempoTranscurrido(detalle.getFechaFirma()))
             .build();
     }
     
-    private ReporteAsistenciaResponse.ResumenGeografico calcularResumenGeografico(List<SesionDetalleDTO> detalles) {
-        if (detalles.isEmpty()) {
+    private ReporteAsistenciaResponse.ResumenGeografico calcularResumenGeografico(AcumuladorFirmas acumulador) {
+        if (acumulador.getTotal() == 0) {
             return ReporteAsistenciaResponse.ResumenGeografico.builder()
                 .promedioDistancia(0.0)
                 .distanciaMinima(0.0)
@@ -1127,28 +1293,11 @@ public class SesionService {
                 .build();
         }
         
-        Double promedioDistancia = detalles.stream()
-            .mapToDouble(SesionDetalleDTO::getDistanciaMetros)
-            .average()
-            .orElse(0.0);
-        
-        Double distanciaMinima = detalles.stream()
-            .mapToDouble(SesionDetalleDTO::getDistanciaMetros)
-            .min()
-            .orElse(0.0);
-        
-        Double distanciaMaxima = detalles.stream()
-            .mapToDouble(SesionDetalleDTO::getDistanciaMetros)
-            .max()
-            .orElse(0.0);
-        
-        Long estudiantesEnRango = detalles.stream()
-            .filter(d -> d.getDistanciaMetros() <= 6.0)
-            .count();
-        
-        Long estudiantesFueraRango = detalles.stream()
-            .filter(d -> d.getDistanciaMetros() > 6.0)
-            .count();
+        Double promedioDistancia = acumulador.getPromedioDistancia();
+        Double distanciaMinima = acumulador.getDistanciaMinima();
+        Double distanciaMaxima = acumulador.getDistanciaMaxima();
+        Long estudiantesEnRango = acumulador.getEnRango();
+        Long estudiantesFueraRango = acumulador.getFueraRango();
         
         String mensajeGeografico = String.format("Distancia promedio: %.1f metros. %d estudiantes en rango, %d fuera de rango", 
             promedioDistancia, estudiantesEnRango, estudiantesFueraRango);
@@ -1181,117 +1330,71 @@ public class SesionService {
         }
     }
     
-    private EstadisticasSesionResponse.AnalisisTemporal calcularAnalisisTemporal(Sesion sesion) {
-        try {
-            List<SesionDetalleDTO> detalles = obtenerAsistenciaSesion(sesion.getId());
-            
-            if (detalles.isEmpty()) {
-                return EstadisticasSesionResponse.AnalisisTemporal.builder()
-                    .primeraFirma(null)
-                    .ultimaFirma(null)
-                    .minutosPrimeraFirma(0L)
-                    .minutosUltimaFirma(0L)
-                    .patronFirmas("Sin firmas registradas")
-                    .recomendacionTemporal("No hay datos temporales disponibles")
-                    .build();
-            }
-            
-            LocalDateTime primeraFirma = detalles.stream()
-                .map(SesionDetalleDTO::getFechaFirma)
-                .min(LocalDateTime::compareTo)
-                .orElse(null);
-            
-            LocalDateTime ultimaFirma = detalles.stream()
-                .map(SesionDetalleDTO::getFechaFirma)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-            
-            Long minutosPrimeraFirma = primeraFirma != null ? 
-                java.time.Duration.between(sesion.getFechaInicio(), primeraFirma).toMinutes() : 0L;
-            
-            Long minutosUltimaFirma = ultimaFirma != null ? 
-                java.time.Duration.between(sesion.getFechaInicio(), ultimaFirma).toMinutes() : 0L;
-            
-            String patronFirmas = determinarPatronFirmas(detalles.size(), minutosPrimeraFirma, minutosUltimaFirma);
-            String recomendacionTemporal = generarRecomendacionTemporal(minutosPrimeraFirma, minutosUltimaFirma);
-            
-            return EstadisticasSesionResponse.AnalisisTemporal.builder()
-                .primeraFirma(primeraFirma)
-                .ultimaFirma(ultimaFirma)
-                .minutosPrimeraFirma(minutosPrimeraFirma)
-                .minutosUltimaFirma(minutosUltimaFirma)
-                .patronFirmas(patronFirmas)
-                .recomendacionTemporal(recomendacionTemporal)
-                .build();
-        } catch (Exception e) {
+    private AcumuladorFirmas obtenerAcumulador(Sesion sesion) {
+        return estadisticasCongeladas.buscar(sesion.getId(), sesion.getEstado())
+            .map(AcumuladorFirmas::desde)
+            .orElseGet(() -> acumularFirmas(sesion));
+    }
+    
+    private AcumuladorFirmas acumular(Sesion sesion, List<SesionDetalle> firmas) {
+        AcumuladorFirmas acumulador = nuevoAcumulador(sesion);
+        firmas.forEach(firma -> acumulador.agregar(firma.getFechaFirma(), firma.getDistanciaMetros(), firma.getEstado(),
+            firma.getLatitudEstudiante(), firma.getLongitudEstudiante()));
+        return acumulador;
+    }
+    
+    private AcumuladorFirmas acumularFirmas(Sesion sesion) {
+        AcumuladorFirmas acumulador = nuevoAcumulador(sesion);
+        try (Stream<Object[]> filas = sesionDetalleRepository.streamDatosFirmaBySesionId(sesion.getId())) {
+            filas.forEach(acumulador::agregar);
+        }
+        return acumulador;
+    }
+    
+    // Las distancias se recalculan por lotes desde la posición actual del profesor (ver AcumuladorFirmas)
+    private AcumuladorFirmas nuevoAcumulador(Sesion sesion) {
+        if (sesion.getLatitudProfesor() == null || sesion.getLongitudProfesor() == null) {
+            return new AcumuladorFirmas();
+        }
+        return new AcumuladorFirmas(sesion.getLatitudProfesor(), sesion.getLongitudProfesor());
+    }
+    
+    private EstadisticasSesionResponse.AnalisisTemporal calcularAnalisisTemporal(Sesion sesion, AcumuladorFirmas acumulador) {
+        if (acumulador.getTotal() == 0) {
             return EstadisticasSesionResponse.AnalisisTemporal.builder()
                 .primeraFirma(null)
                 .ultimaFirma(null)
                 .minutosPrimeraFirma(0L)
                 .minutosUltimaFirma(0L)
-                .patronFirmas("Error al calcular")
-                .recomendacionTemporal("Error en análisis temporal")
+                .patronFirmas("Sin firmas registradas")
+                .recomendacionTemporal("No hay datos temporales disponibles")
                 .build();
         }
+        
+        LocalDateTime primeraFirma = acumulador.getPrimeraFirma();
+        LocalDateTime ultimaFirma = acumulador.getUltimaFirma();
+        
+        Long minutosPrimeraFirma = primeraFirma != null ? 
+            java.time.Duration.between(sesion.getFechaInicio(), primeraFirma).toMinutes() : 0L;
+        
+        Long minutosUltimaFirma = ultimaFirma != null ? 
+            java.time.Duration.between(sesion.getFechaInicio(), ultimaFirma).toMinutes() : 0L;
+        
+        String patronFirmas = determinarPatronFirmas((int) acumulador.getTotal(), minutosPrimeraFirma, minutosUltimaFirma);
+        String recomendacionTemporal = generarRecomendacionTemporal(minutosPrimeraFirma, minutosUltimaFirma);
+        
+        return EstadisticasSesionResponse.AnalisisTemporal.builder()
+            .primeraFirma(primeraFirma)
+            .ultimaFirma(ultimaFirma)
+            .minutosPrimeraFirma(minutosPrimeraFirma)
+            .minutosUltimaFirma(minutosUltimaFirma)
+            .patronFirmas(patronFirmas)
+            .recomendacionTemporal(recomendacionTemporal)
+            .build();
     }
     
-    private EstadisticasSesionResponse.AnalisisGeografico calcularAnalisisGeografico(Long idSesion) {
-        try {
-            List<SesionDetalleDTO> detalles = obtenerAsistenciaSesion(idSesion);
-            
-            if (detalles.isEmpty()) {
-                return EstadisticasSesionResponse.AnalisisGeografico.builder()
-                    .promedioDistancia(0.0)
-                    .distanciaMinima(0.0)
-                    .distanciaMaxima(0.0)
-                    .estudiantesEnRango(0L)
-                    .estudiantesFueraRango(0L)
-                    .porcentajeEnRango(0.0)
-                    .calidadGeografica("Sin datos")
-                    .recomendacionGeografica("No hay datos geográficos disponibles")
-                    .build();
-            }
-            
-            Double promedioDistancia = detalles.stream()
-                .mapToDouble(SesionDetalleDTO::getDistanciaMetros)
-                .average()
-                .orElse(0.0);
-            
-            Double distanciaMinima = detalles.stream()
-                .mapToDouble(SesionDetalleDTO::getDistanciaMetros)
-                .min()
-                .orElse(0.0);
-            
-            Double distanciaMaxima = detalles.stream()
-                .mapToDouble(SesionDetalleDTO::getDistanciaMetros)
-                .max()
-                .orElse(0.0);
-            
-            Long estudiantesEnRango = detalles.stream()
-                .filter(d -> d.getDistanciaMetros() <= 6.0)
-                .count();
-            
-            Long estudiantesFueraRango = detalles.stream()
-                .filter(d -> d.getDistanciaMetros() > 6.0)
-                .count();
-            
-            Double porcentajeEnRango = detalles.size() > 0 ? 
-                (double) estudiantesEnRango / detalles.size() * 100 : 0.0;
-            
-            String calidadGeografica = determinarCalidadGeografica(porcentajeEnRango, promedioDistancia);
-            String recomendacionGeografica = generarRecomendacionGeografica(porcentajeEnRango, promedioDistancia);
-            
-            return EstadisticasSesionResponse.AnalisisGeografico.builder()
-                .promedioDistancia(promedioDistancia)
-                .distanciaMinima(distanciaMinima)
-                .distanciaMaxima(distanciaMaxima)
-                .estudiantesEnRango(estudiantesEnRango)
-                .estudiantesFueraRango(estudiantesFueraRango)
-                .porcentajeEnRango(porcentajeEnRango)
-                .calidadGeografica(calidadGeografica)
-                .recomendacionGeografica(recomendacionGeografica)
-                .build();
-        } catch (Exception e) {
+    private EstadisticasSesionResponse.AnalisisGeografico calcularAnalisisGeografico(AcumuladorFirmas acumulador) {
+        if (acumulador.getTotal() == 0) {
             return EstadisticasSesionResponse.AnalisisGeografico.builder()
                 .promedioDistancia(0.0)
                 .distanciaMinima(0.0)
@@ -1299,10 +1402,27 @@ public class SesionService {
                 .estudiantesEnRango(0L)
                 .estudiantesFueraRango(0L)
                 .porcentajeEnRango(0.0)
-                .calidadGeografica("Error")
-                .recomendacionGeografica("Error en análisis geográfico")
+                .calidadGeografica("Sin datos")
+                .recomendacionGeografica("No hay datos geográficos disponibles")
                 .build();
         }
+        
+        Double promedioDistancia = acumulador.getPromedioDistancia();
+        Double porcentajeEnRango = acumulador.getPorcentajeEnRango();
+        
+        String calidadGeografica = determinarCalidadGeografica(porcentajeEnRango, promedioDistancia);
+        String recomendacionGeografica = generarRecomendacionGeografica(porcentajeEnRango, promedioDistancia);
+        
+        return EstadisticasSesionResponse.AnalisisGeografico.builder()
+            .promedioDistancia(promedioDistancia)
+            .distanciaMinima(acumulador.getDistanciaMinima())
+            .distanciaMaxima(acumulador.getDistanciaMaxima())
+            .estudiantesEnRango(acumulador.getEnRango())
+            .estudiantesFueraRango(acumulador.getFueraRango())
+            .porcentajeEnRango(porcentajeEnRango)
+            .calidadGeografica(calidadGeografica)
+            .recomendacionGeografica(recomendacionGeografica)
+            .build();
     }
     
     private EstadisticasSesionResponse.Recomendaciones generarRecomendaciones(
@@ -1405,21 +1525,24 @@ public class SesionService {
     
     public ValidacionAsistenciaResponse validarAsistencia(Long idSesion, Long idEstudiante) {
         try {
-            // Obtener información de la sesión
-            Sesion sesion = getSesionById(idSesion);
+            // Obtener información de la sesión (desde memoria si está activa)
+            SesionSnapshotDTO sesion = activeSesionRegistry.obtener(idSesion)
+                .orElseThrow(() -> new RuntimeException("Sesión no encontrada"));
             
             // Obtener información del estudiante
             Usuario estudiante = usuarioRepository.findById(idEstudiante)
                 .orElseThrow(() -> new RuntimeException("Estudiante no encontrado"));
             
-            // Verificar inscripción
-            UsuarioCurso inscripcion = usuarioCursoRepository.findByUsuarioIdAndCursoId(idEstudiante, sesion.getCurso().getId());
+            // Verificar inscripción (índice en memoria; la base de datos solo se consulta si no está activa)
+            boolean inscripcionActiva = inscripcionIndex.estaInscrito(sesion.getIdCurso(), idEstudiante);
+            boolean estudianteInscrito = inscripcionActiva ||
+                usuarioCursoRepository.existsByUsuarioIdAndCursoId(idEstudiante, sesion.getIdCurso());
             
             // Verificar si ya firmó
             SesionDetalle detalleExistente = sesionDetalleRepository.findBySesionIdAndEstudianteId(idSesion, idEstudiante);
             
             // Calcular restricciones
-            ValidacionAsistenciaResponse.Restricciones restricciones = calcularRestricciones(sesion, estudiante, inscripcion, detalleExistente);
+            ValidacionAsistenciaResponse.Restricciones restricciones = calcularRestricciones(sesion, estudiante, estudianteInscrito, inscripcionActiva, detalleExistente);
             
             // Determinar si puede firmar
             boolean puedeFirmar = restricciones.getSesionActiva() && 
@@ -1447,7 +1570,7 @@ public class SesionService {
                     .fechaFin(sesion.getFechaFin())
                     .radioProximidad(sesion.getRadioProximidad())
                     .aula(sesion.getAula())
-                    .sesionActiva("ACTIVA".equals(sesion.getEstado()))
+                    .sesionActiva(sesion.isActiva())
                     .sesionDisponible(restricciones.getSesionDisponible())
                     .build())
                 .estudiante(ValidacionAsistenciaResponse.InformacionEstudiante.builder()
@@ -1456,19 +1579,19 @@ public class SesionService {
                     .nombre(estudiante.getNombre())
                     .apellidos(estudiante.getApellido())
                     .correo(estudiante.getCorreo())
-                    .inscritoEnCurso(inscripcion != null)
-                    .inscripcionActiva(inscripcion != null && "ACTIVO".equals(inscripcion.getEstado()))
+                    .inscritoEnCurso(estudianteInscrito)
+                    .inscripcionActiva(inscripcionActiva)
                     .yaFirmo(detalleExistente != null)
                     .fechaUltimaFirma(detalleExistente != null ? detalleExistente.getFechaFirma() : null)
                     .build())
                 .curso(ValidacionAsistenciaResponse.InformacionCurso.builder()
-                    .id(sesion.getCurso().getId())
-                    .codigo(sesion.getCurso().getCodigo())
-                    .nombre(sesion.getCurso().getNombre())
-                    .turno(sesion.getCurso().getTurno())
-                    .seccion(sesion.getCurso().getSeccion())
-                    .periodo(sesion.getCurso().getPeriodo())
-                    .horario(sesion.getCurso().getHorario())
+                    .id(sesion.getIdCurso())
+                    .codigo(sesion.getCursoCodigo())
+                    .nombre(sesion.getCursoNombre())
+                    .turno(sesion.getCursoTurno())
+                    .seccion(sesion.getCursoSeccion())
+                    .periodo(sesion.getCursoPeriodo())
+                    .horario(sesion.getCursoHorario())
                     .build())
                 .restricciones(restricciones)
                 .recomendaciones(recomendaciones)
@@ -1482,13 +1605,11 @@ public class SesionService {
         }
     }
     
-    private ValidacionAsistenciaResponse.Restricciones calcularRestricciones(Sesion sesion, Usuario estudiante, 
-            UsuarioCurso inscripcion, SesionDetalle detalleExistente) {
+    private ValidacionAsistenciaResponse.Restricciones calcularRestricciones(SesionSnapshotDTO sesion, Usuario estudiante, 
+            boolean estudianteInscrito, boolean inscripcionActiva, SesionDetalle detalleExistente) {
         
-        boolean sesionActiva = "ACTIVA".equals(sesion.getEstado());
+        boolean sesionActiva = sesion.isActiva();
         boolean sesionDisponible = sesion.getFechaFin() == null || LocalDateTime.now().isBefore(sesion.getFechaFin());
-        boolean estudianteInscrito = inscripcion != null;
-        boolean inscripcionActiva = inscripcion != null && "ACTIVO".equals(inscripcion.getEstado());
         boolean noHaFirmado = detalleExistente == null;
         boolean dentroHorario = sesion.getFechaInicio() == null || LocalDateTime.now().isAfter(sesion.getFechaInicio());
         boolean coordenadasValidas = true; // Se validará en el momento de firmar (radio de proximidad)
@@ -1515,7 +1636,7 @@ public class SesionService {
     }
     
     private ValidacionAsistenciaResponse.RecomendacionesValidacion generarRecomendacionesValidacion(
-            Sesion sesion, Usuario estudiante, ValidacionAsistenciaResponse.Restricciones restricciones) {
+            SesionSnapshotDTO sesion, Usuario estudiante, ValidacionAsistenciaResponse.Restricciones restricciones) {
         
         String recomendacionGeneral = generarRecomendacionGeneralValidacion(restricciones);
         String recomendacionTiempo = generarRecomendacionTiempoValidacion(sesion);
@@ -1541,7 +1662,7 @@ public class SesionService {
         }
     }
     
-    private String generarRecomendacionTiempoValidacion(Sesion sesion) {
+    private String generarRecomendacionTiempoValidacion(SesionSnapshotDTO sesion) {
         if (sesion.getFechaInicio() != null && LocalDateTime.now().isBefore(sesion.getFechaInicio())) {
             long minutosRestantes = java.time.Duration.between(LocalDateTime.now(), sesion.getFechaInicio()).toMinutes();
             return String.format("La sesión comenzará en %d minutos", minutosRestantes);
@@ -1549,11 +1670,11 @@ public class SesionService {
         return "El horario de la sesión es adecuado para firmar";
     }
     
-    private String generarRecomendacionUbicacionValidacion(Sesion sesion) {
+    private String generarRecomendacionUbicacionValidacion(SesionSnapshotDTO sesion) {
         return String.format("Asegúrate de estar dentro del radio de %.1f metros del aula", sesion.getRadioProximidad());
     }
     
-    private List<String> generarAccionesSugeridasValidacion(Sesion sesion, ValidacionAsistenciaResponse.Restricciones restricciones) {
+    private List<String> generarAccionesSugeridasValidacion(SesionSnapshotDTO sesion, ValidacionAsistenciaResponse.Restricciones restricciones) {
         List<String> acciones = new java.util.ArrayList<>();
         
         if (!restricciones.getSesionActiva()) {
@@ -1576,7 +1697,7 @@ public class SesionService {
         return acciones;
     }
     
-    private String calcularProximaOportunidad(Sesion sesion) {
+    private String calcularProximaOportunidad(SesionSnapshotDTO sesion) {
         if (sesion.getFechaInicio() != null && LocalDateTime.now().isBefore(sesion.getFechaInicio())) {
             return "La sesión comenzará en " + sesion.getFechaInicio().toString();
         }
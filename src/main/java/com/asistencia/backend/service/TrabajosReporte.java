@@ -0,0 +1,285 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.SolicitudReporteRequest;
+import com.asistencia.backend.dto.TrabajoReporteDTO;
+import com.asistencia.backend.util.EscritorExportacion;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reportes largos (exportación de un periodo, Excel de un curso) ejecutados fuera del hilo de la petición.
+ * Los trabajos van a un pool de hilos fijo con una cola acotada; si la cola está llena la solicitud se
+ * rechaza. Una solicitud igual a otra que sigue en cola o en curso recibe ese mismo trabajo. El resultado
+ * se escribe en un archivo del directorio de trabajo (primero como .part y luego se renombra) y se
+ * descarga desde ahí; los trabajos terminados y sus archivos se borran pasados retencionMin minutos.
+ */
+@Component
+public class TrabajosReporte {
+
+    public enum Estado { PENDIENTE, EN_CURSO, COMPLETADO, FALLIDO }
+
+    public enum Tipo { PERIODO, CURSO_EXCEL }
+
+    /**
+     * Archivo terminado de un trabajo, listo para descargar.
+     */
+    public record Descarga(Path archivo, String nombreArchivo, String tipoContenido) {
+    }
+
+    private record Parametros(Tipo tipo, String periodo, Long idCurso, EscritorExportacion.Formato formato, boolean gzip) {
+    }
+
+    private static class Trabajo {
+        private final String id = UUID.randomUUID().toString();
+        private final Parametros parametros;
+        private final String nombreArchivo;
+        private final String tipoContenido;
+        private final LocalDateTime fechaCreacion = LocalDateTime.now();
+        private final AtomicLong filas = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile Estado estado = Estado.PENDIENTE;
+        private volatile Long filasEstimadas;
+        private volatile String error;
+        private volatile LocalDateTime fechaInicio;
+        private volatile LocalDateTime fechaFin;
+
+        private Trabajo(Parametros parametros, String nombreArchivo, String tipoContenido) {
+            this.parametros = parametros;
+            this.nombreArchivo = nombreArchivo;
+            this.tipoContenido = tipoContenido;
+        }
+    }
+
+    private static final String EXTENSION = ".reporte";
+    private static final String EXTENSION_PARCIAL = ".part";
+    private static final String TIPO_XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final ReporteService reporteService;
+    private final Path directorio;
+    private final long retencionMin;
+    private final ThreadPoolExecutor ejecutor;
+    private final Map<String, Trabajo> trabajos = new ConcurrentHashMap<>();
+    private final Map<Parametros, Trabajo> pendientes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService limpieza = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "reportes-limpieza");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    public TrabajosReporte(ReporteService reporteService,
+                           @Value("${asistencia.reportes.jobs.directorio:${java.io.tmpdir}/asistencia-reportes}") String directorio,
+                           @Value("${asistencia.reportes.jobs.hilos:2}") int hilos,
+                           @Value("${asistencia.reportes.jobs.capacidad-cola:20}") int capacidadCola,
+                           @Value("${asistencia.reportes.jobs.retencion-min:60}") long retencionMin) throws IOException {
+        this.reporteService = reporteService;
+        this.directorio = Files.createDirectories(Path.of(directorio));
+        this.retencionMin = retencionMin;
+        this.ejecutor = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capacidadCola), tarea -> {
+                Thread hilo = new Thread(tarea, "reportes-trabajo");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+
+        // Los archivos de una ejecución anterior ya no tienen trabajo que los referencie
+        try (DirectoryStream<Path> restos = Files.newDirectoryStream(this.directorio, "*{" + EXTENSION + "," + EXTENSION_PARCIAL + "}")) {
+            for (Path resto : restos) {
+                Files.deleteIfExists(resto);
+            }
+        }
+        long periodoLimpieza = Math.max(1, Math.min(retencionMin, 5));
+        limpieza.scheduleWithFixedDelay(this::eliminarVencidos, periodoLimpieza, periodoLimpieza, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void detener() {
+        limpieza.shutdownNow();
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Pone en cola el reporte solicitado, o devuelve el trabajo igual que siga en cola o en curso.
+     */
+    public TrabajoReporteDTO encolar(SolicitudReporteRequest solicitud) {
+        Parametros parametros = validar(solicitud);
+        String nombreArchivo = switch (parametros.tipo()) {
+            case PERIODO -> reporteService.nombreArchivoPeriodo(parametros.periodo(), parametros.formato(), parametros.gzip());
+            case CURSO_EXCEL -> reporteService.nombreArchivoExcel(parametros.idCurso());
+        };
+        String tipoContenido = switch (parametros.tipo()) {
+            case PERIODO -> parametros.gzip() ? "application/gzip" : parametros.formato().getTipoContenido() + ";charset=UTF-8";
+            case CURSO_EXCEL -> TIPO_XLSX;
+        };
+
+        synchronized (pendientes) {
+            Trabajo existente = pendientes.get(parametros);
+            if (existente != null) {
+                return aDTO(existente);
+            }
+            Trabajo trabajo = new Trabajo(parametros, nombreArchivo, tipoContenido);
+            trabajos.put(trabajo.id, trabajo);
+            pendientes.put(parametros, trabajo);
+            try {
+                ejecutor.execute(() -> ejecutar(trabajo));
+            } catch (RejectedExecutionException e) {
+                trabajos.remove(trabajo.id);
+                pendientes.remove(parametros);
+                throw new RuntimeException("Hay demasiados reportes en cola, intente más tarde");
+            }
+            return aDTO(trabajo);
+        }
+    }
+
+    public TrabajoReporteDTO getTrabajo(String id) {
+        return aDTO(buscar(id));
+    }
+
+    public Descarga getDescarga(String id) {
+        Trabajo trabajo = buscar(id);
+        if (trabajo.estado != Estado.COMPLETADO) {
+            throw new RuntimeException("El reporte no está listo: " + trabajo.estado);
+        }
+        return new Descarga(archivo(trabajo), trabajo.nombreArchivo, trabajo.tipoContenido);
+    }
+
+    private void ejecutar(Trabajo trabajo) {
+        trabajo.estado = Estado.EN_CURSO;
+        trabajo.fechaInicio = LocalDateTime.now();
+        Parametros parametros = trabajo.parametros;
+        Path parcial = directorio.resolve(trabajo.id + EXTENSION_PARCIAL);
+        try {
+            try (OutputStream salida = contarBytes(new BufferedOutputStream(Files.newOutputStream(parcial), 64 * 1024), trabajo.bytes)) {
+                if (parametros.tipo() == Tipo.PERIODO) {
+                    trabajo.filasEstimadas = reporteService.contarFirmasPeriodo(parametros.periodo());
+                    reporteService.exportarPeriodo(parametros.periodo(), parametros.formato(), parametros.gzip(),
+                        salida, trabajo.filas::set);
+                } else {
+                    reporteService.exportarReporteExcel(parametros.idCurso(), salida);
+                }
+            }
+            Files.move(parcial, archivo(trabajo), StandardCopyOption.ATOMIC_MOVE);
+            trabajo.estado = Estado.COMPLETADO;
+        } catch (Exception e) {
+            borrar(parcial);
+            trabajo.error = e.getMessage();
+            trabajo.estado = Estado.FALLIDO;
+        } finally {
+            pendientes.remove(parametros, trabajo);
+            trabajo.fechaFin = LocalDateTime.now();
+        }
+    }
+
+    void eliminarVencidos() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(retencionMin);
+        trabajos.values().removeIf(trabajo -> {
+            if (trabajo.fechaFin == null || trabajo.fechaFin.isAfter(limite)) {
+                return false;
+            }
+            borrar(archivo(trabajo));
+            return true;
+        });
+    }
+
+    private Parametros validar(SolicitudReporteRequest solicitud) {
+        Tipo tipo;
+        try {
+            tipo = Tipo.valueOf(solicitud.getTipo().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Tipo de reporte no soportado: " + solicitud.getTipo() + ". Use PERIODO o CURSO_EXCEL");
+        }
+        boolean gzip = Boolean.TRUE.equals(solicitud.getGzip());
+        if (tipo == Tipo.PERIODO) {
+            if (solicitud.getPeriodo() == null || solicitud.getPeriodo().isBlank()) {
+                throw new RuntimeException("El periodo es obligatorio");
+            }
+            EscritorExportacion.Formato formato = EscritorExportacion.Formato.desde(
+                solicitud.getFormato() != null ? solicitud.getFormato() : "csv");
+            return new Parametros(tipo, solicitud.getPeriodo(), null, formato, gzip);
+        }
+        if (solicitud.getIdCurso() == null) {
+            throw new RuntimeException("El ID del curso es obligatorio");
+        }
+        return new Parametros(tipo, null, solicitud.getIdCurso(), null, false);
+    }
+
+    private Trabajo buscar(String id) {
+        Trabajo trabajo = trabajos.get(id);
+        if (trabajo == null) {
+            throw new RuntimeException("Reporte no encontrado");
+        }
+        return trabajo;
+    }
+
+    private Path archivo(Trabajo trabajo) {
+        return directorio.resolve(trabajo.id + EXTENSION);
+    }
+
+    private static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            // Se reintenta en la siguiente limpieza del directorio al reiniciar
+        }
+    }
+
+    private static OutputStream contarBytes(OutputStream salida, AtomicLong bytes) {
+        return new FilterOutputStream(salida) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytes.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int inicio, int longitud) throws IOException {
+                out.write(b, inicio, longitud);
+                bytes.addAndGet(longitud);
+            }
+        };
+    }
+
+    private static TrabajoReporteDTO aDTO(Trabajo trabajo) {
+        long filas = trabajo.filas.get();
+        Long estimadas = trabajo.filasEstimadas;
+        Double progreso = switch (trabajo.estado) {
+            case PENDIENTE -> 0.0;
+            case COMPLETADO -> 100.0;
+            default -> estimadas != null && estimadas > 0 ? Math.min(100.0, Math.round(filas * 1000.0 / estimadas) / 10.0) : null;
+        };
+        return TrabajoReporteDTO.builder()
+            .id(trabajo.id)
+            .tipo(trabajo.parametros.tipo().name())
+            .estado(trabajo.estado.name())
+            .filas(filas)
+            .filasEstimadas(estimadas)
+            .progreso(progreso)
+            .bytes(trabajo.bytes.get())
+            .nombreArchivo(trabajo.nombreArchivo)
+            .error(trabajo.error)
+            .fechaCreacion(trabajo.fechaCreacion)
+            .fechaInicio(trabajo.fechaInicio)
+            .fechaFin(trabajo.fechaFin)
+            .build();
+    }
+}
@@ -0,0 +1,307 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.ActualizacionAsistenciaDTO;
+import com.asistencia.backend.dto.SesionSnapshotDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.util.TransaccionUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transmisión en vivo (Server-Sent Events) de las firmas de las sesiones activas.
+ * Cada sesión con suscriptores tiene un único difusor que reúne las firmas confirmadas
+ * (FirmaRegistradaEvent) y las envía agrupadas a todos sus suscriptores, a lo sumo
+ * maxEventosPorSegundo veces por segundo. Los contadores salen de memoria (ContadoresSesion),
+ * así un evento no consulta la base de datos sin importar cuántos suscriptores tenga.
+ * Los envíos a cada suscriptor van en orden por su propia cola, atendida por un hilo de envío:
+ * un cliente lento solo se retrasa a sí mismo, y si acumula más de MAX_PENDIENTES eventos se desconecta.
+ */
+@Component
+public class TransmisionAsistencia {
+
+    private static final long LATIDO_SEGUNDOS = 20;
+    static final int MAX_PENDIENTES = 32;
+
+    private final ActiveSesionRegistry activeSesionRegistry;
+    private final ContadoresSesion contadoresSesion;
+    private final InscripcionIndex inscripcionIndex;
+    private final long intervaloNanos;
+    private final long timeoutMs;
+
+    private final Map<Long, Difusor> difusores = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService programador = Executors.newScheduledThreadPool(2, tarea -> {
+        Thread hilo = new Thread(tarea, "transmision-asistencia");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    // Las escrituras pueden bloquearse con un cliente lento: se hacen fuera del programador
+    private final ExecutorService envios = Executors.newCachedThreadPool(tarea -> {
+        Thread hilo = new Thread(tarea, "transmision-envio");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    public TransmisionAsistencia(ActiveSesionRegistry activeSesionRegistry,
+                                 ContadoresSesion contadoresSesion,
+                                 InscripcionIndex inscripcionIndex,
+                                 @Value("${asistencia.stream.max-eventos-por-segundo:4}") int maxEventosPorSegundo,
+                                 @Value("${asistencia.stream.timeout-ms:3600000}") long timeoutMs) {
+        this.activeSesionRegistry = activeSesionRegistry;
+        this.contadoresSesion = contadoresSesion;
+        this.inscripcionIndex = inscripcionIndex;
+        this.intervaloNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxEventosPorSegundo);
+        this.timeoutMs = timeoutMs;
+        // Los clientes desconectados se detectan al fallar el envío; el latido lo fuerza en sesiones sin firmas
+        programador.scheduleAtFixedRate(this::latido, LATIDO_SEGUNDOS, LATIDO_SEGUNDOS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Suscribe un cliente a la sesión. El primer evento ("estado") trae los contadores actuales;
+     * los siguientes ("firmas"), las firmas nuevas.
+     */
+    public SseEmitter suscribir(Long idSesion) {
+        SseEmitter emisor = new SseEmitter(timeoutMs);
+        suscribir(idSesion, emisor);
+        return emisor;
+    }
+
+    void suscribir(Long idSesion, SseEmitter emisor) {
+        SesionSnapshotDTO sesion = activeSesionRegistry.obtener(idSesion)
+            .orElseThrow(() -> new RuntimeException("Sesión no encontrada"));
+        if (!sesion.isActiva()) {
+            throw new RuntimeException("Solo se puede seguir en vivo una sesión ACTIVA. Estado actual: " + sesion.getEstado());
+        }
+
+        Suscriptor suscriptor = new Suscriptor(idSesion, emisor);
+        emisor.onCompletion(() -> quitar(suscriptor));
+        emisor.onTimeout(() -> quitar(suscriptor));
+        emisor.onError(error -> quitar(suscriptor));
+
+        Difusor difusor = difusores.compute(idSesion, (id, existente) -> {
+            Difusor destino = existente != null ? existente : new Difusor(id, sesion.getIdCurso());
+            destino.suscriptores.add(suscriptor);
+            return destino;
+        });
+        suscriptor.enviar(evento("estado", difusor.construir(List.of())));
+    }
+
+    /**
+     * Termina la transmisión de una sesión cerrada o eliminada (al confirmar): envía las firmas
+     * pendientes, un evento "cerrada" y cierra las conexiones.
+     */
+    public void finalizar(Long idSesion) {
+        TransaccionUtils.alConfirmar(() -> programador.execute(() -> {
+            Difusor difusor = difusores.remove(idSesion);
+            if (difusor != null) {
+                difusor.enviarPendientes();
+                for (Suscriptor suscriptor : difusor.suscriptores) {
+                    suscriptor.enviar(evento("cerrada", idSesion));
+                    suscriptor.cerrar();
+                }
+            }
+        }));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alRegistrarFirma(FirmaRegistradaEvent evento) {
+        Difusor difusor = difusores.get(evento.getIdSesion());
+        if (difusor != null) {
+            difusor.encolar(evento);
+        }
+    }
+
+    int totalDifusores() {
+        return difusores.size();
+    }
+
+    @PreDestroy
+    public void detener() {
+        programador.shutdownNow();
+        envios.shutdownNow();
+        difusores.values().forEach(difusor -> difusor.suscriptores.forEach(suscriptor -> suscriptor.emisor.complete()));
+        difusores.clear();
+    }
+
+    private void quitar(Suscriptor suscriptor) {
+        difusores.computeIfPresent(suscriptor.idSesion, (id, difusor) -> {
+            difusor.suscriptores.remove(suscriptor);
+            return difusor.suscriptores.isEmpty() ? null : difusor;
+        });
+    }
+
+    private static SseEmitter.SseEventBuilder evento(String nombre, Object datos) {
+        return SseEmitter.event().name(nombre).data(datos, MediaType.APPLICATION_JSON);
+    }
+
+    private void latido() {
+        for (Difusor difusor : difusores.values()) {
+            for (Suscriptor suscriptor : difusor.suscriptores) {
+                suscriptor.enviar(SseEmitter.event().comment("latido"));
+            }
+        }
+    }
+
+    /**
+     * Cola de envíos de un cliente. Un solo hilo de envío la atiende a la vez, así los eventos
+     * salen en orden; al cerrar se completa la conexión después del último evento encolado.
+     */
+    private final class Suscriptor {
+        private final Long idSesion;
+        private final SseEmitter emisor;
+        private final Queue<SseEmitter.SseEventBuilder> cola = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger enCola = new AtomicInteger();
+        private final AtomicBoolean atendiendo = new AtomicBoolean();
+        private final AtomicBoolean completado = new AtomicBoolean();
+        private volatile boolean cerrado;
+
+        private Suscriptor(Long idSesion, SseEmitter emisor) {
+            this.idSesion = idSesion;
+            this.emisor = emisor;
+        }
+
+        private void enviar(SseEmitter.SseEventBuilder evento) {
+            if (cerrado) {
+                return;
+            }
+            if (enCola.incrementAndGet() > MAX_PENDIENTES) {
+                // Cliente que no lee: se descartan sus eventos y se desconecta
+                quitar(this);
+                cola.clear();
+                cerrar();
+                return;
+            }
+            cola.add(evento);
+            atender();
+        }
+
+        private void cerrar() {
+            cerrado = true;
+            atender();
+        }
+
+        private void atender() {
+            if (atendiendo.compareAndSet(false, true)) {
+                try {
+                    envios.execute(this::vaciar);
+                } catch (RejectedExecutionException e) {
+                    // Transmisión detenida
+                    atendiendo.set(false);
+                }
+            }
+        }
+
+        private void vaciar() {
+            SseEmitter.SseEventBuilder evento;
+            while ((evento = cola.poll()) != null) {
+                enCola.decrementAndGet();
+                try {
+                    emisor.send(evento);
+                } catch (IOException | IllegalStateException e) {
+                    // Cliente desconectado
+                    quitar(this);
+                    cerrado = true;
+                    cola.clear();
+                }
+            }
+            if (cerrado && completado.compareAndSet(false, true)) {
+                emisor.complete();
+            }
+            atendiendo.set(false);
+            // Un evento o cierre que llegó mientras se terminaba de vaciar
+            if (!cola.isEmpty() || (cerrado && !completado.get())) {
+                atender();
+            }
+        }
+    }
+
+    /**
+     * Difusor de una sesión: acumula las firmas confirmadas y programa un envío cuando llega
+     * la primera, respetando el intervalo mínimo entre envíos.
+     */
+    private final class Difusor {
+        private final Long idSesion;
+        private final Long idCurso;
+        private final List<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+        private final Queue<FirmaRegistradaEvent> pendientes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean programado = new AtomicBoolean();
+        private volatile long ultimoEnvio = System.nanoTime() - intervaloNanos;
+
+        private Difusor(Long idSesion, Long idCurso) {
+            this.idSesion = idSesion;
+            this.idCurso = idCurso;
+        }
+
+        private void encolar(FirmaRegistradaEvent evento) {
+            pendientes.add(evento);
+            if (programado.compareAndSet(false, true)) {
+                long espera = Math.max(0, ultimoEnvio + intervaloNanos - System.nanoTime());
+                programador.schedule(this::enviarPendientes, espera, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void enviarPendientes() {
+            ultimoEnvio = System.nanoTime();
+            // Las firmas que lleguen desde aquí programan el siguiente envío
+            programado.set(false);
+            List<ActualizacionAsistenciaDTO.FirmaNueva> firmas = new ArrayList<>();
+            FirmaRegistradaEvent evento;
+            while ((evento = pendientes.poll()) != null) {
+                firmas.add(ActualizacionAsistenciaDTO.FirmaNueva.builder()
+                    .id(evento.getIdDetalle())
+                    .idEstudiante(evento.getIdEstudiante())
+                    .estado(evento.getEstado().toString())
+                    .fechaFirma(evento.getFechaFirma())
+                    .distanciaMetros(evento.getDistanciaMetros())
+                    .enRango(evento.getDistanciaMetros() != null
+                        && evento.getDistanciaMetros() <= AcumuladorFirmas.RADIO_EN_RANGO)
+                    .build());
+            }
+            if (firmas.isEmpty()) {
+                return;
+            }
+            ActualizacionAsistenciaDTO actualizacion = construir(firmas);
+            for (Suscriptor suscriptor : suscriptores) {
+                suscriptor.enviar(evento("firmas", actualizacion));
+            }
+        }
+
+        private ActualizacionAsistenciaDTO construir(List<ActualizacionAsistenciaDTO.FirmaNueva> firmas) {
+            ContadoresSesion.Conteo conteo = contadoresSesion.obtener(idSesion);
+            long totalInscritos = inscripcionIndex.totalInscritos(idCurso);
+            long presentes = conteo.de(EstadoAsistencia.PRESENTE);
+            return ActualizacionAsistenciaDTO.builder()
+                .idSesion(idSesion)
+                .firmas(firmas)
+                .totalInscritos(totalInscritos)
+                .totalFirmaron(conteo.total())
+                .presentes(presentes)
+                .ausentes(conteo.de(EstadoAsistencia.AUSENTE))
+                .tardios(conteo.de(EstadoAsistencia.TARDIO))
+                .fueraRango(conteo.de(EstadoAsistencia.FUERA_RANGO))
+                .porcentajeAsistencia(totalInscritos > 0 ? (double) presentes / totalInscritos * 100 : 0.0)
+                .build();
+        }
+    }
+}
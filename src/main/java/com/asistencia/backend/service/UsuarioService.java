@@ -16,6 +16,8 @@ import java.util.stream.Collectors;
 public class UsuarioService {
     
     private final UserRepository usuarioRepository;
+    private final VersionesSesion versionesSesion;
+    private final CacheReportes cacheReportes;
     
     public Usuario getUsuarioById(Long id) {
         return usuarioRepository.findById(id)
@@ -50,6 +52,9 @@ public class UsuarioService {
             usuario.setPrograma(request.getPrograma());
         }
         
+        // Los datos del usuario aparecen en el detalle de sus sesiones (profesor) y en los reportes
+        versionesSesion.incrementarGeneral();
+        cacheReportes.invalidarTodo();
         return usuarioRepository.save(usuario);
     }
     
@@ -0,0 +1,55 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.util.TransaccionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión de cada sesión para las consultas condicionales (ETag / If-None-Match).
+ * La versión sube con cada firma, actualización, cierre o eliminación de la sesión; la versión
+ * general sube con los cambios de datos que también aparecen en las respuestas de la sesión
+ * (inscripciones, usuarios, asignaturas). Todo está en memoria: la época de arranque forma
+ * parte de la ETag, así que un reinicio invalida las ETag emitidas antes.
+ */
+@Component
+public class VersionesSesion {
+
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, AtomicLong> versiones = new ConcurrentHashMap<>();
+    private final AtomicLong versionGeneral = new AtomicLong();
+
+    /**
+     * ETag fuerte de la sesión. Debe leerse antes de construir la respuesta: si la sesión cambia
+     * mientras tanto, la respuesta queda con la ETag anterior y la siguiente consulta la recalcula.
+     */
+    public String etag(Long idSesion) {
+        AtomicLong version = versiones.get(idSesion);
+        return "\"" + epoca + "-" + idSesion + "-" + (version != null ? version.get() : 0)
+            + "-" + versionGeneral.get() + "\"";
+    }
+
+    /**
+     * Sube la versión de la sesión al confirmar la transacción en curso.
+     */
+    public void incrementar(Long idSesion) {
+        TransaccionUtils.alConfirmar(() -> versiones.computeIfAbsent(idSesion, id -> new AtomicLong()).incrementAndGet());
+    }
+
+    /**
+     * Sube la versión general al confirmar la transacción en curso (invalida las ETag de todas las sesiones).
+     */
+    public void incrementarGeneral() {
+        TransaccionUtils.alConfirmar(versionGeneral::incrementAndGet);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alRegistrarFirma(FirmaRegistradaEvent evento) {
+        versiones.computeIfAbsent(evento.getIdSesion(), id -> new AtomicLong()).incrementAndGet();
+    }
+}
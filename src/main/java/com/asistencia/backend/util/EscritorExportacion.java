@@ -0,0 +1,162 @@
+package com.asistencia.backend.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Escribe registros planos como CSV o NDJSON (un objeto JSON por línea) directamente sobre un OutputStream.
+ * No guarda filas: cada registro se escribe al agregarlo, así la memoria no depende del número de filas.
+ */
+public class EscritorExportacion implements Closeable {
+
+    public enum Formato {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String tipoContenido;
+        private final String extension;
+
+        Formato(String tipoContenido, String extension) {
+            this.tipoContenido = tipoContenido;
+            this.extension = extension;
+        }
+
+        public String getTipoContenido() {
+            return tipoContenido;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Formato desde(String valor) {
+            try {
+                return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new RuntimeException("Formato de exportación no soportado: " + valor + ". Use csv o ndjson");
+            }
+        }
+    }
+
+    private final Formato formato;
+    private final String[] columnas;
+    private final Writer salida;
+    private long filas;
+
+    public EscritorExportacion(OutputStream destino, Formato formato, String... columnas) throws IOException {
+        this.formato = formato;
+        this.columnas = columnas;
+        this.salida = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), 64 * 1024);
+        if (formato == Formato.CSV) {
+            for (int i = 0; i < columnas.length; i++) {
+                if (i > 0) {
+                    salida.write(',');
+                }
+                escribirCsv(columnas[i]);
+            }
+            salida.write('\n');
+        }
+    }
+
+    /**
+     * Escribe un registro con un valor por columna. Los Number y Boolean se escriben tal cual;
+     * el resto como texto (toString). null queda vacío en CSV y como null en NDJSON.
+     */
+    public void fila(Object[] valores) throws IOException {
+        filas++;
+        if (formato == Formato.CSV) {
+            for (int i = 0; i < columnas.length; i++) {
+                if (i > 0) {
+                    salida.write(',');
+                }
+                Object valor = valores[i];
+                if (valor instanceof Number || valor instanceof Boolean) {
+                    salida.write(valor.toString());
+                } else if (valor != null) {
+                    escribirCsv(valor.toString());
+                }
+            }
+        } else {
+            salida.write('{');
+            for (int i = 0; i < columnas.length; i++) {
+                if (i > 0) {
+                    salida.write(',');
+                }
+                escribirJson(columnas[i]);
+                salida.write(':');
+                Object valor = valores[i];
+                if (valor == null || valor instanceof Double d && !Double.isFinite(d)) {
+                    salida.write("null");
+                } else if (valor instanceof Number || valor instanceof Boolean) {
+                    salida.write(valor.toString());
+                } else {
+                    escribirJson(valor.toString());
+                }
+            }
+            salida.write('}');
+        }
+        salida.write('\n');
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+
+    /**
+     * Vacía el búfer. No cierra el OutputStream de destino.
+     */
+    @Override
+    public void close() throws IOException {
+        salida.flush();
+    }
+
+    // Entre comillas solo si contiene separador, comillas o saltos de línea
+    private void escribirCsv(String texto) throws IOException {
+        boolean comillas = false;
+        for (int i = 0; i < texto.length() && !comillas; i++) {
+            char c = texto.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            salida.write(texto);
+            return;
+        }
+        salida.write('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"') {
+                salida.write('"');
+            }
+            salida.write(c);
+        }
+        salida.write('"');
+    }
+
+    private void escribirJson(String texto) throws IOException {
+        salida.write('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> salida.write("\\\"");
+                case '\\' -> salida.write("\\\\");
+                case '\n' -> salida.write("\\n");
+                case '\r' -> salida.write("\\r");
+                case '\t' -> salida.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        salida.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        salida.write(c);
+                    }
+                }
+            }
+        }
+        salida.write('"');
+    }
+}
@@ -0,0 +1,159 @@
+package com.asistencia.backend.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Escribe un libro XLSX de una sola hoja directamente sobre un OutputStream.
+ * Cada fila se escribe al agregarla (celdas con texto en línea, sin tabla de cadenas compartidas),
+ * así la memoria usada no depende del número de filas. El archivo se comprime (deflate) mientras se escribe.
+ */
+public class EscritorXlsx implements Closeable {
+
+    private static final String CONTENT_TYPES = """
+        <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+        <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">\
+        <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>\
+        <Default Extension="xml" ContentType="application/xml"/>\
+        <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>\
+        <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>\
+        <Override PartName="/xl/styles.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml"/>\
+        </Types>""";
+
+    private static final String RELS = """
+        <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+        <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+        <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>\
+        </Relationships>""";
+
+    private static final String WORKBOOK_RELS = """
+        <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+        <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+        <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>\
+        <Relationship Id="rId2" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles" Target="styles.xml"/>\
+        </Relationships>""";
+
+    private static final String STYLES = """
+        <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+        <styleSheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">\
+        <fonts count="1"><font><sz val="11"/><name val="Calibri"/></font></fonts>\
+        <fills count="2"><fill><patternFill patternType="none"/></fill><fill><patternFill patternType="gray125"/></fill></fills>\
+        <borders count="1"><border><left/><right/><top/><bottom/><diagonal/></border></borders>\
+        <cellStyleXfs count="1"><xf numFmtId="0" fontId="0" fillId="0" borderId="0"/></cellStyleXfs>\
+        <cellXfs count="1"><xf numFmtId="0" fontId="0" fillId="0" borderId="0" xfId="0"/></cellXfs>\
+        </styleSheet>""";
+
+    private final ZipOutputStream zip;
+    private final Writer hoja;
+    private int filas;
+
+    public EscritorXlsx(OutputStream salida, String nombreHoja) throws IOException {
+        zip = new ZipOutputStream(salida, StandardCharsets.UTF_8);
+        zip.setLevel(6);
+        escribirParte("[Content_Types].xml", CONTENT_TYPES);
+        escribirParte("_rels/.rels", RELS);
+        escribirParte("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+        escribirParte("xl/styles.xml", STYLES);
+        escribirParte("xl/workbook.xml", """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" \
+            xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">\
+            <sheets><sheet name="%s" sheetId="1" r:id="rId1"/></sheets></workbook>""".formatted(escapar(nombreHoja)));
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        hoja = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 16 * 1024);
+        hoja.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+    }
+
+    /**
+     * Agrega una fila. Los Number se escriben como números; el resto como texto (null deja la celda vacía).
+     */
+    public void fila(List<?> celdas) throws IOException {
+        filas++;
+        hoja.write("<row r=\"");
+        hoja.write(Integer.toString(filas));
+        hoja.write("\">");
+        for (int columna = 0; columna < celdas.size(); columna++) {
+            Object valor = celdas.get(columna);
+            if (valor == null) {
+                continue;
+            }
+            hoja.write("<c r=\"");
+            escribirColumna(columna);
+            hoja.write(Integer.toString(filas));
+            if (valor instanceof Number numero) {
+                hoja.write("\"><v>");
+                hoja.write(numero.toString());
+                hoja.write("</v></c>");
+            } else {
+                hoja.write("\" t=\"inlineStr\"><is><t>");
+                hoja.write(escapar(valor.toString()));
+                hoja.write("</t></is></c>");
+            }
+        }
+        hoja.write("</row>");
+    }
+
+    public int getFilas() {
+        return filas;
+    }
+
+    /**
+     * Cierra la hoja y termina el archivo. No cierra el OutputStream de destino.
+     */
+    @Override
+    public void close() throws IOException {
+        hoja.write("</sheetData></worksheet>");
+        hoja.flush();
+        zip.closeEntry();
+        zip.finish();
+    }
+
+    private void escribirParte(String nombre, String contenido) throws IOException {
+        zip.putNextEntry(new ZipEntry(nombre));
+        zip.write(contenido.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    // Letras de la columna (0 -> A, 25 -> Z, 26 -> AA)
+    private void escribirColumna(int columna) throws IOException {
+        if (columna >= 26) {
+            escribirColumna(columna / 26 - 1);
+        }
+        hoja.write('A' + columna % 26);
+    }
+
+    private static String escapar(String texto) {
+        StringBuilder resultado = null;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            String reemplazo = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                default -> c < 0x20 && c != '\t' && c != '\n' && c != '\r' ? "" : null;
+            };
+            if (reemplazo != null && resultado == null) {
+                resultado = new StringBuilder(texto.length() + 16).append(texto, 0, i);
+            }
+            if (resultado != null) {
+                if (reemplazo != null) {
+                    resultado.append(reemplazo);
+                } else {
+                    resultado.append(c);
+                }
+            }
+        }
+        return resultado != null ? resultado.toString() : texto;
+    }
+}
@@ -2,7 +2,13 @@ package com.asistencia.backend.util;
 
 public class GeoUtils {
     
+    // Camino vectorial solo si la JVM arrancó con --add-modules jdk.incubator.vector (ver GeoVectorial)
+    private static final boolean VECTORIAL = GeoVectorial.disponible();
+    
     private static final double EARTH_RADIUS = 6371000; // Radio de la Tierra en metros
+    static final double METROS_POR_GRADO = EARTH_RADIUS * Math.PI / 180;
+    // Distancia máxima para la aproximación local; por encima se usa Haversine
+    public static final double DISTANCIA_LOCAL_MAXIMA = 1000;
     
     /**
      * Calcula la distancia entre dos puntos geográficos usando la fórmula de Haversine
@@ -26,4 +32,68 @@ public class GeoUtils {
         
         return EARTH_RADIUS * c;
     }
+    
+    /**
+     * Distancia en metros con la aproximación equirectangular (un coseno, una raíz), para puntos
+     * a menos de DISTANCIA_LOCAL_MAXIMA. Frente a calcularDistancia, por debajo de 1 km el error es
+     * menor que 1 µm en las latitudes de Colombia (-4.3° a 13.5°) y menor que 0,01 mm hasta ±60°.
+     */
+    public static double distanciaLocal(double lat1, double lon1, double lat2, double lon2) {
+        return Math.sqrt(distanciaLocalCuadrada(lat1, lon1, lat2, lon2));
+    }
+    
+    /**
+     * Indica si el segundo punto está a radio metros o menos del primero, comparando distancias al
+     * cuadrado (sin raíz). Para radios mayores que DISTANCIA_LOCAL_MAXIMA usa Haversine.
+     */
+    public static boolean dentroDelRadio(double lat1, double lon1, double lat2, double lon2, double radio) {
+        if (radio > DISTANCIA_LOCAL_MAXIMA) {
+            return calcularDistancia(lat1, lon1, lat2, lon2) <= radio;
+        }
+        return distanciaLocalCuadrada(lat1, lon1, lat2, lon2) <= radio * radio;
+    }
+    
+    /**
+     * Distancias locales por lotes desde un origen: para cada i menor que n, la distancia entre
+     * (latOrigen, lonOrigen) y (latitudes[i], longitudes[i]) en distancias[i] y si está a radio metros
+     * o menos en enRango[i]. Misma fórmula y cota de error que distanciaLocal. Con la API de vectores
+     * disponible procesa varias filas por instrucción y el resto con el ciclo escalar; sin ella, todo es escalar.
+     */
+    public static void distanciasLocales(double latOrigen, double lonOrigen, double[] latitudes, double[] longitudes,
+                                         int n, double radio, double[] distancias, boolean[] enRango) {
+        if (latitudes.length < n || longitudes.length < n || distancias.length < n || enRango.length < n) {
+            throw new IllegalArgumentException("Las columnas de coordenadas y de resultados deben tener al menos n filas");
+        }
+        int inicio = VECTORIAL
+            ? GeoVectorial.distanciasLocales(latOrigen, lonOrigen, latitudes, longitudes, n, radio, distancias, enRango)
+            : 0;
+        distanciasLocalesEscalar(latOrigen, lonOrigen, latitudes, longitudes, inicio, n, radio, distancias, enRango);
+    }
+    
+    static void distanciasLocalesEscalar(double latOrigen, double lonOrigen, double[] latitudes, double[] longitudes,
+                                         int inicio, int fin, double radio, double[] distancias, boolean[] enRango) {
+        double radioCuadrado = radio * radio;
+        for (int i = inicio; i < fin; i++) {
+            double cuadrada = distanciaLocalCuadrada(latOrigen, lonOrigen, latitudes[i], longitudes[i]);
+            distancias[i] = Math.sqrt(cuadrada);
+            enRango[i] = cuadrada <= radioCuadrado;
+        }
+    }
+    
+    static boolean isVectorial() {
+        return VECTORIAL;
+    }
+    
+    private static double distanciaLocalCuadrada(double lat1, double lon1, double lat2, double lon2) {
+        double deltaLon = lon2 - lon1;
+        // Puntos a ambos lados del antimeridiano
+        if (deltaLon > 180) {
+            deltaLon -= 360;
+        } else if (deltaLon < -180) {
+            deltaLon += 360;
+        }
+        double y = (lat2 - lat1) * METROS_POR_GRADO;
+        double x = deltaLon * METROS_POR_GRADO * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        return x * x + y * y;
+    }
 }
@@ -0,0 +1,151 @@
+package com.asistencia.backend.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Camino vectorial de GeoUtils.distanciasLocales con la API de vectores (jdk.incubator.vector).
+ * Las operaciones se resuelven por reflexión al cargar la clase, así que compilar no necesita el módulo;
+ * solo se usa si la JVM arrancó con --add-modules jdk.incubator.vector. Los manejadores son constantes
+ * estáticas para que el compilador JIT los integre y sustituya las operaciones por instrucciones vectoriales.
+ */
+final class GeoVectorial {
+
+    private static final String MODULO = "jdk.incubator.vector";
+    private static final double RADIANES_POR_GRADO = Math.PI / 180;
+
+    private GeoVectorial() {
+    }
+
+    /**
+     * Indica si el módulo está en la JVM y sus operaciones se pudieron resolver.
+     */
+    static boolean disponible() {
+        if (ModuleLayer.boot().findModule(MODULO).isEmpty()) {
+            return false;
+        }
+        try {
+            return Operaciones.ANCHO > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Procesa las filas en bloques del ancho del vector y devuelve la primera fila sin procesar.
+     */
+    static int distanciasLocales(double latOrigen, double lonOrigen, double[] latitudes, double[] longitudes,
+                                 int n, double radio, double[] distancias, boolean[] enRango) {
+        double radioCuadrado = radio * radio;
+        int limite = n - n % Operaciones.ANCHO;
+        int i = 0;
+        try {
+            for (; i < limite; i += Operaciones.ANCHO) {
+                Object latitud = (Object) Operaciones.DESDE_ARREGLO.invokeExact(latitudes, i);
+                Object deltaLon = (Object) Operaciones.RESTAR_ESCALAR.invokeExact(
+                    (Object) Operaciones.DESDE_ARREGLO.invokeExact(longitudes, i), lonOrigen);
+                // Puntos a ambos lados del antimeridiano
+                deltaLon = (Object) Operaciones.RESTAR_DONDE.invokeExact(deltaLon, 360.0,
+                    (Object) Operaciones.MAYOR_QUE.invokeExact(deltaLon, 180.0));
+                deltaLon = (Object) Operaciones.SUMAR_DONDE.invokeExact(deltaLon, 360.0,
+                    (Object) Operaciones.MENOR_QUE.invokeExact(deltaLon, -180.0));
+
+                Object y = (Object) Operaciones.MULTIPLICAR_ESCALAR.invokeExact(
+                    (Object) Operaciones.RESTAR_ESCALAR.invokeExact(latitud, latOrigen), GeoUtils.METROS_POR_GRADO);
+                Object coseno = (Object) Operaciones.COSENO.invokeExact((Object) Operaciones.MULTIPLICAR_ESCALAR.invokeExact(
+                    (Object) Operaciones.SUMAR_ESCALAR.invokeExact(latitud, latOrigen), RADIANES_POR_GRADO / 2));
+                Object x = (Object) Operaciones.MULTIPLICAR.invokeExact(
+                    (Object) Operaciones.MULTIPLICAR_ESCALAR.invokeExact(deltaLon, GeoUtils.METROS_POR_GRADO), coseno);
+                Object cuadrada = (Object) Operaciones.SUMAR.invokeExact(
+                    (Object) Operaciones.MULTIPLICAR.invokeExact(x, x), (Object) Operaciones.MULTIPLICAR.invokeExact(y, y));
+
+                Operaciones.A_ARREGLO.invokeExact((Object) Operaciones.RAIZ.invokeExact(cuadrada), distancias, i);
+                Operaciones.MASCARA_A_ARREGLO.invokeExact(
+                    (Object) Operaciones.MENOR_O_IGUAL.invokeExact(cuadrada, radioCuadrado), enRango, i);
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException("No se pudo ejecutar el cálculo vectorial de distancias", e);
+        }
+        return i;
+    }
+
+    /**
+     * Operaciones de DoubleVector y VectorMask adaptadas a Object, resueltas una vez. Se carga aparte para
+     * que GeoVectorial no toque el módulo cuando no está presente.
+     */
+    private static final class Operaciones {
+
+        static final int ANCHO;
+        static final MethodHandle DESDE_ARREGLO;
+        static final MethodHandle SUMAR;
+        static final MethodHandle MULTIPLICAR;
+        static final MethodHandle SUMAR_ESCALAR;
+        static final MethodHandle RESTAR_ESCALAR;
+        static final MethodHandle MULTIPLICAR_ESCALAR;
+        static final MethodHandle SUMAR_DONDE;
+        static final MethodHandle RESTAR_DONDE;
+        static final MethodHandle COSENO;
+        static final MethodHandle RAIZ;
+        static final MethodHandle MAYOR_QUE;
+        static final MethodHandle MENOR_QUE;
+        static final MethodHandle MENOR_O_IGUAL;
+        static final MethodHandle A_ARREGLO;
+        static final MethodHandle MASCARA_A_ARREGLO;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                Class<?> vector = Class.forName(MODULO + ".DoubleVector");
+                Class<?> vectorGenerico = Class.forName(MODULO + ".Vector");
+                Class<?> especie = Class.forName(MODULO + ".VectorSpecies");
+                Class<?> mascara = Class.forName(MODULO + ".VectorMask");
+                Class<?> operadores = Class.forName(MODULO + ".VectorOperators");
+                Class<?> unario = Class.forName(MODULO + ".VectorOperators$Unary");
+                Class<?> comparacion = Class.forName(MODULO + ".VectorOperators$Comparison");
+
+                Object preferida = vector.getField("SPECIES_PREFERRED").get(null);
+                ANCHO = (int) especie.getMethod("length").invoke(preferida);
+
+                DESDE_ARREGLO = MethodHandles.insertArguments(lookup.findStatic(vector, "fromArray",
+                        MethodType.methodType(vector, especie, double[].class, int.class)), 0, preferida)
+                    .asType(MethodType.methodType(Object.class, double[].class, int.class));
+
+                MethodType binaria = MethodType.methodType(Object.class, Object.class, Object.class);
+                SUMAR = lookup.findVirtual(vector, "add", MethodType.methodType(vector, vectorGenerico)).asType(binaria);
+                MULTIPLICAR = lookup.findVirtual(vector, "mul", MethodType.methodType(vector, vectorGenerico)).asType(binaria);
+
+                MethodType conEscalar = MethodType.methodType(Object.class, Object.class, double.class);
+                MethodType escalar = MethodType.methodType(vector, double.class);
+                SUMAR_ESCALAR = lookup.findVirtual(vector, "add", escalar).asType(conEscalar);
+                RESTAR_ESCALAR = lookup.findVirtual(vector, "sub", escalar).asType(conEscalar);
+                MULTIPLICAR_ESCALAR = lookup.findVirtual(vector, "mul", escalar).asType(conEscalar);
+
+                MethodType enmascarada = MethodType.methodType(Object.class, Object.class, double.class, Object.class);
+                MethodType escalarDonde = MethodType.methodType(vector, double.class, mascara);
+                SUMAR_DONDE = lookup.findVirtual(vector, "add", escalarDonde).asType(enmascarada);
+                RESTAR_DONDE = lookup.findVirtual(vector, "sub", escalarDonde).asType(enmascarada);
+
+                MethodHandle lanewise = lookup.findVirtual(vector, "lanewise", MethodType.methodType(vector, unario));
+                MethodType unaria = MethodType.methodType(Object.class, Object.class);
+                COSENO = MethodHandles.insertArguments(lanewise, 1, operadores.getField("COS").get(null)).asType(unaria);
+                RAIZ = MethodHandles.insertArguments(lanewise, 1, operadores.getField("SQRT").get(null)).asType(unaria);
+
+                MethodHandle comparar = lookup.findVirtual(vector, "compare",
+                    MethodType.methodType(mascara, comparacion, double.class));
+                MAYOR_QUE = MethodHandles.insertArguments(comparar, 1, operadores.getField("GT").get(null)).asType(conEscalar);
+                MENOR_QUE = MethodHandles.insertArguments(comparar, 1, operadores.getField("LT").get(null)).asType(conEscalar);
+                MENOR_O_IGUAL = MethodHandles.insertArguments(comparar, 1, operadores.getField("LE").get(null)).asType(conEscalar);
+
+                A_ARREGLO = lookup.findVirtual(vector, "intoArray",
+                        MethodType.methodType(void.class, double[].class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double[].class, int.class));
+                MASCARA_A_ARREGLO = lookup.findVirtual(mascara, "intoArray",
+                        MethodType.methodType(void.class, boolean[].class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, boolean[].class, int.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("No se pudo cargar la API de vectores", e);
+            }
+        }
+    }
+}
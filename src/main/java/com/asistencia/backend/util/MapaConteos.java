@@ -0,0 +1,109 @@
+package com.asistencia.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Contadores por clave long en arreglos primitivos (direccionamiento abierto con sondeo lineal),
+ * sin cajas Long/Integer ni un objeto por entrada: con millones de claves ocupa unos 12 bytes
+ * por ranura. No es seguro entre hilos. La clave Long.MIN_VALUE está reservada para las ranuras vacías.
+ */
+public final class MapaConteos {
+
+    private static final long VACIA = Long.MIN_VALUE;
+    private static final int CAPACIDAD_MINIMA = 16;
+
+    private long[] claves;
+    private int[] conteos;
+    private int tamano;
+    // Se duplica al superar la mitad de las ranuras ocupadas
+    private int limite;
+
+    public MapaConteos(int capacidadEsperada) {
+        int capacidad = Integer.highestOneBit(Math.max(CAPACIDAD_MINIMA, capacidadEsperada * 2 - 1)) << 1;
+        reservar(capacidad);
+    }
+
+    /**
+     * Suma cantidad al conteo de la clave y devuelve el nuevo valor.
+     */
+    public int sumar(long clave, int cantidad) {
+        if (clave == VACIA) {
+            throw new IllegalArgumentException("Clave reservada: " + clave);
+        }
+        int ranura = ranura(clave);
+        if (claves[ranura] == VACIA) {
+            claves[ranura] = clave;
+            conteos[ranura] = cantidad;
+            if (++tamano > limite) {
+                crecer();
+            }
+            return cantidad;
+        }
+        return conteos[ranura] += cantidad;
+    }
+
+    public int obtener(long clave) {
+        int ranura = ranura(clave);
+        return claves[ranura] == clave ? conteos[ranura] : 0;
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Recorre las entradas en un orden sin especificar.
+     */
+    public void recorrer(Consumidor consumidor) {
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != VACIA) {
+                consumidor.aceptar(claves[i], conteos[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Consumidor {
+        void aceptar(long clave, int conteo);
+    }
+
+    // Ranura de la clave, o la primera vacía de su secuencia de sondeo
+    private int ranura(long clave) {
+        int mascara = claves.length - 1;
+        int ranura = mezclar(clave) & mascara;
+        while (claves[ranura] != VACIA && claves[ranura] != clave) {
+            ranura = (ranura + 1) & mascara;
+        }
+        return ranura;
+    }
+
+    // Mezcla de bits (finalizador de MurmurHash3) para que las claves consecutivas no se agrupen
+    private static int mezclar(long clave) {
+        clave ^= clave >>> 33;
+        clave *= 0xff51afd7ed558ccdL;
+        clave ^= clave >>> 33;
+        clave *= 0xc4ceb9fe1a85ec53L;
+        clave ^= clave >>> 33;
+        return (int) clave;
+    }
+
+    private void crecer() {
+        long[] clavesAnteriores = claves;
+        int[] conteosAnteriores = conteos;
+        reservar(clavesAnteriores.length * 2);
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            if (clavesAnteriores[i] != VACIA) {
+                int ranura = ranura(clavesAnteriores[i]);
+                claves[ranura] = clavesAnteriores[i];
+                conteos[ranura] = conteosAnteriores[i];
+            }
+        }
+    }
+
+    private void reservar(int capacidad) {
+        claves = new long[capacidad];
+        Arrays.fill(claves, VACIA);
+        conteos = new int[capacidad];
+        limite = capacidad / 2;
+    }
+}
@@ -0,0 +1,97 @@
+package com.asistencia.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Polígono inmutable en coordenadas geográficas (grados) para las geocercas de las aulas.
+ * contiene descarta primero con el rectángulo envolvente (cuatro comparaciones) y solo si el punto
+ * cae dentro hace la prueba de paridad de cruces sobre los lados. A la escala de un aula el plano
+ * latitud/longitud basta; no se admiten polígonos que crucen el antimeridiano. Un punto justo
+ * sobre un lado puede quedar dentro o fuera.
+ */
+public final class Poligono {
+
+    private static final int MINIMO_VERTICES = 3;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double latitudMinima;
+    private final double latitudMaxima;
+    private final double longitudMinima;
+    private final double longitudMaxima;
+
+    public Poligono(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Cada vértice debe tener latitud y longitud");
+        }
+        if (latitudes.length < MINIMO_VERTICES) {
+            throw new IllegalArgumentException("La geocerca debe tener al menos " + MINIMO_VERTICES + " vértices");
+        }
+        this.latitudes = latitudes.clone();
+        this.longitudes = longitudes.clone();
+        this.latitudMinima = Arrays.stream(latitudes).min().getAsDouble();
+        this.latitudMaxima = Arrays.stream(latitudes).max().getAsDouble();
+        this.longitudMinima = Arrays.stream(longitudes).min().getAsDouble();
+        this.longitudMaxima = Arrays.stream(longitudes).max().getAsDouble();
+        if (latitudMinima < -90 || latitudMaxima > 90 || longitudMinima < -180 || longitudMaxima > 180) {
+            throw new IllegalArgumentException("Las coordenadas de la geocerca están fuera de rango");
+        }
+    }
+
+    /**
+     * Lee el formato de texto guardado en la base de datos: "lat,lon;lat,lon;...".
+     */
+    public static Poligono desdeTexto(String texto) {
+        String[] puntos = texto.split(";");
+        double[] latitudes = new double[puntos.length];
+        double[] longitudes = new double[puntos.length];
+        for (int i = 0; i < puntos.length; i++) {
+            String[] coordenadas = puntos[i].split(",");
+            if (coordenadas.length != 2) {
+                throw new IllegalArgumentException("Vértice inválido: " + puntos[i]);
+            }
+            latitudes[i] = Double.parseDouble(coordenadas[0].trim());
+            longitudes[i] = Double.parseDouble(coordenadas[1].trim());
+        }
+        return new Poligono(latitudes, longitudes);
+    }
+
+    public String aTexto() {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < latitudes.length; i++) {
+            if (i > 0) {
+                texto.append(';');
+            }
+            texto.append(latitudes[i]).append(',').append(longitudes[i]);
+        }
+        return texto.toString();
+    }
+
+    public boolean contiene(double latitud, double longitud) {
+        if (latitud < latitudMinima || latitud > latitudMaxima || longitud < longitudMinima || longitud > longitudMaxima) {
+            return false;
+        }
+        boolean dentro = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+            // El lado (j, i) cruza la horizontal del punto a su derecha
+            if ((latitudes[i] > latitud) != (latitudes[j] > latitud)
+                    && longitud < (longitudes[j] - longitudes[i]) * (latitud - latitudes[i])
+                        / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                dentro = !dentro;
+            }
+        }
+        return dentro;
+    }
+
+    public int getVertices() {
+        return latitudes.length;
+    }
+
+    public double getLatitud(int vertice) {
+        return latitudes[vertice];
+    }
+
+    public double getLongitud(int vertice) {
+        return longitudes[vertice];
+    }
+}
@@ -0,0 +1,25 @@
+package com.asistencia.backend.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransaccionUtils {
+    
+    /**
+     * Ejecuta la acción cuando la transacción actual se confirme.
+     * Si no hay transacción activa, la ejecuta de inmediato.
+     * @param accion Acción a ejecutar (por ejemplo, actualizar una estructura en memoria)
+     */
+    public static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
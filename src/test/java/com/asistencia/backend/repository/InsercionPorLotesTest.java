@@ -0,0 +1,120 @@
+package com.asistencia.backend.repository;
+
+import com.asistencia.backend.Config.AuditorAwareImpl;
+import com.asistencia.backend.model.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifica que las inscripciones y firmas en bloque salgan como lotes JDBC: sin batching habría
+ * un PreparedStatement por fila; con batching hay uno por lote más las llamadas a la secuencia.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(AuditorAwareImpl.class)
+class InsercionPorLotesTest {
+
+    private static final int FILAS = 120;
+    // 3 lotes de INSERT (batch_size = 50) + 3 o 4 llamadas a la secuencia (allocationSize = 50),
+    // con margen; sin batching serían al menos FILAS
+    private static final int SENTENCIAS_MAXIMAS = 10;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private UsuarioCursoRepository usuarioCursoRepository;
+    @Autowired
+    private SesionDetalleRepository sesionDetalleRepository;
+
+    private Curso curso;
+    private Sesion sesion;
+    private final List<Usuario> estudiantes = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        Usuario profesor = usuario("profesor");
+        Asignatura asignatura = Asignatura.builder().codigo("PRG1").nombre("Programación I").descripcion("Programación I").build();
+        entityManager.persist(asignatura);
+        curso = Curso.builder().codigo("603D12025B").descripcion("Programación I - Diurna")
+            .asignatura(asignatura).profesor(profesor).build();
+        entityManager.persist(curso);
+        sesion = Sesion.builder().curso(curso).profesor(profesor).nombre("Clase 1")
+            .latitudProfesor(7.0653).longitudProfesor(-73.8547).fechaInicio(LocalDateTime.now()).build();
+        entityManager.persist(sesion);
+        for (int i = 0; i < FILAS; i++) {
+            estudiantes.add(usuario("estudiante" + i));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas().clear();
+    }
+
+    @Test
+    void inscripcionEnBloqueSaleEnLotes() {
+        List<UsuarioCurso> inscripciones = estudiantes.stream()
+            .map(estudiante -> UsuarioCurso.builder()
+                .usuario(entityManager.getReference(Usuario.class, estudiante.getId()))
+                .curso(entityManager.getReference(Curso.class, curso.getId()))
+                .estado("ACTIVO")
+                .build())
+            .toList();
+
+        usuarioCursoRepository.saveAll(inscripciones);
+        usuarioCursoRepository.flush();
+
+        assertEquals(FILAS, estadisticas().getEntityInsertCount());
+        assertTrue(estadisticas().getPrepareStatementCount() <= SENTENCIAS_MAXIMAS,
+            "Sentencias preparadas: " + estadisticas().getPrepareStatementCount());
+    }
+
+    @Test
+    void firmasEnBloqueSalenEnLotes() {
+        List<SesionDetalle> firmas = estudiantes.stream()
+            .map(estudiante -> SesionDetalle.builder()
+                .sesion(entityManager.getReference(Sesion.class, sesion.getId()))
+                .estudiante(entityManager.getReference(Usuario.class, estudiante.getId()))
+                .fechaFirma(LocalDateTime.now())
+                .estado(EstadoAsistencia.PRESENTE)
+                .latitudEstudiante(7.0653)
+                .longitudEstudiante(-73.8547)
+                .distanciaMetros(1.0)
+                .build())
+            .toList();
+
+        sesionDetalleRepository.saveAll(firmas);
+        sesionDetalleRepository.flush();
+
+        assertEquals(FILAS, estadisticas().getEntityInsertCount());
+        assertTrue(estadisticas().getPrepareStatementCount() <= SENTENCIAS_MAXIMAS,
+            "Sentencias preparadas: " + estadisticas().getPrepareStatementCount());
+    }
+
+    private Usuario usuario(String nombre) {
+        Usuario usuario = Usuario.builder().nombre(nombre).correo(nombre + "@unipaz.edu.co")
+            .identificacion(String.valueOf(Math.abs(nombre.hashCode()))).build();
+        entityManager.persist(usuario);
+        return usuario;
+    }
+
+    private Statistics estadisticas() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
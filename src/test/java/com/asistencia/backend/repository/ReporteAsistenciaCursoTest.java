@@ -0,0 +1,169 @@
+package com.asistencia.backend.repository;
+
+import com.asistencia.backend.Config.AuditorAwareImpl;
+import com.asistencia.backend.model.*;
+import com.asistencia.backend.service.CacheReportes;
+import com.asistencia.backend.service.CuboAsistencia;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El reporte de asistencia de un curso sale de una sola consulta agrupada sobre la tabla de hechos:
+ * estudiantes activos con sus presentes contados solo en los días del rango.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "asistencia.cubo.intervalo-ms=0"
+})
+@Import({AuditorAwareImpl.class, CuboAsistencia.class, CacheReportes.class})
+class ReporteAsistenciaCursoTest {
+
+    private static final int ESTUDIANTES = 200;
+    private static final int SESIONES_EN_RANGO = 8;
+    private static final int SESIONES_FUERA_DE_RANGO = 2;
+    private static final LocalDate INICIO = LocalDate.of(2025, 2, 1);
+    private static final LocalDate FIN = LocalDate.of(2025, 6, 30);
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private HechoAsistenciaRepository hechoAsistenciaRepository;
+    @Autowired
+    private SesionRepository sesionRepository;
+    @Autowired
+    private CuboAsistencia cuboAsistencia;
+
+    private Curso curso;
+    private Usuario profesor;
+
+    @BeforeEach
+    void preparar() {
+        profesor = usuario("profesor");
+        Asignatura asignatura = Asignatura.builder().codigo("PRG1").nombre("Programación I").descripcion("Programación I").build();
+        entityManager.persist(asignatura);
+        curso = Curso.builder().codigo("603D12025B").descripcion("Programación I - Diurna")
+            .asignatura(asignatura).profesor(profesor).build();
+        entityManager.persist(curso);
+
+        List<Sesion> enRango = new ArrayList<>();
+        List<Sesion> fueraDeRango = new ArrayList<>();
+        for (int j = 0; j < SESIONES_EN_RANGO; j++) {
+            enRango.add(sesion(profesor, INICIO.plusWeeks(j + 1).atTime(8, 0)));
+        }
+        fueraDeRango.add(sesion(profesor, INICIO.minusWeeks(2).atTime(8, 0)));
+        fueraDeRango.add(sesion(profesor, FIN.plusWeeks(2).atTime(8, 0)));
+
+        for (int i = 0; i < ESTUDIANTES; i++) {
+            Usuario estudiante = usuario("estudiante" + i);
+            entityManager.persist(UsuarioCurso.builder().usuario(estudiante).curso(curso).estado("ACTIVO").build());
+            // Presente en las sesiones pares del rango, tardío en la 1 y presente en todas las de fuera
+            for (int j = 0; j < enRango.size(); j += 2) {
+                entityManager.persist(firma(enRango.get(j), estudiante, EstadoAsistencia.PRESENTE));
+            }
+            entityManager.persist(firma(enRango.get(1), estudiante, EstadoAsistencia.TARDIO));
+            for (Sesion sesion : fueraDeRango) {
+                entityManager.persist(firma(sesion, estudiante, EstadoAsistencia.PRESENTE));
+            }
+        }
+        Usuario retirado = usuario("retirado");
+        entityManager.persist(UsuarioCurso.builder().usuario(retirado).curso(curso).estado("INACTIVO").build());
+        entityManager.flush();
+
+        cuboAsistencia.reconstruirCurso(curso.getId());
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas().clear();
+    }
+
+    @Test
+    void cuentaSoloLosDiasDelRangoEnUnaConsulta() {
+        List<Object[]> filas = hechoAsistenciaRepository.reporteCurso(curso.getId(), EstadoAsistencia.PRESENTE, INICIO, FIN);
+
+        assertEquals(1, estadisticas().getPrepareStatementCount());
+        assertEquals(ESTUDIANTES, filas.size());
+        for (Object[] fila : filas) {
+            assertEquals(SESIONES_EN_RANGO / 2, ((Number) fila[3]).longValue());
+        }
+    }
+
+    @Test
+    void sinFechasCuentaTodosLosDias() {
+        List<Object[]> filas = hechoAsistenciaRepository.reporteCurso(curso.getId(), EstadoAsistencia.PRESENTE, null, null);
+
+        assertEquals(SESIONES_EN_RANGO / 2 + SESIONES_FUERA_DE_RANGO, ((Number) filas.get(0)[3]).longValue());
+    }
+
+    /**
+     * Las sesiones se cuentan por el día en que empiezan, con los dos extremos del rango incluidos,
+     * igual que los días de la tabla de hechos.
+     */
+    @Test
+    void lasSesionesDeLosDiasExtremosEntranEnElRango() {
+        sesion(profesor, INICIO.atStartOfDay());
+        sesion(profesor, FIN.atTime(23, 59, 59, 999_000_000));
+        sesion(profesor, INICIO.minusDays(1).atTime(23, 59, 59));
+        sesion(profesor, FIN.plusDays(1).atStartOfDay());
+        entityManager.flush();
+
+        assertEquals(SESIONES_EN_RANGO + 2, sesionRepository.countByCursoIdAndDiaInicioEntre(curso.getId(), INICIO, FIN));
+        assertEquals(1, sesionRepository.countByCursoIdAndDiaInicioEntre(curso.getId(), FIN, FIN));
+        assertEquals(SESIONES_EN_RANGO + SESIONES_FUERA_DE_RANGO + 4,
+            sesionRepository.countByCursoIdAndDiaInicioEntre(curso.getId(), null, null));
+    }
+
+    @Test
+    void reconstruirDeNuevoDaLosMismosHechos() {
+        long hechos = hechoAsistenciaRepository.count();
+
+        assertEquals(hechos, cuboAsistencia.reconstruirCurso(curso.getId()));
+        assertEquals(hechos, hechoAsistenciaRepository.count());
+    }
+
+    private Sesion sesion(Usuario profesor, LocalDateTime fechaInicio) {
+        Sesion sesion = Sesion.builder().curso(curso).profesor(profesor).nombre("Clase")
+            .latitudProfesor(7.0653).longitudProfesor(-73.8547).fechaInicio(fechaInicio).build();
+        entityManager.persist(sesion);
+        return sesion;
+    }
+
+    private SesionDetalle firma(Sesion sesion, Usuario estudiante, EstadoAsistencia estado) {
+        return SesionDetalle.builder()
+            .sesion(sesion)
+            .estudiante(estudiante)
+            .fechaFirma(sesion.getFechaInicio().plusMinutes(5))
+            .estado(estado)
+            .latitudEstudiante(7.0653)
+            .longitudEstudiante(-73.8547)
+            .distanciaMetros(1.0)
+            .build();
+    }
+
+    private Usuario usuario(String nombre) {
+        Usuario usuario = Usuario.builder().nombre(nombre).correo(nombre + "@unipaz.edu.co")
+            .identificacion(String.valueOf(Math.abs(nombre.hashCode()))).build();
+        entityManager.persist(usuario);
+        return usuario;
+    }
+
+    private Statistics estadisticas() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,112 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.model.Curso;
+import com.asistencia.backend.model.Sesion;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.repository.SesionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ActiveSesionRegistryTest {
+
+    private final SesionRepository sesionRepository = mock(SesionRepository.class);
+    private final SesionDetalleRepository sesionDetalleRepository = mock(SesionDetalleRepository.class);
+    private final ActiveSesionRegistry registro = new ActiveSesionRegistry(sesionRepository, sesionDetalleRepository);
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void elRetiroConfirmadoNoQuedaEnMemoria() {
+        when(sesionRepository.findByIdConCurso(1L)).thenReturn(Optional.of(sesionActiva(1L)));
+        assertTrue(registro.obtener(1L).isPresent());
+
+        retirarYTerminar(1L, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertTrue(registro.buscar(1L).isEmpty());
+        assertEquals(0, registro.totalRetiradas());
+    }
+
+    @Test
+    void elRetiroRevertidoPermiteVolverARegistrar() {
+        when(sesionRepository.findByIdConCurso(1L)).thenReturn(Optional.of(sesionActiva(1L)));
+
+        retirarYTerminar(1L, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(0, registro.totalRetiradas());
+        registro.obtener(1L);
+        assertTrue(registro.buscar(1L).isPresent());
+    }
+
+    /**
+     * Una lectura que trae la fila todavía ACTIVA y termina después de confirmado el cierre no debe
+     * volver a registrar la sesión, aunque ya no figure entre las retiradas.
+     */
+    @Test
+    void unaLecturaAnteriorAlCommitNoVuelveARegistrarLaSesion() {
+        when(sesionRepository.findByIdConCurso(1L)).thenAnswer(invocacion -> {
+            Sesion leida = sesionActiva(1L);
+            // El cierre se confirma mientras la consulta está en curso
+            registro.retirar(1L);
+            return Optional.of(leida);
+        });
+
+        assertTrue(registro.obtener(1L).isPresent());
+
+        assertTrue(registro.buscar(1L).isEmpty());
+        assertEquals(0, registro.totalRetiradas());
+    }
+
+    /**
+     * Los firmantes se guardan por id y no por posición de bit: un id mayor que un int se marca
+     * sin desbordar ni reservar memoria en proporción al id.
+     */
+    @Test
+    void marcaFirmasConIdsMayoresQueUnEntero() {
+        long grande = Integer.MAX_VALUE + 10L;
+        when(sesionRepository.findByIdConCurso(1L)).thenReturn(Optional.of(sesionActiva(1L)));
+        when(sesionDetalleRepository.findEstudianteIdsBySesionId(1L)).thenReturn(List.of(Long.MAX_VALUE, 3L));
+        registro.obtener(1L);
+
+        assertTrue(registro.haFirmado(1L, Long.MAX_VALUE));
+        assertTrue(registro.marcarFirma(1L, grande));
+        assertFalse(registro.marcarFirma(1L, grande));
+        assertTrue(registro.haFirmado(1L, grande));
+        assertFalse(registro.haFirmado(1L, grande + 1));
+
+        registro.desmarcarFirma(1L, grande);
+        assertFalse(registro.haFirmado(1L, grande));
+        assertTrue(registro.haFirmado(1L, 3L));
+        assertTrue(registro.haFirmado(1L, Long.MAX_VALUE));
+    }
+
+    private void retirarYTerminar(Long idSesion, int estado) {
+        TransactionSynchronizationManager.initSynchronization();
+        registro.retirar(idSesion);
+        assertEquals(1, registro.totalRetiradas());
+        TransactionSynchronizationManager.getSynchronizations().forEach(sincronizacion -> sincronizacion.afterCompletion(estado));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static Sesion sesionActiva(Long id) {
+        return Sesion.builder()
+            .id(id)
+            .estado("ACTIVA")
+            .fechaInicio(LocalDateTime.now())
+            .curso(Curso.builder().id(10L).build())
+            .build();
+    }
+}
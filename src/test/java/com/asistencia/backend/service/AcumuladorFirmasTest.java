@@ -0,0 +1,231 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.SesionDetalleDTO;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.util.GeoUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AcumuladorFirmasTest {
+
+    private static final int ESTUDIANTES = 300;
+    private static final int REPETICIONES = 20_000;
+    private static final double LAT_PROFESOR = 7.0653;
+    private static final double LON_PROFESOR = -73.8547;
+
+    @Test
+    void calculaLasCifrasEnUnaPasada() {
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 3, 8, 0);
+        AcumuladorFirmas acumulador = new AcumuladorFirmas();
+        acumulador.agregar(inicio.plusMinutes(12), 8.0, EstadoAsistencia.FUERA_RANGO);
+        acumulador.agregar(inicio.plusMinutes(2), 1.0, EstadoAsistencia.PRESENTE);
+        acumulador.agregar(inicio.plusMinutes(20), 3.0, EstadoAsistencia.TARDIO);
+
+        assertEquals(3, acumulador.getTotal());
+        assertEquals(inicio.plusMinutes(2), acumulador.getPrimeraFirma());
+        assertEquals(inicio.plusMinutes(20), acumulador.getUltimaFirma());
+        assertEquals(1.0, acumulador.getDistanciaMinima());
+        assertEquals(8.0, acumulador.getDistanciaMaxima());
+        assertEquals(4.0, acumulador.getPromedioDistancia(), 1e-9);
+        assertEquals(2, acumulador.getEnRango());
+        assertEquals(1, acumulador.getFueraRango());
+        assertEquals(1, acumulador.getCantidad(EstadoAsistencia.TARDIO));
+    }
+
+    @Test
+    void sinFirmasDevuelveCeros() {
+        AcumuladorFirmas acumulador = new AcumuladorFirmas();
+
+        assertEquals(0, acumulador.getTotal());
+        assertNull(acumulador.getPrimeraFirma());
+        assertEquals(0.0, acumulador.getDistanciaMinima());
+        assertEquals(0.0, acumulador.getPorcentajeEnRango());
+    }
+
+    @Test
+    void lasCifrasCongeladasReconstruyenElMismoAcumulador() {
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 3, 8, 0);
+        AcumuladorFirmas acumulador = new AcumuladorFirmas();
+        acumulador.agregar(inicio.plusMinutes(2), 1.0, EstadoAsistencia.PRESENTE);
+        acumulador.agregar(inicio.plusMinutes(12), 8.0, EstadoAsistencia.FUERA_RANGO);
+
+        AcumuladorFirmas restaurado = AcumuladorFirmas.desde(acumulador.congelar(1L, 30, inicio.plusHours(2)));
+
+        assertEquals(acumulador.getTotal(), restaurado.getTotal());
+        assertEquals(acumulador.getPrimeraFirma(), restaurado.getPrimeraFirma());
+        assertEquals(acumulador.getUltimaFirma(), restaurado.getUltimaFirma());
+        assertEquals(acumulador.getPromedioDistancia(), restaurado.getPromedioDistancia(), 1e-9);
+        assertEquals(acumulador.getDistanciaMaxima(), restaurado.getDistanciaMaxima());
+        assertEquals(acumulador.getPorcentajeEnRango(), restaurado.getPorcentajeEnRango(), 1e-9);
+        assertEquals(1, restaurado.getCantidad(EstadoAsistencia.FUERA_RANGO));
+    }
+
+    /**
+     * Las cifras de una pasada coinciden con el cálculo anterior, que mapeaba cada fila a un DTO
+     * y recorría la lista una vez por cifra.
+     */
+    @Test
+    void coincideConElCalculoSobreLaListaDeDtos() {
+        List<Object[]> filas = filas();
+        AcumuladorFirmas acumulador = new AcumuladorFirmas();
+        filas.forEach(acumulador::agregar);
+
+        List<SesionDetalleDTO> detalles = filas.stream()
+            .map(fila -> SesionDetalleDTO.builder()
+                .fechaFirma((LocalDateTime) fila[0])
+                .distanciaMetros((Double) fila[1])
+                .estado((EstadoAsistencia) fila[2])
+                .build())
+            .collect(Collectors.toList());
+
+        assertEquals(detalles.size(), acumulador.getTotal());
+        assertEquals(detalles.stream().map(SesionDetalleDTO::getFechaFirma).min(LocalDateTime::compareTo).orElseThrow(),
+            acumulador.getPrimeraFirma());
+        assertEquals(detalles.stream().map(SesionDetalleDTO::getFechaFirma).max(LocalDateTime::compareTo).orElseThrow(),
+            acumulador.getUltimaFirma());
+        assertEquals(detalles.stream().mapToDouble(SesionDetalleDTO::getDistanciaMetros).average().orElseThrow(),
+            acumulador.getPromedioDistancia(), 1e-9);
+        assertEquals(detalles.stream().mapToDouble(SesionDetalleDTO::getDistanciaMetros).min().orElseThrow(),
+            acumulador.getDistanciaMinima());
+        assertEquals(detalles.stream().mapToDouble(SesionDetalleDTO::getDistanciaMetros).max().orElseThrow(),
+            acumulador.getDistanciaMaxima());
+        assertEquals(detalles.stream().filter(d -> d.getDistanciaMetros() <= 6.0).count(), acumulador.getEnRango());
+        assertEquals(detalles.stream().filter(d -> d.getDistanciaMetros() > 6.0).count(), acumulador.getFueraRango());
+        for (EstadoAsistencia estado : EstadoAsistencia.values()) {
+            assertEquals(detalles.stream().filter(d -> d.getEstado() == estado).count(), acumulador.getCantidad(estado));
+        }
+    }
+
+    /**
+     * Con la posición del profesor, las distancias salen de las coordenadas (en lotes) y no de las
+     * guardadas; una firma sin coordenadas conserva la suya y una lejana se mide con Haversine.
+     */
+    @Test
+    void reevaluaLasDistanciasDesdeLaPosicionDelProfesor() {
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 3, 8, 0);
+        double latitud = 7.0653;
+        double longitud = -73.8547;
+        AcumuladorFirmas acumulador = new AcumuladorFirmas(latitud, longitud);
+        double suma = 0;
+        long enRango = 0;
+        // Más de un lote
+        int firmas = 2_500;
+        for (int i = 0; i < firmas; i++) {
+            double latitudFirma = latitud + (i % 90) / 10.0 / 111_195;
+            double distancia = GeoUtils.distanciaLocal(latitud, longitud, latitudFirma, longitud);
+            suma += distancia;
+            enRango += distancia <= AcumuladorFirmas.RADIO_EN_RANGO ? 1 : 0;
+            // La distancia guardada no se usa
+            acumulador.agregar(new Object[]{inicio.plusSeconds(i), 100.0, EstadoAsistencia.PRESENTE, latitudFirma, longitud});
+        }
+        acumulador.agregar(inicio, 2.0, EstadoAsistencia.PRESENTE, null, null);
+        double lejana = GeoUtils.calcularDistancia(latitud, longitud, latitud + 0.05, longitud);
+        acumulador.agregar(inicio, 0.0, EstadoAsistencia.FUERA_RANGO, latitud + 0.05, longitud);
+
+        assertEquals(firmas + 2, acumulador.getTotal());
+        assertEquals(enRango + 1, acumulador.getEnRango());
+        assertEquals(firmas + 1 - enRango, acumulador.getFueraRango());
+        assertEquals((suma + 2.0 + lejana) / (firmas + 2), acumulador.getPromedioDistancia(), 1e-9);
+        assertEquals(0.0, acumulador.getDistanciaMinima(), 1e-9);
+        assertEquals(lejana, acumulador.getDistanciaMaxima(), 1e-9);
+    }
+
+    /**
+     * Bytes asignados por solicitud de estadísticas en una sesión de 300 estudiantes, medidos con
+     * ThreadMXBean#getThreadAllocatedBytes en el hilo de la prueba. El camino anterior mapeaba las
+     * firmas a DTOs dos veces (análisis temporal y geográfico) y recorría cada lista una vez por cifra;
+     * el actual pasa la proyección una vez por el acumulador con la posición del profesor. Las filas se
+     * generan antes de medir, como las entregaría el driver en ambos casos.
+     */
+    @Test
+    @Tag("lento")
+    void laProyeccionAsignaMenosBytesPorSolicitud() {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long idHilo = Thread.currentThread().getId();
+        List<Object[]> filas = filasConCoordenadas();
+        double sumidero = 0;
+
+        // Calentamiento largo: tras otras pruebas en la misma JVM, el camino vectorial tarda en compilarse
+        // sin asignar los vectores intermedios
+        for (int i = 0; i < REPETICIONES; i++) {
+            sumidero += conListasDeDtos(filas) + conProyeccion(filas);
+        }
+
+        long antes = hilos.getThreadAllocatedBytes(idHilo);
+        for (int i = 0; i < REPETICIONES; i++) {
+            sumidero += conListasDeDtos(filas);
+        }
+        long bytesAnterior = (hilos.getThreadAllocatedBytes(idHilo) - antes) / REPETICIONES;
+
+        antes = hilos.getThreadAllocatedBytes(idHilo);
+        for (int i = 0; i < REPETICIONES; i++) {
+            sumidero += conProyeccion(filas);
+        }
+        long bytesProyeccion = (hilos.getThreadAllocatedBytes(idHilo) - antes) / REPETICIONES;
+
+        System.out.printf("Estadísticas de sesión (%d firmas): DTOs %,d bytes/solicitud, proyección %,d bytes/solicitud (%s)%n",
+            ESTUDIANTES, bytesAnterior, bytesProyeccion, sumidero > 0 ? "ok" : "-");
+        assertTrue(bytesProyeccion * 4 < bytesAnterior,
+            "DTOs: " + bytesAnterior + " bytes, proyección: " + bytesProyeccion + " bytes");
+    }
+
+    // Camino anterior: cada análisis volvía a mapear las firmas y recorría la lista una vez por cifra
+    private static double conListasDeDtos(List<Object[]> filas) {
+        List<SesionDetalleDTO> temporal = aDtos(filas);
+        LocalDateTime primera = temporal.stream().map(SesionDetalleDTO::getFechaFirma).min(LocalDateTime::compareTo).orElse(null);
+        LocalDateTime ultima = temporal.stream().map(SesionDetalleDTO::getFechaFirma).max(LocalDateTime::compareTo).orElse(null);
+
+        List<SesionDetalleDTO> geografico = aDtos(filas);
+        double promedio = geografico.stream().mapToDouble(SesionDetalleDTO::getDistanciaMetros).average().orElse(0.0);
+        double minima = geografico.stream().mapToDouble(SesionDetalleDTO::getDistanciaMetros).min().orElse(0.0);
+        double maxima = geografico.stream().mapToDouble(SesionDetalleDTO::getDistanciaMetros).max().orElse(0.0);
+        long enRango = geografico.stream().filter(d -> d.getDistanciaMetros() <= 6.0).count();
+        long fueraRango = geografico.stream().filter(d -> d.getDistanciaMetros() > 6.0).count();
+        return promedio + minima + maxima + enRango + fueraRango + (primera != null && ultima != null ? 1 : 0);
+    }
+
+    private static List<SesionDetalleDTO> aDtos(List<Object[]> filas) {
+        return filas.stream()
+            .map(fila -> SesionDetalleDTO.builder()
+                .fechaFirma((LocalDateTime) fila[0])
+                .distanciaMetros((Double) fila[1])
+                .estado((EstadoAsistencia) fila[2])
+                .build())
+            .collect(Collectors.toList());
+    }
+
+    private static double conProyeccion(List<Object[]> filas) {
+        AcumuladorFirmas acumulador = new AcumuladorFirmas(LAT_PROFESOR, LON_PROFESOR);
+        filas.forEach(acumulador::agregar);
+        return acumulador.getPromedioDistancia() + acumulador.getDistanciaMinima() + acumulador.getDistanciaMaxima()
+            + acumulador.getEnRango() + acumulador.getFueraRango()
+            + (acumulador.getPrimeraFirma() != null && acumulador.getUltimaFirma() != null ? 1 : 0);
+    }
+
+    private List<Object[]> filasConCoordenadas() {
+        List<Object[]> filas = filas();
+        for (int i = 0; i < filas.size(); i++) {
+            filas.get(i)[3] = LAT_PROFESOR + (i % 90) / 10.0 / 111_195;
+            filas.get(i)[4] = LON_PROFESOR;
+        }
+        return filas;
+    }
+
+    private List<Object[]> filas() {
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 3, 8, 0);
+        EstadoAsistencia[] estados = EstadoAsistencia.values();
+        List<Object[]> filas = new ArrayList<>(ESTUDIANTES);
+        for (int i = 0; i < ESTUDIANTES; i++) {
+            filas.add(new Object[]{inicio.plusSeconds(i * 17L), (i % 90) / 10.0, estados[i % estados.length], null, null});
+        }
+        return filas;
+    }
+}
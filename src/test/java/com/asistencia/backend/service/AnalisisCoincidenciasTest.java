@@ -0,0 +1,215 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.AnalisisCoincidenciasDTO;
+import com.asistencia.backend.model.CoincidenciaUbicacion;
+import com.asistencia.backend.repository.CoincidenciaUbicacionRepository;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnalisisCoincidenciasTest {
+
+    // Unos 0.5 metros en grados
+    private static final double MEDIO_METRO = 0.5 / (6371000 * Math.PI / 180);
+    private static final LocalDateTime LUNES = LocalDateTime.of(2025, 2, 3, 8, 0);
+
+    private final SesionDetalleRepository sesionDetalleRepository = mock(SesionDetalleRepository.class);
+    private final CoincidenciaUbicacionRepository coincidenciaUbicacionRepository = mock(CoincidenciaUbicacionRepository.class);
+    private final AnalisisCoincidencias analisis = new AnalisisCoincidencias(sesionDetalleRepository,
+        coincidenciaUbicacionRepository, mock(UserRepository.class), mock(PlatformTransactionManager.class), 2.0, 5, 3, 1000);
+
+    @AfterEach
+    void detener() {
+        analisis.detener();
+    }
+
+    @Test
+    void clasificaLosParesQueFirmanJuntosEnVariasSesiones() {
+        List<Object[]> filas = new ArrayList<>();
+        for (long sesion = 1; sesion <= 4; sesion++) {
+            LocalDateTime inicio = LUNES.plusDays(sesion);
+            double latitud = 4.638 + sesion * 0.001;
+            // 10 y 11 firman juntos en las cuatro sesiones, en celdas o minutos distintos
+            filas.add(fila(sesion, 10L, inicio, latitud, -74.084));
+            filas.add(fila(sesion, 11L, inicio.plusMinutes(4), latitud + MEDIO_METRO, -74.084 + MEDIO_METRO));
+            // 12 firma junto a ellos solo en la primera sesión
+            if (sesion == 1) {
+                filas.add(fila(sesion, 12L, inicio.plusMinutes(1), latitud, -74.084));
+            }
+            // 13 y 14 en el mismo punto pero con 20 minutos de diferencia: no cuentan
+            filas.add(fila(sesion, 13L, inicio, latitud + 0.0005, -74.084));
+            filas.add(fila(sesion, 14L, inicio.plusMinutes(20), latitud + 0.0005, -74.084));
+        }
+        // 12 firma sola en otras dos sesiones
+        filas.add(fila(5L, 12L, LUNES.plusDays(5), 4.6, -74.1));
+        filas.add(fila(6L, 12L, LUNES.plusDays(6), 4.6, -74.1));
+        when(sesionDetalleRepository.streamUbicacionesByPeriodo("2025-1")).thenReturn(filas.stream());
+
+        AnalisisCoincidenciasDTO resultado = analisis.analizar("2025-1", LocalDateTime.now());
+
+        assertEquals("COMPLETADO", resultado.getEstado());
+        assertEquals(6, resultado.getSesiones());
+        assertEquals(filas.size(), resultado.getFirmas());
+        // (10,11) x4, (10,12) y (11,12) una vez
+        assertEquals(3, resultado.getPares());
+        List<CoincidenciaUbicacion> ranking = guardados();
+        assertEquals(1, ranking.size());
+        CoincidenciaUbicacion primero = ranking.get(0);
+        assertEquals(1, primero.getPosicion());
+        assertEquals(10L, primero.getIdEstudianteA());
+        assertEquals(11L, primero.getIdEstudianteB());
+        assertEquals(4, primero.getCoincidencias());
+        assertEquals(1.0, primero.getIndice());
+        verify(coincidenciaUbicacionRepository).deleteByPeriodo("2025-1");
+    }
+
+    /**
+     * Muchas sesiones de 40 estudiantes sentados en una rejilla de 1.5 m, con un par que comparte
+     * teléfono en todas: es el único par con coincidencias en cada sesión.
+     */
+    @Test
+    void encuentraElParQueFirmaJuntoEnTodasLasSesiones() {
+        int sesiones = 2_000;
+        int porSesion = 40;
+        when(sesionDetalleRepository.streamUbicacionesByPeriodo("2025-2")).thenAnswer(invocacion -> {
+            Random aleatorio = new Random(21);
+            return IntStream.range(0, sesiones).boxed().flatMap(sesion -> {
+                int curso = sesion % 50;
+                LocalDateTime inicio = LUNES.plusHours(sesion / 50);
+                double latitud = 4.6 + curso * 0.001;
+                return IntStream.range(0, porSesion).mapToObj(puesto -> fila((long) sesion, curso * 100L + puesto + 1,
+                    inicio.plusSeconds(puesto <= 1 ? puesto * 30 : aleatorio.nextInt(900)),
+                    latitud + (puesto <= 1 ? 0 : (puesto / 8) * 3 * MEDIO_METRO),
+                    -74.08 + (puesto <= 1 ? 0 : (puesto % 8) * 3 * MEDIO_METRO)));
+            });
+        });
+
+        AnalisisCoincidenciasDTO resultado = analisis.analizar("2025-2", LocalDateTime.now());
+
+        assertEquals((long) sesiones * porSesion, resultado.getFirmas());
+        CoincidenciaUbicacion primero = guardados().get(0);
+        assertEquals(sesiones / 50, primero.getCoincidencias());
+        assertEquals(primero.getIdEstudianteA() + 1, primero.getIdEstudianteB());
+    }
+
+    /**
+     * A 70° un grado de longitud mide un tercio de uno de latitud: dos firmas a 1.9 m en dirección
+     * este-oeste quedan varias columnas de latitud más allá y aun así cuentan.
+     */
+    @Test
+    void lasColumnasSeEnsanchanConLaLatitud() {
+        double grados = 1.9 / (6371000 * Math.PI / 180 * Math.cos(Math.toRadians(70)));
+        List<Object[]> filas = new ArrayList<>();
+        for (long sesion = 1; sesion <= 3; sesion++) {
+            filas.add(fila(sesion, 10L, LUNES.plusDays(sesion), 70.0, 20.0));
+            filas.add(fila(sesion, 11L, LUNES.plusDays(sesion), 70.0, 20.0 + grados));
+        }
+        when(sesionDetalleRepository.streamUbicacionesByPeriodo("2025-1")).thenReturn(filas.stream());
+
+        analisis.analizar("2025-1", LocalDateTime.now());
+
+        assertEquals(3, guardados().get(0).getCoincidencias());
+    }
+
+    @Test
+    void aceptaIdsMayoresQueUnEntero() {
+        long grande = Integer.MAX_VALUE + 10L;
+        List<Object[]> filas = new ArrayList<>();
+        for (long sesion = 1; sesion <= 3; sesion++) {
+            filas.add(fila(sesion, grande + 1, LUNES.plusDays(sesion), 4.638, -74.084));
+            filas.add(fila(sesion, grande, LUNES.plusDays(sesion), 4.638 + MEDIO_METRO, -74.084));
+        }
+        when(sesionDetalleRepository.streamUbicacionesByPeriodo("2025-1")).thenReturn(filas.stream());
+
+        assertEquals("COMPLETADO", analisis.analizar("2025-1", LocalDateTime.now()).getEstado());
+
+        CoincidenciaUbicacion primero = guardados().get(0);
+        assertEquals(grande, primero.getIdEstudianteA());
+        assertEquals(grande + 1, primero.getIdEstudianteB());
+        assertEquals(3, primero.getFirmasEstudianteA());
+    }
+
+    /**
+     * Un semestre de toda la universidad: 10 000 estudiantes en 1 000 cursos de 40 (cuatro cursos
+     * cada uno) con dos sesiones por semana durante 16 semanas, 1.28 millones de firmas. Las filas se
+     * generan a medida que se leen, como las entregaría el cursor, y se mide la duración de analizar.
+     */
+    @Test
+    @Tag("lento")
+    void analizaUnSemestreDeLaUniversidadEnMenosDeDosMinutos() {
+        int cursos = 1_000;
+        int porCurso = 40;
+        int sesionesPorCurso = 32;
+        int estudiantes = 10_000;
+        // Cada curso matricula 40 estudiantes distintos al azar; el puesto es el orden de la lista
+        Random aleatorio = new Random(25);
+        long[][] matriculas = new long[cursos][];
+        for (int curso = 0; curso < cursos; curso++) {
+            matriculas[curso] = aleatorio.longs(1, estudiantes + 1).distinct().limit(porCurso).toArray();
+        }
+        when(sesionDetalleRepository.streamUbicacionesByPeriodo("2025-1")).thenAnswer(invocacion ->
+            IntStream.range(0, cursos * sesionesPorCurso).boxed().flatMap(sesion -> {
+                int curso = sesion / sesionesPorCurso;
+                int clase = sesion % sesionesPorCurso;
+                LocalDateTime inicio = LUNES.plusDays(clase / 2 * 7L + clase % 2 * 2).plusHours(curso % 12);
+                double latitud = 4.6 + curso * 0.001;
+                return IntStream.range(0, porCurso).mapToObj(puesto -> fila((long) sesion, matriculas[curso][puesto],
+                    // Los dos primeros puestos del primer curso firman desde el mismo teléfono en todas las clases
+                    inicio.plusSeconds(puesto <= 1 && curso == 0 ? puesto * 30 : aleatorio.nextInt(900)),
+                    latitud + (puesto <= 1 ? 0 : (puesto / 8) * 3 * MEDIO_METRO),
+                    -74.08 + (puesto <= 1 ? 0 : (puesto % 8) * 3 * MEDIO_METRO)));
+            }));
+
+        AnalisisCoincidenciasDTO resultado = analisis.analizar("2025-1", LocalDateTime.now());
+
+        System.out.printf("Semestre: %,d firmas en %,d sesiones, %,d pares en %,d ms (%,.0f firmas/s)%n",
+            resultado.getFirmas(), resultado.getSesiones(), resultado.getPares(), resultado.getDuracionMs(),
+            resultado.getFirmas() * 1000.0 / Math.max(1, resultado.getDuracionMs()));
+        assertEquals((long) cursos * sesionesPorCurso * porCurso, resultado.getFirmas());
+        assertEquals(cursos * sesionesPorCurso, resultado.getSesiones());
+        // Vecinos de puesto en dos cursos compartidos pueden sumar más; el par del teléfono compartido
+        // está en el ranking con todas sus clases
+        long idA = Math.min(matriculas[0][0], matriculas[0][1]);
+        long idB = Math.max(matriculas[0][0], matriculas[0][1]);
+        CoincidenciaUbicacion compartido = guardados().stream()
+            .filter(c -> c.getIdEstudianteA() == idA && c.getIdEstudianteB() == idB)
+            .findFirst().orElseThrow();
+        assertEquals(sesionesPorCurso, compartido.getCoincidencias());
+        assertTrue(resultado.getDuracionMs() < 120_000, "Duración: " + resultado.getDuracionMs() + " ms");
+    }
+
+    @Test
+    void unAnalisisRechazadoNoQuedaEnCurso() {
+        analisis.detener();
+
+        AnalisisCoincidenciasDTO resultado = analisis.iniciar("2025-1");
+
+        assertEquals("FALLIDO", resultado.getEstado());
+        assertEquals("FALLIDO", analisis.getEstado("2025-1").getEstado());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CoincidenciaUbicacion> guardados() {
+        ArgumentCaptor<List<CoincidenciaUbicacion>> captor = ArgumentCaptor.forClass(List.class);
+        verify(coincidenciaUbicacionRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private static Object[] fila(Long idSesion, Long idEstudiante, LocalDateTime fecha, double latitud, double longitud) {
+        return new Object[]{idSesion, idEstudiante, fecha, latitud, longitud};
+    }
+}
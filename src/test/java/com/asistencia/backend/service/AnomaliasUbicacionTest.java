@@ -0,0 +1,107 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.AnomaliaUbicacionDTO;
+import com.asistencia.backend.dto.SesionSnapshotDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnomaliasUbicacionTest {
+
+    // Unos 0.5 metros en grados
+    private static final double MEDIO_METRO = 0.5 / (6371000 * Math.PI / 180);
+
+    private final SesionDetalleRepository sesionDetalleRepository = mock(SesionDetalleRepository.class);
+    private final ActiveSesionRegistry activeSesionRegistry = mock(ActiveSesionRegistry.class);
+    private final AnomaliasUbicacion anomalias =
+        new AnomaliasUbicacion(sesionDetalleRepository, activeSesionRegistry, 1.0, 3);
+
+    @Test
+    void marcaLasFirmasAgrupadasYNoLasDispersas() {
+        anomalias.iniciar(1L);
+        // Tres estudiantes a menos de un metro, aunque caigan en celdas distintas
+        firmar(1L, 10L, 100L, 4.638, -74.084);
+        firmar(1L, 11L, 101L, 4.638 + MEDIO_METRO, -74.084);
+        firmar(1L, 12L, 102L, 4.638, -74.084 + MEDIO_METRO);
+        // Dos en otro punto (por debajo del umbral) y uno a 20 metros
+        firmar(1L, 13L, 103L, 4.639, -74.083);
+        firmar(1L, 14L, 104L, 4.639, -74.083);
+        firmar(1L, 15L, 105L, 4.638 + 40 * MEDIO_METRO, -74.084);
+
+        List<AnomaliaUbicacionDTO> grupos = anomalias.obtener(1L);
+
+        assertEquals(1, grupos.size());
+        assertEquals(3, grupos.get(0).getTotalFirmas());
+        assertEquals(List.of(100L, 101L, 102L), grupos.get(0).getIdsEstudiantes());
+        assertEquals(List.of(10L, 11L, 12L), grupos.get(0).getIdsDetalle());
+        assertEquals(4.638, grupos.get(0).getLatitud(), 1e-5);
+        verifyNoInteractions(sesionDetalleRepository);
+    }
+
+    @Test
+    void armaLaRejillaDeUnaSesionCerradaConUnaConsulta() {
+        when(activeSesionRegistry.buscar(2L)).thenReturn(Optional.empty());
+        when(sesionDetalleRepository.findUbicacionesBySesionId(2L)).thenReturn(List.of(
+            new Object[]{20L, 200L, 4.6, -74.1},
+            new Object[]{21L, 201L, 4.6, -74.1},
+            new Object[]{22L, 202L, 4.6, -74.1}));
+
+        assertEquals(3, anomalias.obtener(2L).get(0).getTotalFirmas());
+        assertEquals(1, anomalias.obtener(2L).size());
+        // No se conserva en memoria: cada consulta vuelve a armarla
+        verify(sesionDetalleRepository, times(2)).findUbicacionesBySesionId(2L);
+    }
+
+    @Test
+    void conservaLaRejillaDeUnaSesionActiva() {
+        when(activeSesionRegistry.buscar(3L)).thenReturn(Optional.of(SesionSnapshotDTO.builder().id(3L).build()));
+        when(sesionDetalleRepository.findUbicacionesBySesionId(3L)).thenReturn(List.of(
+            new Object[]{30L, 300L, 4.6, -74.1},
+            new Object[]{31L, 301L, 4.6, -74.1}));
+
+        assertTrue(anomalias.obtener(3L).isEmpty());
+        firmar(3L, 32L, 302L, 4.6, -74.1);
+
+        assertEquals(3, anomalias.obtener(3L).get(0).getTotalFirmas());
+        verify(sesionDetalleRepository, times(1)).findUbicacionesBySesionId(3L);
+    }
+
+    /**
+     * Una firma de otra sesión durante la carga no la invalida; una de la misma sesión, sí.
+     */
+    @Test
+    void soloLasFirmasDeLaMismaSesionDescartanUnaCarga() {
+        when(activeSesionRegistry.buscar(anyLong())).thenReturn(Optional.of(SesionSnapshotDTO.builder().id(4L).build()));
+        when(sesionDetalleRepository.findUbicacionesBySesionId(4L)).thenAnswer(invocacion -> {
+            firmar(9L, 90L, 900L, 4.6, -74.1);
+            return List.<Object[]>of(new Object[]{40L, 400L, 4.6, -74.1});
+        });
+        when(sesionDetalleRepository.findUbicacionesBySesionId(5L)).thenAnswer(invocacion -> {
+            firmar(5L, 51L, 501L, 4.6, -74.1);
+            return List.<Object[]>of(new Object[]{50L, 500L, 4.6, -74.1});
+        });
+
+        anomalias.obtener(4L);
+        anomalias.obtener(4L);
+        anomalias.obtener(5L);
+        anomalias.obtener(5L);
+
+        verify(sesionDetalleRepository, times(1)).findUbicacionesBySesionId(4L);
+        verify(sesionDetalleRepository, times(2)).findUbicacionesBySesionId(5L);
+    }
+
+    private void firmar(Long idSesion, Long idDetalle, Long idEstudiante, double latitud, double longitud) {
+        anomalias.alRegistrarFirma(FirmaRegistradaEvent.builder()
+            .idDetalle(idDetalle).idSesion(idSesion).idEstudiante(idEstudiante)
+            .estado(EstadoAsistencia.PRESENTE)
+            .latitudEstudiante(latitud).longitudEstudiante(longitud)
+            .build());
+    }
+}
@@ -0,0 +1,102 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.EstadisticasCacheDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sin transacción activa las invalidaciones se aplican de inmediato, como justo después de confirmar.
+ */
+class CacheReportesTest {
+
+    private final AtomicInteger calculos = new AtomicInteger();
+
+    @Test
+    void sirveLaEntradaHastaQueCambiaUnCursoDelReporte() {
+        CacheReportes cache = new CacheReportes(10);
+        CacheReportes.Clave clave = CacheReportes.Clave.de("profesor", 1L, "2025-1");
+
+        assertEquals(1, obtener(cache, clave, 10L, 11L));
+        assertEquals(1, obtener(cache, clave, 10L, 11L));
+
+        cache.invalidarCurso(99L);
+        assertEquals(1, obtener(cache, clave, 10L, 11L));
+
+        cache.invalidarCursos(List.of(11L));
+        assertEquals(2, obtener(cache, clave, 10L, 11L));
+
+        cache.invalidarUsuario(1L);
+        assertEquals(3, obtener(cache, clave, 10L, 11L));
+
+        cache.invalidarTodo();
+        assertEquals(4, obtener(cache, clave, 10L, 11L));
+
+        EstadisticasCacheDTO estadisticas = cache.getEstadisticas();
+        assertEquals(2, estadisticas.getAciertos());
+        assertEquals(4, estadisticas.getFallos());
+        assertEquals(1, estadisticas.getEntradas());
+    }
+
+    @Test
+    void unCambioConfirmadoDuranteElCalculoNoSeGuarda() {
+        CacheReportes cache = new CacheReportes(10);
+        CacheReportes.Clave clave = CacheReportes.Clave.de("curso", 10L, null, null);
+
+        cache.obtener(clave, dependencias -> {
+            int valor = calcular(dependencias, 10L);
+            cache.invalidarCurso(10L);
+            return valor;
+        });
+        assertEquals(2, obtener(cache, clave, 10L));
+        assertEquals(2, obtener(cache, clave, 10L));
+    }
+
+    @Test
+    void unReporteMarcadoNoGuardarSeVuelveACalcular() {
+        CacheReportes cache = new CacheReportes(10);
+        CacheReportes.Clave clave = CacheReportes.Clave.de("curso", 10L, null, null);
+
+        cache.obtener(clave, dependencias -> {
+            dependencias.noGuardar();
+            return calcular(dependencias, 10L);
+        });
+        assertEquals(2, obtener(cache, clave, 10L));
+        assertEquals(2, obtener(cache, clave, 10L));
+    }
+
+    @Test
+    void desalojaLaEntradaUsadaHaceMasTiempo() {
+        CacheReportes cache = new CacheReportes(2);
+        CacheReportes.Clave a = CacheReportes.Clave.de("curso", 1L, null, null);
+        CacheReportes.Clave b = CacheReportes.Clave.de("curso", 2L, null, null);
+        CacheReportes.Clave c = CacheReportes.Clave.de("curso", 3L, null, null);
+
+        obtener(cache, a, 1L);
+        obtener(cache, b, 2L);
+        obtener(cache, a, 1L);
+        obtener(cache, c, 3L);
+
+        assertEquals(3, calculos.get());
+        obtener(cache, a, 1L);
+        assertEquals(3, calculos.get());
+        obtener(cache, b, 2L);
+        assertEquals(4, calculos.get());
+        assertEquals(2, cache.getEstadisticas().getDesalojos());
+    }
+
+    private int obtener(CacheReportes cache, CacheReportes.Clave clave, Long... idsCurso) {
+        return cache.obtener(clave, dependencias -> calcular(dependencias, idsCurso));
+    }
+
+    private int calcular(CacheReportes.Dependencias dependencias, Long... idsCurso) {
+        dependencias.usuario(1L);
+        for (Long idCurso : idsCurso) {
+            dependencias.curso(idCurso);
+        }
+        return calculos.incrementAndGet();
+    }
+}
@@ -0,0 +1,112 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.SesionSnapshotDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContadoresSesionTest {
+
+    @Mock
+    private SesionDetalleRepository sesionDetalleRepository;
+
+    @Mock
+    private ActiveSesionRegistry activeSesionRegistry;
+
+    @InjectMocks
+    private ContadoresSesion contadoresSesion;
+
+    @Test
+    void cargaUnaVezYLuegoSeActualizaConLasFirmas() {
+        when(activeSesionRegistry.buscar(1L)).thenReturn(Optional.of(SesionSnapshotDTO.builder().id(1L).build()));
+        when(sesionDetalleRepository.countBySesionIdAgrupadoPorEstado(1L)).thenReturn(List.of(
+            new Object[]{EstadoAsistencia.PRESENTE, 3L},
+            new Object[]{EstadoAsistencia.TARDIO, 1L}));
+
+        assertEquals(4, contadoresSesion.obtener(1L).total());
+
+        contadoresSesion.alRegistrarFirma(firma(1L, EstadoAsistencia.PRESENTE));
+        contadoresSesion.alRegistrarFirma(firma(1L, EstadoAsistencia.FUERA_RANGO));
+        ContadoresSesion.Conteo conteo = contadoresSesion.obtener(1L);
+
+        assertEquals(6, conteo.total());
+        assertEquals(4, conteo.de(EstadoAsistencia.PRESENTE));
+        assertEquals(1, conteo.de(EstadoAsistencia.TARDIO));
+        assertEquals(1, conteo.de(EstadoAsistencia.FUERA_RANGO));
+        verify(sesionDetalleRepository, times(1)).countBySesionIdAgrupadoPorEstado(1L);
+    }
+
+    @Test
+    void unaFirmaDeOtraSesionNoDescartaLaCarga() {
+        when(activeSesionRegistry.buscar(1L)).thenReturn(Optional.of(SesionSnapshotDTO.builder().id(1L).build()));
+        when(sesionDetalleRepository.countBySesionIdAgrupadoPorEstado(1L)).thenAnswer(invocacion -> {
+            contadoresSesion.alRegistrarFirma(firma(2L, EstadoAsistencia.PRESENTE));
+            return List.<Object[]>of(new Object[]{EstadoAsistencia.PRESENTE, 3L});
+        });
+
+        contadoresSesion.obtener(1L);
+        contadoresSesion.obtener(1L);
+
+        verify(sesionDetalleRepository, times(1)).countBySesionIdAgrupadoPorEstado(1L);
+    }
+
+    @Test
+    void unaFirmaDeLaMismaSesionDuranteLaCargaLaDescarta() {
+        when(activeSesionRegistry.buscar(1L)).thenReturn(Optional.of(SesionSnapshotDTO.builder().id(1L).build()));
+        when(sesionDetalleRepository.countBySesionIdAgrupadoPorEstado(1L))
+            .thenAnswer(invocacion -> {
+                contadoresSesion.alRegistrarFirma(firma(1L, EstadoAsistencia.PRESENTE));
+                return List.<Object[]>of(new Object[]{EstadoAsistencia.PRESENTE, 3L});
+            })
+            .thenReturn(List.<Object[]>of(new Object[]{EstadoAsistencia.PRESENTE, 4L}));
+
+        assertEquals(3, contadoresSesion.obtener(1L).total());
+        assertEquals(4, contadoresSesion.obtener(1L).total());
+        assertEquals(4, contadoresSesion.obtener(1L).total());
+        verify(sesionDetalleRepository, times(2)).countBySesionIdAgrupadoPorEstado(1L);
+    }
+
+    @Test
+    void noConservaLosContadoresDeUnaSesionCerrada() {
+        when(activeSesionRegistry.buscar(1L)).thenReturn(Optional.empty());
+        when(sesionDetalleRepository.countBySesionIdAgrupadoPorEstado(1L))
+            .thenReturn(List.<Object[]>of(new Object[]{EstadoAsistencia.PRESENTE, 3L}));
+
+        contadoresSesion.obtener(1L);
+        contadoresSesion.obtener(1L);
+
+        verify(sesionDetalleRepository, times(2)).countBySesionIdAgrupadoPorEstado(1L);
+    }
+
+    @Test
+    void descartarLiberaLaSesion() {
+        contadoresSesion.iniciar(1L);
+        contadoresSesion.alRegistrarFirma(firma(1L, EstadoAsistencia.PRESENTE));
+        assertEquals(1, contadoresSesion.obtener(1L).total());
+
+        contadoresSesion.descartar(1L);
+        when(sesionDetalleRepository.countBySesionIdAgrupadoPorEstado(1L)).thenReturn(List.of());
+
+        assertEquals(0, contadoresSesion.obtener(1L).total());
+        verify(sesionDetalleRepository).countBySesionIdAgrupadoPorEstado(1L);
+    }
+
+    private FirmaRegistradaEvent firma(Long idSesion, EstadoAsistencia estado) {
+        return FirmaRegistradaEvent.builder()
+            .idSesion(idSesion)
+            .estado(estado)
+            .build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.EstadoActualizacionDTO;
+import com.asistencia.backend.dto.ReconstruccionCuboDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.Curso;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.model.Sesion;
+import com.asistencia.backend.repository.CursoRepository;
+import com.asistencia.backend.repository.HechoAsistenciaRepository;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.repository.UsuarioCursoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CuboAsistenciaTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 3, 10, 8, 0);
+
+    private final HechoAsistenciaRepository hechoAsistenciaRepository = mock(HechoAsistenciaRepository.class);
+    private final SesionDetalleRepository sesionDetalleRepository = mock(SesionDetalleRepository.class);
+    private final UsuarioCursoRepository usuarioCursoRepository = mock(UsuarioCursoRepository.class);
+    private final CursoRepository cursoRepository = mock(CursoRepository.class);
+    private final CacheReportes cacheReportes = mock(CacheReportes.class);
+    private final CuboAsistencia cubo = new CuboAsistencia(hechoAsistenciaRepository, sesionDetalleRepository,
+        usuarioCursoRepository, cursoRepository, cacheReportes, mock(PlatformTransactionManager.class), 0, 1, 7);
+
+    @Test
+    void unaFirmaDuranteLaReconstruccionNoSeCuentaDosVeces() {
+        when(sesionDetalleRepository.countPorEstudianteDiaYEstadoByCursoId(1L)).thenAnswer(invocacion -> {
+            // Confirmada antes de la consulta: ya está en el recálculo y el volcado no la aplica
+            cubo.alRegistrarFirma(firma(1L, 5L));
+            cubo.aplicarPendientes();
+            return List.<Object[]>of(new Object[]{5L, INICIO.toLocalDate(), EstadoAsistencia.PRESENTE, 1L});
+        });
+
+        cubo.reconstruirCurso(1L);
+        cubo.aplicarPendientes();
+
+        verify(hechoAsistenciaRepository, never()).sumar(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void losPendientesDeOtrosCursosSeAplicanDuranteLaReconstruccion() {
+        when(sesionDetalleRepository.countPorEstudianteDiaYEstadoByCursoId(1L)).thenAnswer(invocacion -> {
+            cubo.alRegistrarFirma(firma(2L, 5L));
+            cubo.aplicarPendientes();
+            return List.of();
+        });
+        when(hechoAsistenciaRepository.sumar(any(), any(), any(), any(), anyLong())).thenReturn(1);
+
+        cubo.reconstruirCurso(1L);
+
+        verify(hechoAsistenciaRepository).sumar(2L, 5L, INICIO.toLocalDate(), EstadoAsistencia.PRESENTE, 1L);
+    }
+
+    @Test
+    void noEstaAlDiaHastaQueLaFirmaSeVuelca() {
+        when(hechoAsistenciaRepository.sumar(any(), any(), any(), any(), anyLong())).thenReturn(1);
+        long generacion = cubo.generacion();
+        assertTrue(cubo.alDia(generacion, List.of(1L)));
+
+        cubo.alRegistrarFirma(firma(1L, 5L));
+        assertFalse(cubo.alDia(generacion, List.of(1L)));
+        assertTrue(cubo.alDia(generacion, List.of(2L)));
+        verify(cacheReportes).invalidarCursoConfirmado(1L);
+
+        cubo.aplicarPendientes();
+        // Un reporte leído antes del volcado no está al día; uno leído después, sí
+        assertFalse(cubo.alDia(generacion, List.of(1L)));
+        assertTrue(cubo.alDia(cubo.generacion(), List.of(1L)));
+    }
+
+    @Test
+    void eliminarUnaSesionCerradaRestaSusAusencias() {
+        when(usuarioCursoRepository.findEstudianteIdsSinFirma(1L, 10L)).thenReturn(List.of(5L, 6L));
+        when(hechoAsistenciaRepository.sumar(any(), any(), any(), any(), anyLong())).thenReturn(1);
+        Sesion sesion = Sesion.builder().id(10L).curso(Curso.builder().id(1L).build())
+            .estado("FINALIZADA").fechaInicio(INICIO).build();
+
+        cubo.registrarEliminacion(sesion);
+        cubo.aplicarPendientes();
+
+        LocalDate fecha = INICIO.toLocalDate();
+        verify(hechoAsistenciaRepository).sumar(1L, 5L, fecha, EstadoAsistencia.AUSENTE, -1L);
+        verify(hechoAsistenciaRepository).sumar(1L, 6L, fecha, EstadoAsistencia.AUSENTE, -1L);
+    }
+
+    @Test
+    void unaReconstruccionRechazadaNoQuedaEnCurso() throws Exception {
+        when(cursoRepository.findIdsByPeriodo("2025-1")).thenReturn(List.of(1L));
+        cubo.detener();
+
+        ReconstruccionCuboDTO reconstruccion = cubo.reconstruirPeriodo("2025-1");
+
+        assertEquals(CuboAsistencia.FALLIDA, reconstruccion.getEstado());
+        assertEquals(CuboAsistencia.FALLIDA, cubo.getReconstruccion("2025-1").getEstado());
+    }
+
+    @Test
+    void unVolcadoFallidoQuedaEnElEstadoHastaElSiguienteCorrecto() {
+        when(hechoAsistenciaRepository.count()).thenReturn(1L);
+        when(hechoAsistenciaRepository.sumar(any(), any(), any(), any(), anyLong()))
+            .thenThrow(new RuntimeException("Base de datos no disponible"));
+        cubo.alRegistrarFirma(firma(1L, 5L));
+
+        cubo.actualizar();
+
+        EstadoActualizacionDTO estado = cubo.getEstado();
+        assertNull(estado.getUltimaEjecucion());
+        assertEquals("RuntimeException: Base de datos no disponible", estado.getUltimoError());
+        assertEquals(1, estado.getErroresSeguidos());
+
+        // La firma siguió pendiente y se vuelca en el ciclo siguiente
+        doReturn(1).when(hechoAsistenciaRepository).sumar(any(), any(), any(), any(), anyLong());
+        cubo.actualizar();
+
+        estado = cubo.getEstado();
+        assertNotNull(estado.getUltimaEjecucion());
+        assertEquals(0, estado.getErroresSeguidos());
+        verify(hechoAsistenciaRepository, times(2)).sumar(1L, 5L, INICIO.toLocalDate(), EstadoAsistencia.PRESENTE, 1L);
+    }
+
+    private static FirmaRegistradaEvent firma(Long idCurso, Long idEstudiante) {
+        return FirmaRegistradaEvent.builder()
+            .idCurso(idCurso)
+            .idEstudiante(idEstudiante)
+            .estado(EstadoAsistencia.PRESENTE)
+            .fechaFirma(INICIO.plusMinutes(5))
+            .build();
+    }
+}
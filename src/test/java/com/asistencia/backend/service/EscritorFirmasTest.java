@@ -0,0 +1,130 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.model.SesionDetalle;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscritorFirmasTest {
+
+    @Test
+    void filaInvalidaNoRevierteLasDemasDelLote() throws Exception {
+        EscritorFirmas escritor = new EscritorFirmas(lote -> {
+            if (lote.stream().anyMatch(d -> "repetida".equals(d.getObservacion()))) {
+                throw new DataIntegrityViolationException("uk_sesiones_detalle");
+            }
+        }, true, 10, 50);
+
+        CompletableFuture<SesionDetalle> valida = escritor.encolar(SesionDetalle.builder().observacion("ok").build());
+        CompletableFuture<SesionDetalle> repetida = escritor.encolar(SesionDetalle.builder().observacion("repetida").build());
+
+        assertNotNull(valida.get(5, TimeUnit.SECONDS));
+        CompletionException error = assertThrows(CompletionException.class, repetida::join);
+        assertInstanceOf(DataIntegrityViolationException.class, error.getCause());
+        escritor.detener();
+    }
+
+    /**
+     * Mientras el primer lote se guarda, las firmas que llegan se acumulan y salen en lotes de hasta
+     * maxFilas, en el orden en que se encolaron.
+     */
+    @Test
+    void agrupaLasFirmasEncoladasRespetandoElOrden() throws Exception {
+        CountDownLatch primerLote = new CountDownLatch(1);
+        List<List<String>> lotes = new CopyOnWriteArrayList<>();
+        EscritorFirmas escritor = new EscritorFirmas(lote -> {
+            lotes.add(lote.stream().map(SesionDetalle::getObservacion).toList());
+            if (lotes.size() == 1) {
+                await(primerLote);
+            }
+        }, true, 50, 10);
+
+        List<CompletableFuture<SesionDetalle>> resultados = new ArrayList<>();
+        resultados.add(escritor.encolar(firma(0)));
+        esperarHasta(() -> lotes.size() == 1);
+        for (int i = 1; i <= 120; i++) {
+            resultados.add(escritor.encolar(firma(i)));
+        }
+        primerLote.countDown();
+        for (CompletableFuture<SesionDetalle> resultado : resultados) {
+            resultado.get(5, TimeUnit.SECONDS);
+        }
+        escritor.detener();
+
+        assertEquals(List.of(1, 50, 50, 20), lotes.stream().map(List::size).toList());
+        List<String> escritas = lotes.stream().flatMap(List::stream).toList();
+        assertEquals(IntStream.rangeClosed(0, 120).mapToObj(String::valueOf).toList(), escritas);
+    }
+
+    @Test
+    void unaFirmaSolaSeEscribeAlVencerLaEspera() throws Exception {
+        List<Integer> lotes = new CopyOnWriteArrayList<>();
+        EscritorFirmas escritor = new EscritorFirmas(lote -> lotes.add(lote.size()), true, 50, 10);
+
+        assertNotNull(escritor.encolar(firma(1)).get(5, TimeUnit.SECONDS));
+        escritor.detener();
+
+        assertEquals(List.of(1), lotes);
+    }
+
+    @Test
+    void alDetenerSeEscribenLasFirmasPendientes() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<String> escritas = new CopyOnWriteArrayList<>();
+        EscritorFirmas escritor = new EscritorFirmas(lote -> {
+            await(liberar);
+            lote.forEach(detalle -> escritas.add(detalle.getObservacion()));
+        }, true, 2, 10);
+
+        List<CompletableFuture<SesionDetalle>> resultados = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            resultados.add(escritor.encolar(firma(i)));
+        }
+        Thread detener = new Thread(() -> {
+            try {
+                escritor.detener();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        detener.start();
+        liberar.countDown();
+        detener.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertTrue(resultados.stream().allMatch(CompletableFuture::isDone));
+        assertEquals(List.of("0", "1", "2", "3", "4"), escritas);
+        assertThrows(IllegalStateException.class, () -> escritor.encolar(firma(5)));
+    }
+
+    private static SesionDetalle firma(int numero) {
+        return SesionDetalle.builder().observacion(String.valueOf(numero)).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "La condición no se cumplió a tiempo");
+            Thread.sleep(1);
+        }
+    }
+}
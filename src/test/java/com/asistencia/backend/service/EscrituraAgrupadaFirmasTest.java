@@ -0,0 +1,203 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.Config.AuditorAwareImpl;
+import com.asistencia.backend.model.*;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara sobre H2 la confirmación de cada firma en su propia transacción con la escritura agrupada
+ * de EscritorFirmas, con 50, 500 y 5.000 firmantes concurrentes. Las idas y vueltas a la base se
+ * cuentan con las estadísticas de Hibernate: sentencias preparadas (un lote JDBC cuenta una) más
+ * commits. Los datos se confirman de verdad, así que la prueba no corre en la transacción de la
+ * prueba y los borra al terminar.
+ */
+@Tag("lento")
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@Import(AuditorAwareImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EscrituraAgrupadaFirmasTest {
+
+    private static final int[] FIRMANTES = {50, 500, 5_000};
+    private static final int HILOS = 50;
+    private static final int MAX_FILAS = 50;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private SesionDetalleRepository sesionDetalleRepository;
+
+    private final List<Long> estudiantes = new ArrayList<>();
+    private Usuario profesor;
+    private Curso curso;
+
+    @AfterEach
+    void limpiar() {
+        ejecutar(entityManager -> {
+            for (String entidad : List.of("SesionDetalle", "Sesion", "Curso", "Asignatura", "Usuario")) {
+                entityManager.createQuery("DELETE FROM " + entidad).executeUpdate();
+            }
+        });
+    }
+
+    @Test
+    void laEscrituraAgrupadaReduceLasIdasYVueltas() throws Exception {
+        preparar(FIRMANTES[FIRMANTES.length - 1]);
+
+        for (int firmantes : FIRMANTES) {
+            Medicion individual = medir(firmantes, detalle -> sesionDetalleRepository.saveAndFlush(detalle));
+            EscritorFirmas escritor = new EscritorFirmas(transactionManager, sesionDetalleRepository, true, MAX_FILAS, 20);
+            Medicion agrupada;
+            try {
+                agrupada = medir(firmantes, detalle -> escritor.encolar(detalle).join());
+            } finally {
+                escritor.detener();
+            }
+
+            System.out.printf("%d firmantes: por firma %d commits y %d sentencias (%d ms); agrupada %d commits y %d sentencias (%d ms)%n",
+                firmantes, individual.commits(), individual.sentencias(), individual.milisegundos(),
+                agrupada.commits(), agrupada.sentencias(), agrupada.milisegundos());
+
+            assertEquals(firmantes, individual.commits());
+            assertEquals(firmantes, contarFirmas(individual.idSesion()));
+            assertEquals(firmantes, contarFirmas(agrupada.idSesion()));
+            // Cada lote confirma hasta MAX_FILAS firmas con un solo INSERT por lotes
+            assertTrue(agrupada.commits() >= firmantes / MAX_FILAS);
+            assertTrue(agrupada.idasYVueltas() * 5 <= individual.idasYVueltas(),
+                "Por firma: " + individual.idasYVueltas() + ", agrupada: " + agrupada.idasYVueltas());
+        }
+    }
+
+    private Medicion medir(int firmantes, Consumer<SesionDetalle> guardar) throws Exception {
+        Long idSesion = nuevaSesion();
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        try {
+            estadisticas().clear();
+            long inicio = System.nanoTime();
+            List<Future<?>> firmas = new ArrayList<>(firmantes);
+            for (int i = 0; i < firmantes; i++) {
+                Long idEstudiante = estudiantes.get(i);
+                firmas.add(hilos.submit(() -> guardar.accept(firma(idSesion, idEstudiante))));
+            }
+            for (Future<?> firma : firmas) {
+                firma.get();
+            }
+            long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+            return new Medicion(idSesion, estadisticas().getSuccessfulTransactionCount(),
+                estadisticas().getPrepareStatementCount(), milisegundos);
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private void preparar(int total) {
+        ejecutar(entityManager -> {
+            profesor = usuario(entityManager, "profesor-lotes");
+            Asignatura asignatura = Asignatura.builder().codigo("PRG9").nombre("Programación IX").descripcion("Programación IX").build();
+            entityManager.persist(asignatura);
+            curso = Curso.builder().codigo("603D92025B").descripcion("Programación IX - Diurna")
+                .asignatura(asignatura).profesor(profesor).build();
+            entityManager.persist(curso);
+            for (int i = 0; i < total; i++) {
+                estudiantes.add(usuario(entityManager, "firmante-lotes" + i).getId());
+            }
+        });
+    }
+
+    private Long nuevaSesion() {
+        return enTransaccion(entityManager -> {
+            Sesion sesion = Sesion.builder()
+                .curso(entityManager.getReference(Curso.class, curso.getId()))
+                .profesor(entityManager.getReference(Usuario.class, profesor.getId()))
+                .nombre("Clase").latitudProfesor(7.0653).longitudProfesor(-73.8547)
+                .fechaInicio(LocalDateTime.now()).build();
+            entityManager.persist(sesion);
+            return sesion.getId();
+        });
+    }
+
+    private long contarFirmas(Long idSesion) {
+        return enTransaccion(entityManager -> entityManager
+            .createQuery("SELECT COUNT(sd) FROM SesionDetalle sd WHERE sd.sesion.id = :idSesion", Long.class)
+            .setParameter("idSesion", idSesion).getSingleResult());
+    }
+
+    private static SesionDetalle firma(Long idSesion, Long idEstudiante) {
+        return SesionDetalle.builder()
+            .sesion(Sesion.builder().id(idSesion).build())
+            .estudiante(Usuario.builder().id(idEstudiante).build())
+            .fechaFirma(LocalDateTime.now())
+            .estado(EstadoAsistencia.PRESENTE)
+            .latitudEstudiante(7.0653)
+            .longitudEstudiante(-73.8547)
+            .distanciaMetros(1.0)
+            .build();
+    }
+
+    private static Usuario usuario(EntityManager entityManager, String nombre) {
+        Usuario usuario = Usuario.builder().nombre(nombre).correo(nombre + "@unipaz.edu.co")
+            .identificacion(String.valueOf(Math.abs(nombre.hashCode()))).build();
+        entityManager.persist(usuario);
+        return usuario;
+    }
+
+    private void ejecutar(Consumer<EntityManager> accion) {
+        enTransaccion(entityManager -> {
+            accion.accept(entityManager);
+            return null;
+        });
+    }
+
+    private <T> T enTransaccion(Function<EntityManager, T> accion) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return new TransactionTemplate(transactionManager).execute(estado -> {
+                entityManager.joinTransaction();
+                return accion.apply(entityManager);
+            });
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private Statistics estadisticas() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private record Medicion(Long idSesion, long commits, long sentencias, long milisegundos) {
+        long idasYVueltas() {
+            return commits + sentencias;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.Config.AuditorAwareImpl;
+import com.asistencia.backend.dto.AsistenciaRegistradaResponse;
+import com.asistencia.backend.dto.RegistrarAsistenciaRequest;
+import com.asistencia.backend.model.*;
+import com.asistencia.backend.repository.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Cuenta las sentencias SQL de una firma completa sobre H2: registrarAsistencia más la respuesta que
+ * arma el controlador. La sesión, la inscripción y las firmas previas salen del registro y del índice
+ * en memoria; el resto de colaboradores no toca la base de datos y se reemplaza por mocks.
+ * La transacción de la prueba comparte el EntityManager igual que open-in-view en una petición.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(AuditorAwareImpl.class)
+class FirmaSentenciasTest {
+
+    private static final double LAT_PROFESOR = 7.0653;
+    private static final double LON_PROFESOR = -73.8547;
+
+    // INSERT del detalle + SELECT de sesión, curso, profesor y estudiante al armar la respuesta
+    // + COUNT de la posición de la firma. La secuencia se reserva en bloques de 50 y no cuenta por firma
+    private static final long SENTENCIAS_POR_FIRMA = 6;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private SesionRepository sesionRepository;
+    @Autowired
+    private SesionDetalleRepository sesionDetalleRepository;
+    @Autowired
+    private UserRepository usuarioRepository;
+    @Autowired
+    private CursoRepository cursoRepository;
+    @Autowired
+    private UsuarioCursoRepository usuarioCursoRepository;
+
+    private SesionService sesionService;
+    private Sesion sesion;
+    private Usuario primero;
+    private Usuario segundo;
+    private Usuario tercero;
+
+    @BeforeEach
+    void preparar() {
+        Usuario profesor = usuario("profesor");
+        Asignatura asignatura = Asignatura.builder().codigo("PRG1").nombre("Programación I").descripcion("Programación I").build();
+        entityManager.persist(asignatura);
+        Curso curso = Curso.builder().codigo("603D12025B").descripcion("Programación I - Diurna")
+            .asignatura(asignatura).profesor(profesor).build();
+        entityManager.persist(curso);
+        sesion = Sesion.builder().curso(curso).profesor(profesor).nombre("Clase 1")
+            .latitudProfesor(LAT_PROFESOR).longitudProfesor(LON_PROFESOR)
+            .fechaInicio(LocalDateTime.now().minusMinutes(5)).build();
+        entityManager.persist(sesion);
+        primero = usuario("estudiante1");
+        segundo = usuario("estudiante2");
+        tercero = usuario("estudiante3");
+        for (Usuario estudiante : new Usuario[]{primero, segundo, tercero}) {
+            entityManager.persist(UsuarioCurso.builder().usuario(estudiante).curso(curso).estado("ACTIVO").build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        ActiveSesionRegistry activeSesionRegistry = new ActiveSesionRegistry(sesionRepository, sesionDetalleRepository);
+        InscripcionIndex inscripcionIndex = new InscripcionIndex(usuarioCursoRepository);
+        activeSesionRegistry.reconstruir();
+        inscripcionIndex.reconstruir();
+        sesionService = new SesionService(sesionRepository, sesionDetalleRepository, usuarioRepository,
+            cursoRepository, usuarioCursoRepository, activeSesionRegistry, inscripcionIndex,
+            mock(EscritorFirmas.class), mock(ContadoresSesion.class), mock(EstadisticasCongeladas.class),
+            mock(TransmisionAsistencia.class), mock(VersionesSesion.class), mock(ResumenDiarioAsistencia.class),
+            mock(CuboAsistencia.class), mock(CacheReportes.class), mock(GeocercaService.class),
+            mock(AnomaliasUbicacion.class), mock(ApplicationEventPublisher.class));
+
+        // Las firmas previas inicializan el bloque de la secuencia (el optimizador pooled consulta dos
+        // veces al arrancar), como en una sesión ya en curso
+        firmar(primero);
+        firmar(tercero);
+        entityManager.clear();
+        estadisticas().clear();
+    }
+
+    @Test
+    void unaFirmaCuestaSeisSentencias() {
+        AsistenciaRegistradaResponse respuesta = firmar(segundo);
+
+        assertEquals(segundo.getId(), respuesta.getEstudiante().getId());
+        assertEquals(1, estadisticas().getEntityInsertCount());
+        assertEquals(SENTENCIAS_POR_FIRMA, estadisticas().getPrepareStatementCount(),
+            "Sentencias preparadas: " + estadisticas().getPrepareStatementCount());
+    }
+
+    @Test
+    void unaFirmaRepetidaNoConsultaLaBaseDeDatos() {
+        RuntimeException error = assertThrows(RuntimeException.class, () -> firmar(primero));
+
+        assertEquals("El estudiante ya firmó en esta sesión", error.getMessage());
+        assertEquals(0, estadisticas().getPrepareStatementCount());
+    }
+
+    private AsistenciaRegistradaResponse firmar(Usuario estudiante) {
+        SesionDetalle detalle = sesionService.registrarAsistencia(RegistrarAsistenciaRequest.builder()
+            .idSesion(sesion.getId())
+            .idEstudiante(estudiante.getId())
+            .latitudEstudiante(LAT_PROFESOR)
+            .longitudEstudiante(LON_PROFESOR)
+            .build());
+        return sesionService.convertirAAsistenciaRegistradaResponse(detalle);
+    }
+
+    private Usuario usuario(String nombre) {
+        Usuario usuario = Usuario.builder().nombre(nombre).correo(nombre + "@unipaz.edu.co")
+            .identificacion(String.valueOf(Math.abs(nombre.hashCode()))).build();
+        entityManager.persist(usuario);
+        return usuario;
+    }
+
+    private Statistics estadisticas() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,113 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.repository.UsuarioCursoRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InscripcionIndexTest {
+
+    // Cabecera de un arreglo en HotSpot de 64 bits con punteros comprimidos (marca, clase y longitud)
+    private static final long CABECERA_ARREGLO = 16;
+
+    private final UsuarioCursoRepository usuarioCursoRepository = mock(UsuarioCursoRepository.class);
+    private final InscripcionIndex index = new InscripcionIndex(usuarioCursoRepository);
+
+    @Test
+    void consultaAltasYBajas() {
+        index.cargar(List.of(new Object[]{1L, 5L}, new Object[]{1L, 9L}, new Object[]{2L, 5L}));
+
+        assertTrue(index.estaInscrito(1L, 9L));
+        assertFalse(index.estaInscrito(2L, 9L));
+        assertFalse(index.estaInscrito(3L, 5L));
+
+        index.agregar(2L, 9L);
+        index.agregar(2L, 1L);
+        assertTrue(index.estaInscrito(2L, 9L));
+        assertTrue(index.estaInscrito(2L, 1L));
+        assertEquals(3, index.totalInscritos(2L));
+
+        index.quitar(1L, 5L);
+        assertFalse(index.estaInscrito(1L, 5L));
+        assertEquals(1, index.totalInscritos(1L));
+    }
+
+    @Test
+    void unFalloSeConfirmaEnLaBaseYSeIncorporaAlIndice() {
+        index.cargar(List.<Object[]>of(new Object[]{1L, 5L}));
+        when(usuarioCursoRepository.existsInscripcionActiva(7L, 1L)).thenReturn(true);
+
+        assertTrue(index.estaInscrito(1L, 7L));
+        assertTrue(index.estaInscrito(1L, 7L));
+        assertEquals(2, index.totalInscritos(1L));
+        verify(usuarioCursoRepository, times(1)).existsInscripcionActiva(7L, 1L);
+        // Los aciertos no consultan la base
+        assertTrue(index.estaInscrito(1L, 5L));
+        verify(usuarioCursoRepository, never()).existsInscripcionActiva(5L, 1L);
+    }
+
+    @Test
+    void antesDeCargarConsultaLaBase() {
+        when(usuarioCursoRepository.existsInscripcionActiva(5L, 1L)).thenReturn(true);
+        when(usuarioCursoRepository.countByCursoIdAndEstadoActivo(1L)).thenReturn(12L);
+
+        assertTrue(index.estaInscrito(1L, 5L));
+        assertEquals(12, index.totalInscritos(1L));
+    }
+
+    @Test
+    void unaCargaConCambiosConcurrentesSeVuelveALeer() {
+        when(usuarioCursoRepository.findInscripcionesActivas())
+            .thenAnswer(invocacion -> {
+                // Un alta confirmada mientras se lee la primera vez
+                index.agregar(1L, 9L);
+                return List.<Object[]>of(new Object[]{1L, 5L});
+            })
+            .thenReturn(List.of(new Object[]{1L, 5L}, new Object[]{1L, 9L}));
+
+        index.reconstruir();
+
+        verify(usuarioCursoRepository, times(2)).findInscripcionesActivas();
+        assertEquals(2, index.totalInscritos(1L));
+    }
+
+    /**
+     * Huella de un curso de 10.000 estudiantes inscritos uno a uno en orden aleatorio: el arreglo
+     * publicado no guarda capacidad sobrante, así que ocupa la cabecera más 8 bytes por inscripción.
+     * Como referencia, un HashSet<Long> necesita por elemento un nodo de HashMap (32 bytes), un Long
+     * (16 bytes) y al menos una celda de la tabla (4 bytes con punteros comprimidos).
+     */
+    @Test
+    @Tag("lento")
+    void unCursoDeDiezMilEstudiantesOcupaOchoBytesPorInscripcion() {
+        int estudiantes = 10_000;
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= estudiantes; id++) {
+            ids.add(id * 7919);
+        }
+        Collections.shuffle(ids, new Random(11));
+        index.cargar(List.of());
+        ids.forEach(id -> index.agregar(1L, id));
+
+        long[] publicado = index.estudiantesDe(1L);
+        long bytesArreglo = alinear(CABECERA_ARREGLO + 8L * publicado.length);
+        long bytesHashSet = (long) estudiantes * (32 + 16 + 4);
+        System.out.printf("long[]: %d bytes (%.1f por inscripción), HashSet<Long>: al menos %d bytes%n",
+            bytesArreglo, (double) bytesArreglo / estudiantes, bytesHashSet);
+
+        assertEquals(estudiantes, publicado.length);
+        assertEquals(80_016, bytesArreglo);
+        assertTrue(bytesArreglo * 6 < bytesHashSet);
+    }
+
+    private static long alinear(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
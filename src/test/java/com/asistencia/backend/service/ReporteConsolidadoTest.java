@@ -0,0 +1,139 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.Config.AuditorAwareImpl;
+import com.asistencia.backend.dto.CursoEstadisticasDTO;
+import com.asistencia.backend.dto.ReporteConsolidadoEstudianteDTO;
+import com.asistencia.backend.dto.ReporteConsolidadoProfesorDTO;
+import com.asistencia.backend.model.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los consolidados de profesor y estudiante salen de una consulta agrupada cada uno,
+ * sin importar cuántos cursos tengan.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "asistencia.cubo.intervalo-ms=0",
+    "asistencia.dashboard.intervalo-ms=0"
+})
+@Import({AuditorAwareImpl.class, ReporteService.class, CuboAsistencia.class, ResumenDiarioAsistencia.class, CacheReportes.class})
+class ReporteConsolidadoTest {
+
+    private static final int CURSOS = 15;
+    private static final int SESIONES_POR_CURSO = 4;
+    private static final LocalDate FECHA = LocalDate.of(2025, 3, 10);
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ReporteService reporteService;
+
+    private Usuario profesor;
+    private Usuario otroProfesor;
+    private Usuario estudiante;
+
+    @BeforeEach
+    void preparar() {
+        profesor = usuario("Marta", "Gómez");
+        otroProfesor = usuario("Luis", "Pardo");
+        estudiante = usuario("Ana", "Ruiz");
+        Asignatura asignatura = Asignatura.builder().codigo("PRG1").nombre("Programación I").descripcion("Programación I").build();
+        entityManager.persist(asignatura);
+
+        for (int i = 0; i < CURSOS; i++) {
+            Curso curso = curso(asignatura, profesor, i, i % 2 == 0 ? "2025-1" : "2024-2");
+            entityManager.persist(UsuarioCurso.builder().usuario(estudiante).curso(curso).estado("ACTIVO").build());
+            for (int j = 0; j < SESIONES_POR_CURSO; j++) {
+                entityManager.persist(Sesion.builder().curso(curso).profesor(profesor).nombre("Clase " + j)
+                    .latitudProfesor(7.0653).longitudProfesor(-73.8547).fechaInicio(LocalDateTime.now()).build());
+            }
+            // 3 presentes y 1 tardío por curso
+            entityManager.persist(hecho(curso, EstadoAsistencia.PRESENTE, 3));
+            entityManager.persist(hecho(curso, EstadoAsistencia.TARDIO, 1));
+        }
+        curso(asignatura, otroProfesor, CURSOS, "2025-1");
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas().clear();
+    }
+
+    @Test
+    void consolidadoDelProfesorEnUnaConsulta() {
+        ReporteConsolidadoProfesorDTO reporte = reporteService.getReporteConsolidadoProfesor(profesor.getId(), null);
+
+        assertEquals(1, estadisticas().getPrepareStatementCount());
+        assertEquals("Marta Gómez", reporte.getProfesor());
+        assertEquals(CURSOS, reporte.getCursos().size());
+        for (CursoEstadisticasDTO curso : reporte.getCursos()) {
+            assertEquals(SESIONES_POR_CURSO, curso.getSesionesRealizadas());
+            assertEquals(75.0, curso.getPromedioAsistencia());
+        }
+
+        estadisticas().clear();
+        ReporteConsolidadoProfesorDTO unCurso = reporteService.getReporteConsolidadoProfesor(otroProfesor.getId(), null);
+        assertEquals(1, estadisticas().getPrepareStatementCount());
+        assertEquals(1, unCurso.getCursos().size());
+        assertEquals(0.0, unCurso.getCursos().get(0).getPromedioAsistencia());
+    }
+
+    @Test
+    void consolidadoDelEstudianteFiltraElPeriodoEnLaConsulta() {
+        ReporteConsolidadoEstudianteDTO reporte = reporteService.getReporteConsolidadoEstudiante(estudiante.getId(), "2025-1");
+
+        assertEquals(1, estadisticas().getPrepareStatementCount());
+        assertEquals("Ana Ruiz", reporte.getEstudiante());
+        assertEquals((CURSOS + 1) / 2, reporte.getCursos().size());
+        reporte.getCursos().forEach(curso -> {
+            assertEquals(3, curso.getAsistencias());
+            assertEquals(SESIONES_POR_CURSO - 3, curso.getAusencias());
+        });
+    }
+
+    @Test
+    void sinCursosElNombreSaleDelUsuario() {
+        ReporteConsolidadoEstudianteDTO reporte = reporteService.getReporteConsolidadoEstudiante(profesor.getId(), null);
+
+        assertTrue(reporte.getCursos().isEmpty());
+        assertEquals("Marta Gómez", reporte.getEstudiante());
+    }
+
+    private Curso curso(Asignatura asignatura, Usuario profesor, int numero, String periodo) {
+        Curso curso = Curso.builder().codigo("603D" + numero).descripcion("Curso " + numero).nombre("Curso " + numero)
+            .periodo(periodo).asignatura(asignatura).profesor(profesor).build();
+        entityManager.persist(curso);
+        return curso;
+    }
+
+    private HechoAsistencia hecho(Curso curso, EstadoAsistencia estado, long cantidad) {
+        return HechoAsistencia.builder().idCurso(curso.getId()).idEstudiante(estudiante.getId())
+            .fecha(FECHA).estado(estado).cantidad(cantidad).build();
+    }
+
+    private Usuario usuario(String nombre, String apellido) {
+        Usuario usuario = Usuario.builder().nombre(nombre).apellido(apellido).correo(nombre + "@unipaz.edu.co")
+            .identificacion(String.valueOf(Math.abs((nombre + apellido).hashCode()))).build();
+        entityManager.persist(usuario);
+        return usuario;
+    }
+
+    private Statistics estadisticas() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
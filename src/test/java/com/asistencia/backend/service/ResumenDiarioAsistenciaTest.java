@@ -0,0 +1,178 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.Config.AuditorAwareImpl;
+import com.asistencia.backend.dto.EstadoActualizacionDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.*;
+import com.asistencia.backend.repository.AsistenciaDiariaCursoRepository;
+import com.asistencia.backend.repository.SesionDetalleRepository;
+import com.asistencia.backend.repository.SesionRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * El resumen diario se recalcula desde los detalles con consultas agrupadas y suma las firmas
+ * confirmadas después; el dashboard lee una fila por curso.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    // Sin programador: la prueba aplica y reconcilia a mano
+    "asistencia.dashboard.intervalo-ms=0"
+})
+@Import({AuditorAwareImpl.class, ResumenDiarioAsistencia.class})
+class ResumenDiarioAsistenciaTest {
+
+    private static final LocalDate LUNES = LocalDate.of(2025, 3, 10);
+    private static final LocalDate MARTES = LUNES.plusDays(1);
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private AsistenciaDiariaCursoRepository asistenciaDiariaCursoRepository;
+    @Autowired
+    private ResumenDiarioAsistencia resumenDiarioAsistencia;
+
+    private Curso curso;
+
+    @BeforeEach
+    void preparar() {
+        Usuario profesor = usuario("profesor");
+        Asignatura asignatura = Asignatura.builder().codigo("PRG1").nombre("Programación I").descripcion("Programación I").build();
+        entityManager.persist(asignatura);
+        curso = Curso.builder().codigo("603D12025B").descripcion("Programación I - Diurna").nombre("Programación I - Diurna")
+            .periodo("2025-1").asignatura(asignatura).profesor(profesor).build();
+        entityManager.persist(curso);
+
+        Sesion lunes = sesion(profesor, LUNES.atTime(8, 0));
+        Sesion martes = sesion(profesor, MARTES.atTime(8, 0));
+        for (int i = 0; i < 10; i++) {
+            Usuario estudiante = usuario("estudiante" + i);
+            entityManager.persist(firma(lunes, estudiante, i < 7 ? EstadoAsistencia.PRESENTE : EstadoAsistencia.TARDIO, LUNES.atTime(8, 5)));
+            if (i < 5) {
+                entityManager.persist(firma(martes, estudiante, EstadoAsistencia.PRESENTE, MARTES.atTime(8, 5)));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void recalculaLosDiasYSumaLasFirmasConfirmadas() {
+        resumenDiarioAsistencia.reconciliar(LUNES, MARTES);
+
+        assertEquals(2, asistenciaDiariaCursoRepository.count());
+        assertResumen(2, 12, 15);
+
+        resumenDiarioAsistencia.alRegistrarFirma(FirmaRegistradaEvent.builder()
+            .idCurso(curso.getId())
+            .estado(EstadoAsistencia.PRESENTE)
+            .fechaFirma(MARTES.atTime(8, 20))
+            .build());
+        resumenDiarioAsistencia.aplicarPendientes();
+
+        assertResumen(2, 13, 16);
+        assertTrue(asistenciaDiariaCursoRepository.resumenPorCurso("2024-2").isEmpty());
+    }
+
+    @Test
+    void unaFirmaPendienteAntesDelRecalculoNoSeCuentaDosVeces() {
+        resumenDiarioAsistencia.alRegistrarFirma(FirmaRegistradaEvent.builder()
+            .idCurso(curso.getId())
+            .estado(EstadoAsistencia.PRESENTE)
+            .fechaFirma(MARTES.atTime(8, 5))
+            .build());
+
+        // La firma ya está en los detalles que lee el recálculo
+        resumenDiarioAsistencia.reconciliar(LUNES, MARTES);
+        resumenDiarioAsistencia.aplicarPendientes();
+
+        assertResumen(2, 12, 15);
+    }
+
+    @Test
+    void unaFirmaDeUnDiaSinFilaLaCrea() {
+        resumenDiarioAsistencia.alRegistrarFirma(FirmaRegistradaEvent.builder()
+            .idCurso(curso.getId())
+            .estado(EstadoAsistencia.FUERA_RANGO)
+            .fechaFirma(MARTES.plusDays(1).atTime(9, 0))
+            .build());
+        resumenDiarioAsistencia.aplicarPendientes();
+
+        assertEquals(1, asistenciaDiariaCursoRepository.count());
+        assertResumen(0, 0, 1);
+    }
+
+    private void assertResumen(long sesiones, long presentes, long firmas) {
+        List<Object[]> resumen = asistenciaDiariaCursoRepository.resumenPorCurso("2025-1");
+        assertEquals(1, resumen.size());
+        assertEquals(curso.getId(), resumen.get(0)[0]);
+        assertEquals(sesiones, resumen.get(0)[2]);
+        assertEquals(presentes, resumen.get(0)[3]);
+        assertEquals(firmas, resumen.get(0)[4]);
+    }
+
+    @Test
+    void unCicloFallidoQuedaEnElEstadoHastaElSiguienteCorrecto() {
+        AsistenciaDiariaCursoRepository repositorio = mock(AsistenciaDiariaCursoRepository.class);
+        ResumenDiarioAsistencia resumen = new ResumenDiarioAsistencia(repositorio, mock(SesionDetalleRepository.class),
+            mock(SesionRepository.class), mock(PlatformTransactionManager.class), 0, 7);
+        when(repositorio.count()).thenThrow(new RuntimeException("Base de datos no disponible"));
+
+        resumen.actualizar();
+        resumen.actualizar();
+
+        EstadoActualizacionDTO estado = resumen.getEstado();
+        assertNull(estado.getUltimaEjecucion());
+        assertEquals("RuntimeException: Base de datos no disponible", estado.getUltimoError());
+        assertNotNull(estado.getFechaUltimoError());
+        assertEquals(2, estado.getErroresSeguidos());
+
+        doReturn(1L).when(repositorio).count();
+        resumen.actualizar();
+
+        estado = resumen.getEstado();
+        assertNotNull(estado.getUltimaEjecucion());
+        assertEquals(0, estado.getErroresSeguidos());
+        // El último error se conserva para diagnóstico
+        assertEquals("RuntimeException: Base de datos no disponible", estado.getUltimoError());
+    }
+
+    private Sesion sesion(Usuario profesor, LocalDateTime fechaInicio) {
+        Sesion sesion = Sesion.builder().curso(curso).profesor(profesor).nombre("Clase")
+            .latitudProfesor(7.0653).longitudProfesor(-73.8547).fechaInicio(fechaInicio).build();
+        entityManager.persist(sesion);
+        return sesion;
+    }
+
+    private SesionDetalle firma(Sesion sesion, Usuario estudiante, EstadoAsistencia estado, LocalDateTime fechaFirma) {
+        return SesionDetalle.builder()
+            .sesion(sesion)
+            .estudiante(estudiante)
+            .fechaFirma(fechaFirma)
+            .estado(estado)
+            .latitudEstudiante(7.0653)
+            .longitudEstudiante(-73.8547)
+            .distanciaMetros(1.0)
+            .build();
+    }
+
+    private Usuario usuario(String nombre) {
+        Usuario usuario = Usuario.builder().nombre(nombre).correo(nombre + "@unipaz.edu.co")
+            .identificacion(String.valueOf(Math.abs(nombre.hashCode()))).build();
+        entityManager.persist(usuario);
+        return usuario;
+    }
+}
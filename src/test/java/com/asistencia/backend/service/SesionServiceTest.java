@@ -0,0 +1,232 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.AnomaliaUbicacionDTO;
+import com.asistencia.backend.dto.EstadisticasSesionDTO;
+import com.asistencia.backend.dto.RegistrarAsistenciaRequest;
+import com.asistencia.backend.dto.ReporteAsistenciaResponse;
+import com.asistencia.backend.dto.SesionProfesorResponse;
+import com.asistencia.backend.dto.SesionSnapshotDTO;
+import com.asistencia.backend.model.Curso;
+import com.asistencia.backend.model.EstadoAsistencia;
+import com.asistencia.backend.model.Sesion;
+import com.asistencia.backend.model.SesionDetalle;
+import com.asistencia.backend.model.SesionEstadisticas;
+import com.asistencia.backend.model.Usuario;
+import com.asistencia.backend.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SesionServiceTest {
+
+    private static final double LAT_PROFESOR = 7.0653;
+    private static final double LON_PROFESOR = -73.8547;
+
+    @Mock
+    private SesionRepository sesionRepository;
+    @Mock
+    private SesionDetalleRepository sesionDetalleRepository;
+    @Mock
+    private UserRepository usuarioRepository;
+    @Mock
+    private CursoRepository cursoRepository;
+    @Mock
+    private UsuarioCursoRepository usuarioCursoRepository;
+    @Mock
+    private ActiveSesionRegistry activeSesionRegistry;
+    @Mock
+    private InscripcionIndex inscripcionIndex;
+    @Mock
+    private EscritorFirmas escritorFirmas;
+    @Mock
+    private ContadoresSesion contadoresSesion;
+    @Mock
+    private EstadisticasCongeladas estadisticasCongeladas;
+    @Mock
+    private TransmisionAsistencia transmisionAsistencia;
+    @Mock
+    private VersionesSesion versionesSesion;
+    @Mock
+    private ResumenDiarioAsistencia resumenDiarioAsistencia;
+    @Mock
+    private CuboAsistencia cuboAsistencia;
+    @Mock
+    private CacheReportes cacheReportes;
+    @Mock
+    private GeocercaService geocercaService;
+    @Mock
+    private AnomaliasUbicacion anomaliasUbicacion;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private SesionService sesionService;
+
+    @Test
+    void registrarAsistenciaRechazaFirmaDuplicadaSinInsertar() {
+        when(activeSesionRegistry.obtener(1L)).thenReturn(Optional.of(sesionActiva()));
+        when(inscripcionIndex.estaInscrito(10L, 2L)).thenReturn(true);
+        when(activeSesionRegistry.marcarFirma(1L, 2L)).thenReturn(false);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> sesionService.registrarAsistencia(request(LAT_PROFESOR, LON_PROFESOR)));
+
+        assertEquals("El estudiante ya firmó en esta sesión", error.getMessage());
+        verifyNoInteractions(sesionDetalleRepository);
+    }
+
+    /**
+     * Dos firmas simultáneas que pasan el registro en memoria (por ejemplo, en dos instancias)
+     * terminan en la restricción única; la violación se responde igual que una firma repetida.
+     */
+    @Test
+    void registrarAsistenciaTraduceViolacionDeRestriccionUnica() {
+        when(activeSesionRegistry.obtener(1L)).thenReturn(Optional.of(sesionActiva()));
+        when(inscripcionIndex.estaInscrito(10L, 2L)).thenReturn(true);
+        when(activeSesionRegistry.marcarFirma(1L, 2L)).thenReturn(true);
+        when(sesionDetalleRepository.saveAndFlush(any(SesionDetalle.class)))
+            .thenThrow(new DataIntegrityViolationException("uk_sesiones_detalle"));
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> sesionService.registrarAsistencia(request(LAT_PROFESOR, LON_PROFESOR)));
+
+        assertEquals("El estudiante ya firmó en esta sesión", error.getMessage());
+    }
+
+    @Test
+    void registrarAsistenciaRechazaEstudianteNoInscrito() {
+        when(activeSesionRegistry.obtener(1L)).thenReturn(Optional.of(sesionActiva()));
+        when(inscripcionIndex.estaInscrito(10L, 2L)).thenReturn(false);
+        when(usuarioCursoRepository.existsByUsuarioIdAndCursoId(2L, 10L)).thenReturn(false);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> sesionService.registrarAsistencia(request(LAT_PROFESOR, LON_PROFESOR)));
+
+        assertEquals("El estudiante no está inscrito en este curso", error.getMessage());
+        verifyNoInteractions(sesionDetalleRepository);
+    }
+
+    /**
+     * Una página de sesiones se arma con una sola llamada a los contadores, sin importar su tamaño,
+     * y sin consultas por sesión (el curso viene con la página).
+     */
+    @Test
+    void listadoDeProfesorNoConsultaPorSesion() {
+        Curso curso = Curso.builder().id(10L).codigo("603D12025B").build();
+        List<Sesion> pagina = LongStream.rangeClosed(1, 20)
+            .mapToObj(id -> Sesion.builder().id(id).curso(curso).build())
+            .toList();
+        Map<Long, ContadoresSesion.Conteo> conteos = new HashMap<>();
+        pagina.forEach(sesion -> conteos.put(sesion.getId(), new ContadoresSesion.Conteo(2, new long[]{2, 0, 0, 0})));
+        when(contadoresSesion.obtenerTodos(anyList())).thenReturn(conteos);
+        when(inscripcionIndex.totalInscritos(10L)).thenReturn(4);
+
+        List<SesionProfesorResponse> respuestas = sesionService.convertirASesionesProfesorResponse(pagina);
+
+        assertEquals(20, respuestas.size());
+        assertEquals(50.0, respuestas.get(0).getEstadisticas().getPorcentajeAsistencia().doubleValue());
+        verify(contadoresSesion, times(1)).obtenerTodos(anyList());
+        verifyNoInteractions(sesionRepository, sesionDetalleRepository, usuarioRepository,
+            cursoRepository, usuarioCursoRepository);
+    }
+
+    /**
+     * Una sesión cerrada se responde con las cifras congeladas al cerrarla, sin consultar
+     * los contadores ni los detalles de asistencia.
+     */
+    @Test
+    void estadisticasDeSesionCerradaSalenDeLasCifrasCongeladas() {
+        when(activeSesionRegistry.obtener(1L)).thenReturn(Optional.of(SesionSnapshotDTO.builder()
+            .id(1L).estado("FINALIZADA").idCurso(10L).build()));
+        when(estadisticasCongeladas.buscar(1L, "FINALIZADA")).thenReturn(Optional.of(SesionEstadisticas.builder()
+            .idSesion(1L).totalInscritos(40L).totalFirmaron(30L)
+            .presentes(20L).ausentes(0L).tardios(6L).fueraRango(4L)
+            .build()));
+
+        EstadisticasSesionDTO stats = sesionService.getEstadisticasSesion(1L);
+
+        assertEquals(40L, stats.getTotalInscritos());
+        assertEquals(30L, stats.getTotalFirmaron());
+        assertEquals(6L, stats.getTardios());
+        assertEquals(50.0, stats.getPorcentajeAsistencia().doubleValue());
+        verifyNoInteractions(contadoresSesion, inscripcionIndex, sesionDetalleRepository);
+    }
+
+    /**
+     * Las firmas que AnomaliasUbicacion agrupa en un mismo punto salen marcadas en el reporte de la sesión.
+     */
+    @Test
+    void reporteMarcaLasFirmasConUbicacionSospechosa() {
+        Sesion sesion = Sesion.builder()
+            .id(1L)
+            .estado("ACTIVA")
+            .fechaInicio(LocalDateTime.now().minusMinutes(30))
+            .curso(Curso.builder().id(10L).nombre("Cálculo").build())
+            .profesor(Usuario.builder().id(1L).nombre("Ana").apellido("Ruiz").build())
+            .build();
+        when(activeSesionRegistry.obtener(1L)).thenReturn(Optional.of(sesionActiva()));
+        when(contadoresSesion.obtener(1L)).thenReturn(new ContadoresSesion.Conteo(2, new long[]{2, 0, 0, 0}));
+        when(sesionDetalleRepository.findBySesionId(1L)).thenReturn(List.of(detalle(100L, sesion, 2L), detalle(101L, sesion, 3L)));
+        AnomaliaUbicacionDTO anomalia = AnomaliaUbicacionDTO.builder()
+            .latitud(LAT_PROFESOR).longitud(LON_PROFESOR).totalFirmas(3)
+            .idsEstudiantes(List.of(2L, 4L, 5L)).idsDetalle(List.of(100L, 102L, 103L))
+            .build();
+        when(anomaliasUbicacion.obtener(1L)).thenReturn(List.of(anomalia));
+
+        ReporteAsistenciaResponse reporte = sesionService.convertirAReporteAsistenciaResponse(sesion);
+
+        assertEquals(List.of(anomalia), reporte.getAnomaliasUbicacion());
+        Map<Long, Boolean> sospechosas = new HashMap<>();
+        reporte.getAsistencias().forEach(fila -> sospechosas.put(fila.getId(), fila.getUbicacionSospechosa()));
+        assertEquals(Map.of(100L, true, 101L, false), sospechosas);
+    }
+
+    private SesionDetalle detalle(Long id, Sesion sesion, Long idEstudiante) {
+        return SesionDetalle.builder()
+            .id(id)
+            .sesion(sesion)
+            .estudiante(Usuario.builder().id(idEstudiante).nombre("Estudiante").apellido(String.valueOf(idEstudiante)).build())
+            .estado(EstadoAsistencia.PRESENTE)
+            .fechaFirma(LocalDateTime.now().minusMinutes(10))
+            .distanciaMetros(1.0)
+            .build();
+    }
+
+    private SesionSnapshotDTO sesionActiva() {
+        return SesionSnapshotDTO.builder()
+            .id(1L)
+            .estado("ACTIVA")
+            .latitudProfesor(LAT_PROFESOR)
+            .longitudProfesor(LON_PROFESOR)
+            .radioProximidad(6.0)
+            .fechaInicio(LocalDateTime.now().minusMinutes(5))
+            .idCurso(10L)
+            .build();
+    }
+
+    private RegistrarAsistenciaRequest request(double latitud, double longitud) {
+        return RegistrarAsistenciaRequest.builder()
+            .idSesion(1L)
+            .idEstudiante(2L)
+            .latitudEstudiante(latitud)
+            .longitudEstudiante(longitud)
+            .build();
+    }
+}
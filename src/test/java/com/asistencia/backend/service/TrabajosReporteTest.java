@@ -0,0 +1,124 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.SolicitudReporteRequest;
+import com.asistencia.backend.dto.TrabajoReporteDTO;
+import com.asistencia.backend.util.EscritorExportacion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TrabajosReporteTest {
+
+    @TempDir
+    Path directorio;
+
+    private final ReporteService reporteService = mock(ReporteService.class);
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private TrabajosReporte trabajosReporte;
+
+    @AfterEach
+    void detener() {
+        liberar.countDown();
+        if (trabajosReporte != null) {
+            trabajosReporte.detener();
+        }
+    }
+
+    @Test
+    void escribeElArchivoYLoDejaParaDescargar() throws Exception {
+        trabajosReporte = new TrabajosReporte(reporteService, directorio.toString(), 1, 5, 60);
+        exportacionQueEspera();
+        liberar.countDown();
+
+        TrabajoReporteDTO trabajo = trabajosReporte.encolar(solicitud("2025-1"));
+        TrabajoReporteDTO terminado = esperar(trabajo.getId());
+
+        assertEquals("COMPLETADO", terminado.getEstado());
+        assertEquals(2, terminado.getFilas());
+        assertEquals(100.0, terminado.getProgreso());
+        TrabajosReporte.Descarga descarga = trabajosReporte.getDescarga(trabajo.getId());
+        assertEquals("id\n1\n2\n", Files.readString(descarga.archivo()));
+        assertEquals(descarga.archivo().toFile().length(), terminado.getBytes());
+        assertEquals("asistencia_2025-1.csv", descarga.nombreArchivo());
+    }
+
+    @Test
+    void unaSolicitudIgualRecibeElMismoTrabajoYLaColaEsAcotada() throws Exception {
+        trabajosReporte = new TrabajosReporte(reporteService, directorio.toString(), 1, 1, 60);
+        exportacionQueEspera();
+
+        String enCurso = trabajosReporte.encolar(solicitud("2025-1")).getId();
+        assertEquals(enCurso, trabajosReporte.encolar(solicitud("2025-1")).getId());
+        String enCola = trabajosReporte.encolar(solicitud("2025-2")).getId();
+        assertNotEquals(enCurso, enCola);
+
+        RuntimeException llena = assertThrows(RuntimeException.class, () -> trabajosReporte.encolar(solicitud("2024-2")));
+        assertEquals("Hay demasiados reportes en cola, intente más tarde", llena.getMessage());
+        assertThrows(RuntimeException.class, () -> trabajosReporte.getDescarga(enCurso));
+
+        liberar.countDown();
+        esperar(enCurso);
+        esperar(enCola);
+        assertNotEquals(enCurso, trabajosReporte.encolar(solicitud("2025-1")).getId());
+    }
+
+    @Test
+    void losTrabajosVencidosSeBorranConSuArchivo() throws Exception {
+        trabajosReporte = new TrabajosReporte(reporteService, directorio.toString(), 1, 5, 0);
+        exportacionQueEspera();
+        liberar.countDown();
+
+        String id = trabajosReporte.encolar(solicitud("2025-1")).getId();
+        esperar(id);
+        Path archivo = trabajosReporte.getDescarga(id).archivo();
+
+        trabajosReporte.eliminarVencidos();
+
+        assertFalse(Files.exists(archivo));
+        assertThrows(RuntimeException.class, () -> trabajosReporte.getTrabajo(id));
+    }
+
+    // Escribe dos filas cuando el test lo permite
+    private void exportacionQueEspera() throws Exception {
+        when(reporteService.nombreArchivoPeriodo(anyString(), any(), anyBoolean()))
+            .thenAnswer(invocacion -> "asistencia_" + invocacion.getArgument(0) + ".csv");
+        when(reporteService.exportarPeriodo(anyString(), any(EscritorExportacion.Formato.class), anyBoolean(),
+                any(OutputStream.class), any(LongConsumer.class)))
+            .thenAnswer(invocacion -> {
+                assertTrue(liberar.await(10, TimeUnit.SECONDS));
+                OutputStream salida = invocacion.getArgument(3);
+                salida.write("id\n1\n2\n".getBytes(StandardCharsets.UTF_8));
+                invocacion.<LongConsumer>getArgument(4).accept(2);
+                return 2L;
+            });
+        when(reporteService.contarFirmasPeriodo(anyString())).thenReturn(2L);
+    }
+
+    private TrabajoReporteDTO esperar(String id) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            TrabajoReporteDTO trabajo = trabajosReporte.getTrabajo(id);
+            if (trabajo.getFechaFin() != null) {
+                return trabajo;
+            }
+            Thread.sleep(25);
+        }
+        fail("El reporte no terminó");
+        return null;
+    }
+
+    private static SolicitudReporteRequest solicitud(String periodo) {
+        return SolicitudReporteRequest.builder().tipo("periodo").periodo(periodo).formato("csv").build();
+    }
+}
@@ -0,0 +1,197 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.dto.ActualizacionAsistenciaDTO;
+import com.asistencia.backend.dto.SesionSnapshotDTO;
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import com.asistencia.backend.model.EstadoAsistencia;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class TransmisionAsistenciaTest {
+
+    private static final int SESIONES = 50;
+    private static final int SUSCRIPTORES_POR_SESION = 20;
+    private static final int FIRMAS_POR_SESION = 40;
+    private static final int MAX_EVENTOS_POR_SEGUNDO = 4;
+
+    private TransmisionAsistencia transmision;
+
+    @BeforeEach
+    void preparar() {
+        ActiveSesionRegistry registro = mock(ActiveSesionRegistry.class);
+        ContadoresSesion contadores = mock(ContadoresSesion.class);
+        InscripcionIndex inscripciones = mock(InscripcionIndex.class);
+        when(registro.obtener(anyLong())).thenAnswer(inv -> Optional.of(SesionSnapshotDTO.builder()
+            .id(inv.getArgument(0)).estado("ACTIVA").idCurso(inv.getArgument(0)).build()));
+        when(contadores.obtener(anyLong())).thenReturn(new ContadoresSesion.Conteo(0, new long[EstadoAsistencia.values().length]));
+        when(inscripciones.totalInscritos(anyLong())).thenReturn(FIRMAS_POR_SESION);
+        transmision = new TransmisionAsistencia(registro, contadores, inscripciones, MAX_EVENTOS_POR_SEGUNDO, 60_000);
+    }
+
+    @AfterEach
+    void detener() {
+        transmision.detener();
+    }
+
+    /**
+     * 1.000 suscriptores repartidos en 50 sesiones, con firmas concurrentes durante unos dos segundos.
+     * Cada suscriptor debe recibir todas las firmas de su sesión, agrupadas en menos eventos que
+     * firmas, con un solo difusor por sesión.
+     */
+    @Test
+    void milSuscriptoresEnCincuentaSesiones() throws Exception {
+        List<EmisorDePrueba> emisores = new ArrayList<>();
+        for (long idSesion = 1; idSesion <= SESIONES; idSesion++) {
+            for (int i = 0; i < SUSCRIPTORES_POR_SESION; i++) {
+                EmisorDePrueba emisor = new EmisorDePrueba();
+                transmision.suscribir(idSesion, emisor);
+                emisores.add(emisor);
+            }
+        }
+        assertEquals(SESIONES, transmision.totalDifusores());
+
+        ExecutorService firmantes = Executors.newFixedThreadPool(SESIONES);
+        for (long idSesion = 1; idSesion <= SESIONES; idSesion++) {
+            long sesion = idSesion;
+            firmantes.execute(() -> {
+                for (long estudiante = 1; estudiante <= FIRMAS_POR_SESION; estudiante++) {
+                    transmision.alRegistrarFirma(firma(sesion, estudiante));
+                    dormir(50);
+                }
+            });
+        }
+        firmantes.shutdown();
+        assertTrue(firmantes.awaitTermination(30, TimeUnit.SECONDS));
+
+        esperarHasta(() -> emisores.stream().allMatch(e -> e.firmas.get() >= FIRMAS_POR_SESION));
+
+        emisores.forEach(e -> assertEquals(FIRMAS_POR_SESION, e.firmas.get()));
+        int maxEventos = emisores.stream().mapToInt(e -> e.eventos.get()).max().orElse(0);
+        assertTrue(maxEventos < FIRMAS_POR_SESION / 2, "Las firmas deberían llegar agrupadas: " + maxEventos + " eventos");
+    }
+
+    /**
+     * Un cliente que no lee no retrasa a los demás suscriptores de la sesión; al acumular
+     * MAX_PENDIENTES eventos se desconecta.
+     */
+    @Test
+    void unClienteLentoNoDetieneALosDemas() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        EmisorDePrueba lento = new EmisorDePrueba() {
+            @Override
+            public void send(SseEventBuilder evento) {
+                try {
+                    liberar.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(evento);
+            }
+        };
+        EmisorDePrueba agil = new EmisorDePrueba();
+        transmision.suscribir(1L, lento);
+        transmision.suscribir(1L, agil);
+
+        for (long estudiante = 1; estudiante <= 3; estudiante++) {
+            transmision.alRegistrarFirma(firma(1L, estudiante));
+            dormir(300);
+        }
+        esperarHasta(() -> agil.firmas.get() == 3);
+        assertEquals(0, lento.firmas.get());
+
+        for (int i = 0; i < TransmisionAsistencia.MAX_PENDIENTES; i++) {
+            transmision.alRegistrarFirma(firma(1L, 100 + i));
+            dormir(1_000 / MAX_EVENTOS_POR_SEGUNDO + 20);
+        }
+        liberar.countDown();
+        esperarHasta(() -> agil.firmas.get() == 3 + TransmisionAsistencia.MAX_PENDIENTES);
+        esperarHasta(() -> lento.completado);
+        assertTrue(lento.firmas.get() < agil.firmas.get());
+    }
+
+    @Test
+    void unaSesionCerradaNoAdmiteSuscriptores() {
+        ActiveSesionRegistry registro = mock(ActiveSesionRegistry.class);
+        when(registro.obtener(1L)).thenReturn(Optional.of(SesionSnapshotDTO.builder().id(1L).estado("FINALIZADA").build()));
+        TransmisionAsistencia cerrada = new TransmisionAsistencia(registro, mock(ContadoresSesion.class),
+            mock(InscripcionIndex.class), MAX_EVENTOS_POR_SEGUNDO, 60_000);
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> cerrada.suscribir(1L, new EmisorDePrueba()));
+
+        assertTrue(error.getMessage().startsWith("Solo se puede seguir en vivo una sesión ACTIVA"));
+        assertEquals(0, cerrada.totalDifusores());
+        cerrada.detener();
+    }
+
+    private static FirmaRegistradaEvent firma(long idSesion, long idEstudiante) {
+        return FirmaRegistradaEvent.builder()
+            .idDetalle(idSesion * 1_000 + idEstudiante)
+            .idSesion(idSesion)
+            .idEstudiante(idEstudiante)
+            .estado(EstadoAsistencia.PRESENTE)
+            .fechaFirma(LocalDateTime.now())
+            .distanciaMetros(2.0)
+            .build();
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "La condición no se cumplió a tiempo");
+            dormir(20);
+        }
+    }
+
+    private static void dormir(long milisegundos) {
+        try {
+            Thread.sleep(milisegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Emisor que cuenta los eventos "firmas" y las firmas recibidas en lugar de escribir a una conexión.
+     */
+    private static class EmisorDePrueba extends SseEmitter {
+        private final AtomicInteger eventos = new AtomicInteger();
+        private final AtomicInteger firmas = new AtomicInteger();
+        private volatile boolean completado;
+
+        @Override
+        public void complete() {
+            completado = true;
+        }
+
+        @Override
+        public void send(SseEventBuilder evento) {
+            evento.build().stream()
+                .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                .filter(ActualizacionAsistenciaDTO.class::isInstance)
+                .map(ActualizacionAsistenciaDTO.class::cast)
+                .filter(actualizacion -> !actualizacion.getFirmas().isEmpty())
+                .forEach(actualizacion -> {
+                    eventos.incrementAndGet();
+                    firmas.addAndGet(actualizacion.getFirmas().size());
+                });
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.asistencia.backend.service;
+
+import com.asistencia.backend.event.FirmaRegistradaEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionesSesionTest {
+
+    @Test
+    void laEtagCambiaConCadaFirmaYCambioDeLaSesion() {
+        VersionesSesion versiones = new VersionesSesion();
+        String inicial = versiones.etag(1L);
+
+        versiones.alRegistrarFirma(FirmaRegistradaEvent.builder().idSesion(1L).build());
+        String trasFirma = versiones.etag(1L);
+        // Sin transacción activa el cambio se aplica de inmediato
+        versiones.incrementar(1L);
+        String trasCierre = versiones.etag(1L);
+
+        assertNotEquals(inicial, trasFirma);
+        assertNotEquals(trasFirma, trasCierre);
+        assertTrue(trasCierre.startsWith("\"") && trasCierre.endsWith("\""));
+    }
+
+    @Test
+    void unaFirmaNoCambiaLaEtagDeOtrasSesiones() {
+        VersionesSesion versiones = new VersionesSesion();
+        String otra = versiones.etag(2L);
+
+        versiones.alRegistrarFirma(FirmaRegistradaEvent.builder().idSesion(1L).build());
+
+        assertEquals(otra, versiones.etag(2L));
+        versiones.incrementarGeneral();
+        assertNotEquals(otra, versiones.etag(2L));
+    }
+}
@@ -0,0 +1,116 @@
+package com.asistencia.backend.util;
+
+import com.asistencia.backend.model.EstadoAsistencia;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscritorExportacionTest {
+
+    private static final String[] COLUMNAS = {
+        "id", "fechaFirma", "estado", "distanciaMetros", "latitudEstudiante", "longitudEstudiante", "observacion",
+        "idEstudiante", "identificacion", "nombre", "apellido", "correo", "idCurso", "codigoCurso", "nombreCurso",
+        "idSesion", "nombreSesion", "fechaInicioSesion"
+    };
+    private static final int FILAS = 5_000_000;
+    // Crecimiento máximo del heap durante la exportación de 5M de filas
+    private static final long CRECIMIENTO_MAXIMO_BYTES = 8L * 1024 * 1024;
+
+    @Test
+    void csvEscapaSeparadoresYComillas() throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (EscritorExportacion csv = new EscritorExportacion(salida, EscritorExportacion.Formato.CSV, "id", "observacion", "distancia")) {
+            csv.fila(new Object[]{1L, "Llegó tarde, dijo \"bus\"", 3.5});
+            csv.fila(new Object[]{2L, null, null});
+        }
+
+        assertEquals("id,observacion,distancia\n1,\"Llegó tarde, dijo \"\"bus\"\"\",3.5\n2,,\n",
+            salida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ndjsonEscribeUnObjetoPorLinea() throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (EscritorExportacion ndjson = new EscritorExportacion(salida, EscritorExportacion.Formato.NDJSON, "id", "estado", "observacion", "distancia")) {
+            ndjson.fila(new Object[]{1L, EstadoAsistencia.PRESENTE, "línea 1\n\"dos\"", Double.NaN});
+            ndjson.fila(new Object[]{2L, EstadoAsistencia.TARDIO, null, 12.0});
+        }
+
+        assertEquals("{\"id\":1,\"estado\":\"PRESENTE\",\"observacion\":\"línea 1\\n\\\"dos\\\"\",\"distancia\":null}\n"
+                + "{\"id\":2,\"estado\":\"TARDIO\",\"observacion\":null,\"distancia\":12.0}\n",
+            salida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void formatoDesconocidoSeRechaza() {
+        RuntimeException error = assertThrows(RuntimeException.class, () -> EscritorExportacion.Formato.desde("xml"));
+        assertTrue(error.getMessage().startsWith("Formato de exportación no soportado"));
+        assertEquals(EscritorExportacion.Formato.NDJSON, EscritorExportacion.Formato.desde("NDJson"));
+    }
+
+    /**
+     * Extracto sintético de 5.000.000 de filas con las columnas de la exportación por periodo, en CSV
+     * comprimido: el heap retenido no debe crecer con el número de filas. Depende de System.gc() y
+     * tarda varios segundos, así que queda fuera de la tarea test (./gradlew testLento).
+     */
+    @Test
+    @Tag("lento")
+    void cincoMillonesDeFilasConMemoriaAcotada() throws IOException {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        LocalDateTime fecha = LocalDateTime.of(2025, 3, 10, 8, 15, 30);
+        Object[] fila = {0L, fecha, EstadoAsistencia.PRESENTE, 12.5, 7.0653, -73.8547, null,
+            1L, "1098765432", "Ana María", "Ruiz", "ana.ruiz@unipaz.edu.co", 3L, "603D12025B",
+            "Programación I - Diurna", 40L, "Clase 4", fecha};
+        ContadorDeBytes salida = new ContadorDeBytes();
+
+        long usadoInicial = 0;
+        GZIPOutputStream gzip = new GZIPOutputStream(salida, 64 * 1024);
+        try (EscritorExportacion csv = new EscritorExportacion(gzip, EscritorExportacion.Formato.CSV, COLUMNAS)) {
+            for (int i = 0; i < FILAS; i++) {
+                fila[0] = (long) i;
+                csv.fila(fila);
+                if (i == FILAS / 10) {
+                    usadoInicial = heapUsadoTrasGc(memoria);
+                }
+            }
+            long crecimiento = heapUsadoTrasGc(memoria) - usadoInicial;
+
+            assertEquals(FILAS, csv.getFilas());
+            assertTrue(crecimiento < CRECIMIENTO_MAXIMO_BYTES, "Crecimiento del heap: " + crecimiento);
+        }
+        gzip.finish();
+        assertTrue(salida.bytes > 0);
+    }
+
+    private static long heapUsadoTrasGc(MemoryMXBean memoria) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memoria.getHeapMemoryUsage().getUsed();
+    }
+
+    // Destino que descarta los bytes: solo cuenta lo escrito
+    private static class ContadorDeBytes extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
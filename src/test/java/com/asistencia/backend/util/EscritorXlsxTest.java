@@ -0,0 +1,111 @@
+package com.asistencia.backend.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscritorXlsxTest {
+
+    private static final int FILAS = 10_000;
+    private static final int COLUMNAS = 100;
+    // Crecimiento máximo del heap durante la exportación de 1M de celdas
+    private static final long CRECIMIENTO_MAXIMO_BYTES = 8L * 1024 * 1024;
+
+    @Test
+    void generaLasPartesDelLibroConLasCeldasEscapadas() throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (EscritorXlsx xlsx = new EscritorXlsx(salida, "Asistencia")) {
+            xlsx.fila(List.of("Estudiante", "Clase 1"));
+            xlsx.fila(Arrays.asList("Ana & <Ruiz>", null, 3L));
+        }
+
+        Map<String, String> partes = leerPartes(salida.toByteArray());
+
+        assertTrue(partes.keySet().containsAll(List.of("[Content_Types].xml", "_rels/.rels",
+            "xl/workbook.xml", "xl/_rels/workbook.xml.rels", "xl/styles.xml", "xl/worksheets/sheet1.xml")));
+        String hoja = partes.get("xl/worksheets/sheet1.xml");
+        assertTrue(hoja.contains("<c r=\"A2\" t=\"inlineStr\"><is><t>Ana &amp; &lt;Ruiz&gt;</t></is></c>"));
+        assertTrue(hoja.contains("<c r=\"C2\"><v>3</v></c>"));
+        assertTrue(hoja.endsWith("</sheetData></worksheet>"));
+    }
+
+    /**
+     * Hoja sintética de 1.000.000 de celdas (10.000 filas × 100 columnas): el heap retenido
+     * después de escribir todas las filas no debe crecer respecto al de las primeras filas.
+     * Depende de System.gc(), así que queda fuera de la tarea test (./gradlew testLento).
+     */
+    @Test
+    @Tag("lento")
+    void laMemoriaNoCreceConElNumeroDeFilas() throws IOException {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        List<Object> fila = new ArrayList<>(COLUMNAS);
+        for (int i = 0; i < COLUMNAS; i++) {
+            fila.add(i % 3 == 0 ? "PRESENTE" : (Object) (long) i);
+        }
+        ContadorDeBytes salida = new ContadorDeBytes();
+
+        long usadoInicial = 0;
+        try (EscritorXlsx xlsx = new EscritorXlsx(salida, "Asistencia")) {
+            for (int i = 0; i < FILAS; i++) {
+                xlsx.fila(fila);
+                if (i == FILAS / 10) {
+                    usadoInicial = heapUsadoTrasGc(memoria);
+                }
+            }
+            long crecimiento = heapUsadoTrasGc(memoria) - usadoInicial;
+
+            assertEquals(FILAS, xlsx.getFilas());
+            assertTrue(crecimiento < CRECIMIENTO_MAXIMO_BYTES, "Crecimiento del heap: " + crecimiento);
+        }
+        assertTrue(salida.bytes > 0);
+    }
+
+    private static long heapUsadoTrasGc(MemoryMXBean memoria) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memoria.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Map<String, String> leerPartes(byte[] xlsx) throws IOException {
+        Map<String, String> partes = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(xlsx))) {
+            ZipEntry entrada;
+            while ((entrada = zip.getNextEntry()) != null) {
+                partes.put(entrada.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return partes;
+    }
+
+    // Destino que descarta los bytes: solo cuenta lo escrito
+    private static class ContadorDeBytes extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
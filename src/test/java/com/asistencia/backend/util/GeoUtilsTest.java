@@ -0,0 +1,188 @@
+package com.asistencia.backend.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GeoUtilsTest {
+
+    // Extremos de Colombia continental e insular
+    private static final double LATITUD_MINIMA = -4.3;
+    private static final double LATITUD_MAXIMA = 13.5;
+    private static final double LONGITUD_MINIMA = -81.8;
+    private static final double LONGITUD_MAXIMA = -66.8;
+    private static final double METROS_POR_GRADO = 6371000 * Math.PI / 180;
+    private static final int PUNTOS = 1_000_000;
+    // Posición del profesor para las pruebas por lotes (Barrancabermeja)
+    private static final double LAT_ORIGEN = 7.0653;
+    private static final double LON_ORIGEN = -73.8547;
+
+    @Test
+    void distanciaLocalCoincideConHaversineEnColombia() {
+        Random aleatorio = new Random(42);
+        double errorMaximo = 0;
+        for (int i = 0; i < PUNTOS; i++) {
+            double[] par = parAleatorio(aleatorio, GeoUtils.DISTANCIA_LOCAL_MAXIMA);
+            double haversine = GeoUtils.calcularDistancia(par[0], par[1], par[2], par[3]);
+            double local = GeoUtils.distanciaLocal(par[0], par[1], par[2], par[3]);
+            errorMaximo = Math.max(errorMaximo, Math.abs(haversine - local));
+        }
+
+        // Cota documentada en GeoUtils.distanciaLocal: menos de 1 µm
+        assertTrue(errorMaximo < 1e-6, "Error máximo: " + errorMaximo + " m");
+    }
+
+    @Test
+    void dentroDelRadioCoincideConHaversine() {
+        Random aleatorio = new Random(7);
+        for (int i = 0; i < PUNTOS; i++) {
+            double[] par = parAleatorio(aleatorio, 12);
+            double haversine = GeoUtils.calcularDistancia(par[0], par[1], par[2], par[3]);
+            // Se dejan fuera los puntos a menos de 1 µm del borde del radio
+            if (Math.abs(haversine - 6.0) > 1e-6) {
+                assertEquals(haversine <= 6.0, GeoUtils.dentroDelRadio(par[0], par[1], par[2], par[3], 6.0));
+            }
+        }
+        // Radio mayor que el local: Bogotá - Medellín (~240 km)
+        assertTrue(GeoUtils.dentroDelRadio(4.711, -74.072, 6.244, -75.581, 250_000));
+        assertFalse(GeoUtils.dentroDelRadio(4.711, -74.072, 6.244, -75.581, 200_000));
+    }
+
+    @Test
+    void distanciaLocalCruzaElAntimeridiano() {
+        assertEquals(GeoUtils.calcularDistancia(0, 179.9999, 0, -179.9999),
+            GeoUtils.distanciaLocal(0, 179.9999, 0, -179.9999), 1e-6);
+    }
+
+    /**
+     * Mide las dos comprobaciones de radio sobre los mismos pares (mejor ronda de cada una) y exige que
+     * dentroDelRadio cueste menos de la mitad que Haversine. Las cuentas de puntos dentro deben coincidir,
+     * lo que además impide que el JIT elimine los cálculos.
+     */
+    @Test
+    @Tag("lento")
+    void dentroDelRadioCuestaMenosDeLaMitadQueHaversine() {
+        Random aleatorio = new Random(1);
+        double[][] pares = new double[10_000][];
+        for (int i = 0; i < pares.length; i++) {
+            pares[i] = parAleatorio(aleatorio, 10);
+        }
+
+        long mejorHaversine = Long.MAX_VALUE;
+        long mejorLocal = Long.MAX_VALUE;
+        for (int ronda = 0; ronda < 30; ronda++) {
+            long inicio = System.nanoTime();
+            long dentroHaversine = contarDentro(pares, true);
+            long medio = System.nanoTime();
+            long dentroLocal = contarDentro(pares, false);
+            mejorHaversine = Math.min(mejorHaversine, medio - inicio);
+            mejorLocal = Math.min(mejorLocal, System.nanoTime() - medio);
+            assertEquals(dentroHaversine, dentroLocal);
+        }
+
+        double calculos = 100.0 * pares.length;
+        System.out.printf("haversine: %.1f ns por cálculo, dentroDelRadio: %.1f ns por cálculo%n",
+            mejorHaversine / calculos, mejorLocal / calculos);
+        assertTrue(mejorLocal * 2 < mejorHaversine,
+            "Haversine: " + mejorHaversine + " ns, dentroDelRadio: " + mejorLocal + " ns");
+    }
+
+    // 100 pasadas sobre los pares; cuenta los puntos a 6 metros o menos
+    private static long contarDentro(double[][] pares, boolean haversine) {
+        long dentro = 0;
+        for (int r = 0; r < 100; r++) {
+            for (double[] par : pares) {
+                boolean cerca = haversine
+                    ? GeoUtils.calcularDistancia(par[0], par[1], par[2], par[3]) <= 6.0
+                    : GeoUtils.dentroDelRadio(par[0], par[1], par[2], par[3], 6.0);
+                dentro += cerca ? 1 : 0;
+            }
+        }
+        return dentro;
+    }
+
+    @Test
+    void distanciasPorLotesCoincidenConDistanciaLocal() {
+        // Longitud que no es múltiplo del ancho del vector: el final pasa por el ciclo escalar
+        int filas = 10_003;
+        double[][] columnas = columnas(new Random(3), filas, 12);
+        double[] distancias = new double[filas];
+        boolean[] enRango = new boolean[filas];
+
+        GeoUtils.distanciasLocales(LAT_ORIGEN, LON_ORIGEN, columnas[0], columnas[1], filas, 6.0, distancias, enRango);
+
+        for (int i = 0; i < filas; i++) {
+            double local = GeoUtils.distanciaLocal(LAT_ORIGEN, LON_ORIGEN, columnas[0][i], columnas[1][i]);
+            assertEquals(local, distancias[i], 1e-9);
+            if (Math.abs(local - 6.0) > 1e-9) {
+                assertEquals(local <= 6.0, enRango[i]);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> GeoUtils.distanciasLocales(
+            LAT_ORIGEN, LON_ORIGEN, columnas[0], new double[1], filas, 6.0, distancias, enRango));
+    }
+
+    /**
+     * Compara el lote vectorial con el ciclo escalar sobre las mismas columnas. Solo corre si la JVM
+     * arrancó con --add-modules jdk.incubator.vector (la tarea testLento lo agrega).
+     */
+    @Test
+    @Tag("lento")
+    void elLoteVectorialEsMasRapidoQueElCicloEscalar() {
+        assumeTrue(GeoUtils.isVectorial(), "La API de vectores no está disponible");
+        int filas = 100_000;
+        double[][] columnas = columnas(new Random(5), filas, 10);
+        double[] vectorial = new double[filas];
+        double[] escalar = new double[filas];
+        boolean[] enRangoVectorial = new boolean[filas];
+        boolean[] enRangoEscalar = new boolean[filas];
+
+        long mejorVectorial = Long.MAX_VALUE;
+        long mejorEscalar = Long.MAX_VALUE;
+        for (int ronda = 0; ronda < 50; ronda++) {
+            long inicio = System.nanoTime();
+            GeoUtils.distanciasLocales(LAT_ORIGEN, LON_ORIGEN, columnas[0], columnas[1], filas, 6.0, vectorial, enRangoVectorial);
+            long medio = System.nanoTime();
+            GeoUtils.distanciasLocalesEscalar(LAT_ORIGEN, LON_ORIGEN, columnas[0], columnas[1], 0, filas, 6.0, escalar, enRangoEscalar);
+            mejorVectorial = Math.min(mejorVectorial, medio - inicio);
+            mejorEscalar = Math.min(mejorEscalar, System.nanoTime() - medio);
+        }
+
+        for (int i = 0; i < filas; i++) {
+            assertEquals(escalar[i], vectorial[i], 1e-9);
+        }
+        System.out.printf("vectorial: %.2f ns por fila, escalar: %.2f ns por fila%n",
+            (double) mejorVectorial / filas, (double) mejorEscalar / filas);
+        assertTrue(mejorVectorial < mejorEscalar,
+            "Vectorial: " + mejorVectorial + " ns, escalar: " + mejorEscalar + " ns");
+    }
+
+    // Coordenadas de estudiantes a menos de distanciaMaxima metros del origen
+    private static double[][] columnas(Random aleatorio, int filas, double distanciaMaxima) {
+        double[][] columnas = new double[2][filas];
+        for (int i = 0; i < filas; i++) {
+            double distancia = aleatorio.nextDouble() * distanciaMaxima;
+            double rumbo = aleatorio.nextDouble() * 2 * Math.PI;
+            columnas[0][i] = LAT_ORIGEN + distancia * Math.cos(rumbo) / METROS_POR_GRADO;
+            columnas[1][i] = LON_ORIGEN + distancia * Math.sin(rumbo) / (METROS_POR_GRADO * Math.cos(Math.toRadians(LAT_ORIGEN)));
+        }
+        return columnas;
+    }
+
+    // Punto aleatorio de Colombia y otro a menos de distanciaMaxima metros en cualquier dirección
+    private static double[] parAleatorio(Random aleatorio, double distanciaMaxima) {
+        double lat = LATITUD_MINIMA + aleatorio.nextDouble() * (LATITUD_MAXIMA - LATITUD_MINIMA);
+        double lon = LONGITUD_MINIMA + aleatorio.nextDouble() * (LONGITUD_MAXIMA - LONGITUD_MINIMA);
+        double distancia = aleatorio.nextDouble() * distanciaMaxima;
+        double rumbo = aleatorio.nextDouble() * 2 * Math.PI;
+        return new double[]{
+            lat, lon,
+            lat + distancia * Math.cos(rumbo) / METROS_POR_GRADO,
+            lon + distancia * Math.sin(rumbo) / (METROS_POR_GRADO * Math.cos(Math.toRadians(lat)))
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.asistencia.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapaConteosTest {
+
+    @Test
+    void coincideConUnHashMapAlCrecer() {
+        Random aleatorio = new Random(9);
+        MapaConteos mapa = new MapaConteos(4);
+        Map<Long, Integer> esperado = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Claves con forma de par (idA << 32 | idB) y repeticiones frecuentes
+            long clave = ((long) aleatorio.nextInt(500) << 32) | aleatorio.nextInt(500);
+            int valor = mapa.sumar(clave, 1);
+            assertEquals((int) esperado.merge(clave, 1, Integer::sum), valor);
+        }
+
+        assertEquals(esperado.size(), mapa.tamano());
+        esperado.forEach((clave, conteo) -> assertEquals((int) conteo, mapa.obtener(clave)));
+        int[] recorridas = new int[1];
+        mapa.recorrer((clave, conteo) -> {
+            assertEquals((int) esperado.get(clave), conteo);
+            recorridas[0]++;
+        });
+        assertEquals(esperado.size(), recorridas[0]);
+        assertEquals(0, mapa.obtener(-1L));
+    }
+
+    @Test
+    void rechazaLaClaveReservada() {
+        assertThrows(IllegalArgumentException.class, () -> new MapaConteos(16).sumar(Long.MIN_VALUE, 1));
+    }
+}
@@ -0,0 +1,90 @@
+package com.asistencia.backend.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoligonoTest {
+
+    // Aula rectangular de unos 11 x 7 metros en Bogotá
+    private static final Poligono AULA = new Poligono(
+        new double[]{4.63800, 4.63800, 4.63810, 4.63810},
+        new double[]{-74.08400, -74.08394, -74.08394, -74.08400});
+
+    // Aula en L: el cuadrante superior derecho no pertenece al polígono
+    private static final Poligono AULA_EN_L = new Poligono(
+        new double[]{0, 0, 1, 1, 2, 2},
+        new double[]{0, 2, 2, 1, 1, 0});
+
+    @Test
+    void contieneLosPuntosInterioresDelRectangulo() {
+        assertTrue(AULA.contiene(4.63805, -74.08397));
+        assertFalse(AULA.contiene(4.63805, -74.08390));
+        assertFalse(AULA.contiene(4.63820, -74.08397));
+    }
+
+    @Test
+    void respetaLaConcavidad() {
+        assertTrue(AULA_EN_L.contiene(0.5, 0.5));
+        assertTrue(AULA_EN_L.contiene(0.5, 1.5));
+        assertTrue(AULA_EN_L.contiene(1.5, 0.5));
+        // Dentro del rectángulo envolvente pero fuera del polígono
+        assertFalse(AULA_EN_L.contiene(1.5, 1.5));
+    }
+
+    @Test
+    void conservaLosVerticesEnTexto() {
+        Poligono leido = Poligono.desdeTexto(AULA.aTexto());
+
+        assertEquals(AULA.getVertices(), leido.getVertices());
+        for (int i = 0; i < AULA.getVertices(); i++) {
+            assertEquals(AULA.getLatitud(i), leido.getLatitud(i));
+            assertEquals(AULA.getLongitud(i), leido.getLongitud(i));
+        }
+    }
+
+    @Test
+    void rechazaPoligonosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> new Poligono(new double[]{0, 1}, new double[]{0, 1}));
+        assertThrows(IllegalArgumentException.class, () -> new Poligono(new double[]{0, 1, 2}, new double[]{0, 1}));
+        assertThrows(IllegalArgumentException.class, () -> new Poligono(new double[]{0, 1, 91}, new double[]{0, 1, 2}));
+        assertThrows(IllegalArgumentException.class, () -> Poligono.desdeTexto("0,0;1;2,2"));
+    }
+
+    /**
+     * Rendimiento de la firma con geocerca: al menos 10 000 comprobaciones por segundo en un hilo (un núcleo).
+     * Los puntos caen la mitad cerca del aula (prueba completa) y la mitad lejos (solo el rectángulo).
+     * Se toma la mejor de varias rondas para no medir el calentamiento del JIT.
+     */
+    @Test
+    @Tag("lento")
+    void superaDiezMilComprobacionesPorSegundoPorNucleo() {
+        Random aleatorio = new Random(11);
+        int puntos = 100_000;
+        double[] latitudes = new double[puntos];
+        double[] longitudes = new double[puntos];
+        for (int i = 0; i < puntos; i++) {
+            double alcance = i % 2 == 0 ? 0.0002 : 0.01;
+            latitudes[i] = 4.63805 + (aleatorio.nextDouble() - 0.5) * alcance;
+            longitudes[i] = -74.08397 + (aleatorio.nextDouble() - 0.5) * alcance;
+        }
+
+        int dentro = 0;
+        long mejor = Long.MAX_VALUE;
+        for (int ronda = 0; ronda < 10; ronda++) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < puntos; i++) {
+                dentro += AULA.contiene(latitudes[i], longitudes[i]) ? 1 : 0;
+            }
+            mejor = Math.min(mejor, System.nanoTime() - inicio);
+        }
+        double porSegundo = puntos * 1e9 / mejor;
+        System.out.printf("Poligono.contiene: %.0f comprobaciones por segundo en un núcleo%n", porSegundo);
+
+        assertTrue(dentro > 0);
+        assertTrue(porSegundo >= 10_000, "Comprobaciones por segundo: " + porSegundo);
+    }
+}